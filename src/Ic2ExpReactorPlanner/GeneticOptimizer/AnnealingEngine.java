@@ -0,0 +1,262 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Simulated annealing with parallel tempering.
+ * <p>
+ * {@code annealing.chainCount} chains each follow a single design. Every step, each chain proposes a neighbour made
+ * with the regular mutation operators (refinement rates for the colder half of the chains, exploration rates for the
+ * hotter half), all proposals are simulated as one batch, and each chain accepts its proposal with the Metropolis rule
+ * at its own temperature. Temperatures form a geometric ladder from {@code minTemperature} to {@code maxTemperature},
+ * the whole ladder cooling down to {@code finalTemperatureScale} times its starting values over the run.
+ * <p>
+ * Every {@code exchangeInterval} steps, neighbouring chains try to swap their designs, so good designs found by hot
+ * chains sink toward the cold ones. A tabu list of the last {@code tabuSize} designs visited, shared by all chains,
+ * keeps proposals from going back to a design that was already simulated.
+ * <p>
+ * Seed reactors start the chains, which makes it a cheap way to refine a known-good design.
+ */
+public class AnnealingEngine implements SearchEngine {
+    // Tries to propose a design that changed and isn't tabu before the chain sits the step out
+    private static final int MAX_PROPOSAL_ATTEMPTS = 50;
+
+    private final GAConfig config;
+    private final long seed;
+    private final List<ReactorGenome> startingPopulation;
+
+    private final ExecutorService executor;
+    private final GenomeEvaluator genomeEvaluator;
+
+    private final TabuList tabu;
+
+    public AnnealingEngine(GAConfig config, long seed) {
+        this.config = config;
+        this.seed = seed;
+        this.startingPopulation = new ArrayList<>();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HeatBalanceAnalyzer heatBalanceAnalyzer = config.isHeatBalanceEnabled() ? new HeatBalanceAnalyzer(config) : null;
+        this.genomeEvaluator = new GenomeEvaluator(config, new SimulationPool(this.executor), new FitnessCalculator(config), heatBalanceAnalyzer);
+        this.tabu = new TabuList(config.annealing.tabuSize);
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+        GAConfig.AnnealingConfig annealing = this.config.annealing;
+        int chainCount = Math.max(1, annealing.chainCount);
+
+        printVerbose(verbose, "Annealing settings: %s", annealing.toString());
+        printVerbose(verbose, "Starting annealing...");
+
+        // Seeds first, random designs for the chains left
+        List<ReactorGenome> startingDesigns = new ArrayList<>();
+        RandomGenerator initialRandom = RandomStreams.forSlot(this.seed, -1, 0);
+        for (int i = 0; i < chainCount; i++) {
+            if (!this.startingPopulation.isEmpty())
+                startingDesigns.add(this.startingPopulation.get(i % this.startingPopulation.size()).copy());
+            else
+                startingDesigns.add(ReactorGenome.randomGenome(this.config, initialRandom));
+        }
+
+        List<EvolutionEngine.EvaluatedGenome> chains = new ArrayList<>(this.genomeEvaluator.evaluate(startingDesigns));
+        for (ReactorGenome design : startingDesigns)
+            this.tabu.add(design);
+
+        // Best design each chain has seen so far, and the best overall
+        List<EvolutionEngine.EvaluatedGenome> chainBests = new ArrayList<>(chains);
+        EvolutionEngine.EvaluatedGenome best = Collections.max(chains, Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness));
+
+        int acceptedCount = 0, proposedCount = 0, tabuHitCount = 0, swapCount = 0, swapAttemptCount = 0;
+        long intervalStartTime = System.nanoTime();
+        for (int step = 0; step < annealing.steps; step++) {
+            double[] temperatures = temperatures(step, chainCount);
+
+            // Propose
+            List<ReactorGenome> proposals = new ArrayList<>(chainCount);
+            List<Integer> proposingChains = new ArrayList<>(chainCount);
+            for (int chain = 0; chain < chainCount; chain++) {
+                RandomGenerator slotRandom = RandomStreams.forSlot(this.seed, step, chain);
+                GAConfig.PhaseProbabilities probabilities = chain * 2 < chainCount ? this.config.mutation.refinement : this.config.mutation.exploration;
+
+                ReactorGenome current = chains.get(chain).getGenome();
+                ReactorGenome proposal = null;
+                for (int attempt = 0; attempt < MAX_PROPOSAL_ATTEMPTS && proposal == null; attempt++) {
+                    ReactorGenome candidate = current.copy();
+                    candidate.tryMutation(this.config, probabilities, slotRandom);
+                    if (candidate.equals(current))
+                        continue;
+
+                    if (this.tabu.contains(candidate)) {
+                        tabuHitCount++;
+                        continue;
+                    }
+
+                    proposal = candidate;
+                }
+
+                if (proposal != null) {
+                    this.tabu.add(proposal);
+                    proposals.add(proposal);
+                    proposingChains.add(chain);
+                }
+            }
+
+            // Accept or reject, each chain at its own temperature
+            List<EvolutionEngine.EvaluatedGenome> evaluatedProposals = this.genomeEvaluator.evaluate(proposals);
+            for (int i = 0; i < evaluatedProposals.size(); i++) {
+                int chain = proposingChains.get(i);
+                EvolutionEngine.EvaluatedGenome proposal = evaluatedProposals.get(i);
+                RandomGenerator acceptanceRandom = RandomStreams.forSlot(this.seed, step, chainCount + chain);
+
+                double delta = proposal.getFitness() - chains.get(chain).getFitness();
+                proposedCount++;
+                if (delta >= 0 || acceptanceRandom.nextDouble() < Math.exp(delta / temperatures[chain])) {
+                    chains.set(chain, proposal);
+                    acceptedCount++;
+                }
+
+                if (proposal.getFitness() > chainBests.get(chain).getFitness())
+                    chainBests.set(chain, proposal);
+                if (proposal.getFitness() > best.getFitness())
+                    best = proposal;
+            }
+
+            // Parallel tempering: neighbouring chains swap designs, the better one going to the colder chain
+            boolean exchangeStep = annealing.exchangeInterval > 0 && (step + 1) % annealing.exchangeInterval == 0;
+            if (exchangeStep) {
+                RandomGenerator exchangeRandom = RandomStreams.forSlot(this.seed, step, 2 * chainCount);
+                for (int chain = 0; chain + 1 < chainCount; chain++) {
+                    swapAttemptCount++;
+                    if (acceptSwap(chains.get(chain).getFitness(), temperatures[chain], chains.get(chain + 1).getFitness(), temperatures[chain + 1], exchangeRandom)) {
+                        EvolutionEngine.EvaluatedGenome colder = chains.get(chain);
+                        chains.set(chain, chains.get(chain + 1));
+                        chains.set(chain + 1, colder);
+                        swapCount++;
+                    }
+                }
+            }
+
+            if (exchangeStep || step == annealing.steps - 1) {
+                double intervalElapsedTimeMS = (System.nanoTime() - intervalStartTime) / 1e6;
+                printVerbose(verbose, "Step %d: best fitness %.2f (%.2fEU/t), coldest chain %.2f at T=%.2f, %.0f%% accepted, %d/%d swaps, %d tabu hits, took %.2fms", step, best.getFitness(), best.getSimulationData().avgEUOutput, chains.get(0).getFitness(), temperatures[0], proposedCount > 0 ? 100.0 * acceptedCount / proposedCount : 0, swapCount, swapAttemptCount, tabuHitCount, intervalElapsedTimeMS);
+
+                acceptedCount = proposedCount = tabuHitCount = swapCount = swapAttemptCount = 0;
+                intervalStartTime = System.nanoTime();
+            }
+        }
+
+        // Distinct designs, the best overall first
+        List<EvolutionEngine.EvaluatedGenome> candidates = new ArrayList<>(chainBests);
+        candidates.addAll(chains);
+        Set<ReactorGenome> seen = new HashSet<>();
+        List<EvolutionEngine.EvaluatedGenome> results = new ArrayList<>();
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : candidates) {
+            if (seen.add(evaluatedGenome.getGenome()))
+                results.add(evaluatedGenome);
+        }
+        results.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        printVerbose(verbose, "Annealing finished! Took %.2fms", globalElapsedTimeMS);
+        printVerbose(verbose, "Best design: %s x%d - Fitness: %.2f; Output: %.2fEU/t - %s", getFuelTypeName(best.getGenome()), best.getGenome().getFuelRodCount(), best.getFitness(), best.getSimulationData().avgEUOutput, best.getGenome().getERPCode());
+
+        this.genomeEvaluator.close();
+
+        // executor cleanup
+        try {
+            this.executor.shutdown();
+            if (!this.executor.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination timed out. Is there a threading issue?");
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination had to be interrupted. Is there a threading issue? [" + e.getCause() + "]");
+            Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    // Geometric ladder, coldest chain first, scaled down geometrically over the run
+    private double[] temperatures(int step, int chainCount) {
+        GAConfig.AnnealingConfig annealing = this.config.annealing;
+        double progress = annealing.steps > 1 ? step / (double) (annealing.steps - 1) : 0;
+        double scale = Math.pow(annealing.finalTemperatureScale, progress);
+
+        double[] temperatures = new double[chainCount];
+        for (int chain = 0; chain < chainCount; chain++) {
+            double position = chainCount > 1 ? chain / (double) (chainCount - 1) : 0;
+            temperatures[chain] = annealing.minTemperature * Math.pow(annealing.maxTemperature / annealing.minTemperature, position) * scale;
+        }
+
+        return temperatures;
+    }
+
+    /**
+     * Replica exchange rule: a colder and a hotter chain swap their designs with probability
+     * {@code exp((hotterFitness - colderFitness) * (1 / colderTemperature - 1 / hotterTemperature))}, so always when
+     * the hotter chain holds the better design.
+     */
+    public static boolean acceptSwap(double colderFitness, double colderTemperature, double hotterFitness, double hotterTemperature, RandomGenerator random) {
+        double fitnessDelta = hotterFitness - colderFitness;
+        double inverseTemperatureDelta = 1 / colderTemperature - 1 / hotterTemperature;
+        return random.nextDouble() < Math.exp(fitnessDelta * inverseTemperatureDelta);
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+
+    private static String getFuelTypeName(ReactorGenome genome) {
+        ReactorItem fuelType = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelType != null ? fuelType.name : "Unknown fuel";
+    }
+
+    /**
+     * The last {@code tenure} distinct designs visited, the oldest one forgotten first. Visiting a design again doesn't
+     * make it any younger.
+     */
+    public static class TabuList {
+        private final int tenure;
+        // Insertion ordered, the oldest designs are forgotten first
+        private final Set<ReactorGenome> designs;
+
+        public TabuList(int tenure) {
+            this.tenure = tenure;
+            this.designs = new LinkedHashSet<>();
+        }
+
+        public void add(ReactorGenome genome) {
+            if (!this.designs.add(genome))
+                return;
+
+            if (this.designs.size() > this.tenure) {
+                Iterator<ReactorGenome> oldest = this.designs.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+
+        public boolean contains(ReactorGenome genome) {
+            return this.designs.contains(genome);
+        }
+
+        public int size() {
+            return this.designs.size();
+        }
+    }
+}
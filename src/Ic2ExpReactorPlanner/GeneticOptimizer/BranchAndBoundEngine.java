@@ -0,0 +1,455 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.Reactor;
+import Ic2ExpReactorPlanner.components.FuelRod;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exhaustive search of the designs sharing the fuel layout (fuel type and fuel rod slots) of a seed reactor, the other
+ * slots taking any valid component that isn't a fuel rod.
+ * <p>
+ * The slots are decided one at a time, the ones next to the most fuel rods first. Every node gets an upper bound of the
+ * fitness of its completions ({@link FitnessCalculator#upperBound(double, int, double)}) built from:
+ * <ul>
+ *     <li>the most EU/t the fuel rods could produce, every undecided neighbour counting as a reflector if one is
+ *     valid;</li>
+ *     <li>the least hull heat the reactor will have to hold, from the heat balance with the undecided slots bringing
+ *     the most cooling and heat capacity they could
+ *     ({@link HeatBalanceAnalyzer#minimumHullHeat(int, int[], int[])}).</li>
+ * </ul>
+ * Subtrees whose bound can't beat the best design so far are pruned. When the fuel layout is symmetric under a mirror,
+ * only the lexicographically smallest of mirrored designs is explored: slots are decided by mirror orbits and a design
+ * is dropped as soon as an orbit makes it bigger than one of its mirror images. The simulator goes through the slots in
+ * order, so mirror images can differ by a few hundredths of fitness, that's why it's an option
+ * ({@code branchAndBound.mirrorSymmetry}).
+ * <p>
+ * Subtrees are split across cores with a {@link ForkJoinPool}, idle workers stealing the pending ones. The best design
+ * found is a proven optimum unless {@code branchAndBound.maxSimulations} stopped the search early.
+ */
+public class BranchAndBoundEngine implements SearchEngine {
+    // Subtrees get forked until there are about this many per core, smaller ones run on the thread that has them
+    private static final int SUBTREES_PER_CORE = 64;
+
+    private final GAConfig config;
+    private final List<ReactorGenome> startingPopulation;
+
+    private final ExecutorService executor;
+    private final ForkJoinPool forkJoinPool;
+    private final GenomeEvaluator genomeEvaluator;
+    private final FitnessCalculator fitnessCalculator;
+    private final HeatBalanceAnalyzer heatBalanceAnalyzer;
+
+    private final int[] alternatives;
+    private final boolean reflectorAlternative;
+    private final double maxHullHeatRatio;
+    private final double baseHullMaxHeat;
+
+    // Search state, shared by the workers
+    private final List<EvolutionEngine.EvaluatedGenome> improvements = new ArrayList<>();
+    private volatile double incumbentFitness = 0;
+    private volatile boolean budgetExhausted = false;
+    private final AtomicLong simulationCount = new AtomicLong();
+    private final LongAdder nodeCount = new LongAdder();
+    private final LongAdder boundPrunedCount = new LongAdder();
+    private final LongAdder symmetryPrunedCount = new LongAdder();
+
+    public BranchAndBoundEngine(GAConfig config) {
+        this.config = config;
+        this.startingPopulation = new ArrayList<>();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.fitnessCalculator = new FitnessCalculator(config);
+        this.heatBalanceAnalyzer = new HeatBalanceAnalyzer(config);
+        this.genomeEvaluator = new GenomeEvaluator(config, new SimulationPool(this.executor), this.fitnessCalculator, config.isHeatBalanceEnabled() ? this.heatBalanceAnalyzer : null);
+
+        // Fuel rods only go where the seed has them
+        List<Integer> alternatives = new ArrayList<>();
+        boolean reflectorAlternative = false;
+        for (int componentId : config.components.valid) {
+            if (componentId == ReactorGenome.FUEL_VALUE)
+                continue;
+
+            ReactorItem component = componentId >= 0 ? ComponentFactory.getDefaultComponent(componentId) : null;
+            if (component instanceof FuelRod)
+                continue;
+
+            alternatives.add(componentId);
+            reflectorAlternative |= component != null && component.isNeutronReflector();
+        }
+        this.alternatives = alternatives.stream().mapToInt(Integer::intValue).toArray();
+        this.reflectorAlternative = reflectorAlternative;
+
+        // A design hotter than the allowed temperature scores 0, so MOX-style rods never get a bigger boost than this
+        this.baseHullMaxHeat = new Reactor().getMaxHeat();
+        this.maxHullHeatRatio = Math.min(1, FitnessCalculator.MAX_ALLOWED_TEMP / this.baseHullMaxHeat);
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+
+        printVerbose(verbose, "Branch and bound settings: %s", this.config.branchAndBound.toString());
+
+        // One search space per distinct seed fuel layout
+        List<SearchSpace> spaces = new ArrayList<>();
+        Set<ReactorGenome> templates = new HashSet<>();
+        List<ReactorGenome> seedsInSpace = new ArrayList<>();
+        for (ReactorGenome seedGenome : this.startingPopulation) {
+            ReactorGenome template = seedGenome.copy();
+            boolean inSpace = true;
+            for (int i = 0; i < template.getReactorLayout().length; i++) {
+                if (template.isFuelRodAt(i))
+                    continue;
+
+                int componentId = template.getReactorLayout()[i];
+                inSpace &= Arrays.stream(this.alternatives).anyMatch(alternative -> alternative == componentId);
+                template.setComponentAt(i, HeatBalanceAnalyzer.UNDECIDED);
+            }
+
+            if (templates.add(template))
+                spaces.add(new SearchSpace(template));
+            if (inSpace)
+                seedsInSpace.add(seedGenome);
+        }
+
+        if (spaces.isEmpty()) {
+            Logger.log(Logger.LogLevel.WARNING, "Branch and bound needs seed reactors to take the fuel layouts from, see evolution.seedFile");
+        } else {
+            // The seeds that are part of the search give the first incumbent
+            for (EvolutionEngine.EvaluatedGenome evaluatedSeed : this.genomeEvaluator.evaluate(seedsInSpace))
+                offer(evaluatedSeed);
+
+            for (int i = 0; i < spaces.size() && !this.budgetExhausted; i++) {
+                SearchSpace space = spaces.get(i);
+                if (space.fuelRod == null) {
+                    Logger.log(Logger.LogLevel.WARNING, "Skipping fuel layout %d/%d, its fuel type %d isn't a fuel rod", i + 1, spaces.size(), space.template.getFuelType());
+                    continue;
+                }
+
+                long spaceStartTime = System.nanoTime();
+                printVerbose(verbose, "Searching fuel layout %d/%d: %s x%d, %d free slots in %d orbits, %d symmetries", i + 1, spaces.size(), getFuelTypeName(space.template), space.fuelSlots.length, space.slotOrder.length, space.orbitEnds.length, space.symmetries.size());
+
+                int[] layout = space.template.getReactorLayout().clone();
+                this.forkJoinPool.invoke(new SubtreeTask(space, layout, 0, new boolean[space.symmetries.size()]));
+
+                double spaceElapsedTimeMS = (System.nanoTime() - spaceStartTime) / 1e6;
+                printVerbose(verbose, "Fuel layout %d/%d done: best fitness so far %.2f, %d nodes, %d pruned by bound, %d by symmetry, %d simulations, took %.2fms", i + 1, spaces.size(), this.incumbentFitness, this.nodeCount.sum(), this.boundPrunedCount.sum(), this.symmetryPrunedCount.sum(), this.simulationCount.get(), spaceElapsedTimeMS);
+            }
+        }
+
+        List<EvolutionEngine.EvaluatedGenome> results = new ArrayList<>(this.improvements);
+        results.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        printVerbose(verbose, "Branch and bound finished! %d nodes, %d pruned by bound, %d pruned by symmetry, %d simulations, took %.2fms", this.nodeCount.sum(), this.boundPrunedCount.sum(), this.symmetryPrunedCount.sum(), this.simulationCount.get(), globalElapsedTimeMS);
+        if (!results.isEmpty()) {
+            EvolutionEngine.EvaluatedGenome best = results.get(0);
+            printVerbose(verbose, "%s: %s x%d - Fitness: %.2f; Output: %.2fEU/t - %s", this.budgetExhausted ? "Best design found" : "Proven optimum", getFuelTypeName(best.getGenome()), best.getGenome().getFuelRodCount(), best.getFitness(), best.getSimulationData().avgEUOutput, best.getGenome().getERPCode());
+        }
+        if (this.budgetExhausted)
+            Logger.log(Logger.LogLevel.WARNING, "Stopped after %d simulations (branchAndBound.maxSimulations), the result is not a proven optimum", this.config.branchAndBound.maxSimulations);
+
+        this.genomeEvaluator.close();
+
+        // executor cleanup
+        try {
+            this.forkJoinPool.shutdown();
+            this.executor.shutdown();
+            if (!this.executor.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination timed out. Is there a threading issue?");
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination had to be interrupted. Is there a threading issue? [" + e.getCause() + "]");
+            Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    private void explore(SearchSpace space, int[] layout, int depth, boolean[] untied, List<SubtreeTask> forks) {
+        this.nodeCount.increment();
+        if (this.budgetExhausted)
+            return;
+
+        if (bound(space, layout) <= this.incumbentFitness) {
+            this.boundPrunedCount.increment();
+            return;
+        }
+
+        if (depth == space.slotOrder.length) {
+            simulate(space, layout);
+            return;
+        }
+
+        int slot = space.slotOrder[depth];
+        boolean orbitEnd = Arrays.binarySearch(space.orbitEnds, depth) >= 0;
+        for (int componentId : this.alternatives) {
+            layout[slot] = componentId;
+
+            boolean[] childUntied = untied;
+            if (orbitEnd) {
+                childUntied = space.checkSymmetries(layout, depth, untied);
+                if (childUntied == null) {
+                    this.symmetryPrunedCount.increment();
+                    continue;
+                }
+            }
+
+            if (forks != null && depth + 1 < space.forkDepth)
+                explore(space, layout, depth + 1, childUntied, forks);
+            else if (forks != null)
+                forks.add(new SubtreeTask(space, layout.clone(), depth + 1, childUntied));
+            else
+                explore(space, layout, depth + 1, childUntied, null);
+        }
+
+        layout[slot] = HeatBalanceAnalyzer.UNDECIDED;
+    }
+
+    private double bound(SearchSpace space, int[] layout) {
+        // Most EU/t: every neighbour that is or could become a reflector adds a pulse
+        FuelRod fuelRod = space.fuelRod;
+        double maxEnergy = 0;
+        for (int fuelSlot : space.fuelSlots) {
+            int pulses = fuelRod.getBasePulses();
+            for (int neighbor : space.neighbors[fuelSlot]) {
+                int componentId = layout[neighbor];
+                if (componentId == ReactorGenome.FUEL_VALUE || (componentId == HeatBalanceAnalyzer.UNDECIDED && this.reflectorAlternative))
+                    pulses++;
+                else if (componentId >= 0 && isReflector(componentId))
+                    pulses++;
+            }
+
+            maxEnergy += fuelRod.getEnergyForPulses(pulses, this.maxHullHeatRatio);
+        }
+
+        // Energy is per reactor tick (20 game ticks)
+        double maxAvgEUOutput = maxEnergy / 20;
+        double minMaxTemp = Math.min(this.heatBalanceAnalyzer.minimumHullHeat(space.template.getFuelType(), layout, this.alternatives), this.baseHullMaxHeat);
+
+        return this.fitnessCalculator.upperBound(maxAvgEUOutput, space.fuelSlots.length, minMaxTemp);
+    }
+
+    private void simulate(SearchSpace space, int[] layout) {
+        long maxSimulations = this.config.branchAndBound.maxSimulations;
+        if (maxSimulations > 0 && this.simulationCount.incrementAndGet() > maxSimulations) {
+            this.simulationCount.decrementAndGet();
+            this.budgetExhausted = true;
+            return;
+        } else if (maxSimulations <= 0) {
+            this.simulationCount.incrementAndGet();
+        }
+
+        ReactorGenome genome = space.template.copy();
+        for (int slot : space.slotOrder)
+            genome.setComponentAt(slot, layout[slot]);
+
+        offer(this.genomeEvaluator.evaluate(List.of(genome)).get(0));
+    }
+
+    private synchronized void offer(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+        if (evaluatedGenome.getFitness() <= this.incumbentFitness)
+            return;
+
+        this.incumbentFitness = evaluatedGenome.getFitness();
+        this.improvements.add(evaluatedGenome);
+        Logger.log(Logger.LogLevel.DEBUG, () -> String.format("New incumbent after %d simulations: fitness %.2f - %s", this.simulationCount.get(), evaluatedGenome.getFitness(), evaluatedGenome.getGenome().getERPCode()));
+    }
+
+    private static boolean isReflector(int componentId) {
+        ReactorItem component = ComponentFactory.getDefaultComponent(componentId);
+        return component != null && component.isNeutronReflector();
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+
+    private static String getFuelTypeName(ReactorGenome genome) {
+        ReactorItem fuelType = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelType != null ? fuelType.name : "Unknown fuel";
+    }
+
+    private class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SearchSpace space;
+        private final int[] layout;
+        private final int depth;
+        private final boolean[] untied;
+
+        public SubtreeTask(SearchSpace space, int[] layout, int depth, boolean[] untied) {
+            this.space = space;
+            this.layout = layout;
+            this.depth = depth;
+            this.untied = untied;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.depth >= this.space.forkDepth) {
+                explore(this.space, this.layout, this.depth, this.untied, null);
+                return;
+            }
+
+            // Decide a few more slots here, then hand the subtrees out
+            List<SubtreeTask> forks = new ArrayList<>();
+            explore(this.space, this.layout, this.depth, this.untied, forks);
+            invokeAll(forks);
+        }
+    }
+
+    /**
+     * The designs sharing the fuel layout of a template genome, whose other slots are {@link HeatBalanceAnalyzer#UNDECIDED}.
+     */
+    private class SearchSpace {
+        private final ReactorGenome template;
+        private final FuelRod fuelRod;
+        private final int[] fuelSlots;
+        private final int[][] neighbors;
+
+        // Free slots in decision order, mirror orbits being contiguous, and the index of the last slot of each orbit
+        private final int[] slotOrder;
+        private final int[] orbitEnds;
+        private final List<int[]> symmetries;
+        private final int forkDepth;
+
+        public SearchSpace(ReactorGenome template) {
+            this.template = template;
+            ReactorItem fuelItem = ComponentFactory.getDefaultComponent(template.getFuelType());
+            this.fuelRod = fuelItem instanceof FuelRod ? (FuelRod) fuelItem : null;
+
+            int rowCount = config.reactor.rowCount;
+            int colCount = config.reactor.colCount;
+            int[] layout = template.getReactorLayout();
+
+            this.neighbors = new int[layout.length][];
+            List<Integer> fuelSlots = new ArrayList<>();
+            for (int i = 0; i < layout.length; i++) {
+                int row = i / colCount, col = i % colCount;
+                List<Integer> slotNeighbors = new ArrayList<>(4);
+                if (row > 0) slotNeighbors.add(i - colCount);
+                if (row < rowCount - 1) slotNeighbors.add(i + colCount);
+                if (col > 0) slotNeighbors.add(i - 1);
+                if (col < colCount - 1) slotNeighbors.add(i + 1);
+                this.neighbors[i] = slotNeighbors.stream().mapToInt(Integer::intValue).toArray();
+
+                if (layout[i] == ReactorGenome.FUEL_VALUE)
+                    fuelSlots.add(i);
+            }
+            this.fuelSlots = fuelSlots.stream().mapToInt(Integer::intValue).toArray();
+
+            // Mirrors keeping the fuel layout as it is
+            this.symmetries = new ArrayList<>();
+            if (config.branchAndBound.mirrorSymmetry) {
+                int[][] mirrors = new int[3][layout.length];
+                for (int i = 0; i < layout.length; i++) {
+                    int row = i / colCount, col = i % colCount;
+                    mirrors[0][i] = row * colCount + (colCount - 1 - col);
+                    mirrors[1][i] = (rowCount - 1 - row) * colCount + col;
+                    mirrors[2][i] = (rowCount - 1 - row) * colCount + (colCount - 1 - col);
+                }
+
+                for (int[] mirror : mirrors) {
+                    boolean keepsFuelLayout = true;
+                    for (int i = 0; i < layout.length && keepsFuelLayout; i++)
+                        keepsFuelLayout = (layout[i] == ReactorGenome.FUEL_VALUE) == (layout[mirror[i]] == ReactorGenome.FUEL_VALUE);
+                    if (keepsFuelLayout)
+                        this.symmetries.add(mirror);
+                }
+            }
+
+            // Orbits of the free slots, the ones next to the most fuel rods first
+            List<List<Integer>> orbits = new ArrayList<>();
+            boolean[] assigned = new boolean[layout.length];
+            for (int i = 0; i < layout.length; i++) {
+                if (layout[i] != HeatBalanceAnalyzer.UNDECIDED || assigned[i])
+                    continue;
+
+                List<Integer> orbit = new ArrayList<>();
+                orbit.add(i);
+                assigned[i] = true;
+                for (int[] mirror : this.symmetries) {
+                    if (!assigned[mirror[i]]) {
+                        orbit.add(mirror[i]);
+                        assigned[mirror[i]] = true;
+                    }
+                }
+                orbits.add(orbit);
+            }
+            orbits.sort(Comparator.comparingInt((List<Integer> orbit) -> -fuelNeighborCount(orbit.get(0), layout)).thenComparingInt(orbit -> orbit.get(0)));
+
+            List<Integer> slotOrder = new ArrayList<>();
+            this.orbitEnds = new int[orbits.size()];
+            for (int o = 0; o < orbits.size(); o++) {
+                slotOrder.addAll(orbits.get(o));
+                this.orbitEnds[o] = slotOrder.size() - 1;
+            }
+            this.slotOrder = slotOrder.stream().mapToInt(Integer::intValue).toArray();
+
+            // Enough subtrees for the workers to balance the load
+            int targetSubtrees = SUBTREES_PER_CORE * Runtime.getRuntime().availableProcessors();
+            int depth = 0;
+            for (double subtrees = 1; subtrees < targetSubtrees && depth < this.slotOrder.length; depth++)
+                subtrees *= Math.max(1, alternatives.length);
+            this.forkDepth = depth;
+        }
+
+        /**
+         * Lexicographic leader check, once the orbit ending at {@code depth} is decided.
+         *
+         * @param untied Which symmetries already know the design is smaller than its mirror image.
+         * @return The updated flags, or null when the design is bigger than one of its mirror images.
+         */
+        public boolean[] checkSymmetries(int[] layout, int depth, boolean[] untied) {
+            int orbitIndex = Arrays.binarySearch(this.orbitEnds, depth);
+            int orbitStart = orbitIndex > 0 ? this.orbitEnds[orbitIndex - 1] + 1 : 0;
+
+            boolean[] result = untied;
+            for (int s = 0; s < this.symmetries.size(); s++) {
+                if (untied[s])
+                    continue;
+
+                int[] mirror = this.symmetries.get(s);
+                for (int position = orbitStart; position <= depth; position++) {
+                    int slot = this.slotOrder[position];
+                    int comparison = Integer.compare(layout[slot], layout[mirror[slot]]);
+                    if (comparison > 0)
+                        return null;
+
+                    if (comparison < 0) {
+                        if (result == untied)
+                            result = untied.clone();
+                        result[s] = true;
+                        break;
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        private int fuelNeighborCount(int slot, int[] layout) {
+            int count = 0;
+            for (int neighbor : this.neighbors[slot]) {
+                if (layout[neighbor] == ReactorGenome.FUEL_VALUE)
+                    count++;
+            }
+
+            return count;
+        }
+    }
+}
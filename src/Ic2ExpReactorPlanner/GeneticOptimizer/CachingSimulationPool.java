@@ -0,0 +1,64 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulation pool answering from a {@link SimulationCache} whenever it can, see {@link TuningRunner}. Only the
+ * simulations actually run count in {@link #getSimulationCount()}, the CPU time the cached ones took when they were
+ * simulated adds up in {@link #getCachedCpuTimeNanos()}. Simulations aborted by a {@link SimulationWatchdog} aren't
+ * cached.
+ */
+public class CachingSimulationPool extends SimulationPool {
+    private final SimulationCache simulationCache;
+    private final LongAdder cachedCpuTimeNanos;
+
+    public CachingSimulationPool(ExecutorService executor, SimulationCache simulationCache) {
+        super(executor);
+        this.simulationCache = simulationCache;
+        this.cachedCpuTimeNanos = new LongAdder();
+    }
+
+    /**
+     * @return The CPU time the simulations answered from the cache took to run in the first place, whoever ran them.
+     */
+    public long getCachedCpuTimeNanos() {
+        return this.cachedCpuTimeNanos.sum();
+    }
+
+    @Override
+    public List<SimulationData> simulate(List<ReactorGenome> genomes, int maxTicks) {
+        List<SimulationData> simulationResults = new ArrayList<>(genomes.size());
+        // Missing genomes and where they go in the results, duplicates simulated once
+        Map<ReactorGenome, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < genomes.size(); i++) {
+            SimulationData simulationData = this.simulationCache.get(genomes.get(i), maxTicks);
+            simulationResults.add(simulationData);
+            if (simulationData == null)
+                misses.computeIfAbsent(genomes.get(i), genome -> new ArrayList<>()).add(i);
+            else
+                this.cachedCpuTimeNanos.add(simulationData.cpuTimeNanos);
+        }
+
+        if (misses.isEmpty())
+            return simulationResults;
+
+        List<ReactorGenome> missingGenomes = new ArrayList<>(misses.keySet());
+        List<SimulationData> missingResults = super.simulate(missingGenomes, maxTicks);
+        for (int i = 0; i < missingGenomes.size(); i++) {
+            // Watchdog aborts depend on the load of the moment, the next attempt may well finish
+            if (!missingResults.get(i).aborted)
+                this.simulationCache.put(missingGenomes.get(i), maxTicks, missingResults.get(i));
+            for (int index : misses.get(missingGenomes.get(i)))
+                simulationResults.set(index, missingResults.get(i));
+        }
+
+        return simulationResults;
+    }
+}
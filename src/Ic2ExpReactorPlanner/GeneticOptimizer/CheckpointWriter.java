@@ -0,0 +1,80 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes checkpoints to disk on a background thread, so the generation loop only pays for serializing its state to
+ * memory.
+ * <p>
+ * Each checkpoint is written to a temporary file next to the target, then moved over it atomically: a crash in the
+ * middle of a write leaves the previous checkpoint intact. A checkpoint submitted while the previous one is still
+ * waiting to be written replaces it, only the latest state is worth the disk time.
+ */
+public class CheckpointWriter {
+    private final Path path;
+    private final Path temporaryPath;
+    private final ExecutorService writerThread;
+    private final AtomicReference<byte[]> pending;
+
+    public CheckpointWriter(Path path) {
+        this.path = path.toAbsolutePath();
+        this.temporaryPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        this.writerThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new AtomicReference<>();
+    }
+
+    public void submit(byte[] checkpoint) {
+        // Only schedule a write if none is waiting already, the waiting one will pick up the newer state
+        if (this.pending.getAndSet(checkpoint) == null)
+            this.writerThread.submit(this::writePending);
+    }
+
+    /**
+     * Waits for the last submitted checkpoint to be on disk.
+     */
+    public void close() {
+        try {
+            this.writerThread.shutdown();
+            if (!this.writerThread.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "Checkpoint writer timed out, the last checkpoint may be missing");
+        } catch (InterruptedException e) {
+            Logger.log(Logger.LogLevel.WARNING, "Checkpoint writer had to be interrupted, the last checkpoint may be missing");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writePending() {
+        byte[] checkpoint = this.pending.getAndSet(null);
+        if (checkpoint == null)
+            return;
+
+        try {
+            try (OutputStream output = Files.newOutputStream(this.temporaryPath)) {
+                output.write(checkpoint);
+            }
+
+            try {
+                Files.move(this.temporaryPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(this.temporaryPath, this.path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Logger.log(Logger.LogLevel.DEBUG, "Checkpoint written to '%s' (%d bytes)", this.path, checkpoint.length);
+        } catch (IOException e) {
+            Logger.log(e, "Could not write checkpoint '" + this.path + "'");
+        }
+    }
+}
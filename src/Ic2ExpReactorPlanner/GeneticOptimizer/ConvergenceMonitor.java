@@ -0,0 +1,147 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Stall detection for the evolution engine.
+ * <p>
+ * Over the last {@code convergence.window} generations, least squares slopes are fit to the best fitness found so far,
+ * the average fitness and the species diversity. The fitness gains over the window are taken relative to the best
+ * fitness, the diversity gain is the change of the species to population ratio. The population has stalled when all
+ * three gains are below their {@code convergence.min*} thresholds: the best isn't moving, the population as a whole
+ * isn't catching up with it, and diversity isn't coming back either.
+ * <p>
+ * A stall asks for a restart while {@code convergence.maxRestarts} isn't reached and {@code convergence.action} is
+ * {@link GAConfig#CONVERGENCE_ACTION_RESTART}, and to stop otherwise. The window is cleared after each stall, so a
+ * restarted population gets a whole window to prove itself.
+ */
+public class ConvergenceMonitor {
+    public enum Decision {
+        CONTINUE,
+        RESTART,
+        STOP
+    }
+
+    private final GAConfig config;
+    private final double[] bestFitnesses;
+    private final double[] averageFitnesses;
+    private final double[] diversities;
+
+    private int sampleCount;
+    private int restartCount;
+
+    private double bestGain;
+    private double averageGain;
+    private double diversityGain;
+
+    public ConvergenceMonitor(GAConfig config) {
+        this.config = config;
+        int window = Math.max(2, config.convergence.window);
+        this.bestFitnesses = new double[window];
+        this.averageFitnesses = new double[window];
+        this.diversities = new double[window];
+    }
+
+    /**
+     * Records a generation and decides what to do next.
+     *
+     * @param bestFitness    The best fitness found since the start of the run, restarts included.
+     * @param averageFitness The generation's average fitness.
+     * @param diversity      The generation's species count as a ratio of its size.
+     */
+    public Decision record(double bestFitness, double averageFitness, double diversity) {
+        int window = this.bestFitnesses.length;
+        int index = this.sampleCount % window;
+        this.bestFitnesses[index] = bestFitness;
+        this.averageFitnesses[index] = averageFitness;
+        this.diversities[index] = diversity;
+        this.sampleCount++;
+
+        if (this.sampleCount < window)
+            return Decision.CONTINUE;
+
+        // Gains over the whole window, fitness relative to the best so a 5000 fitness run and a 50 one compare
+        double scale = Math.max(1, Math.abs(bestFitness));
+        this.bestGain = slope(this.bestFitnesses, this.sampleCount) * (window - 1) / scale;
+        this.averageGain = slope(this.averageFitnesses, this.sampleCount) * (window - 1) / scale;
+        this.diversityGain = slope(this.diversities, this.sampleCount) * (window - 1);
+
+        GAConfig.ConvergenceConfig convergence = this.config.convergence;
+        boolean stalled = this.bestGain < convergence.minBestImprovement && this.averageGain < convergence.minAverageImprovement && this.diversityGain < convergence.minDiversityChange;
+        if (!stalled)
+            return Decision.CONTINUE;
+
+        this.sampleCount = 0;
+        if (GAConfig.CONVERGENCE_ACTION_RESTART.equalsIgnoreCase(convergence.action) && this.restartCount < convergence.maxRestarts) {
+            this.restartCount++;
+            return Decision.RESTART;
+        }
+
+        return Decision.STOP;
+    }
+
+    public int getRestartCount() {
+        return this.restartCount;
+    }
+
+    /**
+     * Writes the window and the restart count, for checkpoints.
+     */
+    public void writeState(DataOutput output) throws IOException {
+        output.writeInt(this.bestFitnesses.length);
+        output.writeInt(this.sampleCount);
+        output.writeInt(this.restartCount);
+        for (int i = 0; i < this.bestFitnesses.length; i++) {
+            output.writeDouble(this.bestFitnesses[i]);
+            output.writeDouble(this.averageFitnesses[i]);
+            output.writeDouble(this.diversities[i]);
+        }
+    }
+
+    /**
+     * Replaces the window and the restart count with the ones written by {@link #writeState(DataOutput)}.
+     *
+     * @throws IOException If the state was written with another {@code convergence.window}.
+     */
+    public void readState(DataInput input) throws IOException {
+        int window = input.readInt();
+        if (window != this.bestFitnesses.length)
+            throw new IOException(String.format("Convergence state has a window of %d generations, config gives %d", window, this.bestFitnesses.length));
+
+        this.sampleCount = input.readInt();
+        this.restartCount = input.readInt();
+        for (int i = 0; i < window; i++) {
+            this.bestFitnesses[i] = input.readDouble();
+            this.averageFitnesses[i] = input.readDouble();
+            this.diversities[i] = input.readDouble();
+        }
+    }
+
+    /**
+     * @return The gains of the last full window, for logging.
+     */
+    public String describeWindow() {
+        return String.format("over the last %d generations: best fitness %+.3f%%, average fitness %+.3f%%, diversity %+.3f", this.bestFitnesses.length, this.bestGain * 100, this.averageGain * 100, this.diversityGain);
+    }
+
+    // Least squares slope of the ring buffer's values against their generation, oldest first
+    private static double slope(double[] values, int sampleCount) {
+        int n = values.length;
+        double meanX = (n - 1) / 2.0;
+        double meanY = 0;
+        for (double value : values)
+            meanY += value;
+        meanY /= n;
+
+        double covariance = 0, variance = 0;
+        for (int x = 0; x < n; x++) {
+            double y = values[(sampleCount + x) % n];
+            covariance += (x - meanX) * (y - meanY);
+            variance += (x - meanX) * (x - meanX);
+        }
+
+        return covariance / variance;
+    }
+}
@@ -0,0 +1,135 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.LongSupplier;
+
+/**
+ * Fits an evolution run to a wall-clock deadline instead of a generation count, see {@code "deadline"} in the config.
+ * <p>
+ * The cost of a generation is measured as it goes, per genome, smoothed over the last generations. As long as there
+ * is time for another generation and then a whole refinement phase ({@code evolution.phaseLengthGenerations}
+ * generations), phases alternate as usual. Past that point the final refinement phase starts, and the run ends when
+ * it is over or when the next generation wouldn't fit anymore. If the final phase doesn't fit at the current
+ * population size, the population shrinks for it, down to {@code deadline.minPopulationSize}.
+ */
+public class DeadlineScheduler {
+    // Weight of the latest generation in the cost estimate
+    private static final double COST_SMOOTHING = 0.3;
+
+    private final LongSupplier clock;
+    private final long deadline;
+    private final int phaseLength;
+    private final int minPopulationSize;
+    private final double safetyMargin;
+
+    private double costPerGenome;
+    private int finalPhaseStartGeneration;
+    private int finalPopulationSize;
+
+    /**
+     * @param clock     Current time in nanoseconds, like {@link System#nanoTime()}.
+     * @param remaining Time left until the deadline, from now.
+     */
+    public DeadlineScheduler(GAConfig config, Duration remaining, LongSupplier clock) {
+        this.clock = clock;
+        this.deadline = clock.getAsLong() + remaining.toNanos();
+        this.phaseLength = Math.max(1, config.evolution.phaseLengthGenerations);
+        this.minPopulationSize = Math.max(1, config.deadline.minPopulationSize);
+        this.safetyMargin = Math.max(0, config.deadline.safetyMargin);
+        this.costPerGenome = Double.NaN;
+        this.finalPhaseStartGeneration = -1;
+    }
+
+    /**
+     * @return The time left until {@code deadline.until} (a time of day, the next one, or a date and time) or for
+     * {@code deadline.durationMinutes} when set.
+     * @throws IllegalArgumentException If {@code deadline.until} can't be read.
+     */
+    public static Duration resolveRemaining(GAConfig.DeadlineConfig deadlineConfig, LocalDateTime now) {
+        if (deadlineConfig.durationMinutes > 0)
+            return Duration.ofMinutes(deadlineConfig.durationMinutes);
+
+        String until = deadlineConfig.until != null ? deadlineConfig.until.trim() : "";
+        LocalDateTime deadline;
+        try {
+            if (until.contains("T")) {
+                deadline = LocalDateTime.parse(until);
+            } else {
+                deadline = now.toLocalDate().atTime(LocalTime.parse(until));
+                if (!deadline.isAfter(now))
+                    deadline = deadline.plusDays(1);
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid deadline '" + until + "', expected a time like 07:00 or a date and time like 2026-01-31T07:00", e);
+        }
+
+        return Duration.between(now, deadline).isNegative() ? Duration.ZERO : Duration.between(now, deadline);
+    }
+
+    /**
+     * Learns from a finished generation.
+     */
+    public void recordGeneration(int populationSize, long elapsedNanos) {
+        double cost = (double) elapsedNanos / Math.max(1, populationSize);
+        this.costPerGenome = Double.isNaN(this.costPerGenome) ? cost : COST_SMOOTHING * cost + (1 - COST_SMOOTHING) * this.costPerGenome;
+    }
+
+    /**
+     * Called before each generation until it returns true: whether the final refinement phase has to start now,
+     * because after one more regular generation it wouldn't fit anymore.
+     */
+    public boolean shouldStartFinalPhase(int generation, int populationSize) {
+        if (isFinalPhase() || Double.isNaN(this.costPerGenome))
+            return false;
+
+        double generationCost = estimateGenerationCost(populationSize);
+        if (getRemainingNanos() - generationCost >= this.phaseLength * generationCost)
+            return false;
+
+        this.finalPhaseStartGeneration = generation;
+        double affordablePopulationSize = getRemainingNanos() / (this.phaseLength * estimateGenerationCost(1));
+        this.finalPopulationSize = (int) Math.max(this.minPopulationSize, Math.min(populationSize, Math.floor(affordablePopulationSize)));
+        return true;
+    }
+
+    public boolean isFinalPhase() {
+        return this.finalPhaseStartGeneration >= 0;
+    }
+
+    /**
+     * @return The population size of the final phase, meaningless before it starts.
+     */
+    public int getFinalPopulationSize() {
+        return this.finalPopulationSize;
+    }
+
+    /**
+     * Called once a generation has been evaluated, before the next one is bred.
+     *
+     * @return Whether it is the last one: the final phase is over, or the next generation would miss the deadline.
+     */
+    public boolean isLastGeneration(int generation, int nextPopulationSize) {
+        if (isFinalPhase() && generation - this.finalPhaseStartGeneration + 1 >= this.phaseLength)
+            return true;
+
+        if (getRemainingNanos() <= 0)
+            return true;
+
+        return !Double.isNaN(this.costPerGenome) && getRemainingNanos() < estimateGenerationCost(nextPopulationSize);
+    }
+
+    public Duration getRemaining() {
+        return Duration.ofNanos(Math.max(0, getRemainingNanos()));
+    }
+
+    private long getRemainingNanos() {
+        return this.deadline - this.clock.getAsLong();
+    }
+
+    private double estimateGenerationCost(int populationSize) {
+        return populationSize * this.costPerGenome * (1 + this.safetyMargin);
+    }
+}
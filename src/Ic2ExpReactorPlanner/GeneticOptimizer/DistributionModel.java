@@ -0,0 +1,306 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Probability model of good designs, learned PBIL-style (population-based incremental learning) from the best genomes
+ * of each generation.
+ * <p>
+ * Each slot first decides whether it holds a fuel rod. The fuel probability depends on the slot and on how many of the
+ * slots above and to the left of it (already sampled) hold one, which captures the pairwise fuel adjacency that makes
+ * rods pulse each other. A slot without fuel then picks its component from its own categorical distribution, and the
+ * fuel type comes from one more distribution.
+ * <p>
+ * Sampling walks precomputed cumulative tables, the only allocation being the genome itself. The whole model is a few
+ * kilobytes of doubles, see {@link #write(DataOutput)}.
+ */
+public class DistributionModel {
+    // Fuel rods among the slots above and to the left: 0, 1 or 2
+    private static final int FUEL_CONTEXT_COUNT = 3;
+    private static final int FORMAT_VERSION = 1;
+
+    private final int colCount;
+    private final int slotCount;
+    private final int[] components;
+    private final int[] fuelTypes;
+    private final boolean fuelAllowed;
+
+    private final double[][] fuelProbabilities;
+    private final double[][] componentProbabilities;
+    private final double[] fuelTypeProbabilities;
+
+    private final double[][] componentCumulative;
+    private final double[] fuelTypeCumulative;
+
+    /**
+     * Starts with the distribution of {@link ReactorGenome#randomGenome}: every entry of {@code components.valid} and
+     * {@code fuels.valid} equally likely, in every slot.
+     */
+    public DistributionModel(GAConfig config) {
+        this.colCount = config.reactor.colCount;
+        this.slotCount = config.reactor.rowCount * config.reactor.colCount;
+        this.components = Arrays.stream(config.components.valid).filter(componentId -> componentId != ReactorGenome.FUEL_VALUE).distinct().toArray();
+        this.fuelTypes = Arrays.stream(config.fuels.valid).distinct().toArray();
+
+        long fuelEntries = Arrays.stream(config.components.valid).filter(componentId -> componentId == ReactorGenome.FUEL_VALUE).count();
+        this.fuelAllowed = fuelEntries > 0;
+        double initialFuelProbability = this.components.length == 0 ? 1 : fuelEntries / (double) config.components.valid.length;
+
+        this.fuelProbabilities = new double[this.slotCount][FUEL_CONTEXT_COUNT];
+        this.componentProbabilities = new double[this.slotCount][this.components.length];
+        this.componentCumulative = new double[this.slotCount][this.components.length];
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            Arrays.fill(this.fuelProbabilities[slot], initialFuelProbability);
+            for (int k = 0; k < this.components.length; k++)
+                this.componentProbabilities[slot][k] = countOf(config.components.valid, this.components[k]) / (double) (config.components.valid.length - fuelEntries);
+        }
+
+        this.fuelTypeProbabilities = new double[this.fuelTypes.length];
+        this.fuelTypeCumulative = new double[this.fuelTypes.length];
+        for (int f = 0; f < this.fuelTypes.length; f++)
+            this.fuelTypeProbabilities[f] = countOf(config.fuels.valid, this.fuelTypes[f]) / (double) config.fuels.valid.length;
+
+        rebuildCumulativeTables();
+    }
+
+    public ReactorGenome sample(GAConfig config, RandomGenerator random) {
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(this.fuelTypes[pick(this.fuelTypeCumulative, random.nextDouble())]);
+
+        int[] layout = genome.getReactorLayout();
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            if (random.nextDouble() < this.fuelProbabilities[slot][fuelContext(layout, slot)])
+                genome.setComponentAt(slot, ReactorGenome.FUEL_VALUE);
+            else
+                genome.setComponentAt(slot, this.components[pick(this.componentCumulative[slot], random.nextDouble())]);
+        }
+
+        return genome;
+    }
+
+    /**
+     * Moves every distribution toward the frequencies observed in the elites:
+     * {@code p = (1 - learningRate) * p + learningRate * frequency}. Distributions the elites say nothing about (a fuel
+     * context none of them has at a slot, for example) are left as they are. Probabilities are then kept above
+     * {@code minProbability} so no value ever becomes impossible.
+     */
+    public void update(List<ReactorGenome> elites, double learningRate, double minProbability) {
+        if (elites.isEmpty())
+            return;
+
+        int[] fuelCounts = new int[FUEL_CONTEXT_COUNT];
+        int[] contextCounts = new int[FUEL_CONTEXT_COUNT];
+        double[] componentFrequencies = new double[this.components.length];
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            Arrays.fill(fuelCounts, 0);
+            Arrays.fill(contextCounts, 0);
+            Arrays.fill(componentFrequencies, 0);
+            int componentCount = 0;
+
+            for (ReactorGenome elite : elites) {
+                int[] layout = elite.getReactorLayout();
+                int context = fuelContext(layout, slot);
+                contextCounts[context]++;
+                if (layout[slot] == ReactorGenome.FUEL_VALUE) {
+                    fuelCounts[context]++;
+                } else {
+                    int k = indexOf(this.components, layout[slot]);
+                    if (k >= 0) {
+                        componentFrequencies[k]++;
+                        componentCount++;
+                    }
+                }
+            }
+
+            if (this.fuelAllowed && this.components.length > 0) {
+                for (int context = 0; context < FUEL_CONTEXT_COUNT; context++) {
+                    if (contextCounts[context] == 0)
+                        continue;
+
+                    double frequency = fuelCounts[context] / (double) contextCounts[context];
+                    double probability = (1 - learningRate) * this.fuelProbabilities[slot][context] + learningRate * frequency;
+                    this.fuelProbabilities[slot][context] = Math.min(1 - minProbability, Math.max(minProbability, probability));
+                }
+            }
+
+            if (componentCount > 0) {
+                for (int k = 0; k < this.components.length; k++)
+                    componentFrequencies[k] /= componentCount;
+                learn(this.componentProbabilities[slot], componentFrequencies, learningRate, minProbability);
+            }
+        }
+
+        double[] fuelTypeFrequencies = new double[this.fuelTypes.length];
+        int fuelTypeCount = 0;
+        for (ReactorGenome elite : elites) {
+            int f = indexOf(this.fuelTypes, elite.getFuelType());
+            if (f >= 0) {
+                fuelTypeFrequencies[f]++;
+                fuelTypeCount++;
+            }
+        }
+        if (fuelTypeCount > 0) {
+            for (int f = 0; f < this.fuelTypes.length; f++)
+                fuelTypeFrequencies[f] /= fuelTypeCount;
+            learn(this.fuelTypeProbabilities, fuelTypeFrequencies, learningRate, minProbability);
+        }
+
+        rebuildCumulativeTables();
+    }
+
+    /**
+     * @return The mean entropy of the slot component distributions, normalized to [0, 1]. Close to 0 once the model has
+     * converged.
+     */
+    public double getEntropy() {
+        if (this.components.length < 2)
+            return 0;
+
+        double entropy = 0;
+        for (double[] probabilities : this.componentProbabilities) {
+            for (double probability : probabilities) {
+                if (probability > 0)
+                    entropy -= probability * Math.log(probability);
+            }
+        }
+
+        return entropy / (this.slotCount * Math.log(this.components.length));
+    }
+
+    /**
+     * @param fuelNeighborCount Fuel rods in the slots above and to the left of {@code slot}.
+     */
+    public double getFuelProbability(int slot, int fuelNeighborCount) {
+        return this.fuelProbabilities[slot][fuelNeighborCount];
+    }
+
+    /**
+     * @return The probability of a non-fuel component at a slot that didn't get a fuel rod, 0 for unknown components.
+     */
+    public double getComponentProbability(int slot, int componentId) {
+        int k = indexOf(this.components, componentId);
+        return k >= 0 ? this.componentProbabilities[slot][k] : 0;
+    }
+
+    public double getFuelTypeProbability(int fuelType) {
+        int f = indexOf(this.fuelTypes, fuelType);
+        return f >= 0 ? this.fuelTypeProbabilities[f] : 0;
+    }
+
+    /**
+     * Writes the probabilities. The component and fuel lists aren't written, they come from the config given to
+     * {@link #read(GAConfig, DataInput)}.
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(this.slotCount);
+        output.writeInt(this.components.length);
+        output.writeInt(this.fuelTypes.length);
+
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            for (double probability : this.fuelProbabilities[slot])
+                output.writeDouble(probability);
+            for (double probability : this.componentProbabilities[slot])
+                output.writeDouble(probability);
+        }
+        for (double probability : this.fuelTypeProbabilities)
+            output.writeDouble(probability);
+    }
+
+    /**
+     * @throws IOException If the model was written for another reactor size or other component or fuel lists.
+     */
+    public static DistributionModel read(GAConfig config, DataInput input) throws IOException {
+        DistributionModel model = new DistributionModel(config);
+
+        int version = input.readInt();
+        if (version != FORMAT_VERSION)
+            throw new IOException("Unsupported distribution model version " + version);
+
+        int slotCount = input.readInt();
+        int componentCount = input.readInt();
+        int fuelTypeCount = input.readInt();
+        if (slotCount != model.slotCount || componentCount != model.components.length || fuelTypeCount != model.fuelTypes.length)
+            throw new IOException(String.format("Distribution model is for %d slots, %d components and %d fuel types, config has %d, %d and %d", slotCount, componentCount, fuelTypeCount, model.slotCount, model.components.length, model.fuelTypes.length));
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            for (int context = 0; context < FUEL_CONTEXT_COUNT; context++)
+                model.fuelProbabilities[slot][context] = input.readDouble();
+            for (int k = 0; k < componentCount; k++)
+                model.componentProbabilities[slot][k] = input.readDouble();
+        }
+        for (int f = 0; f < fuelTypeCount; f++)
+            model.fuelTypeProbabilities[f] = input.readDouble();
+
+        model.rebuildCumulativeTables();
+        return model;
+    }
+
+    private int fuelContext(int[] layout, int slot) {
+        int context = 0;
+        if (slot >= this.colCount && layout[slot - this.colCount] == ReactorGenome.FUEL_VALUE)
+            context++;
+        if (slot % this.colCount > 0 && layout[slot - 1] == ReactorGenome.FUEL_VALUE)
+            context++;
+        return context;
+    }
+
+    private void rebuildCumulativeTables() {
+        for (int slot = 0; slot < this.slotCount; slot++)
+            cumulate(this.componentProbabilities[slot], this.componentCumulative[slot]);
+        cumulate(this.fuelTypeProbabilities, this.fuelTypeCumulative);
+    }
+
+    private static void learn(double[] probabilities, double[] frequencies, double learningRate, double minProbability) {
+        double total = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = Math.max(minProbability, (1 - learningRate) * probabilities[i] + learningRate * frequencies[i]);
+            total += probabilities[i];
+        }
+
+        for (int i = 0; i < probabilities.length; i++)
+            probabilities[i] /= total;
+    }
+
+    private static void cumulate(double[] probabilities, double[] cumulative) {
+        double sum = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            sum += probabilities[i];
+            cumulative[i] = sum;
+        }
+    }
+
+    private static int pick(double[] cumulative, double value) {
+        double scaled = value * cumulative[cumulative.length - 1];
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (scaled < cumulative[i])
+                return i;
+        }
+
+        return cumulative.length - 1;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value)
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static int countOf(int[] values, int value) {
+        int count = 0;
+        for (int v : values) {
+            if (v == value)
+                count++;
+        }
+
+        return count;
+    }
+}
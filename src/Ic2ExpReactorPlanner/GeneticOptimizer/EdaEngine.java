@@ -0,0 +1,123 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimation-of-distribution search.
+ * <p>
+ * Instead of breeding genomes, every generation samples {@code eda.populationSize} designs from a
+ * {@link DistributionModel}, simulates them, and moves the model toward the best {@code eda.eliteRatio} of them. Each
+ * slot learns on its own from every elite at once, where a crossover only mixes two parents, which pays off on the
+ * parts of the layout that don't depend much on each other. Seed reactors are part of the first generation.
+ */
+public class EdaEngine implements SearchEngine {
+    private final GAConfig config;
+    private final long seed;
+    private final List<ReactorGenome> startingPopulation;
+
+    private final ExecutorService executor;
+    private final GenomeEvaluator genomeEvaluator;
+    private final DistributionModel model;
+
+    public EdaEngine(GAConfig config, long seed) {
+        this.config = config;
+        this.seed = seed;
+        this.startingPopulation = new ArrayList<>();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HeatBalanceAnalyzer heatBalanceAnalyzer = config.isHeatBalanceEnabled() ? new HeatBalanceAnalyzer(config) : null;
+        this.genomeEvaluator = new GenomeEvaluator(config, new SimulationPool(this.executor), new FitnessCalculator(config), heatBalanceAnalyzer);
+        this.model = new DistributionModel(config);
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    /**
+     * @return The model being learned, for inspection or checkpointing.
+     */
+    public DistributionModel getModel() {
+        return this.model;
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+        GAConfig.EdaConfig eda = this.config.eda;
+        int eliteCount = Math.max(1, (int) Math.round(eda.populationSize * eda.eliteRatio));
+
+        printVerbose(verbose, "EDA settings: %s", eda.toString());
+        printVerbose(verbose, "Starting EDA...");
+
+        EvolutionEngine.EvaluatedGenome best = null;
+        List<EvolutionEngine.EvaluatedGenome> population = new ArrayList<>();
+        for (int generation = 0; generation < eda.maxGeneration; generation++) {
+            long generationStartTime = System.nanoTime();
+
+            List<ReactorGenome> genomes = new ArrayList<>(eda.populationSize);
+            if (generation == 0) {
+                for (int i = 0; i < Math.min(this.startingPopulation.size(), eda.populationSize); i++)
+                    genomes.add(this.startingPopulation.get(i));
+            }
+            for (int i = genomes.size(); i < eda.populationSize; i++)
+                genomes.add(this.model.sample(this.config, RandomStreams.forSlot(this.seed, generation, i)));
+
+            population = new ArrayList<>(this.genomeEvaluator.evaluate(genomes));
+            population.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+            if (best == null || population.get(0).getFitness() > best.getFitness())
+                best = population.get(0);
+
+            List<ReactorGenome> elites = new ArrayList<>(eliteCount);
+            for (int i = 0; i < Math.min(eliteCount, population.size()); i++)
+                elites.add(population.get(i).getGenome());
+            this.model.update(elites, eda.learningRate, eda.minProbability);
+
+            double generationElapsedTimeMS = (System.nanoTime() - generationStartTime) / 1e6;
+            double averageFitness = population.stream().mapToDouble(EvolutionEngine.EvaluatedGenome::getFitness).average().orElse(0);
+            printVerbose(verbose, "Generation %d: best fitness %.2f (%.2fEU/t), generation best %.2f, average %.2f, model entropy %.3f, took %.2fms", generation, best.getFitness(), best.getSimulationData().avgEUOutput, population.get(0).getFitness(), averageFitness, this.model.getEntropy(), generationElapsedTimeMS);
+        }
+
+        // The last generation, with the best design ever seen on top
+        List<EvolutionEngine.EvaluatedGenome> results = new ArrayList<>(population);
+        if (best != null && !population.contains(best))
+            results.add(0, best);
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        printVerbose(verbose, "EDA finished! Took %.2fms", globalElapsedTimeMS);
+        if (best != null)
+            printVerbose(verbose, "Best design: %s x%d - Fitness: %.2f; Output: %.2fEU/t - %s", getFuelTypeName(best.getGenome()), best.getGenome().getFuelRodCount(), best.getFitness(), best.getSimulationData().avgEUOutput, best.getGenome().getERPCode());
+
+        this.genomeEvaluator.close();
+
+        // executor cleanup
+        try {
+            this.executor.shutdown();
+            if (!this.executor.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination timed out. Is there a threading issue?");
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination had to be interrupted. Is there a threading issue? [" + e.getCause() + "]");
+            Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+
+    private static String getFuelTypeName(ReactorGenome genome) {
+        ReactorItem fuelType = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelType != null ? fuelType.name : "Unknown fuel";
+    }
+}
@@ -0,0 +1,142 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Append-only binary file of every fully simulated genome of a run, with the {@link GenomeMetrics} its fitness was
+ * computed from. Since the metrics don't depend on the {@code fitness} section of the config, a store can be scored again
+ * under other weights without simulating anything, see {@link FitnessRescorer}.
+ * <p>
+ * Layout: a header (magic, format version, row count, column count) followed by records made of the packed genome
+ * ({@link ReactorGenome#writePacked(DataOutput)}), the average EU/t and max hull heat as doubles and the broken
+ * component flag. Runs sharing a reactor size can append to the same store.
+ */
+public class EvaluationStore {
+    private static final int MAGIC = 0x47414553; // "GAES"
+    private static final int VERSION = 1;
+
+    private EvaluationStore() {}
+
+    /**
+     * Opens a store for appending, creating it if needed.
+     *
+     * @throws IOException If the file can't be opened or holds a store for another reactor size.
+     */
+    public static Writer openWriter(GAConfig config, Path path) throws IOException {
+        boolean newStore = !Files.exists(path) || Files.size(path) == 0;
+        if (!newStore) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                readHeader(config, input, path);
+            }
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)));
+        if (newStore) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(config.reactor.rowCount);
+            output.writeInt(config.reactor.colCount);
+        }
+
+        return new Writer(output);
+    }
+
+    /**
+     * Streams every record of a store, in the order they were written. A truncated last record (interrupted run) is
+     * ignored.
+     *
+     * @return The number of records read.
+     */
+    public static long read(GAConfig config, Path path, Consumer<Record> consumer) throws IOException {
+        long count = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            readHeader(config, input, path);
+
+            while (true) {
+                Record record;
+                try {
+                    ReactorGenome genome = ReactorGenome.readPacked(config, input);
+                    double avgEUOutput = input.readDouble();
+                    double maxTemp = input.readDouble();
+                    boolean componentBroken = input.readBoolean();
+                    record = new Record(genome, new GenomeMetrics(genome.getFuelRodCount(), avgEUOutput, maxTemp, componentBroken));
+                } catch (EOFException e) {
+                    break;
+                }
+
+                consumer.accept(record);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static void readHeader(GAConfig config, DataInputStream input, Path path) throws IOException {
+        if (input.readInt() != MAGIC)
+            throw new IOException("'" + path + "' is not an evaluation store");
+
+        int version = input.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported evaluation store version " + version + " in '" + path + "'");
+
+        int rowCount = input.readInt();
+        int colCount = input.readInt();
+        if (rowCount != config.reactor.rowCount || colCount != config.reactor.colCount)
+            throw new IOException(String.format("Evaluation store '%s' is for %dx%d reactors, config is for %dx%d", path, rowCount, colCount, config.reactor.rowCount, config.reactor.colCount));
+    }
+
+    public static class Record {
+        private final ReactorGenome genome;
+        private final GenomeMetrics metrics;
+
+        public Record(ReactorGenome genome, GenomeMetrics metrics) {
+            this.genome = genome;
+            this.metrics = metrics;
+        }
+
+        public ReactorGenome getGenome() {
+            return this.genome;
+        }
+
+        public GenomeMetrics getMetrics() {
+            return this.metrics;
+        }
+    }
+
+    /**
+     * Appends records to a store. Safe to share between threads.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream output;
+        private long recordCount;
+
+        private Writer(DataOutputStream output) {
+            this.output = output;
+        }
+
+        public synchronized void append(ReactorGenome genome, GenomeMetrics metrics) throws IOException {
+            genome.writePacked(this.output);
+            this.output.writeDouble(metrics.getAvgEUOutput());
+            this.output.writeDouble(metrics.getMaxTemp());
+            this.output.writeBoolean(metrics.isComponentBroken());
+            this.recordCount++;
+        }
+
+        public synchronized long getRecordCount() {
+            return this.recordCount;
+        }
+
+        public synchronized void flush() throws IOException {
+            this.output.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            this.output.close();
+        }
+    }
+}
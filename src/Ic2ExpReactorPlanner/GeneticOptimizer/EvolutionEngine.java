@@ -3,32 +3,180 @@ package Ic2ExpReactorPlanner.GeneticOptimizer;
 import Ic2ExpReactorPlanner.*;
 import Ic2ExpReactorPlanner.components.ReactorItem;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
-public class EvolutionEngine {
+public class EvolutionEngine implements SearchEngine {
+    private static final int TOP_SPECIES_LOG_COUNT = 5;
+    private static final int CHECKPOINT_MAGIC = 0x47414350; // "GACP"
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final int BEST_SO_FAR_COUNT = 10;
+
+    private static final MetricsRegistry.Counter GENERATION_COUNTER = MetricsRegistry.getDefault().counter("ga_generations_total", "Generations evolved");
+    private static final MetricsRegistry.Histogram GENERATION_SECONDS = MetricsRegistry.getDefault().histogram("ga_generation_seconds", "Wall time of a generation, breeding included", 0.1, 0.5, 1, 2.5, 5, 10, 30, 60, 300);
+    private static final MetricsRegistry.Gauge GENERATION_ALLOCATED_BYTES = MetricsRegistry.getDefault().gauge("ga_generation_allocated_bytes", "Bytes allocated by the process during the last generation");
+    private static final MetricsRegistry.Gauge BEST_FITNESS = MetricsRegistry.getDefault().gauge("ga_best_fitness", "Best fitness of the last generation");
+    private static final MetricsRegistry.Gauge STABLE_DESIGN_RATIO = MetricsRegistry.getDefault().gauge("ga_stable_design_ratio", "Share of the last generation with a positive fitness");
+    private static final MetricsRegistry.Gauge DIVERSITY = MetricsRegistry.getDefault().gauge("ga_population_diversity", "Species diversity of the last generation");
+
     private final GAConfig config;
-    private final Random random;
+    private final FitnessCalculator fitnessCalculator;
+    private final long seed;
     private final List<ReactorGenome> startingPopulation;
+    private ResumeState resumeState;
 
     private final ExecutorService executor;
-    private final ThreadLocal<ReactorSimulator> simulatorThreadLocal;
+    private final SimulationPool simulationPool;
+    private final OffspringBreeder offspringBreeder;
+    private final RacingEvaluator racingEvaluator;
+    private final SpeciesTracker speciesTracker;
+    private final SurrogateModel surrogateModel;
+    private final HeatBalanceAnalyzer heatBalanceAnalyzer;
+    private final GenomeEvaluator genomeEvaluator;
+    private final MemeticRefiner memeticRefiner;
+    private final ConvergenceMonitor convergenceMonitor;
+    private final CheckpointWriter checkpointWriter;
+    private final CheckpointWriter bestSoFarWriter;
+    private final DeadlineScheduler deadlineScheduler;
+    private MigrationChannel migrationChannel;
+    private GenerationListener generationListener;
 
     public EvolutionEngine(GAConfig config) {
         this(config, new Random().nextLong());
     }
 
     public EvolutionEngine(GAConfig config, long seed) {
+        this(config, seed, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param executor Runs the engine's parallel work. The engine shuts it down at the end of the run.
+     */
+    public EvolutionEngine(GAConfig config, long seed, ExecutorService executor) {
+        this(config, seed, executor, null);
+    }
+
+    /**
+     * @param executor        Runs the engine's parallel work. The engine shuts it down at the end of the run.
+     * @param simulationCache Simulations shared with other engines, null for none. Ignored with remote workers.
+     */
+    public EvolutionEngine(GAConfig config, long seed, ExecutorService executor, SimulationCache simulationCache) {
         this.config = config;
-        this.random = new Random(seed);
+        this.fitnessCalculator = new FitnessCalculator(config);
+        this.seed = seed;
         startingPopulation = new ArrayList<>();
 
-        int coreCount = Runtime.getRuntime().availableProcessors();
-        this.executor = Executors.newFixedThreadPool(coreCount);
-        this.simulatorThreadLocal = ThreadLocal.withInitial(ReactorSimulator::new);
+        this.executor = executor;
+        this.offspringBreeder = new OffspringBreeder(config, seed, this.executor, Runtime.getRuntime().availableProcessors());
+        this.simulationPool = createSimulationPool(config, this.executor, simulationCache);
+        this.racingEvaluator = config.isRacingEnabled() ? new RacingEvaluator(config, this.simulationPool, this.fitnessCalculator) : null;
+        this.speciesTracker = new SpeciesTracker(config, this.executor);
+        this.surrogateModel = config.isSurrogateEnabled() ? new SurrogateModel(config) : null;
+        this.heatBalanceAnalyzer = config.isHeatBalanceEnabled() ? new HeatBalanceAnalyzer(config) : null;
+        this.genomeEvaluator = new GenomeEvaluator(config, this.simulationPool, this.fitnessCalculator, this.heatBalanceAnalyzer);
+        // Local search needs exact fitness values: no racing, no repair
+        this.memeticRefiner = config.isMemeticEnabled() ? new MemeticRefiner(config, this.genomeEvaluator::evaluate) : null;
+        this.convergenceMonitor = config.isConvergenceEnabled() ? new ConvergenceMonitor(config) : null;
+        this.checkpointWriter = config.isCheckpointEnabled() ? new CheckpointWriter(Paths.get(config.checkpoint.path)) : null;
+        boolean bestSoFarEnabled = this.checkpointWriter != null && config.checkpoint.bestSoFarPath != null && !config.checkpoint.bestSoFarPath.isEmpty();
+        this.bestSoFarWriter = bestSoFarEnabled ? new CheckpointWriter(Paths.get(config.checkpoint.bestSoFarPath)) : null;
+        this.deadlineScheduler = config.isDeadlineEnabled() ? new DeadlineScheduler(config, DeadlineScheduler.resolveRemaining(config.deadline, LocalDateTime.now()), System::nanoTime) : null;
+    }
+
+    /**
+     * Creates an engine that picks up a run where a checkpoint written by it left off. The seed comes from the
+     * checkpoint, the config must match the one the checkpoint was written with (reactor size, fuels, surrogate and
+     * convergence settings).
+     *
+     * @throws IOException If the checkpoint can't be read or doesn't match the config.
+     */
+    public static EvolutionEngine resume(GAConfig config, Path checkpointPath) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+            if (input.readInt() != CHECKPOINT_MAGIC)
+                throw new IOException("'" + checkpointPath + "' is not a checkpoint");
+            int version = input.readInt();
+            if (version != CHECKPOINT_VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+            int rowCount = input.readInt();
+            int colCount = input.readInt();
+            if (rowCount != config.reactor.rowCount || colCount != config.reactor.colCount)
+                throw new IOException(String.format("Checkpoint is for a %dx%d reactor, config has %dx%d", rowCount, colCount, config.reactor.rowCount, config.reactor.colCount));
+
+            EvolutionEngine engine = new EvolutionEngine(config, input.readLong());
+            ResumeState resumeState = new ResumeState();
+            resumeState.generation = input.readInt();
+            resumeState.exploratoryPhase = input.readBoolean();
+            resumeState.overallBestFitness = input.readDouble();
+
+            int populationSize = input.readInt();
+            for (int i = 0; i < populationSize; i++) {
+                ReactorGenome genome = ReactorGenome.readPacked(config, input);
+                genome.setSpeciesId(input.readInt());
+                resumeState.population.add(genome);
+            }
+
+            int archiveSize = input.readInt();
+            for (int i = 0; i < archiveSize; i++) {
+                ReactorGenome genome = ReactorGenome.readPacked(config, input);
+                EvaluatedGenome elite = new EvaluatedGenome(genome, input.readDouble());
+                GenomeMetrics metrics = new GenomeMetrics(genome.getFuelRodCount(), input.readDouble(), input.readDouble(), input.readBoolean());
+                elite.setSimulationData(metrics.toSimulationData());
+                resumeState.eliteArchive.add(elite);
+            }
+
+            engine.speciesTracker.readState(input);
+            if (input.readBoolean() != (engine.surrogateModel != null))
+                throw new IOException("Checkpoint and config disagree on whether the surrogate is enabled");
+            if (engine.surrogateModel != null)
+                engine.surrogateModel.readState(input);
+            if (input.readBoolean() != (engine.convergenceMonitor != null))
+                throw new IOException("Checkpoint and config disagree on whether convergence detection is enabled");
+            if (engine.convergenceMonitor != null)
+                engine.convergenceMonitor.readState(input);
+
+            engine.resumeState = resumeState;
+            return engine;
+        }
+    }
+
+    /**
+     * Makes the engine an island: every {@code islands.migrationInterval} generations it sends copies of its best
+     * {@code islands.migrantCount} designs through the channel, and every generation the migrants that arrived take the
+     * place of the last offspring of the next population.
+     */
+    public void setMigrationChannel(MigrationChannel migrationChannel) {
+        this.migrationChannel = migrationChannel;
+    }
+
+    /**
+     * Reports every generation to the listener, which can also stop the run there, see {@link JobService}.
+     */
+    public void setGenerationListener(GenerationListener generationListener) {
+        this.generationListener = generationListener;
+    }
+
+    /**
+     * @return The seed the run's random streams derive from.
+     */
+    public long getSeed() {
+        return this.seed;
     }
 
+    /**
+     * @return The CPU time the simulations answered by the shared simulation cache took to run in the first place, 0
+     * without a cache.
+     */
+    public long getCachedCpuTimeNanos() {
+        return this.simulationPool instanceof CachingSimulationPool ? ((CachingSimulationPool) this.simulationPool).getCachedCpuTimeNanos() : 0;
+    }
+
+    @Override
     public void preSeedGen0(List<ReactorGenome> startingPopulation) {
         this.startingPopulation.addAll(startingPopulation);
     }
@@ -37,29 +185,72 @@ public class EvolutionEngine {
         return run(false);
     }
 
+    @Override
     public List<EvaluatedGenome> run(boolean verbose) {
         List<EvaluatedGenome> evaluatedPopulation = null;
+        // Best distinct designs of the whole run, restarts start over from them
+        List<EvaluatedGenome> eliteArchive = new ArrayList<>();
 
         double overallBestFitness = -1;
         int generation = 0;
         boolean exploratoryPhase = true;
+        List<ReactorGenome> population;
 
         long globalStartTime = System.nanoTime();
 
         printVerbose(verbose, "Evolution settings: %s", this.config.evolution.toString());
         printVerbose(verbose, "Speciation settings: %s", this.config.speciation.toString());
+        if (this.racingEvaluator != null)
+            printVerbose(verbose, "Racing settings: %s", this.config.racing.toString());
+        if (this.surrogateModel != null)
+            printVerbose(verbose, "Surrogate settings: %s", this.config.surrogate.toString());
+        if (this.heatBalanceAnalyzer != null)
+            printVerbose(verbose, "Heat balance settings: %s", this.config.heatBalance.toString());
+        if (this.memeticRefiner != null)
+            printVerbose(verbose, "Memetic settings: %s", this.config.memetic.toString());
+        if (this.convergenceMonitor != null)
+            printVerbose(verbose, "Convergence settings: %s", this.config.convergence.toString());
+        if (this.checkpointWriter != null)
+            printVerbose(verbose, "Checkpoint settings: %s", this.config.checkpoint.toString());
+        if (this.deadlineScheduler != null)
+            printVerbose(verbose, "Deadline settings: %s, %d seconds left", this.config.deadline.toString(), this.deadlineScheduler.getRemaining().toSeconds());
         printVerbose(verbose, "Starting evolution...");
 
-        List<ReactorGenome> population = initializePopulation(this.config, this.random, this.startingPopulation);
-        printVerbose(verbose, "Initial population of %d candidates created. Seeded with %d pre-configured reactors.", population.size(), this.startingPopulation.size());
+        if (this.resumeState != null) {
+            generation = this.resumeState.generation;
+            exploratoryPhase = this.resumeState.exploratoryPhase;
+            overallBestFitness = this.resumeState.overallBestFitness;
+            population = this.resumeState.population;
+            eliteArchive.addAll(this.resumeState.eliteArchive);
+            printVerbose(verbose, "Resumed at generation %d with %d candidates. Best fitness so far: %.2f", generation, population.size(), overallBestFitness);
+        } else {
+            population = initializePopulation(this.config, new Random(RandomStreams.deriveSeed(this.seed, -1, -1)), this.startingPopulation);
+            printVerbose(verbose, "Initial population of %d candidates created. Seeded with %d pre-configured reactors.", population.size(), this.startingPopulation.size());
+        }
 
-        while (generation < this.config.evolution.maxGeneration) {
+        // With a deadline the scheduler decides which generation is the last one
+        while (this.deadlineScheduler != null || generation < this.config.evolution.maxGeneration) {
             long generationStartTime = System.nanoTime();
+            long generationStartSimulationCount = this.simulationPool.getSimulationCount();
+            long generationStartAllocatedBytes = MetricsRegistry.getAllocatedBytes();
+            // Single threaded randomness of the generation, derived from the seed so a resumed run draws the same numbers
+            Random random = new Random(RandomStreams.deriveSeed(this.seed, generation, -1));
 
             // Alternate between exploratory phases and refinement phases
             // TODO: decouple this stuff and handle it in its own bubble
             String phaseName = "exploratory";
-            if (generation % this.config.evolution.phaseLengthGenerations == 0) {
+            if (this.deadlineScheduler != null && this.deadlineScheduler.shouldStartFinalPhase(generation, population.size())) {
+                exploratoryPhase = false;
+                // The alphas come first, they are kept
+                int finalPopulationSize = this.deadlineScheduler.getFinalPopulationSize();
+                if (population.size() > finalPopulationSize)
+                    population = new ArrayList<>(population.subList(0, finalPopulationSize));
+                printVerbose(verbose, "starting final refinement phase with %d candidates, %d seconds left", population.size(), this.deadlineScheduler.getRemaining().toSeconds());
+            }
+
+            if (this.deadlineScheduler != null && this.deadlineScheduler.isFinalPhase()) {
+                phaseName = "final refinement";
+            } else if (generation % this.config.evolution.phaseLengthGenerations == 0) {
                 if (generation > 0)
                     exploratoryPhase = !exploratoryPhase;
                 if (!exploratoryPhase)
@@ -69,27 +260,65 @@ public class EvolutionEngine {
 
             assert !population.isEmpty() : "Population list cannot be empty.";
 
-            // Run simulation and gather the SimulationData from each run
-            List<EvaluatedGenome> simulatedPopulation = simulatePopulation(population, this.simulatorThreadLocal, this.executor);
-            // Evaluate the population's fitness's
-            evaluatedPopulation = evaluatePopulationsFitness(simulatedPopulation);
+            evaluatedPopulation = evaluatePopulation(population, generation);
+            if (this.memeticRefiner != null) {
+                // Climb the elites' single-slot neighbourhoods before anything looks at the fitness values
+                MemeticRefiner.RefinementResult refinementResult = this.memeticRefiner.refine(evaluatedPopulation, random);
+                Logger.log(Logger.LogLevel.DEBUG, "Memetic refinement in generation %d: %s", generation, refinementResult);
+            }
+
             // Analyze the current generation's data (stable count, total fitness, etc.)
             GenerationSummary generationSummary = summarizeGeneration(evaluatedPopulation);
 
             Logger.log(Logger.LogLevel.DEBUG, "Valid designs in generation %d: %d/%d (%.1f%%)", generation, generationSummary.stableDesignsCount, evaluatedPopulation.size(), 100.0 * generationSummary.stableDesignsCount / evaluatedPopulation.size());
 
+            if (this.surrogateModel != null) {
+                // Check how well the surrogate ranked this generation before learning from it
+                if (this.surrogateModel.getSampleCount() > 0 && Logger.isEnabled(Logger.LogLevel.DEBUG))
+                    Logger.log(Logger.LogLevel.DEBUG, "Surrogate rank correlation in generation %d: %.3f (trained on %d genomes)", generation, this.surrogateModel.rankCorrelation(evaluatedPopulation), this.surrogateModel.getSampleCount());
+                this.surrogateModel.train(evaluatedPopulation);
+            }
+
             if (generationSummary.alpha.getFitness() > overallBestFitness) {
                 overallBestFitness = generationSummary.alpha.getFitness();
             }
 
+            updateEliteArchive(eliteArchive, evaluatedPopulation);
+
             // Don't need a new population for the last generation
-            if (generation < this.config.evolution.maxGeneration - 1) {
-                // Create the new population for next generation
-                population = breedNextGeneration(config, random, evaluatedPopulation, exploratoryPhase, generation);
+            int nextPopulationSize = this.deadlineScheduler != null && this.deadlineScheduler.isFinalPhase() ? this.deadlineScheduler.getFinalPopulationSize() : this.config.evolution.populationSize;
+            boolean lastGeneration;
+            if (this.deadlineScheduler != null)
+                lastGeneration = this.deadlineScheduler.isLastGeneration(generation, nextPopulationSize);
+            else
+                lastGeneration = generation >= this.config.evolution.maxGeneration - 1;
+
+            boolean converged = false;
+            if (!lastGeneration) {
+                SpeciesTracker.SpeciesSummary speciesSummary = this.speciesTracker.update(evaluatedPopulation);
+                DIVERSITY.set(speciesSummary.getDiversity());
+
+                ConvergenceMonitor.Decision decision = ConvergenceMonitor.Decision.CONTINUE;
+                if (this.convergenceMonitor != null)
+                    decision = this.convergenceMonitor.record(overallBestFitness, generationSummary.totalFitness / evaluatedPopulation.size(), speciesSummary.getDiversity());
+
+                if (decision == ConvergenceMonitor.Decision.RESTART) {
+                    printVerbose(verbose, "Population stalled %s. Restart %d/%d from %d archived elites", this.convergenceMonitor.describeWindow(), this.convergenceMonitor.getRestartCount(), this.config.convergence.maxRestarts, eliteArchive.size());
+                    population = restartPopulation(config, random, eliteArchive, nextPopulationSize);
+                } else if (decision == ConvergenceMonitor.Decision.STOP) {
+                    printVerbose(verbose, "Population converged %s. Stopping after %d/%d generations and %d restarts", this.convergenceMonitor.describeWindow(), generation + 1, this.config.evolution.maxGeneration, this.convergenceMonitor.getRestartCount());
+                    converged = true;
+                } else {
+                    // Create the new population for next generation
+                    population = breedNextGeneration(config, random, evaluatedPopulation, speciesSummary, exploratoryPhase, generation, nextPopulationSize);
+                }
             }
 
             long generationEndTime = System.nanoTime();
             double generationElapsedTimeMS = (generationEndTime - generationStartTime) / 1e6;
+            if (this.deadlineScheduler != null)
+                this.deadlineScheduler.recordGeneration(evaluatedPopulation.size(), generationEndTime - generationStartTime);
+            recordGenerationMetrics(generationSummary, evaluatedPopulation.size(), generationEndTime - generationStartTime, generationStartAllocatedBytes);
 
             ReactorItem alphaFuelType = ComponentFactory.getDefaultComponent(generationSummary.alpha.getGenome().getFuelType());
             assert alphaFuelType != null;
@@ -97,13 +326,56 @@ public class EvolutionEngine {
             String alphaRender = String.format("%s - %.2fEU/t %s", alphaFuelTypeString, generationSummary.alpha.getSimulationData().avgEUOutput, generationSummary.alpha.getGenome().getERPCode());
 
             printVerbose(verbose, "Generation %d [%s] best fitness: %.2f, avg. fitness: %.2f, took %.2fms. Alpha: %s", generation, phaseName, generationSummary.alpha.getFitness(), generationSummary.totalFitness / (double) population.size(), generationElapsedTimeMS, alphaRender);
+
+            boolean stopped = false;
+            if (this.generationListener != null) {
+                long simulationCount = this.simulationPool.getSimulationCount() - generationStartSimulationCount;
+                GenerationProgress progress = new GenerationProgress(generation, phaseName, generationSummary.alpha.getFitness(), generationSummary.totalFitness / evaluatedPopulation.size(), overallBestFitness, simulationCount * 1000.0 / Math.max(1.0, generationElapsedTimeMS), generationSummary.alpha.getSimulationData().avgEUOutput, generationSummary.alpha.getGenome().getERPCode());
+                if (!this.generationListener.onGeneration(progress)) {
+                    printVerbose(verbose, "Stopped after %d/%d generations", generation + 1, this.config.evolution.maxGeneration);
+                    stopped = true;
+                }
+            }
             generation++;
+
+            if (converged || stopped || lastGeneration)
+                break;
+
+            if (this.migrationChannel != null)
+                migrate(generation - 1, generationSummary.alpha.getFitness(), evaluatedPopulation, population);
+
+            if (this.checkpointWriter != null && generation % this.config.checkpoint.interval == 0) {
+                writeCheckpoint(generation, exploratoryPhase, overallBestFitness, population, eliteArchive);
+                if (this.bestSoFarWriter != null)
+                    writeBestSoFar(generation, eliteArchive, evaluatedPopulation);
+            }
+        }
+
+        // The designs the run ends with, whatever the last checkpoint had
+        if (this.bestSoFarWriter != null && evaluatedPopulation != null)
+            writeBestSoFar(generation, eliteArchive, evaluatedPopulation);
+
+        if (evaluatedPopulation == null)
+            evaluatedPopulation = new ArrayList<>();
+
+        // A restart may have lost the best design from the population, the archive still has it
+        if (!eliteArchive.isEmpty()) {
+            EvaluatedGenome best = eliteArchive.get(0);
+            if (evaluatedPopulation.stream().noneMatch(evaluatedGenome -> evaluatedGenome.getGenome().equals(best.getGenome())))
+                evaluatedPopulation.add(0, best);
         }
 
         long globalEndTime = System.nanoTime();
         double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
         printVerbose(verbose, "Evolution process finished! Best fitness: %.2f, took %.2fms", overallBestFitness, globalElapsedTimeMS);
 
+        this.genomeEvaluator.close();
+        this.simulationPool.close();
+        if (this.checkpointWriter != null)
+            this.checkpointWriter.close();
+        if (this.bestSoFarWriter != null)
+            this.bestSoFarWriter.close();
+
         // executor cleanup
         try {
             executor.shutdown();
@@ -117,16 +389,54 @@ public class EvolutionEngine {
         return evaluatedPopulation;
     }
 
-    private List<EvaluatedGenome> evaluatePopulationsFitness(List<EvaluatedGenome> simulatedPopulation) {
-        return simulatedPopulation.stream()
-                .map(simulatedGenome -> {
-                    double fitness = evaluateGenomeFitness(simulatedGenome);
-                    EvaluatedGenome evaluatedGenome = new EvaluatedGenome(simulatedGenome.getGenome(), fitness);
-                    evaluatedGenome.setSimulationData(simulatedGenome.getSimulationData());
+    private List<EvaluatedGenome> evaluatePopulation(List<ReactorGenome> population, int generation) {
+        EvaluatedGenome[] results = new EvaluatedGenome[population.size()];
+
+        // Genomes certain to melt down get their fitness without being simulated
+        List<Integer> simulatedIndices = new ArrayList<>(population.size());
+        if (this.heatBalanceAnalyzer != null) {
+            int repairedCount = 0;
+            for (int i = 0; i < population.size(); i++) {
+                ReactorGenome genome = population.get(i);
+                HeatBalanceAnalyzer.Analysis analysis = this.heatBalanceAnalyzer.analyze(genome);
+                if (analysis.isMeltdownCertain() && this.config.heatBalance.repair) {
+                    analysis = this.heatBalanceAnalyzer.repair(genome);
+                    if (!analysis.isMeltdownCertain())
+                        repairedCount++;
+                }
+
+                if (analysis.isMeltdownCertain())
+                    results[i] = this.genomeEvaluator.evaluateMeltdown(genome, analysis);
+                else
+                    simulatedIndices.add(i);
+            }
 
-                    return evaluatedGenome;
-                })
-                .collect(Collectors.toList());
+            Logger.log(Logger.LogLevel.DEBUG, "Heat balance in generation %d: %d/%d genomes certain to melt down, %d repaired", generation, population.size() - simulatedIndices.size(), population.size(), repairedCount);
+        } else {
+            for (int i = 0; i < population.size(); i++)
+                simulatedIndices.add(i);
+        }
+
+        List<ReactorGenome> simulatedGenomes = new ArrayList<>(simulatedIndices.size());
+        for (int index : simulatedIndices)
+            simulatedGenomes.add(population.get(index));
+
+        List<EvaluatedGenome> simulatedResults;
+        if (this.racingEvaluator != null) {
+            // Race the population through increasing simulation horizons, only the best get fully simulated
+            RacingEvaluator.RaceResult raceResult = this.racingEvaluator.race(simulatedGenomes);
+            simulatedResults = raceResult.getEvaluatedPopulation();
+            this.genomeEvaluator.record(simulatedResults);
+            Logger.log(Logger.LogLevel.DEBUG, "Racing in generation %d: %s", generation, raceResult);
+        } else {
+            // Run simulation and evaluate the population's fitness's
+            simulatedResults = this.genomeEvaluator.simulate(simulatedGenomes);
+        }
+
+        for (int i = 0; i < simulatedIndices.size(); i++)
+            results[simulatedIndices.get(i)] = simulatedResults.get(i);
+
+        return new ArrayList<>(Arrays.asList(results));
     }
 
     private GenerationSummary summarizeGeneration(List<EvaluatedGenome> evaluatedPopulation) {
@@ -136,19 +446,32 @@ public class EvolutionEngine {
         for (EvaluatedGenome evaluatedGenome : evaluatedPopulation) {
             totalFitness += evaluatedGenome.getFitness();
             if (evaluatedGenome.getFitness() > 0) stableCount++;
-            if (evaluatedGenome.getFitness() > alpha.getFitness()) alpha = evaluatedGenome;
+
+            // Fully evaluated genomes always win over estimates
+            if (alpha.isPartialEvaluation() && !evaluatedGenome.isPartialEvaluation())
+                alpha = evaluatedGenome;
+            else if (alpha.isPartialEvaluation() == evaluatedGenome.isPartialEvaluation() && evaluatedGenome.getFitness() > alpha.getFitness())
+                alpha = evaluatedGenome;
         }
 
         return new GenerationSummary(alpha, stableCount, totalFitness);
     }
 
-    private List<ReactorGenome> breedNextGeneration(GAConfig config, Random random, List<EvaluatedGenome> evaluatedPopulation, boolean exploratoryPhase, int generation) {
-        List<ReactorGenome> population = evaluatedPopulation.stream().
-                map(EvaluatedGenome::getGenome)
-                .collect(Collectors.toList());
+    private static void recordGenerationMetrics(GenerationSummary generationSummary, int populationSize, long elapsedNanos, long startAllocatedBytes) {
+        GENERATION_COUNTER.increment();
+        GENERATION_SECONDS.observe(elapsedNanos / 1e9);
+        BEST_FITNESS.set(generationSummary.alpha.getFitness());
+        STABLE_DESIGN_RATIO.set((double) generationSummary.stableDesignsCount / populationSize);
+
+        // Threads ending during the generation take their allocations with them, never report less than nothing
+        if (startAllocatedBytes >= 0)
+            GENERATION_ALLOCATED_BYTES.set(Math.max(0, MetricsRegistry.getAllocatedBytes() - startAllocatedBytes));
+    }
 
-        double populationDiversityMetric = calculateSpeciesDiversity(config, population);
+    private List<ReactorGenome> breedNextGeneration(GAConfig config, Random random, List<EvaluatedGenome> evaluatedPopulation, SpeciesTracker.SpeciesSummary speciesSummary, boolean exploratoryPhase, int generation, int populationSize) {
+        double populationDiversityMetric = speciesSummary.getDiversity();
         Logger.log(Logger.LogLevel.DEBUG, "Diversity in generation %d: %.2f%% individual species", generation, populationDiversityMetric * 100);
+        logTopSpecies(speciesSummary, generation);
 
         int randomGenomesInjectCount = 0;
         if (populationDiversityMetric < config.evolution.lowDiversityThreshold) {
@@ -160,22 +483,14 @@ public class EvolutionEngine {
         List<ReactorGenome> newPopulation = initializeNewPopulationWithAlphas(config.evolution.alphaCount, evaluatedPopulation);
 
         // Fill the rest of the population with the tournament selection breeding
-        int tournamentCount = config.evolution.populationSize - newPopulation.size() - randomGenomesInjectCount;
+        int tournamentCount = populationSize - newPopulation.size() - randomGenomesInjectCount;
         ReactorGenome.MutationStatTracker statTracker = new ReactorGenome.MutationStatTracker();
-
-        for (int i = 0; i < tournamentCount; i++) {
-            // Parent selection
-            ReactorGenome parentA = selectParentViaTournament(config, random, evaluatedPopulation);
-            ReactorGenome parentB = selectParentViaTournament(config, random, evaluatedPopulation);
-
-            // Breeding phase
-            ReactorGenome childGenome = ReactorGenome.crossBreed(config, parentA, parentB, random);
-
-            // Mutation phase
-            GAConfig.PhaseProbabilities mutationProbabilities = exploratoryPhase ? config.mutation.exploration : config.mutation.refinement;
-            childGenome.tryMutation(config, mutationProbabilities, random, statTracker);
-
-            newPopulation.add(childGenome);
+        if (this.surrogateModel != null && this.surrogateModel.isReady()) {
+            // Breed a lot more children than needed and only keep the ones the surrogate likes, plus a few random ones
+            List<ReactorGenome> candidates = this.offspringBreeder.breed(evaluatedPopulation, exploratoryPhase, generation, tournamentCount * config.surrogate.candidateMultiplier, statTracker);
+            newPopulation.addAll(this.surrogateModel.screen(candidates, tournamentCount, random, generation));
+        } else {
+            newPopulation.addAll(this.offspringBreeder.breed(evaluatedPopulation, exploratoryPhase, generation, tournamentCount, statTracker));
         }
 
         // Inject random genomes into new population to spike diversity if diversity is too low
@@ -183,86 +498,166 @@ public class EvolutionEngine {
             newPopulation.add(ReactorGenome.randomGenome(config, random));
         }
 
-        Logger.log(Logger.LogLevel.DEBUG, "Mutations count in generation %d: " + statTracker, generation);
+        Logger.log(Logger.LogLevel.DEBUG, () -> "Mutations count in generation " + generation + ": " + statTracker);
         return newPopulation;
     }
 
-    private List<ReactorGenome> initializeNewPopulationWithAlphas(int alphaCount, List<EvaluatedGenome> evaluatedPopulation) {
-        List<ReactorGenome> newPopulation = new ArrayList<>();
+    private void updateEliteArchive(List<EvaluatedGenome> eliteArchive, List<EvaluatedGenome> evaluatedPopulation) {
+        Set<ReactorGenome> archived = new HashSet<>();
+        for (EvaluatedGenome elite : eliteArchive)
+            archived.add(elite.getGenome());
 
-        evaluatedPopulation.sort(Comparator.comparingDouble(EvaluatedGenome::getFitness).reversed());
-        for (int i = 0; i < alphaCount; i++) {
-            newPopulation.add(evaluatedPopulation.get(i).getGenome().copy());
+        // Partial evaluations are estimates, they could push real elites out
+        for (EvaluatedGenome evaluatedGenome : evaluatedPopulation) {
+            if (!evaluatedGenome.isPartialEvaluation() && archived.add(evaluatedGenome.getGenome()))
+                eliteArchive.add(evaluatedGenome);
         }
 
-        return newPopulation;
+        eliteArchive.sort(Comparator.comparingDouble(EvaluatedGenome::getFitness).reversed());
+        // Restarts need a few elites, otherwise the best design is enough
+        int archiveSize = this.convergenceMonitor != null ? Math.max(1, config.convergence.restartEliteCount) : 1;
+        if (eliteArchive.size() > archiveSize)
+            eliteArchive.subList(archiveSize, eliteArchive.size()).clear();
     }
 
-    private ReactorGenome selectParentViaTournament(GAConfig config, Random random, List<EvaluatedGenome> evaluatedPopulation) {
-        List<EvaluatedGenome> tournamentSelection = new ArrayList<>();
-        for (int k = 0; k < config.evolution.tournamentSizeK; k++) {
-            tournamentSelection.add(evaluatedPopulation.get(random.nextInt(evaluatedPopulation.size())));
+    private void migrate(int generation, double bestFitness, List<EvaluatedGenome> evaluatedPopulation, List<ReactorGenome> population) {
+        int emigrantCount = 0;
+        if (this.config.isMigrationEnabled() && (generation + 1) % this.config.islands.migrationInterval == 0) {
+            List<EvaluatedGenome> candidates = new ArrayList<>(evaluatedPopulation);
+            candidates.sort(Comparator.comparingDouble(EvaluatedGenome::getFitness).reversed());
+
+            Set<ReactorGenome> emigrants = new LinkedHashSet<>();
+            for (EvaluatedGenome candidate : candidates) {
+                if (emigrants.size() >= this.config.islands.migrantCount)
+                    break;
+                if (!candidate.isPartialEvaluation())
+                    emigrants.add(candidate.getGenome().copy());
+            }
+
+            emigrantCount = emigrants.size();
+            this.migrationChannel.emigrate(generation, bestFitness, new ArrayList<>(emigrants));
         }
 
-        assert !tournamentSelection.isEmpty() : "Tournament competitor list cannot be empty.";
+        // The newest immigrants take the place of the last offspring, the alphas stay
+        List<ReactorGenome> immigrants = this.migrationChannel.immigrate();
+        int immigrantCount = Math.min(immigrants.size(), Math.max(0, population.size() - this.config.evolution.alphaCount));
+        for (int i = 0; i < immigrantCount; i++) {
+            ReactorGenome immigrant = immigrants.get(immigrants.size() - 1 - i);
+            // Species ids of another island mean nothing here
+            immigrant.setSpeciesId(-1);
+            population.set(population.size() - 1 - i, immigrant);
+        }
 
-        return Collections.max(tournamentSelection, Comparator.comparingDouble(EvaluatedGenome::getFitness)).getGenome();
+        if (emigrantCount > 0 || immigrantCount > 0)
+            Logger.log(Logger.LogLevel.DEBUG, "Migration in generation %d: %d designs sent, %d received", generation, emigrantCount, immigrantCount);
     }
 
-    private double calculateSpeciesDiversity(GAConfig config, List<ReactorGenome> population) {
-        if (population.isEmpty()) return 0.0;
+    // Serializes the state on the generation loop's thread, only the disk write happens in the background
+    private void writeCheckpoint(int generation, boolean exploratoryPhase, double overallBestFitness, List<ReactorGenome> population, List<EvaluatedGenome> eliteArchive) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(CHECKPOINT_MAGIC);
+            output.writeInt(CHECKPOINT_VERSION);
+            output.writeInt(this.config.reactor.rowCount);
+            output.writeInt(this.config.reactor.colCount);
+
+            output.writeLong(this.seed);
+            output.writeInt(generation);
+            output.writeBoolean(exploratoryPhase);
+            output.writeDouble(overallBestFitness);
+
+            output.writeInt(population.size());
+            for (ReactorGenome genome : population) {
+                genome.writePacked(output);
+                output.writeInt(genome.getSpeciesId());
+            }
 
-        List<ReactorGenome> speciesRepresentatives = new ArrayList<>();
-        for (ReactorGenome individual : population) {
-            boolean newSpecies = true;
-            for (ReactorGenome representative : speciesRepresentatives) {
-                if (ReactorGenome.calculateSimilarity(config, individual, representative) > config.speciation.speciesSimilarityThreshold) {
-                    newSpecies = false;
-                    break;
-                }
+            output.writeInt(eliteArchive.size());
+            for (EvaluatedGenome elite : eliteArchive) {
+                elite.getGenome().writePacked(output);
+                output.writeDouble(elite.getFitness());
+                GenomeMetrics metrics = GenomeMetrics.of(elite.getGenome(), elite.getSimulationData());
+                output.writeDouble(metrics.getAvgEUOutput());
+                output.writeDouble(metrics.getMaxTemp());
+                output.writeBoolean(metrics.isComponentBroken());
             }
 
-            if (newSpecies)
-                speciesRepresentatives.add(individual);
+            this.speciesTracker.writeState(output);
+            output.writeBoolean(this.surrogateModel != null);
+            if (this.surrogateModel != null)
+                this.surrogateModel.writeState(output);
+            output.writeBoolean(this.convergenceMonitor != null);
+            if (this.convergenceMonitor != null)
+                this.convergenceMonitor.writeState(output);
+        } catch (IOException e) {
+            Logger.log(e, "Could not serialize the checkpoint of generation " + generation);
+            return;
         }
 
-        return (double) speciesRepresentatives.size() / (double) population.size();
+        this.checkpointWriter.submit(bytes.toByteArray());
     }
 
-    private List<EvaluatedGenome> simulatePopulation(List<ReactorGenome> population, ThreadLocal<ReactorSimulator> simulators, ExecutorService executor) {
-        List<EvaluatedGenome> evaluatedGenomes = new ArrayList<>();
+    // Seed file format, so the designs can be opened in the planner or seed another run while this one goes on
+    private void writeBestSoFar(int generation, List<EvaluatedGenome> eliteArchive, List<EvaluatedGenome> evaluatedPopulation) {
+        List<EvaluatedGenome> candidates = new ArrayList<>(eliteArchive);
+        for (EvaluatedGenome evaluatedGenome : evaluatedPopulation) {
+            if (!evaluatedGenome.isPartialEvaluation())
+                candidates.add(evaluatedGenome);
+        }
+        candidates.sort(Comparator.comparingDouble(EvaluatedGenome::getFitness).reversed());
+
+        StringBuilder text = new StringBuilder();
+        text.append("// Best designs of config '").append(this.config.getConfigName()).append("' after ").append(generation).append(" generations").append(System.lineSeparator());
+        Set<ReactorGenome> written = new HashSet<>();
+        for (EvaluatedGenome candidate : candidates) {
+            if (written.size() >= BEST_SO_FAR_COUNT)
+                break;
+            if (!written.add(candidate.getGenome()))
+                continue;
+
+            ReactorItem fuelType = ComponentFactory.getDefaultComponent(candidate.getGenome().getFuelType());
+            GenomeMetrics metrics = GenomeMetrics.of(candidate.getGenome(), candidate.getSimulationData());
+            text.append(System.lineSeparator());
+            text.append(String.format(Locale.ROOT, "# %d - %s, fitness %.2f, %.2fEU/t output", written.size(), fuelType != null ? fuelType.name : "Unknown fuel", candidate.getFitness(), metrics.getAvgEUOutput())).append(System.lineSeparator());
+            text.append(candidate.getGenome().getERPCode()).append(System.lineSeparator());
+        }
 
-        // thread creation
-        List<Future<SimulationData>> fitnessFutures = new ArrayList<>(population.size());
-        for (ReactorGenome currentGenome : population) {
-            final ReactorGenome genomeForThread = currentGenome.copy();
+        this.bestSoFarWriter.submit(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
-            Callable<SimulationData> task = () -> {
-                ReactorSimulator threadSimulator = simulators.get();
-                threadSimulator.resetState();
+    private List<ReactorGenome> restartPopulation(GAConfig config, Random random, List<EvaluatedGenome> eliteArchive, int populationSize) {
+        List<ReactorGenome> newPopulation = new ArrayList<>();
+        for (int i = 0; i < Math.min(eliteArchive.size(), populationSize); i++)
+            newPopulation.add(eliteArchive.get(i).getGenome().copy());
 
-                Reactor currentReactor = genomeForThread.toReactor();
-                return threadSimulator.runSimulation(currentReactor);
-            };
+        while (newPopulation.size() < populationSize)
+            newPopulation.add(ReactorGenome.randomGenome(config, random));
 
-            fitnessFutures.add(executor.submit(task));
+        return newPopulation;
+    }
+
+    private List<ReactorGenome> initializeNewPopulationWithAlphas(int alphaCount, List<EvaluatedGenome> evaluatedPopulation) {
+        List<ReactorGenome> newPopulation = new ArrayList<>();
+
+        evaluatedPopulation.sort(Comparator.comparingDouble(EvaluatedGenome::getFitness).reversed());
+        for (int i = 0; i < alphaCount; i++) {
+            newPopulation.add(evaluatedPopulation.get(i).getGenome().copy());
         }
 
-        // data gathering from threads
-        try {
-            for (int i = 0; i < population.size(); i++) {
-                ReactorGenome genome = population.get(i);
-                EvaluatedGenome evaluatedGenome = new EvaluatedGenome(genome);
+        return newPopulation;
+    }
 
-                SimulationData simulationData = fitnessFutures.get(i).get();
-                evaluatedGenome.setSimulationData(simulationData);
-                evaluatedGenomes.add(evaluatedGenome);
-            }
-        } catch (Exception e) {
-            Logger.log(e, "A simulation thread failed");
+    private void logTopSpecies(SpeciesTracker.SpeciesSummary speciesSummary, int generation) {
+        if (!Logger.isEnabled(Logger.LogLevel.DEBUG))
+            return;
+
+        List<SpeciesTracker.SpeciesStats> topSpecies = speciesSummary.getSpeciesByBestFitness();
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < Math.min(TOP_SPECIES_LOG_COUNT, topSpecies.size()); i++) {
+            buffer.append("\n\t").append(topSpecies.get(i));
         }
 
-        return evaluatedGenomes;
+        Logger.log(Logger.LogLevel.DEBUG, "Top species in generation %d (%d alive):%s", generation, speciesSummary.getSpeciesCount(), buffer.toString());
     }
 
     private List<ReactorGenome> initializePopulation(GAConfig config, Random random, List<ReactorGenome> seedPopulation) {
@@ -281,54 +676,28 @@ public class EvolutionEngine {
         return population;
     }
 
-    private double evaluateGenomeFitness(EvaluatedGenome evaluatedGenome) {
-        double fitness = 0.0;
-
-        // Unstable reactors are disqualified, might look into heavily penalizing them in the future to reward experimentation
-        // 50% heat is too much, disqualify.
-        // TODO: put that in a config somewhere. Actually do we even need this?
-        if (evaluatedGenome.getSimulationData().maxTemp > 5000)
-            return 0.0;
-
-        SimulationData simulationData = evaluatedGenome.getSimulationData();
-
-        double avgEUOutput = simulationData.avgEUOutput;
-        double fuelEfficiency = computeGenomeFuelEfficiency(evaluatedGenome.getGenome(), avgEUOutput);
-
-        // Power output, the basis of the fitness
-        fitness += avgEUOutput * this.config.fitness.euOutputWeight;
-
-        // Fuel efficiency bonus. Based on a human designed "meta" reactor with great fuel efficiency and good power output.
-        // Uses a sqrt() scaling
-        double normalizedEfficiency = Math.sqrt(fuelEfficiency) / Math.sqrt(this.config.fitness.metaFuelEfficiencyTarget);
-        fitness += avgEUOutput * normalizedEfficiency * this.config.fitness.fuelEfficiencyWeight;
-
-        if (simulationData.firstComponentBrokenTime < Integer.MAX_VALUE)
-            fitness *= this.config.fitness.componentBrokenPenalty;
-
-        double heatPenalty = evaluatedGenome.getSimulationData().maxTemp * this.config.fitness.heatPenaltyMultiplier;
-        fitness -= heatPenalty;
-
-        // maybe modify by total EU generation? but this will put more importance on later fuels
-        // maybe further penalize reactors that accumulate too much heat in their component (as a % of the heat capacity of the component)
-
-        return fitness;
-    }
-
-    private double computeGenomeFuelEfficiency(ReactorGenome genome, double avgEUOutput) {
-        int fuelRodCount = genome.getFuelRodCount();
-        return fuelRodCount > 0 ? avgEUOutput / (double) fuelRodCount : 0;
-    }
-
     private void printVerbose(boolean verbose, String message, Object... args) {
         if (verbose)
             Logger.log(message, args);
     }
 
+    private static SimulationPool createSimulationPool(GAConfig config, ExecutorService executor, SimulationCache simulationCache) {
+        if (!config.isRemoteWorkersEnabled())
+            return simulationCache != null ? new CachingSimulationPool(executor, simulationCache) : new SimulationPool(executor);
+
+        try {
+            return new RemoteSimulationPool(config, executor);
+        } catch (IOException e) {
+            Logger.log(e, "Could not listen for simulation workers, simulating locally");
+            return new SimulationPool(executor);
+        }
+    }
+
     public static class EvaluatedGenome {
         private ReactorGenome genome;
         private SimulationData simulationData;
         private double fitness;
+        private boolean partialEvaluation;
 
         public EvaluatedGenome(ReactorGenome genome) {
             this(genome, -1.0);
@@ -364,6 +733,108 @@ public class EvolutionEngine {
             this.fitness = fitness;
         }
 
+        /**
+         * @return true if the fitness is an estimate from a shortened simulation rather than a full one.
+         */
+        public boolean isPartialEvaluation() {
+            return this.partialEvaluation;
+        }
+
+        public void setPartialEvaluation(boolean partialEvaluation) {
+            this.partialEvaluation = partialEvaluation;
+        }
+
+    }
+
+    /**
+     * Where an island's migrants go and where the other islands' come from, see {@link IslandEngine}.
+     */
+    public interface MigrationChannel {
+        void emigrate(int generation, double bestFitness, List<ReactorGenome> emigrants);
+
+        /**
+         * @return The migrants that arrived since the last call, oldest first. Never waits for any.
+         */
+        List<ReactorGenome> immigrate();
+    }
+
+    /**
+     * Follows a run generation by generation.
+     */
+    public interface GenerationListener {
+        /**
+         * Called from the engine's thread once a generation has been evaluated and the next one bred. Keep it short,
+         * the next generation waits for it.
+         *
+         * @return Whether the run goes on. Stopping returns the generation's population like a converged run would.
+         */
+        boolean onGeneration(GenerationProgress progress);
+    }
+
+    public static class GenerationProgress {
+        private final int generation;
+        private final String phase;
+        private final double bestFitness;
+        private final double averageFitness;
+        private final double overallBestFitness;
+        private final double simulationsPerSecond;
+        private final double alphaEUOutput;
+        private final String alphaCode;
+
+        public GenerationProgress(int generation, String phase, double bestFitness, double averageFitness, double overallBestFitness, double simulationsPerSecond, double alphaEUOutput, String alphaCode) {
+            this.generation = generation;
+            this.phase = phase;
+            this.bestFitness = bestFitness;
+            this.averageFitness = averageFitness;
+            this.overallBestFitness = overallBestFitness;
+            this.simulationsPerSecond = simulationsPerSecond;
+            this.alphaEUOutput = alphaEUOutput;
+            this.alphaCode = alphaCode;
+        }
+
+        public int getGeneration() {
+            return this.generation;
+        }
+
+        public String getPhase() {
+            return this.phase;
+        }
+
+        public double getBestFitness() {
+            return this.bestFitness;
+        }
+
+        public double getAverageFitness() {
+            return this.averageFitness;
+        }
+
+        public double getOverallBestFitness() {
+            return this.overallBestFitness;
+        }
+
+        public double getSimulationsPerSecond() {
+            return this.simulationsPerSecond;
+        }
+
+        public double getAlphaEUOutput() {
+            return this.alphaEUOutput;
+        }
+
+        /**
+         * @return The ERP code of the generation's best design.
+         */
+        public String getAlphaCode() {
+            return this.alphaCode;
+        }
+    }
+
+    // What a checkpoint restores besides the components' own state
+    private static class ResumeState {
+        public int generation;
+        public boolean exploratoryPhase;
+        public double overallBestFitness;
+        public final List<ReactorGenome> population = new ArrayList<>();
+        public final List<EvaluatedGenome> eliteArchive = new ArrayList<>();
     }
 
     private static class GenerationSummary {
@@ -0,0 +1,257 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of threads shared by several clients, each one getting its own {@link Share} of them, a regular
+ * {@link java.util.concurrent.ExecutorService}.
+ * <p>
+ * Threads take tasks from the shares round robin, one task per share in turn, so a run submitting thousands of
+ * simulations at once doesn't starve one submitting a handful: every share with work gets an equal slice of the
+ * threads. A paused share keeps its tasks queued until it is resumed.
+ */
+public class FairShareExecutor {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final ReentrantLock lock;
+    private final Condition workAvailable;
+    private final Condition shareIdle;
+    // Shares with queued tasks and not paused, in the order they get served
+    private final Deque<Share> readyShares;
+    private final List<Thread> threads;
+    private boolean shutdown;
+
+    public FairShareExecutor(int threadCount, String threadNamePrefix) {
+        this.lock = new ReentrantLock();
+        this.workAvailable = this.lock.newCondition();
+        this.shareIdle = this.lock.newCondition();
+        this.readyShares = new ArrayDeque<>();
+        this.threads = new ArrayList<>(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::work, threadNamePrefix + "-" + i);
+            thread.setDaemon(true);
+            this.threads.add(thread);
+            thread.start();
+        }
+    }
+
+    public int getThreadCount() {
+        return this.threads.size();
+    }
+
+    /**
+     * @return A new share of the threads. Shutting it down doesn't affect the other shares.
+     */
+    public Share newShare() {
+        return new Share();
+    }
+
+    /**
+     * Stops the threads once they are done with their current task. Tasks still queued never run.
+     */
+    public void shutdown() {
+        this.lock.lock();
+        try {
+            this.shutdown = true;
+            this.workAvailable.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Share share;
+            Runnable task;
+
+            this.lock.lock();
+            try {
+                while (this.readyShares.isEmpty() && !this.shutdown)
+                    this.workAvailable.awaitUninterruptibly();
+                if (this.shutdown)
+                    return;
+
+                share = this.readyShares.pollFirst();
+                task = share.tasks.pollFirst();
+                share.runningCount++;
+                if (!share.tasks.isEmpty())
+                    this.readyShares.addLast(share);
+            } finally {
+                this.lock.unlock();
+            }
+
+            long startCpuTime = currentThreadCpuTime();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Logger.log(e, "A shared executor task failed");
+            } finally {
+                long cpuTime = currentThreadCpuTime() - startCpuTime;
+                this.lock.lock();
+                try {
+                    share.cpuTimeNanos += cpuTime;
+                    share.runningCount--;
+                    this.shareIdle.signalAll();
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The CPU time of the calling thread in nanoseconds, 0 when the JVM can't measure it.
+     */
+    public static long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    public class Share extends AbstractExecutorService {
+        private final Deque<Runnable> tasks;
+        private int runningCount;
+        private long cpuTimeNanos;
+        private boolean paused;
+        private boolean shutdown;
+
+        private Share() {
+            this.tasks = new ArrayDeque<>();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            lock.lock();
+            try {
+                if (this.shutdown || FairShareExecutor.this.shutdown)
+                    throw new RejectedExecutionException("Share is shut down");
+
+                this.tasks.addLast(task);
+                if (this.tasks.size() == 1 && !this.paused) {
+                    readyShares.addLast(this);
+                    workAvailable.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Keeps the share's queued tasks from starting, the running ones finish.
+         */
+        public void pause() {
+            lock.lock();
+            try {
+                this.paused = true;
+                readyShares.remove(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void resume() {
+            lock.lock();
+            try {
+                if (this.paused && !this.tasks.isEmpty()) {
+                    readyShares.addLast(this);
+                    workAvailable.signalAll();
+                }
+                this.paused = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return The CPU time the share's finished tasks took, in nanoseconds.
+         */
+        public long getCpuTimeNanos() {
+            lock.lock();
+            try {
+                return this.cpuTimeNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isPaused() {
+            lock.lock();
+            try {
+                return this.paused;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            lock.lock();
+            try {
+                this.shutdown = true;
+                shareIdle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            lock.lock();
+            try {
+                this.shutdown = true;
+                readyShares.remove(this);
+                List<Runnable> droppedTasks = new ArrayList<>(this.tasks);
+                this.tasks.clear();
+                shareIdle.signalAll();
+                return droppedTasks;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            lock.lock();
+            try {
+                return this.shutdown;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            lock.lock();
+            try {
+                return this.shutdown && this.tasks.isEmpty() && this.runningCount == 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long remainingNanos = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (!(this.shutdown && this.tasks.isEmpty() && this.runningCount == 0)) {
+                    if (remainingNanos <= 0)
+                        return false;
+                    remainingNanos = shareIdle.awaitNanos(remainingNanos);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+/**
+ * The default {@link FitnessFunction}, following the {@code fitness} section of the config. Shared by every search
+ * engine so their results can be compared.
+ * <p>
+ * The weights are read once at construction, scoring a genome is a handful of arithmetic operations on its metrics.
+ */
+public class FitnessCalculator implements FitnessFunction {
+    // 50% of the base hull heat, anything hotter is disqualified
+    public static final double MAX_ALLOWED_TEMP = 5000;
+
+    private final double euOutputWeight;
+    private final double fuelEfficiencyWeight;
+    private final double sqrtMetaFuelEfficiencyTarget;
+    private final double componentBrokenPenalty;
+    private final double heatPenaltyMultiplier;
+    private final double abortedFitness;
+
+    public FitnessCalculator(GAConfig config) {
+        this.euOutputWeight = config.fitness.euOutputWeight;
+        this.fuelEfficiencyWeight = config.fitness.fuelEfficiencyWeight;
+        this.sqrtMetaFuelEfficiencyTarget = Math.sqrt(config.fitness.metaFuelEfficiencyTarget);
+        this.componentBrokenPenalty = config.fitness.componentBrokenPenalty;
+        this.heatPenaltyMultiplier = config.fitness.heatPenaltyMultiplier;
+        this.abortedFitness = config.isWatchdogEnabled() ? config.watchdog.fallbackFitness : 0.0;
+    }
+
+    @Override
+    public double score(ReactorGenome genome, SimulationData simulationData) {
+        // The metrics of a simulation stopped by the watchdog only cover part of the run
+        if (simulationData.aborted)
+            return this.abortedFitness;
+
+        return score(GenomeMetrics.of(genome, simulationData));
+    }
+
+    @Override
+    public double score(GenomeMetrics metrics) {
+        double fitness = 0.0;
+        double avgEUOutput = metrics.getAvgEUOutput();
+        double maxTemp = metrics.getMaxTemp();
+
+        // Unstable reactors are disqualified, might look into heavily penalizing them in the future to reward experimentation
+        // 50% heat is too much, disqualify.
+        // TODO: put that in a config somewhere. Actually do we even need this?
+        if (isDisqualified(maxTemp))
+            return 0.0;
+
+        double fuelEfficiency = metrics.getFuelEfficiency();
+
+        // Power output, the basis of the fitness
+        fitness += avgEUOutput * this.euOutputWeight;
+
+        // Fuel efficiency bonus. Based on a human designed "meta" reactor with great fuel efficiency and good power output.
+        // Uses a sqrt() scaling
+        double normalizedEfficiency = Math.sqrt(fuelEfficiency) / this.sqrtMetaFuelEfficiencyTarget;
+        fitness += avgEUOutput * normalizedEfficiency * this.fuelEfficiencyWeight;
+
+        if (metrics.isComponentBroken())
+            fitness *= this.componentBrokenPenalty;
+
+        double heatPenalty = maxTemp * this.heatPenaltyMultiplier;
+        fitness -= heatPenalty;
+
+        // maybe modify by total EU generation? but this will put more importance on later fuels
+        // maybe further penalize reactors that accumulate too much heat in their component (as a % of the heat capacity of the component)
+
+        return fitness;
+    }
+
+    /**
+     * Upper bound of the score of any design with {@code fuelRodCount} fuel rods producing at most
+     * {@code maxAvgEUOutput} EU/t and reaching at least {@code minMaxTemp} hull heat.
+     */
+    public double upperBound(double maxAvgEUOutput, int fuelRodCount, double minMaxTemp) {
+        // Disqualified designs score 0, so no bound goes below that
+        if (isDisqualified(minMaxTemp))
+            return 0.0;
+
+        double fuelEfficiency = new GenomeMetrics(fuelRodCount, maxAvgEUOutput, minMaxTemp, false).getFuelEfficiency();
+        double fitness = maxAvgEUOutput * Math.max(0, this.euOutputWeight);
+        fitness += maxAvgEUOutput * Math.sqrt(fuelEfficiency) / this.sqrtMetaFuelEfficiencyTarget * Math.max(0, this.fuelEfficiencyWeight);
+        fitness *= Math.max(1, this.componentBrokenPenalty);
+
+        // The hottest allowed design gets the smallest penalty when the multiplier is negative
+        fitness -= this.heatPenaltyMultiplier * (this.heatPenaltyMultiplier >= 0 ? minMaxTemp : MAX_ALLOWED_TEMP);
+
+        return Math.max(0.0, fitness);
+    }
+
+    public static boolean isDisqualified(double maxTemp) {
+        return maxTemp > MAX_ALLOWED_TEMP;
+    }
+
+    public static double computeGenomeFuelEfficiency(ReactorGenome genome, double avgEUOutput) {
+        return new GenomeMetrics(genome.getFuelRodCount(), avgEUOutput, 0, false).getFuelEfficiency();
+    }
+}
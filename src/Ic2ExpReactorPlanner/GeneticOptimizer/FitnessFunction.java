@@ -0,0 +1,15 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+/**
+ * Scores a genome from its {@link GenomeMetrics}, the higher the better. Implementations only depend on the metrics,
+ * so stored evaluations can be scored again without simulating anything.
+ */
+public interface FitnessFunction {
+    double score(GenomeMetrics metrics);
+
+    default double score(ReactorGenome genome, SimulationData simulationData) {
+        return score(GenomeMetrics.of(genome, simulationData));
+    }
+}
@@ -0,0 +1,158 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.components.FuelRod;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Ranks the genomes of an {@link EvaluationStore} under the {@code fitness} weights of a config, without simulating
+ * anything. The store is streamed once, only the best distinct genomes are kept in memory.
+ * <p>
+ * Usage: {@code FitnessRescorer <config> <evaluation store> [output seed file] [species count]}. The seed file holds the
+ * top species, best first, and can be used as the {@code seedFile} of a new run.
+ */
+public class FitnessRescorer {
+    private static final int DEFAULT_SPECIES_COUNT = 10;
+    // Candidates kept per species asked for, near-identical genomes crowd the top of a store
+    private static final int CANDIDATES_PER_SPECIES = 50;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            Logger.log(Logger.LogLevel.WARNING, "Usage: FitnessRescorer <config> <evaluation store> [output seed file] [species count]");
+            System.exit(1);
+        }
+
+        GAConfig config = GAConfig.loadConfig(args[0]);
+        if (config == null) {
+            System.exit(1);
+        }
+        Logger.setLevel(config.getLogLevel());
+
+        Path storePath = Paths.get(args[1]);
+        Path seedPath = args.length > 2 ? Paths.get(args[2]) : null;
+        int speciesCount = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SPECIES_COUNT;
+
+        Logger.log("Loaded config '%s'.", config.getConfigName());
+
+        // Stored metrics come from GTNH simulations
+        FuelRod.setGTNHBehavior(true);
+
+        FitnessRescorer rescorer = new FitnessRescorer(config, new FitnessCalculator(config), speciesCount * CANDIDATES_PER_SPECIES);
+        try {
+            long recordCount = EvaluationStore.read(config, storePath, rescorer::accept);
+            Logger.log("Re-scored %d evaluations from '%s', %d distinct genomes kept", recordCount, storePath, rescorer.getCandidateCount());
+        } catch (IOException e) {
+            Logger.log(e, "Could not read evaluation store '" + storePath + "'");
+            System.exit(1);
+        }
+
+        List<EvolutionEngine.EvaluatedGenome> topSpecies = rescorer.getTopSpecies(speciesCount);
+
+        Logger.log("");
+        Logger.log("Top %d species:", topSpecies.size());
+        for (int i = 0; i < topSpecies.size(); i++) {
+            EvolutionEngine.EvaluatedGenome evaluatedGenome = topSpecies.get(i);
+            Logger.log("%2d - %s Fitness: %7.2f; Output: %7.2fEU/t - %s", i + 1, getFuelTypeName(evaluatedGenome.getGenome()), evaluatedGenome.getFitness(), rescorer.getMetrics(evaluatedGenome).getAvgEUOutput(), evaluatedGenome.getGenome().getERPCode());
+        }
+
+        if (seedPath != null) {
+            try {
+                rescorer.writeSeedFile(seedPath, topSpecies);
+                Logger.log("Wrote %d seed reactors to '%s'", topSpecies.size(), seedPath);
+            } catch (IOException e) {
+                Logger.log(e, "Could not write seed file '" + seedPath + "'");
+                System.exit(1);
+            }
+        }
+    }
+
+    private final GAConfig config;
+    private final FitnessFunction fitnessFunction;
+    private final int maxCandidates;
+
+    // Worst candidate on top, so it's the one replaced
+    private final PriorityQueue<EvolutionEngine.EvaluatedGenome> candidates = new PriorityQueue<>(Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness));
+    private final Map<ReactorGenome, GenomeMetrics> candidateMetrics = new HashMap<>();
+
+    public FitnessRescorer(GAConfig config, FitnessFunction fitnessFunction, int maxCandidates) {
+        this.config = config;
+        this.fitnessFunction = fitnessFunction;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Scores a stored evaluation and keeps it if it's among the best distinct genomes seen so far.
+     */
+    public void accept(EvaluationStore.Record record) {
+        ReactorGenome genome = record.getGenome();
+        if (this.candidateMetrics.containsKey(genome))
+            return;
+
+        double fitness = this.fitnessFunction.score(record.getMetrics());
+        if (this.candidates.size() >= this.maxCandidates) {
+            if (fitness <= this.candidates.peek().getFitness())
+                return;
+
+            EvolutionEngine.EvaluatedGenome evicted = this.candidates.poll();
+            this.candidateMetrics.remove(evicted.getGenome());
+        }
+
+        this.candidates.add(new EvolutionEngine.EvaluatedGenome(genome, fitness));
+        this.candidateMetrics.put(genome, record.getMetrics());
+    }
+
+    public int getCandidateCount() {
+        return this.candidates.size();
+    }
+
+    /**
+     * @return The metrics a kept candidate was scored from.
+     */
+    public GenomeMetrics getMetrics(EvolutionEngine.EvaluatedGenome candidate) {
+        return this.candidateMetrics.get(candidate.getGenome());
+    }
+
+    /**
+     * @return The best genome of up to {@code count} distinct species among the kept candidates, best first.
+     */
+    public List<EvolutionEngine.EvaluatedGenome> getTopSpecies(int count) {
+        List<EvolutionEngine.EvaluatedGenome> sortedCandidates = new ArrayList<>(this.candidates);
+        sortedCandidates.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        return SpeciesTracker.selectTopSpecies(this.config, sortedCandidates, count);
+    }
+
+    /**
+     * Writes genomes in the seed file format read by {@link SeedFileLoader}.
+     */
+    public void writeSeedFile(Path path, List<EvolutionEngine.EvaluatedGenome> genomes) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("// Re-scored with config '" + this.config.getConfigName() + "'");
+            writer.newLine();
+
+            for (int i = 0; i < genomes.size(); i++) {
+                EvolutionEngine.EvaluatedGenome evaluatedGenome = genomes.get(i);
+                GenomeMetrics metrics = getMetrics(evaluatedGenome);
+
+                writer.newLine();
+                writer.write(String.format(Locale.ROOT, "# %d - %s, fitness %.2f, %.2fEU/t output, %.2fEU/t per rod efficiency", i + 1, getFuelTypeName(evaluatedGenome.getGenome()), evaluatedGenome.getFitness(), metrics.getAvgEUOutput(), metrics.getFuelEfficiency()));
+                writer.newLine();
+                writer.write(evaluatedGenome.getGenome().getERPCode());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String getFuelTypeName(ReactorGenome genome) {
+        ReactorItem fuelType = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelType != null ? fuelType.name : "Unknown fuel";
+    }
+}
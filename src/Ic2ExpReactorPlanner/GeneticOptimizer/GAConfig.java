@@ -4,12 +4,16 @@ import com.google.gson.Gson;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 
 public class GAConfig {
+    public String engine;
+    public String logLevel;
     public EvolutionConfig evolution;
     public SpeciationConfig speciation;
     public FitnessConfig fitness;
@@ -17,11 +21,50 @@ public class GAConfig {
     public ComponentConfig components;
     public FuelConfig fuels;
     public ReactorConfig reactor;
+    public RacingConfig racing;
+    public SurrogateConfig surrogate;
+    public HeatBalanceConfig heatBalance;
+    public MemeticConfig memetic;
+    public MapElitesConfig mapElites;
+    public Nsga2Config nsga2;
+    public HierarchicalConfig hierarchical;
+    public BranchAndBoundConfig branchAndBound;
+    public AnnealingConfig annealing;
+    public EdaConfig eda;
+    public ConvergenceConfig convergence;
+    public CheckpointConfig checkpoint;
+    public IslandsConfig islands;
+    public RemoteWorkersConfig remoteWorkers;
+    public ServiceConfig service;
+    public JobServiceConfig jobService;
+    public TuningConfig tuning;
+    public DeadlineConfig deadline;
+    public WatchdogConfig watchdog;
+    public MetricsConfig metrics;
+    public EvaluationStoreConfig evaluationStore;
 
     private String configName;
 
     public static final String DEFAULT_CONFIG_FILE_NAME = "ga_default_config.json";
 
+    public static final String ENGINE_EVOLUTION = "evolution";
+    public static final String ENGINE_MAP_ELITES = "mapElites";
+    public static final String ENGINE_NSGA2 = "nsga2";
+    public static final String ENGINE_HIERARCHICAL = "hierarchical";
+    public static final String ENGINE_BRANCH_AND_BOUND = "branchAndBound";
+    public static final String ENGINE_ANNEALING = "annealing";
+    public static final String ENGINE_EDA = "eda";
+    public static final String ENGINE_ISLANDS = "islands";
+
+    public static final String CONVERGENCE_ACTION_RESTART = "restart";
+    public static final String CONVERGENCE_ACTION_STOP = "stop";
+
+    public static final String TOPOLOGY_RING = "ring";
+    public static final String TOPOLOGY_ALL_TO_ALL = "allToAll";
+
+    public static final String TUNING_MODE_GRID = "grid";
+    public static final String TUNING_MODE_RANDOM = "random";
+
     private GAConfig() {
     }
 
@@ -29,6 +72,18 @@ public class GAConfig {
         return this.configName;
     }
 
+    /**
+     * @return The lowest level to log, {@link Logger.LogLevel#DEBUG} when unset or unknown.
+     */
+    public Logger.LogLevel getLogLevel() {
+        try {
+            return Logger.LogLevel.fromName(this.logLevel);
+        } catch (IllegalArgumentException e) {
+            Logger.log(Logger.LogLevel.WARNING, "Unknown log level '%s', logging everything", this.logLevel);
+            return Logger.LogLevel.DEBUG;
+        }
+    }
+
     private static abstract class Config {
         @Override
         public String toString() {
@@ -40,7 +95,12 @@ public class GAConfig {
                 stringBuilder.append(field.getName())
                         .append(valueDelimiter);
                 try {
-                    stringBuilder.append(field.get(this));
+                    Object value = field.get(this);
+                    if (value != null && value.getClass().isArray()) {
+                        appendArray(stringBuilder, value);
+                    } else {
+                        stringBuilder.append(value);
+                    }
                 } catch (IllegalAccessException e) {
                     stringBuilder.append("<inaccessible>");
                 }
@@ -50,6 +110,16 @@ public class GAConfig {
 
             return stringBuilder.toString();
         }
+
+        private static void appendArray(StringBuilder stringBuilder, Object array) {
+            stringBuilder.append("[");
+            for (int i = 0; i < Array.getLength(array); i++) {
+                if (i > 0)
+                    stringBuilder.append(", ");
+                stringBuilder.append(Array.get(array, i));
+            }
+            stringBuilder.append("]");
+        }
     }
 
     public static class EvolutionConfig extends Config {
@@ -101,6 +171,265 @@ public class GAConfig {
         public int colCount;
     }
 
+    public static class RacingConfig extends Config {
+        public boolean enabled;
+        public int[] horizons;
+        public double promotionRatio;
+        public double nonPromotedFitnessScale;
+    }
+
+    public static class SurrogateConfig extends Config {
+        public boolean enabled;
+        public int candidateMultiplier;
+        public double selectionPercentile;
+        public double explorationFraction;
+        public int minTrainingSamples;
+        public double ridgeLambda;
+    }
+
+    public static class HeatBalanceConfig extends Config {
+        public boolean enabled;
+        public boolean repair;
+        public int maxRepairSwaps;
+    }
+
+    public static class MemeticConfig extends Config {
+        public boolean enabled;
+        public int eliteCount;
+        public int evaluationBudget;
+    }
+
+    public static class MapElitesConfig extends Config {
+        public int iterations;
+        public int initialPopulationSize;
+        public int batchSize;
+        public double crossoverRate;
+        public int fuelRodCountBinSize;
+        public double euBandWidth;
+        public int euBandCount;
+    }
+
+    public static class Nsga2Config extends Config {
+        public int populationSize;
+        public int maxGeneration;
+        public double crossoverRate;
+    }
+
+    public static class HierarchicalConfig extends Config {
+        public int layoutPopulationSize;
+        public int maxGeneration;
+        public int layoutOffspringCount;
+        public double crossoverRate;
+        public int innerEvaluationBudget;
+        public int innerBatchSize;
+    }
+
+    public static class BranchAndBoundConfig extends Config {
+        public boolean mirrorSymmetry;
+        public long maxSimulations;
+    }
+
+    public static class AnnealingConfig extends Config {
+        public int chainCount;
+        public int steps;
+        public double minTemperature;
+        public double maxTemperature;
+        public double finalTemperatureScale;
+        public int exchangeInterval;
+        public int tabuSize;
+    }
+
+    public static class EdaConfig extends Config {
+        public int populationSize;
+        public int maxGeneration;
+        public double eliteRatio;
+        public double learningRate;
+        public double minProbability;
+    }
+
+    public static class ConvergenceConfig extends Config {
+        public boolean enabled;
+        public int window;
+        public double minBestImprovement;
+        public double minAverageImprovement;
+        public double minDiversityChange;
+        public String action;
+        public int maxRestarts;
+        public int restartEliteCount;
+    }
+
+    public static class CheckpointConfig extends Config {
+        public boolean enabled;
+        public String path;
+        public int interval;
+        public boolean resume;
+        public String bestSoFarPath;
+    }
+
+    public static class IslandsConfig extends Config {
+        public int count;
+        public int processCount;
+        public int migrationInterval;
+        public int migrantCount;
+        public String topology;
+        public MutationConfig[] mutationProfiles;
+    }
+
+    public static class RemoteWorkersConfig extends Config {
+        public boolean enabled;
+        public String bindAddress;
+        public int port;
+        public int batchSize;
+        public int pipelineDepth;
+        public int heartbeatIntervalMs;
+        public int heartbeatTimeoutMs;
+    }
+
+    public static class ServiceConfig extends Config {
+        public String bindAddress;
+        public int port;
+        public int threads;
+        public int queueCapacity;
+        public int maxBatchSize;
+        public int cacheSize;
+        public long timeoutMs;
+        public boolean gtnh;
+    }
+
+    public static class JobServiceConfig extends Config {
+        public String bindAddress;
+        public int port;
+        public int threads;
+        public int maxConcurrentJobs;
+        public boolean gtnh;
+    }
+
+    public static class TuningConfig extends Config {
+        public String mode;
+        public int samples;
+        public int seeds;
+        public int maxConcurrentRuns;
+        public int threads;
+        public int cacheSize;
+        public TuningParameter[] parameters;
+    }
+
+    public static class TuningParameter extends Config {
+        public String path;
+        public double[] values;
+        public double min;
+        public double max;
+        public boolean integer;
+    }
+
+    public static class DeadlineConfig extends Config {
+        public boolean enabled;
+        public String until;
+        public int durationMinutes;
+        public int minPopulationSize;
+        public double safetyMargin;
+    }
+
+    public static class WatchdogConfig extends Config {
+        public boolean enabled;
+        public int maxTicks;
+        public int maxMillis;
+        public double fallbackFitness;
+        public String slowGenomePath;
+        public int maxSlowGenomes;
+    }
+
+    public static class MetricsConfig extends Config {
+        public boolean enabled;
+        public String textFilePath;
+        public int intervalSeconds;
+        public boolean jmx;
+    }
+
+    public static class EvaluationStoreConfig extends Config {
+        public boolean enabled;
+        public String path;
+    }
+
+    public boolean isRacingEnabled() {
+        return this.racing != null && this.racing.enabled && this.racing.horizons != null && this.racing.horizons.length > 0;
+    }
+
+    public boolean isSurrogateEnabled() {
+        return this.surrogate != null && this.surrogate.enabled && this.surrogate.candidateMultiplier > 1;
+    }
+
+    public boolean isHeatBalanceEnabled() {
+        return this.heatBalance != null && this.heatBalance.enabled;
+    }
+
+    /**
+     * @return The configured search engine, {@link #ENGINE_EVOLUTION} when not set.
+     */
+    public String getEngine() {
+        return this.engine != null && !this.engine.isEmpty() ? this.engine : ENGINE_EVOLUTION;
+    }
+
+    public boolean isEvaluationStoreEnabled() {
+        return this.evaluationStore != null && this.evaluationStore.enabled && this.evaluationStore.path != null && !this.evaluationStore.path.isEmpty();
+    }
+
+    public boolean isConvergenceEnabled() {
+        return this.convergence != null && this.convergence.enabled && this.convergence.window > 1;
+    }
+
+    public boolean isCheckpointEnabled() {
+        return this.checkpoint != null && this.checkpoint.enabled && this.checkpoint.path != null && !this.checkpoint.path.isEmpty() && this.checkpoint.interval > 0;
+    }
+
+    public boolean isDeadlineEnabled() {
+        return this.deadline != null && this.deadline.enabled;
+    }
+
+    public boolean isWatchdogEnabled() {
+        return this.watchdog != null && this.watchdog.enabled;
+    }
+
+    public boolean isMetricsEnabled() {
+        return this.metrics != null && this.metrics.enabled;
+    }
+
+    public boolean isRemoteWorkersEnabled() {
+        return this.remoteWorkers != null && this.remoteWorkers.enabled && this.remoteWorkers.bindAddress != null && !this.remoteWorkers.bindAddress.isEmpty();
+    }
+
+    public boolean isMemeticEnabled() {
+        return this.memetic != null && this.memetic.enabled && this.memetic.eliteCount > 0 && this.memetic.evaluationBudget > 0;
+    }
+
+    /**
+     * @return Whether this config makes evolution engines exchange migrants, see {@link IslandEngine}.
+     */
+    public boolean isMigrationEnabled() {
+        return this.islands != null && this.islands.migrationInterval > 0 && this.islands.migrantCount > 0;
+    }
+
+    /**
+     * @return The config as plain JSON, without the comments of the file it came from.
+     */
+    public String toJson() {
+        return new Gson().toJson(this);
+    }
+
+    /**
+     * Reads a config written by {@link #toJson()}. Comments aren't supported, see {@link #loadConfig(String)}.
+     */
+    public static GAConfig fromJson(String json) {
+        return new Gson().fromJson(json, GAConfig.class);
+    }
+
+    /**
+     * @return A deep copy, to tweak a config without affecting the engines already using it.
+     */
+    public GAConfig copy() {
+        return fromJson(toJson());
+    }
+
     public static GAConfig loadConfig(String path) {
         try {
             ClassLoader classLoader = GAConfig.class.getClassLoader();
@@ -114,32 +443,8 @@ public class GAConfig {
                     throw new FileNotFoundException("Resource not found: " + path);
                 }
 
-                // Read file line by line and strip comments
                 BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-                StringBuilder jsonContent = new StringBuilder();
-                String line;
-
-                while ((line = reader.readLine()) != null) {
-                    // Remove inline comments but keep the rest of the line
-                    int commentIndex = line.indexOf("//");
-                    if (commentIndex >= 0) {
-                        line = line.substring(0, commentIndex);
-                    }
-
-                    // Only add non-empty lines
-                    String trimmed = line.trim();
-                    if (!trimmed.isEmpty()) {
-                        jsonContent.append(line).append("\n");
-                    }
-                }
-
-                String cleanedJson = jsonContent.toString();
-
-                // Strip multi-line comments (/* ... */)
-                cleanedJson = cleanedJson.replaceAll("/\\*.*?\\*/", "");
-
-                Gson gson = new Gson();
-                GAConfig config = gson.fromJson(cleanedJson, GAConfig.class);
+                GAConfig config = fromCommentedJson(reader);
                 config.configName = path;
                 return config;
             }
@@ -148,4 +453,34 @@ public class GAConfig {
             return null;
         }
     }
+
+    /**
+     * Reads a config in the format of the config files, comments included.
+     */
+    public static GAConfig fromCommentedJson(BufferedReader reader) throws IOException {
+        // Read file line by line and strip comments
+        StringBuilder jsonContent = new StringBuilder();
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            // Remove inline comments but keep the rest of the line
+            int commentIndex = line.indexOf("//");
+            if (commentIndex >= 0) {
+                line = line.substring(0, commentIndex);
+            }
+
+            // Only add non-empty lines
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                jsonContent.append(line).append("\n");
+            }
+        }
+
+        String cleanedJson = jsonContent.toString();
+
+        // Strip multi-line comments (/* ... */)
+        cleanedJson = cleanedJson.replaceAll("/\\*.*?\\*/", "");
+
+        return fromJson(cleanedJson);
+    }
 }
@@ -5,6 +5,7 @@ import Ic2ExpReactorPlanner.components.FuelRod;
 import Ic2ExpReactorPlanner.components.ReactorItem;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.SecureRandom;
@@ -33,27 +34,34 @@ public class GeneticOptimizerRuntime {
         } catch (IOException e) {
             Logger.log(e, "Could not validate log directory '" + logDirectory + "'");
         }
+        Logger.setLevel(config.getLogLevel());
+        MetricsExporter metricsExporter = MetricsExporter.start(config);
 
         Logger.log("Loaded config '%s'.", config.getConfigName());
 
-        // Create the seed
-        long seed = seedProvided ? providedSeed : new SecureRandom().nextLong();
-        Logger.log("Setting up evolution with seed %d", seed);
-
         // Set GTNH behavior on fuel since we want to generate GTNH reactors
         FuelRod.setGTNHBehavior(true);
 
-        // Create the evolution engine
-        EvolutionEngine evolutionEngine = new EvolutionEngine(config, seed);
+        SearchEngine searchEngine = resumeFromCheckpoint(config);
+        if (searchEngine == null) {
+            // Create the seed
+            long seed = seedProvided ? providedSeed : new SecureRandom().nextLong();
+            Logger.log("Setting up evolution with seed %d", seed);
+
+            // Create the search engine
+            searchEngine = createSearchEngine(config, seed);
 
-        // Load seed reactors if configured
-        if (config.evolution.seedFile != null && !config.evolution.seedFile.isEmpty()) {
-            List<ReactorGenome> seedGenomes = SeedFileLoader.LoadSeedFile(config, config.evolution.seedFile);
-            evolutionEngine.preSeedGen0(seedGenomes);
+            // Load seed reactors if configured
+            if (config.evolution.seedFile != null && !config.evolution.seedFile.isEmpty()) {
+                List<ReactorGenome> seedGenomes = SeedFileLoader.LoadSeedFile(config, config.evolution.seedFile);
+                searchEngine.preSeedGen0(seedGenomes);
+            }
         }
 
         // Run
-        List<EvolutionEngine.EvaluatedGenome> finalPopulation = evolutionEngine.run(true);
+        List<EvolutionEngine.EvaluatedGenome> finalPopulation = searchEngine.run(true);
+        if (metricsExporter != null)
+            metricsExporter.close();
 
         // Show the top 10 reactor designs
         List<EvolutionEngine.EvaluatedGenome> top10 = getTop10Species(config, finalPopulation);
@@ -71,34 +79,82 @@ public class GeneticOptimizerRuntime {
         }
     }
 
-    private static List<EvolutionEngine.EvaluatedGenome> getTop10Species(GAConfig config, List<EvolutionEngine.EvaluatedGenome> population) {
-        List<EvolutionEngine.EvaluatedGenome> top10Species = new ArrayList<>();
+    // Returns null when there's nothing to resume
+    private static SearchEngine resumeFromCheckpoint(GAConfig config) {
+        if (!config.isCheckpointEnabled())
+            return null;
 
-        // Create a sorted copy of the population, the best fitness first
-        List<EvolutionEngine.EvaluatedGenome> sortedPopulation = new ArrayList<>(population);
-        sortedPopulation.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+        if (!GAConfig.ENGINE_EVOLUTION.equalsIgnoreCase(config.getEngine())) {
+            Logger.log(Logger.LogLevel.WARNING, "Checkpoints are only supported by the '%s' engine, ignoring them", GAConfig.ENGINE_EVOLUTION);
+            return null;
+        }
 
-        // Always add the alpha
-        top10Species.add(sortedPopulation.get(0));
+        Path checkpointPath = Paths.get(config.checkpoint.path);
+        if (!config.checkpoint.resume || !Files.exists(checkpointPath))
+            return null;
 
-        for (EvolutionEngine.EvaluatedGenome candidate : sortedPopulation) {
-            if (top10Species.size() >= 10) break;
+        try {
+            EvolutionEngine engine = EvolutionEngine.resume(config, checkpointPath);
+            Logger.log("Resuming evolution from checkpoint '%s' with seed %d", checkpointPath, engine.getSeed());
+            return engine;
+        } catch (IOException e) {
+            // Starting over would overwrite the checkpoint, let the user decide
+            Logger.log(e, "Could not resume from checkpoint '" + checkpointPath + "', delete it or disable resume to start a new run");
+            System.exit(1);
+            return null;
+        }
+    }
 
-            boolean distinctSpecies = true;
-            for (EvolutionEngine.EvaluatedGenome champion : top10Species) {
-                if (ReactorGenome.calculateSimilarity(config, champion.getGenome(), candidate.getGenome()) > config.speciation.speciesSimilarityThreshold) {
-                    distinctSpecies = false;
-                    break;
-                }
-            }
+    private static SearchEngine createSearchEngine(GAConfig config, long seed) {
+        String engine = config.getEngine();
+        if (GAConfig.ENGINE_MAP_ELITES.equalsIgnoreCase(engine)) {
+            Logger.log("Using the MAP-Elites engine");
+            return new MapElitesEngine(config, seed);
+        }
+
+        if (GAConfig.ENGINE_NSGA2.equalsIgnoreCase(engine)) {
+            Logger.log("Using the NSGA-II engine");
+            return new Nsga2Engine(config, seed);
+        }
+
+        if (GAConfig.ENGINE_HIERARCHICAL.equalsIgnoreCase(engine)) {
+            Logger.log("Using the hierarchical engine");
+            return new HierarchicalEngine(config, seed);
+        }
+
+        if (GAConfig.ENGINE_BRANCH_AND_BOUND.equalsIgnoreCase(engine)) {
+            Logger.log("Using the branch and bound engine");
+            return new BranchAndBoundEngine(config);
+        }
+
+        if (GAConfig.ENGINE_ANNEALING.equalsIgnoreCase(engine)) {
+            Logger.log("Using the annealing engine");
+            return new AnnealingEngine(config, seed);
+        }
+
+        if (GAConfig.ENGINE_EDA.equalsIgnoreCase(engine)) {
+            Logger.log("Using the EDA engine");
+            return new EdaEngine(config, seed);
+        }
 
-            if (distinctSpecies)
-                top10Species.add(candidate);
+        if (GAConfig.ENGINE_ISLANDS.equalsIgnoreCase(engine)) {
+            Logger.log("Using the islands engine");
+            return new IslandEngine(config, seed);
         }
 
-        return top10Species;
+        if (!GAConfig.ENGINE_EVOLUTION.equalsIgnoreCase(engine))
+            Logger.log(Logger.LogLevel.WARNING, "Unknown engine '%s', falling back to '%s'", engine, GAConfig.ENGINE_EVOLUTION);
+
+        return new EvolutionEngine(config, seed);
     }
 
+    private static List<EvolutionEngine.EvaluatedGenome> getTop10Species(GAConfig config, List<EvolutionEngine.EvaluatedGenome> population) {
+        // Create a sorted copy of the population, the best fitness first
+        List<EvolutionEngine.EvaluatedGenome> sortedPopulation = new ArrayList<>(population);
+        sortedPopulation.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        return SpeciesTracker.selectTopSpecies(config, sortedPopulation, 10);
+    }
     private static boolean alreadyInTop10(List<EvolutionEngine.EvaluatedGenome> top10, EvolutionEngine.EvaluatedGenome candidate) {
         for (EvolutionEngine.EvaluatedGenome evaluatedGenome : top10) {
             if (candidate.getGenome().equals(evaluatedGenome.getGenome()))
@@ -0,0 +1,161 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Full-fidelity evaluation of genome batches shared by the search engines: the genomes the heat balance check finds
+ * certain to melt down get their fitness right away, the others are fully simulated on the {@link SimulationPool}.
+ * <p>
+ * When {@code evaluationStore} is enabled, every full simulation is also appended to the {@link EvaluationStore}.
+ * When {@code watchdog} is enabled, the pool's simulations get its limits, see {@link SimulationWatchdog}, and the
+ * slowest ones are written out on {@link #close()}.
+ */
+public class GenomeEvaluator {
+    private final SimulationPool simulationPool;
+    private final FitnessFunction fitnessFunction;
+    private final HeatBalanceAnalyzer heatBalanceAnalyzer;
+    private EvaluationStore.Writer storeWriter;
+    private final Path slowGenomePath;
+
+    /**
+     * @param heatBalanceAnalyzer The analyzer used to skip doomed genomes, or null to simulate everything.
+     */
+    public GenomeEvaluator(GAConfig config, SimulationPool simulationPool, FitnessFunction fitnessFunction, HeatBalanceAnalyzer heatBalanceAnalyzer) {
+        this.simulationPool = simulationPool;
+        this.fitnessFunction = fitnessFunction;
+        this.heatBalanceAnalyzer = heatBalanceAnalyzer;
+
+        // Racing and the engines simulating on the pool directly get the limits too
+        if (config.isWatchdogEnabled() && simulationPool.getWatchdog() == null)
+            simulationPool.setWatchdog(new SimulationWatchdog(config.watchdog));
+        boolean slowGenomesWritten = config.isWatchdogEnabled() && config.watchdog.slowGenomePath != null && !config.watchdog.slowGenomePath.isEmpty();
+        this.slowGenomePath = slowGenomesWritten ? Paths.get(config.watchdog.slowGenomePath) : null;
+
+        if (config.isEvaluationStoreEnabled()) {
+            Path storePath = Paths.get(config.evaluationStore.path);
+            try {
+                this.storeWriter = EvaluationStore.openWriter(config, storePath);
+                Logger.log("Appending evaluations to '%s'", storePath.toAbsolutePath());
+            } catch (IOException e) {
+                Logger.log(e, "Could not open evaluation store '" + storePath + "', evaluations won't be stored");
+            }
+        }
+    }
+
+    /**
+     * Evaluates a batch of genomes, doomed genomes skip the simulation.
+     *
+     * @return The evaluated genomes, in the same order as the genomes.
+     */
+    public List<EvolutionEngine.EvaluatedGenome> evaluate(List<ReactorGenome> genomes) {
+        EvolutionEngine.EvaluatedGenome[] results = new EvolutionEngine.EvaluatedGenome[genomes.size()];
+
+        List<Integer> simulatedIndices = new ArrayList<>(genomes.size());
+        List<ReactorGenome> simulatedGenomes = new ArrayList<>(genomes.size());
+        for (int i = 0; i < genomes.size(); i++) {
+            ReactorGenome genome = genomes.get(i);
+            HeatBalanceAnalyzer.Analysis analysis = this.heatBalanceAnalyzer != null ? this.heatBalanceAnalyzer.analyze(genome) : null;
+            if (analysis != null && analysis.isMeltdownCertain()) {
+                results[i] = evaluateMeltdown(genome, analysis);
+            } else {
+                simulatedIndices.add(i);
+                simulatedGenomes.add(genome);
+            }
+        }
+
+        List<EvolutionEngine.EvaluatedGenome> simulatedResults = simulate(simulatedGenomes);
+        for (int i = 0; i < simulatedIndices.size(); i++)
+            results[simulatedIndices.get(i)] = simulatedResults.get(i);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Fully simulates every genome, without any pre-filtering.
+     *
+     * @return The evaluated genomes, in the same order as the genomes.
+     */
+    public List<EvolutionEngine.EvaluatedGenome> simulate(List<ReactorGenome> genomes) {
+        List<SimulationData> simulationResults = this.simulationPool.simulate(genomes);
+
+        List<EvolutionEngine.EvaluatedGenome> evaluatedGenomes = new ArrayList<>(genomes.size());
+        for (int i = 0; i < genomes.size(); i++) {
+            ReactorGenome genome = genomes.get(i);
+            SimulationData simulationData = simulationResults.get(i);
+
+            EvolutionEngine.EvaluatedGenome evaluatedGenome = new EvolutionEngine.EvaluatedGenome(genome, this.fitnessFunction.score(genome, simulationData));
+            evaluatedGenome.setSimulationData(simulationData);
+            evaluatedGenomes.add(evaluatedGenome);
+        }
+
+        record(evaluatedGenomes);
+        return evaluatedGenomes;
+    }
+
+    /**
+     * Appends the fully simulated genomes to the evaluation store, if there's one. Partial evaluations and aborted
+     * simulations are skipped.
+     */
+    public void record(List<EvolutionEngine.EvaluatedGenome> evaluatedGenomes) {
+        if (this.storeWriter == null)
+            return;
+
+        try {
+            for (EvolutionEngine.EvaluatedGenome evaluatedGenome : evaluatedGenomes) {
+                if (!evaluatedGenome.isPartialEvaluation() && evaluatedGenome.getSimulationData() != null && !evaluatedGenome.getSimulationData().aborted)
+                    this.storeWriter.append(evaluatedGenome.getGenome(), GenomeMetrics.of(evaluatedGenome.getGenome(), evaluatedGenome.getSimulationData()));
+            }
+            this.storeWriter.flush();
+        } catch (IOException e) {
+            Logger.log(e, "Could not write to the evaluation store, evaluations won't be stored anymore");
+            close();
+        }
+    }
+
+    /**
+     * Closes the evaluation store and writes the slowest genomes, if enabled.
+     */
+    public void close() {
+        SimulationWatchdog watchdog = this.simulationPool.getWatchdog();
+        if (this.slowGenomePath != null && watchdog != null) {
+            try {
+                int slowGenomeCount = watchdog.writeSlowGenomes(this.slowGenomePath);
+                Logger.log(Logger.LogLevel.DEBUG, "%d slowest genomes written to '%s', %d simulations aborted", slowGenomeCount, this.slowGenomePath.toAbsolutePath(), watchdog.getAbortedCount());
+            } catch (IOException e) {
+                Logger.log(e, "Could not write the slowest genomes to '" + this.slowGenomePath + "'");
+            }
+        }
+
+        if (this.storeWriter == null)
+            return;
+
+        try {
+            Logger.log(Logger.LogLevel.DEBUG, "%d evaluations stored", this.storeWriter.getRecordCount());
+            this.storeWriter.close();
+        } catch (IOException e) {
+            Logger.log(e, "Could not close the evaluation store");
+        }
+        this.storeWriter = null;
+    }
+
+    /**
+     * Evaluates a genome the heat balance check found certain to melt down.
+     */
+    public EvolutionEngine.EvaluatedGenome evaluateMeltdown(ReactorGenome genome, HeatBalanceAnalyzer.Analysis analysis) {
+        // What the simulation would have reported: the hull reached its max heat and nothing was produced after that
+        SimulationData simulationData = new SimulationData();
+        simulationData.maxTemp = analysis.getHullMaxHeat();
+        simulationData.meltdownPredicted = true;
+
+        EvolutionEngine.EvaluatedGenome evaluatedGenome = new EvolutionEngine.EvaluatedGenome(genome, this.fitnessFunction.score(GenomeMetrics.of(genome, simulationData)));
+        evaluatedGenome.setSimulationData(simulationData);
+        return evaluatedGenome;
+    }
+}
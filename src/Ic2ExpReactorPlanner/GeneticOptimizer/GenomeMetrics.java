@@ -0,0 +1,62 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+/**
+ * The few simulation results a genome's fitness depends on. Small enough to keep every evaluation of a run around, see
+ * {@link EvaluationStore}.
+ */
+public class GenomeMetrics {
+    private final int fuelRodCount;
+    private final double avgEUOutput;
+    private final double maxTemp;
+    private final boolean componentBroken;
+
+    public GenomeMetrics(int fuelRodCount, double avgEUOutput, double maxTemp, boolean componentBroken) {
+        this.fuelRodCount = fuelRodCount;
+        this.avgEUOutput = avgEUOutput;
+        this.maxTemp = maxTemp;
+        this.componentBroken = componentBroken;
+    }
+
+    public static GenomeMetrics of(ReactorGenome genome, SimulationData simulationData) {
+        boolean componentBroken = simulationData.firstComponentBrokenTime < Integer.MAX_VALUE;
+        return new GenomeMetrics(genome.getFuelRodCount(), simulationData.avgEUOutput, simulationData.maxTemp, componentBroken);
+    }
+
+    public int getFuelRodCount() {
+        return this.fuelRodCount;
+    }
+
+    public double getAvgEUOutput() {
+        return this.avgEUOutput;
+    }
+
+    public double getMaxTemp() {
+        return this.maxTemp;
+    }
+
+    public boolean isComponentBroken() {
+        return this.componentBroken;
+    }
+
+    /**
+     * @return Simulation data holding these metrics, every other field at its default. Enough for the fitness and for
+     * reporting a design read back from a file or another process.
+     */
+    public SimulationData toSimulationData() {
+        SimulationData simulationData = new SimulationData();
+        simulationData.avgEUOutput = this.avgEUOutput;
+        simulationData.maxTemp = this.maxTemp;
+        if (this.componentBroken)
+            simulationData.firstComponentBrokenTime = 0;
+        return simulationData;
+    }
+
+    /**
+     * @return The EU/t per fuel rod slot, 0 without fuel rods.
+     */
+    public double getFuelEfficiency() {
+        return this.fuelRodCount > 0 ? this.avgEUOutput / (double) this.fuelRodCount : 0;
+    }
+}
@@ -0,0 +1,456 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.Reactor;
+import Ic2ExpReactorPlanner.components.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Static heat balance of a genome, computed from the layout alone.
+ * <p>
+ * Over the fuel lifetime, every heat unit a fuel rod produces ends up vented, stored in a component, destroyed with a
+ * component that overheats, or stored in the hull. The analyzer compares a lower bound of the heat produced (reflectors
+ * that wear out before the fuel are ignored) to an upper bound of what the vents can dissipate and the components can
+ * absorb. When the leftover is more than the hull can hold, the reactor is certain to melt down and there is no point
+ * in simulating it.
+ * <p>
+ * The same balance is computed per connected cluster (components exchanging heat with each other, the hull being one
+ * more node), which tells where cooling is missing. The hull cluster's balance is a second bound of the hull heat,
+ * since vents elsewhere never see the heat dumped into the hull. Other clusters running a deficit only mean a component
+ * will break, not a melt down. The clusters are also used to repair doomed layouts by swapping vents in next to the
+ * fuel rods of the clusters running a heat deficit.
+ */
+public class HeatBalanceAnalyzer {
+    /** Layout value of a slot whose component isn't chosen yet, see {@link #minimumHullHeat(int, int[], int[])}. */
+    public static final int UNDECIDED = Integer.MIN_VALUE;
+
+    private final GAConfig config;
+    private final int rowCount;
+    private final int colCount;
+    private final double baseHullMaxHeat;
+    private final int repairVentId;
+
+    public HeatBalanceAnalyzer(GAConfig config) {
+        this.config = config;
+        this.rowCount = config.reactor.rowCount;
+        this.colCount = config.reactor.colCount;
+        this.baseHullMaxHeat = new Reactor().getMaxHeat();
+        this.repairVentId = findRepairVent(config);
+    }
+
+    /**
+     * @return The heat balance of the genome, per cluster and for the whole reactor.
+     */
+    public Analysis analyze(ReactorGenome genome) {
+        int[] layout = genome.getReactorLayout();
+        ReactorItem[] components = new ReactorItem[layout.length];
+        for (int i = 0; i < layout.length; i++) {
+            int componentId = layout[i] == ReactorGenome.FUEL_VALUE ? genome.getFuelType() : layout[i];
+            components[i] = componentId >= 0 ? ComponentFactory.getDefaultComponent(componentId) : null;
+        }
+
+        ReactorItem fuelItem = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        double fuelLifetime = fuelItem != null ? fuelItem.getMaxDamage() : 0;
+
+        // Union-find over the slots plus the hull (last node)
+        int[] parents = new int[layout.length + 1];
+        for (int i = 0; i < parents.length; i++)
+            parents[i] = i;
+        int hullNode = layout.length;
+
+        double[] heat = new double[layout.length];
+        double[] cooling = new double[layout.length];
+        double[] capacity = new double[layout.length];
+        double hullMaxHeat = this.baseHullMaxHeat;
+
+        for (int i = 0; i < layout.length; i++) {
+            ReactorItem component = components[i];
+            if (component == null)
+                continue;
+
+            int[] neighbors = neighbors(i);
+            if (component instanceof FuelRod) {
+                heat[i] = minimumFuelRodHeat((FuelRod) component, i, neighbors, components, fuelLifetime);
+
+                boolean hasHeatAcceptor = false;
+                for (int neighbor : neighbors) {
+                    if (isHeatAcceptor(components[neighbor])) {
+                        union(parents, i, neighbor);
+                        hasHeatAcceptor = true;
+                    }
+                }
+
+                // Without anything to take it, the heat goes straight into the hull
+                if (!hasHeatAcceptor)
+                    union(parents, i, hullNode);
+            } else if (component instanceof Vent) {
+                Vent vent = (Vent) component;
+                cooling[i] = vent.getSelfVent();
+                if (vent.getHullDraw() > 0)
+                    union(parents, i, hullNode);
+
+                if (vent.getSideVent() > 0) {
+                    for (int neighbor : neighbors) {
+                        if (components[neighbor] != null && components[neighbor].isCoolable()) {
+                            cooling[i] += vent.getSideVent();
+                            union(parents, i, neighbor);
+                        }
+                    }
+                }
+            } else if (component instanceof Exchanger) {
+                Exchanger exchanger = (Exchanger) component;
+                if (exchanger.getSwitchReactor() > 0)
+                    union(parents, i, hullNode);
+
+                if (exchanger.getSwitchSide() > 0) {
+                    for (int neighbor : neighbors) {
+                        if (isHeatAcceptor(components[neighbor]))
+                            union(parents, i, neighbor);
+                    }
+                }
+            } else if (component instanceof Plating) {
+                hullMaxHeat += ((Plating) component).getHeatAdjustment();
+            }
+
+            // Heat a component can hold, or take with it when it overheats and breaks
+            if (isHeatAcceptor(component))
+                capacity[i] = component.getMaxHeat();
+        }
+
+        // Gather the clusters, the hull one first
+        int[] clusterIndices = new int[parents.length];
+        Arrays.fill(clusterIndices, -1);
+        List<Cluster> clusters = new ArrayList<>();
+        clusters.add(new Cluster(true, hullMaxHeat));
+        clusterIndices[find(parents, hullNode)] = 0;
+
+        double totalHeat = 0, totalCooling = 0, totalCapacity = 0;
+        for (int i = 0; i < layout.length; i++) {
+            if (!isThermalComponent(components[i]))
+                continue;
+
+            int root = find(parents, i);
+            if (clusterIndices[root] < 0) {
+                clusterIndices[root] = clusters.size();
+                clusters.add(new Cluster(false, 0));
+            }
+
+            Cluster cluster = clusters.get(clusterIndices[root]);
+            cluster.slots.add(i);
+            cluster.heatPerTick += heat[i];
+            cluster.maxCoolingPerTick += cooling[i];
+            cluster.heatCapacity += capacity[i];
+
+            totalHeat += heat[i];
+            totalCooling += cooling[i];
+            totalCapacity += capacity[i];
+        }
+
+        // Heat that has nowhere to go but the hull by the time the fuel runs out
+        double minimumHullHeat = Math.max(0, (totalHeat - totalCooling) * fuelLifetime - totalCapacity);
+
+        // The hull only exchanges heat with its own cluster, the cooling and capacity of the others can't help it
+        Cluster hullCluster = clusters.get(0);
+        double hullClusterHeat = (hullCluster.heatPerTick - hullCluster.maxCoolingPerTick) * fuelLifetime - (hullCluster.heatCapacity - hullMaxHeat);
+        minimumHullHeat = Math.max(minimumHullHeat, hullClusterHeat);
+
+        return new Analysis(clusters, fuelLifetime, hullMaxHeat, minimumHullHeat);
+    }
+
+    /**
+     * Lower bound of {@link Analysis#getMinimumHullHeat()} over every way of filling the {@link #UNDECIDED} slots of a
+     * layout with one of the given components. Only the whole-reactor balance is used: undecided slots add no pulse to
+     * the fuel rods, and the most cooling and heat capacity any of the components could bring there.
+     *
+     * @param alternatives The component ids undecided slots can take, none of them a fuel rod.
+     */
+    public double minimumHullHeat(int fuelType, int[] layout, int[] alternatives) {
+        ReactorItem[] components = new ReactorItem[layout.length];
+        for (int i = 0; i < layout.length; i++) {
+            int componentId = layout[i] == ReactorGenome.FUEL_VALUE ? fuelType : layout[i];
+            components[i] = componentId >= 0 ? ComponentFactory.getDefaultComponent(componentId) : null;
+        }
+
+        ReactorItem fuelItem = ComponentFactory.getDefaultComponent(fuelType);
+        double fuelLifetime = fuelItem != null ? fuelItem.getMaxDamage() : 0;
+
+        // What an undecided slot could bring at best
+        boolean anyCoolable = false;
+        double maxAlternativeCapacity = 0;
+        for (int componentId : alternatives) {
+            ReactorItem component = componentId >= 0 ? ComponentFactory.getDefaultComponent(componentId) : null;
+            if (component == null)
+                continue;
+
+            anyCoolable |= component.isCoolable();
+            if (isHeatAcceptor(component))
+                maxAlternativeCapacity = Math.max(maxAlternativeCapacity, component.getMaxHeat());
+        }
+
+        double totalHeat = 0, totalCooling = 0, totalCapacity = 0;
+        for (int i = 0; i < layout.length; i++) {
+            int[] neighbors = neighbors(i);
+            if (layout[i] == UNDECIDED) {
+                double maxCooling = 0;
+                for (int componentId : alternatives) {
+                    ReactorItem component = componentId >= 0 ? ComponentFactory.getDefaultComponent(componentId) : null;
+                    if (component instanceof Vent) {
+                        Vent vent = (Vent) component;
+                        maxCooling = Math.max(maxCooling, vent.getSelfVent() + vent.getSideVent() * neighbors.length);
+                    }
+                }
+
+                totalCooling += maxCooling;
+                totalCapacity += maxAlternativeCapacity;
+                continue;
+            }
+
+            ReactorItem component = components[i];
+            if (component == null)
+                continue;
+
+            if (component instanceof FuelRod) {
+                totalHeat += minimumFuelRodHeat((FuelRod) component, i, neighbors, components, fuelLifetime);
+            } else if (component instanceof Vent) {
+                Vent vent = (Vent) component;
+                totalCooling += vent.getSelfVent();
+                if (vent.getSideVent() > 0) {
+                    for (int neighbor : neighbors) {
+                        boolean coolable = layout[neighbor] == UNDECIDED ? anyCoolable : components[neighbor] != null && components[neighbor].isCoolable();
+                        if (coolable)
+                            totalCooling += vent.getSideVent();
+                    }
+                }
+            }
+
+            if (isHeatAcceptor(component))
+                totalCapacity += component.getMaxHeat();
+        }
+
+        return Math.max(0, (totalHeat - totalCooling) * fuelLifetime - totalCapacity);
+    }
+
+    /**
+     * Swaps vents in next to the fuel rods of the clusters running a heat deficit, until the reactor is no longer
+     * certain to melt down or {@code heatBalance.maxRepairSwaps} is reached. Fuel rods and reflectors are never
+     * replaced.
+     *
+     * @return The analysis of the genome after the repair.
+     */
+    public Analysis repair(ReactorGenome genome) {
+        Analysis analysis = analyze(genome);
+        if (this.repairVentId < 0)
+            return analysis;
+
+        int[] layout = genome.getReactorLayout();
+        for (int swap = 0; swap < this.config.heatBalance.maxRepairSwaps && analysis.isMeltdownCertain(); swap++) {
+            int[] deficitFuelNeighbors = new int[layout.length];
+            for (Cluster cluster : analysis.getClusters()) {
+                if (cluster.heatPerTick <= cluster.maxCoolingPerTick)
+                    continue;
+
+                for (int slot : cluster.slots) {
+                    if (layout[slot] != ReactorGenome.FUEL_VALUE)
+                        continue;
+
+                    for (int neighbor : neighbors(slot))
+                        deficitFuelNeighbors[neighbor]++;
+                }
+            }
+
+            // Best slot: next to the most deficit fuel rods, empty slots first, then by index
+            int bestSlot = -1;
+            for (int i = 0; i < layout.length; i++) {
+                if (!isReplaceable(layout[i]) || deficitFuelNeighbors[i] == 0)
+                    continue;
+
+                if (bestSlot < 0 || deficitFuelNeighbors[i] > deficitFuelNeighbors[bestSlot] || (deficitFuelNeighbors[i] == deficitFuelNeighbors[bestSlot] && layout[i] < 0 && layout[bestSlot] >= 0))
+                    bestSlot = i;
+            }
+
+            if (bestSlot < 0)
+                break;
+
+            genome.setComponentAt(bestSlot, this.repairVentId);
+            analysis = analyze(genome);
+        }
+
+        return analysis;
+    }
+
+    private double minimumFuelRodHeat(FuelRod fuelRod, int slot, int[] neighbors, ReactorItem[] components, double fuelLifetime) {
+        int pulses = fuelRod.getBasePulses();
+        for (int neighbor : neighbors) {
+            ReactorItem component = components[neighbor];
+            if (component instanceof FuelRod)
+                pulses++;
+            else if (component instanceof Reflector && reflectorLifetime(neighbor, components) >= fuelLifetime)
+                pulses++;
+        }
+
+        return fuelRod.getHeatForPulses(pulses);
+    }
+
+    // Reflectors take damage equal to the rod count of each of their neighbors every tick
+    private double reflectorLifetime(int slot, ReactorItem[] components) {
+        ReactorItem reflector = components[slot];
+        if (reflector.getMaxDamage() <= 1)
+            return Double.POSITIVE_INFINITY;
+
+        int damagePerTick = 0;
+        for (int neighbor : neighbors(slot)) {
+            if (components[neighbor] != null)
+                damagePerTick += components[neighbor].getRodCount();
+        }
+
+        return damagePerTick > 0 ? reflector.getMaxDamage() / damagePerTick : Double.POSITIVE_INFINITY;
+    }
+
+    private boolean isReplaceable(int componentId) {
+        if (componentId < 0)
+            return true;
+        if (componentId == ReactorGenome.FUEL_VALUE)
+            return false;
+
+        ReactorItem component = ComponentFactory.getDefaultComponent(componentId);
+        return !(component instanceof Reflector) && !(component instanceof Vent);
+    }
+
+    private int[] neighbors(int index) {
+        int row = index / this.colCount;
+        int col = index % this.colCount;
+        int[] buffer = new int[4];
+        int count = 0;
+
+        if (row > 0) buffer[count++] = index - this.colCount;
+        if (row < this.rowCount - 1) buffer[count++] = index + this.colCount;
+        if (col > 0) buffer[count++] = index - 1;
+        if (col < this.colCount - 1) buffer[count++] = index + 1;
+
+        return Arrays.copyOf(buffer, count);
+    }
+
+    private static boolean isHeatAcceptor(ReactorItem component) {
+        return component != null && component.isHeatAcceptor();
+    }
+
+    private static boolean isThermalComponent(ReactorItem component) {
+        return component instanceof FuelRod || component instanceof Vent || component instanceof Exchanger || isHeatAcceptor(component);
+    }
+
+    // The valid vent dissipating the most heat on its own, without drawing more from the hull than it can vent
+    private static int findRepairVent(GAConfig config) {
+        int bestId = -1;
+        int bestSelfVent = 0;
+        for (int componentId : config.components.valid) {
+            if (componentId < 0 || componentId == ReactorGenome.FUEL_VALUE)
+                continue;
+
+            ReactorItem component = ComponentFactory.getDefaultComponent(componentId);
+            if (!(component instanceof Vent))
+                continue;
+
+            Vent vent = (Vent) component;
+            if (vent.getHullDraw() <= vent.getSelfVent() && vent.getSelfVent() > bestSelfVent) {
+                bestId = componentId;
+                bestSelfVent = vent.getSelfVent();
+            }
+        }
+
+        return bestId;
+    }
+
+    private static int find(int[] parents, int node) {
+        while (parents[node] != node) {
+            parents[node] = parents[parents[node]];
+            node = parents[node];
+        }
+
+        return node;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA != rootB)
+            parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+
+    /**
+     * A group of components exchanging heat with each other. The hull cluster also holds everything that exchanges
+     * heat with the hull.
+     */
+    public static class Cluster {
+        public final boolean hull;
+        public final List<Integer> slots;
+        public double heatPerTick;
+        public double maxCoolingPerTick;
+        public double heatCapacity;
+
+        public Cluster(boolean hull, double hullMaxHeat) {
+            this.hull = hull;
+            this.slots = new ArrayList<>();
+            this.heatCapacity = hullMaxHeat;
+        }
+
+        /**
+         * @return Whether the cluster cannot get rid of or store the heat it receives over the given time, meaning
+         * one of its components (or the hull) is certain to overheat.
+         */
+        public boolean isOverheating(double ticks) {
+            return (this.heatPerTick - this.maxCoolingPerTick) * ticks > this.heatCapacity;
+        }
+    }
+
+    public static class Analysis {
+        private final List<Cluster> clusters;
+        private final double fuelLifetime;
+        private final double hullMaxHeat;
+        private final double minimumHullHeat;
+
+        public Analysis(List<Cluster> clusters, double fuelLifetime, double hullMaxHeat, double minimumHullHeat) {
+            this.clusters = clusters;
+            this.fuelLifetime = fuelLifetime;
+            this.hullMaxHeat = hullMaxHeat;
+            this.minimumHullHeat = minimumHullHeat;
+        }
+
+        public List<Cluster> getClusters() {
+            return this.clusters;
+        }
+
+        public double getHullMaxHeat() {
+            return this.hullMaxHeat;
+        }
+
+        /**
+         * @return The least heat the hull will have to hold by the time the fuel runs out.
+         */
+        public double getMinimumHullHeat() {
+            return this.minimumHullHeat;
+        }
+
+        /**
+         * @return Whether the hull is certain to reach its max heat before the fuel runs out.
+         */
+        public boolean isMeltdownCertain() {
+            return this.minimumHullHeat >= this.hullMaxHeat;
+        }
+
+        /**
+         * @return The number of clusters certain to overheat over the fuel lifetime.
+         */
+        public int getOverheatingClusterCount() {
+            int count = 0;
+            for (Cluster cluster : this.clusters) {
+                if (cluster.isOverheating(this.fuelLifetime))
+                    count++;
+            }
+
+            return count;
+        }
+    }
+}
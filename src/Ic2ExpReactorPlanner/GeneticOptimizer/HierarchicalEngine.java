@@ -0,0 +1,425 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Two-level search: fuel layouts outside, the other components inside.
+ * <p>
+ * The fuel layout (fuel type and which slots hold a rod) drives most of a reactor's behaviour, it's also what weighs the
+ * most in the speciation similarity. The outer search evolves a population of fuel layouts, each one scored by the best
+ * design found for it. Every new layout gets a budgeted inner search over the non-fuel slots only: a first batch made
+ * of the parent's design fitted to the new layout and random fillings, then batches of mutations of the best design so
+ * far. The best design of every layout is kept, so a layout is never optimized twice and the outer search can't waste
+ * simulations re-learning the cooling of a fuel pattern it has already seen.
+ * <p>
+ * The inner searches of a generation run in lockstep, so each simulation batch holds the candidates of every new layout.
+ */
+public class HierarchicalEngine implements SearchEngine {
+    // Tries to breed a fuel layout that wasn't optimized yet before giving up on an offspring slot
+    private static final int MAX_LAYOUT_ATTEMPTS = 20;
+
+    private final GAConfig config;
+    private final long seed;
+    private final List<ReactorGenome> startingPopulation;
+
+    private final ExecutorService executor;
+    private final GenomeEvaluator genomeEvaluator;
+
+    private final int[] nonFuelComponents;
+    private final Map<FuelLayout, EvolutionEngine.EvaluatedGenome> bestPerLayout;
+
+    public HierarchicalEngine(GAConfig config, long seed) {
+        this.config = config;
+        this.seed = seed;
+        this.startingPopulation = new ArrayList<>();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HeatBalanceAnalyzer heatBalanceAnalyzer = config.isHeatBalanceEnabled() ? new HeatBalanceAnalyzer(config) : null;
+        this.genomeEvaluator = new GenomeEvaluator(config, new SimulationPool(this.executor), new FitnessCalculator(config), heatBalanceAnalyzer);
+
+        // With fuel rods as the only valid component, the free slots stay empty
+        int[] nonFuelComponents = Arrays.stream(config.components.valid).filter(componentId -> componentId != ReactorGenome.FUEL_VALUE).toArray();
+        this.nonFuelComponents = nonFuelComponents.length > 0 ? nonFuelComponents : new int[]{-1};
+        this.bestPerLayout = new HashMap<>();
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+        int populationSize = this.config.hierarchical.layoutPopulationSize;
+
+        printVerbose(verbose, "Hierarchical settings: %s", this.config.hierarchical.toString());
+        printVerbose(verbose, "Starting hierarchical search...");
+
+        // Seeds first, their design being the starting point of their layout's inner search
+        List<LayoutSearch> initialSearches = new ArrayList<>();
+        Set<FuelLayout> pendingLayouts = new HashSet<>();
+        for (ReactorGenome seedGenome : this.startingPopulation) {
+            if (initialSearches.size() >= populationSize)
+                break;
+
+            FuelLayout layout = FuelLayout.of(seedGenome);
+            if (pendingLayouts.add(layout))
+                initialSearches.add(new LayoutSearch(layout, seedGenome, RandomStreams.forSlot(this.seed, -1, initialSearches.size())));
+        }
+
+        while (initialSearches.size() < populationSize) {
+            RandomGenerator slotRandom = RandomStreams.forSlot(this.seed, -1, initialSearches.size());
+
+            FuelLayout layout = null;
+            for (int attempt = 0; attempt < MAX_LAYOUT_ATTEMPTS && layout == null; attempt++) {
+                FuelLayout candidate = FuelLayout.of(ReactorGenome.randomGenome(this.config, slotRandom));
+                if (pendingLayouts.add(candidate))
+                    layout = candidate;
+            }
+
+            if (layout == null)
+                break;
+            initialSearches.add(new LayoutSearch(layout, null, slotRandom));
+        }
+
+        List<FuelLayout> population = new ArrayList<>(optimizeLayouts(initialSearches));
+        rankLayouts(population, populationSize);
+        if (population.isEmpty())
+            Logger.log(Logger.LogLevel.WARNING, "No fuel layout could be optimized, nothing to breed from");
+
+        for (int generation = 0; generation < this.config.hierarchical.maxGeneration && !population.isEmpty(); generation++) {
+            long generationStartTime = System.nanoTime();
+
+            List<LayoutSearch> offspringSearches = breedLayouts(population, generation);
+            population.addAll(optimizeLayouts(offspringSearches));
+            rankLayouts(population, populationSize);
+
+            double generationElapsedTimeMS = (System.nanoTime() - generationStartTime) / 1e6;
+            logGeneration(verbose, generation, population, offspringSearches.size(), generationElapsedTimeMS);
+        }
+
+        // Every optimized layout is a result, the runtime picks the distinct species among them
+        List<EvolutionEngine.EvaluatedGenome> results = new ArrayList<>(this.bestPerLayout.values());
+        results.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        printVerbose(verbose, "Hierarchical search finished! %d fuel layouts optimized, took %.2fms", this.bestPerLayout.size(), globalElapsedTimeMS);
+        if (!results.isEmpty()) {
+            EvolutionEngine.EvaluatedGenome best = results.get(0);
+            printVerbose(verbose, "Best design: %s x%d - Fitness: %.2f; Output: %.2fEU/t - %s", getFuelTypeName(best.getGenome()), best.getGenome().getFuelRodCount(), best.getFitness(), best.getSimulationData().avgEUOutput, best.getGenome().getERPCode());
+        }
+
+        this.genomeEvaluator.close();
+
+        // executor cleanup
+        try {
+            this.executor.shutdown();
+            if (!this.executor.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination timed out. Is there a threading issue?");
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination had to be interrupted. Is there a threading issue? [" + e.getCause() + "]");
+            Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    private List<LayoutSearch> breedLayouts(List<FuelLayout> population, int generation) {
+        List<LayoutSearch> searches = new ArrayList<>();
+        Set<FuelLayout> pendingLayouts = new HashSet<>();
+        int skippedCount = 0;
+
+        for (int i = 0; i < this.config.hierarchical.layoutOffspringCount; i++) {
+            RandomGenerator slotRandom = RandomStreams.forSlot(this.seed, generation, i);
+
+            FuelLayout parentA = tournament(population, slotRandom);
+            FuelLayout child = null;
+            for (int attempt = 0; attempt < MAX_LAYOUT_ATTEMPTS && child == null; attempt++) {
+                FuelLayout candidate = parentA;
+                if (slotRandom.nextDouble() < this.config.hierarchical.crossoverRate)
+                    candidate = FuelLayout.crossBreed(candidate, tournament(population, slotRandom), slotRandom);
+                candidate = candidate.mutate(this.config, slotRandom);
+
+                if (!this.bestPerLayout.containsKey(candidate) && pendingLayouts.add(candidate))
+                    child = candidate;
+            }
+
+            if (child == null) {
+                skippedCount++;
+                continue;
+            }
+
+            // The inner search starts from the parent's best design
+            searches.add(new LayoutSearch(child, this.bestPerLayout.get(parentA).getGenome(), slotRandom));
+        }
+
+        if (skippedCount > 0)
+            Logger.log(Logger.LogLevel.DEBUG, "Generation %d: %d offspring skipped, every layout tried was already optimized", generation, skippedCount);
+
+        return searches;
+    }
+
+    /**
+     * Runs the inner search of every layout and memoizes their best design.
+     *
+     * @return The optimized layouts.
+     */
+    private List<FuelLayout> optimizeLayouts(List<LayoutSearch> searches) {
+        int batchSize = Math.max(1, this.config.hierarchical.innerBatchSize);
+        int roundCount = Math.max(1, (this.config.hierarchical.innerEvaluationBudget + batchSize - 1) / batchSize);
+
+        for (int round = 0; round < roundCount; round++) {
+            List<ReactorGenome> batch = new ArrayList<>();
+            List<LayoutSearch> batchOwners = new ArrayList<>();
+            for (LayoutSearch search : searches) {
+                for (ReactorGenome candidate : search.nextCandidates(round, batchSize)) {
+                    batch.add(candidate);
+                    batchOwners.add(search);
+                }
+            }
+
+            if (batch.isEmpty())
+                break;
+
+            List<EvolutionEngine.EvaluatedGenome> evaluatedBatch = this.genomeEvaluator.evaluate(batch);
+            for (int i = 0; i < evaluatedBatch.size(); i++)
+                batchOwners.get(i).offer(evaluatedBatch.get(i));
+        }
+
+        List<FuelLayout> layouts = new ArrayList<>(searches.size());
+        for (LayoutSearch search : searches) {
+            if (search.best == null)
+                continue;
+
+            this.bestPerLayout.put(search.layout, search.best);
+            layouts.add(search.layout);
+        }
+
+        return layouts;
+    }
+
+    private void rankLayouts(List<FuelLayout> population, int size) {
+        population.sort(Comparator.comparingDouble((FuelLayout layout) -> this.bestPerLayout.get(layout).getFitness()).reversed());
+        if (population.size() > size)
+            population.subList(size, population.size()).clear();
+    }
+
+    private FuelLayout tournament(List<FuelLayout> population, RandomGenerator random) {
+        FuelLayout a = population.get(random.nextInt(population.size()));
+        FuelLayout b = population.get(random.nextInt(population.size()));
+        return this.bestPerLayout.get(a).getFitness() >= this.bestPerLayout.get(b).getFitness() ? a : b;
+    }
+
+    private void logGeneration(boolean verbose, int generation, List<FuelLayout> population, int newLayoutCount, double elapsedTimeMS) {
+        if (population.isEmpty())
+            return;
+
+        EvolutionEngine.EvaluatedGenome best = this.bestPerLayout.get(population.get(0));
+        printVerbose(verbose, "Generation %d: %d new fuel layouts, %d optimized so far; best %s x%d, fitness %.2f, %.2fEU/t, took %.2fms", generation, newLayoutCount, this.bestPerLayout.size(), getFuelTypeName(best.getGenome()), best.getGenome().getFuelRodCount(), best.getFitness(), best.getSimulationData().avgEUOutput, elapsedTimeMS);
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+
+    private static String getFuelTypeName(ReactorGenome genome) {
+        ReactorItem fuelType = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelType != null ? fuelType.name : "Unknown fuel";
+    }
+
+    /**
+     * The inner search of one fuel layout: only the non-fuel slots change.
+     */
+    private class LayoutSearch {
+        private final FuelLayout layout;
+        private final ReactorGenome startingDesign;
+        private final RandomGenerator random;
+        private final int[] freeSlots;
+        private final Set<ReactorGenome> tried;
+        private EvolutionEngine.EvaluatedGenome best;
+
+        public LayoutSearch(FuelLayout layout, ReactorGenome startingDesign, RandomGenerator random) {
+            this.layout = layout;
+            this.startingDesign = startingDesign;
+            this.random = random;
+            this.freeSlots = layout.getFreeSlots();
+            this.tried = new HashSet<>();
+        }
+
+        public List<ReactorGenome> nextCandidates(int round, int batchSize) {
+            List<ReactorGenome> candidates = new ArrayList<>(batchSize);
+
+            // A layout without free slots has a single design
+            if (this.freeSlots.length == 0) {
+                if (round == 0)
+                    addCandidate(candidates, this.layout.fill(config, null, nonFuelComponents, this.random));
+                return candidates;
+            }
+
+            for (int i = 0; i < batchSize; i++) {
+                ReactorGenome candidate;
+                if (round == 0 || this.best == null)
+                    candidate = this.layout.fill(config, i == 0 ? this.startingDesign : null, nonFuelComponents, this.random);
+                else
+                    candidate = mutateFreeSlots(this.best.getGenome());
+
+                addCandidate(candidates, candidate);
+            }
+
+            return candidates;
+        }
+
+        public void offer(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+            if (this.best == null || evaluatedGenome.getFitness() > this.best.getFitness())
+                this.best = evaluatedGenome;
+        }
+
+        private void addCandidate(List<ReactorGenome> candidates, ReactorGenome candidate) {
+            if (this.tried.add(candidate))
+                candidates.add(candidate);
+        }
+
+        // One free slot always changes, the others follow the exploration per-slot rate
+        private ReactorGenome mutateFreeSlots(ReactorGenome genome) {
+            ReactorGenome mutated = genome.copy();
+            double perSlotProbability = config.mutation.exploration.probabilityLayoutPerSlotMutation;
+
+            int forcedSlot = this.freeSlots[this.random.nextInt(this.freeSlots.length)];
+            for (int slot : this.freeSlots) {
+                if (slot == forcedSlot || this.random.nextDouble() < perSlotProbability)
+                    mutated.setComponentAt(slot, nonFuelComponents[this.random.nextInt(nonFuelComponents.length)]);
+            }
+
+            return mutated;
+        }
+    }
+
+    /**
+     * Fuel type and the set of slots holding a fuel rod.
+     */
+    private static final class FuelLayout {
+        private final int fuelType;
+        private final BitSet fuelSlots;
+        private final int slotCount;
+
+        private FuelLayout(int fuelType, BitSet fuelSlots, int slotCount) {
+            this.fuelType = fuelType;
+            this.fuelSlots = fuelSlots;
+            this.slotCount = slotCount;
+        }
+
+        public static FuelLayout of(ReactorGenome genome) {
+            int[] layout = genome.getReactorLayout();
+            BitSet fuelSlots = new BitSet(layout.length);
+            for (int i = 0; i < layout.length; i++) {
+                if (layout[i] == ReactorGenome.FUEL_VALUE)
+                    fuelSlots.set(i);
+            }
+
+            return new FuelLayout(genome.getFuelType(), fuelSlots, layout.length);
+        }
+
+        // Uniform crossover of the rod slots, the fuel type comes from either parent
+        public static FuelLayout crossBreed(FuelLayout parentA, FuelLayout parentB, RandomGenerator random) {
+            BitSet fuelSlots = new BitSet(parentA.slotCount);
+            for (int i = 0; i < parentA.slotCount; i++) {
+                if (random.nextBoolean() ? parentA.fuelSlots.get(i) : parentB.fuelSlots.get(i))
+                    fuelSlots.set(i);
+            }
+
+            int fuelType = random.nextBoolean() ? parentA.fuelType : parentB.fuelType;
+            return new FuelLayout(fuelType, fuelSlots, parentA.slotCount);
+        }
+
+        /**
+         * @return A copy with one rod added, removed or moved, and sometimes another fuel type.
+         */
+        public FuelLayout mutate(GAConfig config, RandomGenerator random) {
+            int fuelType = this.fuelType;
+            if (random.nextDouble() < config.mutation.exploration.probabilityFuelMutation)
+                fuelType = config.fuels.valid[random.nextInt(config.fuels.valid.length)];
+
+            BitSet fuelSlots = (BitSet) this.fuelSlots.clone();
+            int rodCount = fuelSlots.cardinality();
+            if (random.nextBoolean() && rodCount > 0 && rodCount < this.slotCount) {
+                // Move a rod to a free slot
+                int rod = nthSetBit(fuelSlots, random.nextInt(rodCount));
+                int freeSlot = nthClearBit(fuelSlots, random.nextInt(this.slotCount - rodCount));
+                fuelSlots.clear(rod);
+                fuelSlots.set(freeSlot);
+            } else {
+                fuelSlots.flip(random.nextInt(this.slotCount));
+            }
+
+            return new FuelLayout(fuelType, fuelSlots, this.slotCount);
+        }
+
+        /**
+         * Builds a design with this fuel layout. Free slots keep the component the base design has there, if any,
+         * random components are used otherwise.
+         */
+        public ReactorGenome fill(GAConfig config, ReactorGenome base, int[] nonFuelComponents, RandomGenerator random) {
+            ReactorGenome genome = new ReactorGenome(config);
+            genome.setFuelType(this.fuelType);
+
+            for (int i = 0; i < this.slotCount; i++) {
+                int componentId;
+                if (this.fuelSlots.get(i))
+                    componentId = ReactorGenome.FUEL_VALUE;
+                else if (base != null && !base.isFuelRodAt(i))
+                    componentId = base.getReactorLayout()[i];
+                else
+                    componentId = nonFuelComponents[random.nextInt(nonFuelComponents.length)];
+
+                genome.setComponentAt(i, componentId);
+            }
+
+            return genome;
+        }
+
+        public int[] getFreeSlots() {
+            int[] freeSlots = new int[this.slotCount - this.fuelSlots.cardinality()];
+            int index = 0;
+            for (int i = this.fuelSlots.nextClearBit(0); i < this.slotCount; i = this.fuelSlots.nextClearBit(i + 1))
+                freeSlots[index++] = i;
+            return freeSlots;
+        }
+
+        private static int nthSetBit(BitSet bits, int n) {
+            int bit = bits.nextSetBit(0);
+            for (int i = 0; i < n; i++)
+                bit = bits.nextSetBit(bit + 1);
+            return bit;
+        }
+
+        private static int nthClearBit(BitSet bits, int n) {
+            int bit = bits.nextClearBit(0);
+            for (int i = 0; i < n; i++)
+                bit = bits.nextClearBit(bit + 1);
+            return bit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FuelLayout)) return false;
+            FuelLayout that = (FuelLayout) o;
+            return this.fuelType == that.fuelType && this.fuelSlots.equals(that.fuelSlots);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.fuelType + this.fuelSlots.hashCode();
+        }
+    }
+}
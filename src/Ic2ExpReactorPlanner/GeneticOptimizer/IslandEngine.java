@@ -0,0 +1,347 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.components.FuelRod;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Island model: {@code islands.count} independent {@link EvolutionEngine} runs exchanging migrants.
+ * <p>
+ * Each island evolves its own population with its own seed, using the {@code evolution} settings and either the
+ * {@code mutation} rates or its entry of {@code islands.mutationProfiles}. Every {@code islands.migrationInterval}
+ * generations, an island sends copies of its best {@code islands.migrantCount} designs along the
+ * {@code islands.topology} (see {@link MigrationHub}). Nothing ever waits for another island: migrants are picked up by
+ * whatever generation the receiving island is at.
+ * <p>
+ * The last {@code islands.processCount} islands run in their own JVM ({@link IslandWorker}, same classpath) and talk to
+ * this one over a loopback socket, the others run on threads of this JVM. Seed reactors are dealt to the islands in
+ * turn. The result is every island's final population, the best design first.
+ */
+public class IslandEngine implements SearchEngine {
+    private static final int WORKER_CONNECT_TIMEOUT_MS = 60_000;
+
+    private final GAConfig config;
+    private final long seed;
+    private final List<ReactorGenome> startingPopulation;
+
+    private MigrationHub hub;
+    private boolean verbose;
+
+    public IslandEngine(GAConfig config, long seed) {
+        this.config = config;
+        this.seed = seed;
+        this.startingPopulation = new ArrayList<>();
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+        GAConfig.IslandsConfig islands = this.config.islands;
+        int islandCount = Math.max(1, islands.count);
+        int processCount = Math.max(0, Math.min(islands.processCount, islandCount));
+        int threadCount = islandCount - processCount;
+        this.verbose = verbose;
+
+        printVerbose(verbose, "Islands settings: %s", islands.toString());
+        printVerbose(verbose, "Evolution settings: %s", this.config.evolution.toString());
+        if (!GAConfig.TOPOLOGY_RING.equalsIgnoreCase(islands.topology) && !GAConfig.TOPOLOGY_ALL_TO_ALL.equalsIgnoreCase(islands.topology))
+            Logger.log(Logger.LogLevel.WARNING, "Unknown island topology '%s', using '%s'", islands.topology, GAConfig.TOPOLOGY_RING);
+        if (this.config.isCheckpointEnabled() || this.config.isEvaluationStoreEnabled())
+            Logger.log(Logger.LogLevel.WARNING, "Checkpoints and the evaluation store aren't supported by islands, ignoring them");
+        printVerbose(verbose, "Starting %d islands, %d of them in their own process...", islandCount, processCount);
+
+        this.hub = new MigrationHub(islands.topology, islandCount);
+        List<CompletableFuture<List<EvolutionEngine.EvaluatedGenome>>> results = new ArrayList<>();
+        for (int island = 0; island < islandCount; island++)
+            results.add(new CompletableFuture<>());
+
+        // Processes first, so their JVMs start up while the threads are already evolving
+        ServerSocket serverSocket = null;
+        List<Process> processes = new ArrayList<>();
+        Set<Integer> connectedIslands = ConcurrentHashMap.newKeySet();
+        if (processCount > 0) {
+            try {
+                serverSocket = new ServerSocket(0, islandCount, InetAddress.getLoopbackAddress());
+                serverSocket.setSoTimeout(WORKER_CONNECT_TIMEOUT_MS);
+                for (int island = threadCount; island < islandCount; island++)
+                    processes.add(startWorker(serverSocket.getLocalPort(), island, connectedIslands, results.get(island)));
+
+                ServerSocket acceptingSocket = serverSocket;
+                Thread acceptor = new Thread(() -> acceptWorkers(acceptingSocket, threadCount, connectedIslands, results), "island-acceptor");
+                acceptor.setDaemon(true);
+                acceptor.start();
+            } catch (IOException e) {
+                Logger.log(e, "Could not start the island processes");
+                for (int island = threadCount; island < islandCount; island++)
+                    results.get(island).completeExceptionally(e);
+            }
+        }
+
+        ExecutorService islandThreads = threadCount > 0 ? Executors.newFixedThreadPool(threadCount) : null;
+        for (int island = 0; island < threadCount; island++) {
+            LocalIsland localIsland = new LocalIsland(island);
+            this.hub.connect(island, localIsland);
+
+            EvolutionEngine engine = new EvolutionEngine(islandConfig(island), islandSeed(island));
+            engine.preSeedGen0(islandSeeds(island, islandCount));
+            engine.setMigrationChannel(localIsland);
+
+            CompletableFuture<List<EvolutionEngine.EvaluatedGenome>> result = results.get(island);
+            islandThreads.submit(() -> {
+                try {
+                    result.complete(engine.run(false));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        // Every island's final population
+        List<EvolutionEngine.EvaluatedGenome> population = new ArrayList<>();
+        EvolutionEngine.EvaluatedGenome best = null;
+        for (int island = 0; island < islandCount; island++) {
+            try {
+                List<EvolutionEngine.EvaluatedGenome> islandPopulation = results.get(island).get();
+                EvolutionEngine.EvaluatedGenome islandBest = Collections.max(islandPopulation, Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness));
+                printVerbose(verbose, "Island %d finished with a best fitness of %.2f", island, islandBest.getFitness());
+
+                population.addAll(islandPopulation);
+                if (best == null || islandBest.getFitness() > best.getFitness())
+                    best = islandBest;
+            } catch (Exception e) {
+                Logger.log(e, "Island " + island + " failed, its population is lost");
+                if (e instanceof InterruptedException)
+                    Thread.currentThread().interrupt();
+            }
+        }
+        population.sort(Comparator.comparing(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        printVerbose(verbose, "Islands finished! Took %.2fms", globalElapsedTimeMS);
+        if (best != null)
+            printVerbose(verbose, "Best design: %s x%d - Fitness: %.2f; Output: %.2fEU/t - %s", getFuelTypeName(best.getGenome()), best.getGenome().getFuelRodCount(), best.getFitness(), best.getSimulationData().avgEUOutput, best.getGenome().getERPCode());
+
+        // Islands cleanup
+        if (islandThreads != null)
+            islandThreads.shutdown();
+        try {
+            if (serverSocket != null)
+                serverSocket.close();
+        } catch (IOException e) {
+            Logger.log(Logger.LogLevel.WARNING, "Could not close the island socket: %s", e.getMessage());
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                    Logger.log(Logger.LogLevel.WARNING, "Island process %d didn't exit, killing it", process.pid());
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return population;
+    }
+
+    private GAConfig islandConfig(int island) {
+        GAConfig islandConfig = this.config.copy();
+        islandConfig.checkpoint = null;
+        islandConfig.evaluationStore = null;
+        islandConfig.remoteWorkers = null;
+        islandConfig.deadline = null;
+
+        GAConfig.MutationConfig[] profiles = this.config.islands.mutationProfiles;
+        if (profiles != null && island < profiles.length && profiles[island] != null)
+            islandConfig.mutation = profiles[island];
+
+        return islandConfig;
+    }
+
+    private long islandSeed(int island) {
+        return RandomStreams.deriveSeed(this.seed, -1, island);
+    }
+
+    private List<ReactorGenome> islandSeeds(int island, int islandCount) {
+        List<ReactorGenome> islandSeeds = new ArrayList<>();
+        for (int i = island; i < this.startingPopulation.size(); i += islandCount)
+            islandSeeds.add(this.startingPopulation.get(i).copy());
+        return islandSeeds;
+    }
+
+    private void migrate(MigrationHub.Migration migration) {
+        printVerbose(this.verbose, "Island %d generation %d: best fitness %.2f, sending %d migrants", migration.getSourceIsland(), migration.getGeneration(), migration.getBestFitness(), migration.getMigrants().size());
+        this.hub.migrate(migration);
+    }
+
+    private Process startWorker(int port, int island, Set<Integer> connectedIslands, CompletableFuture<List<EvolutionEngine.EvaluatedGenome>> result) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), IslandWorker.class.getName(), Integer.toString(port), Integer.toString(island))
+                .inheritIO()
+                .start();
+
+        // Once connected, the connection decides: the results may still be in the socket when the process is gone
+        process.onExit().thenRun(() -> {
+            if (!connectedIslands.contains(island))
+                result.completeExceptionally(new IOException("Island process exited with code " + process.exitValue() + " before connecting"));
+        });
+        return process;
+    }
+
+    // Islands from firstProcessIsland on are processes. The handshake is read here so the connected islands are known
+    private void acceptWorkers(ServerSocket serverSocket, int firstProcessIsland, Set<Integer> connectedIslands, List<CompletableFuture<List<EvolutionEngine.EvaluatedGenome>>> results) {
+        while (connectedIslands.size() < results.size() - firstProcessIsland) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // Only the processes that didn't connect are still waiting, the others keep evolving
+                for (int island = firstProcessIsland; island < results.size(); island++) {
+                    if (!connectedIslands.contains(island))
+                        results.get(island).completeExceptionally(new IOException("Island process never connected", e));
+                }
+                return;
+            }
+
+            int island;
+            DataInputStream input;
+            try {
+                socket.setSoTimeout(WORKER_CONNECT_TIMEOUT_MS);
+                input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                if (input.readInt() != IslandProtocol.HELLO)
+                    throw new IOException("Not an island process");
+                island = input.readInt();
+                if (island < firstProcessIsland || island >= results.size() || connectedIslands.contains(island))
+                    throw new IOException("Unexpected island " + island);
+                socket.setSoTimeout(0);
+            } catch (IOException e) {
+                Logger.log(Logger.LogLevel.WARNING, "Island process %s failed its handshake: %s", socket.getRemoteSocketAddress(), e.getMessage());
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+                continue;
+            }
+            connectedIslands.add(island);
+
+            Thread handler = new Thread(() -> handleWorker(socket, input, island, results), "island-connection-" + island);
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    private void handleWorker(Socket socket, DataInputStream input, int island, List<CompletableFuture<List<EvolutionEngine.EvaluatedGenome>>> results) {
+        try (socket) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeLong(islandSeed(island));
+            output.writeBoolean(FuelRod.isGTNHBehavior());
+            IslandProtocol.writeString(output, islandConfig(island).toJson());
+            IslandProtocol.writeGenomes(output, islandSeeds(island, results.size()));
+            output.flush();
+            this.hub.connect(island, new RemoteIsland(island, output));
+
+            while (true) {
+                byte message = input.readByte();
+                if (message == IslandProtocol.MESSAGE_MIGRATION) {
+                    migrate(IslandProtocol.readMigration(this.config, input));
+                } else if (message == IslandProtocol.MESSAGE_RESULTS) {
+                    results.get(island).complete(IslandProtocol.readResults(this.config, input));
+                    break;
+                } else {
+                    throw new IOException("Unknown island message " + message);
+                }
+            }
+        } catch (EOFException e) {
+            results.get(island).completeExceptionally(new IOException("Island process closed its connection before sending its results", e));
+        } catch (IOException e) {
+            results.get(island).completeExceptionally(e);
+        } finally {
+            this.hub.connect(island, null);
+        }
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+
+    private static String getFuelTypeName(ReactorGenome genome) {
+        ReactorItem fuelType = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelType != null ? fuelType.name : "Unknown fuel";
+    }
+
+    private class LocalIsland implements EvolutionEngine.MigrationChannel, MigrationHub.Destination {
+        private final int island;
+        private final ConcurrentLinkedQueue<ReactorGenome> immigrants;
+
+        public LocalIsland(int island) {
+            this.island = island;
+            this.immigrants = new ConcurrentLinkedQueue<>();
+        }
+
+        @Override
+        public void emigrate(int generation, double bestFitness, List<ReactorGenome> emigrants) {
+            migrate(new MigrationHub.Migration(this.island, generation, bestFitness, emigrants));
+        }
+
+        @Override
+        public List<ReactorGenome> immigrate() {
+            List<ReactorGenome> arrived = new ArrayList<>();
+            ReactorGenome immigrant;
+            while ((immigrant = this.immigrants.poll()) != null)
+                arrived.add(immigrant);
+            return arrived;
+        }
+
+        @Override
+        public void deliver(MigrationHub.Migration migration) {
+            // Every destination gets its own copies, the genomes end up in a population that mutates them
+            for (ReactorGenome migrant : migration.getMigrants())
+                this.immigrants.add(migrant.copy());
+        }
+    }
+
+    private static class RemoteIsland implements MigrationHub.Destination {
+        private final int island;
+        private final DataOutputStream output;
+        private boolean connected;
+
+        public RemoteIsland(int island, DataOutputStream output) {
+            this.island = island;
+            this.output = output;
+            this.connected = true;
+        }
+
+        @Override
+        public void deliver(MigrationHub.Migration migration) {
+            synchronized (this.output) {
+                if (!this.connected)
+                    return;
+
+                try {
+                    IslandProtocol.writeMigration(this.output, migration);
+                    this.output.flush();
+                } catch (IOException e) {
+                    // The island finished, or died and its handler will report it
+                    this.connected = false;
+                    Logger.log(Logger.LogLevel.DEBUG, "Island %d stopped receiving migrants: %s", this.island, e.getMessage());
+                }
+            }
+        }
+    }
+}
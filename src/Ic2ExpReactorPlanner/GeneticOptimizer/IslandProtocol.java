@@ -0,0 +1,94 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary protocol between an {@link IslandEngine} and its {@link IslandWorker} processes, over a loopback socket.
+ * <p>
+ * The worker opens with {@link #HELLO} and its island index. The engine answers with the island's seed, the GTNH fuel
+ * behavior flag, its config as JSON and its seed reactors. After that, both sides send {@link #MESSAGE_MIGRATION}
+ * messages whenever they have migrants, and the worker ends with {@link #MESSAGE_RESULTS} and its final population.
+ * Genomes travel packed, see {@link ReactorGenome#writePacked(DataOutput)}.
+ */
+final class IslandProtocol {
+    static final int HELLO = 0x47414953; // "GAIS"
+    static final byte MESSAGE_MIGRATION = 1;
+    static final byte MESSAGE_RESULTS = 2;
+
+    private IslandProtocol() {}
+
+    static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeGenomes(DataOutput output, List<ReactorGenome> genomes) throws IOException {
+        output.writeInt(genomes.size());
+        for (ReactorGenome genome : genomes)
+            genome.writePacked(output);
+    }
+
+    static List<ReactorGenome> readGenomes(GAConfig config, DataInput input) throws IOException {
+        int count = input.readInt();
+        List<ReactorGenome> genomes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            genomes.add(ReactorGenome.readPacked(config, input));
+        return genomes;
+    }
+
+    static void writeMigration(DataOutput output, MigrationHub.Migration migration) throws IOException {
+        output.writeByte(MESSAGE_MIGRATION);
+        output.writeInt(migration.getSourceIsland());
+        output.writeInt(migration.getGeneration());
+        output.writeDouble(migration.getBestFitness());
+        writeGenomes(output, migration.getMigrants());
+    }
+
+    // The message type was already read
+    static MigrationHub.Migration readMigration(GAConfig config, DataInput input) throws IOException {
+        int sourceIsland = input.readInt();
+        int generation = input.readInt();
+        double bestFitness = input.readDouble();
+        return new MigrationHub.Migration(sourceIsland, generation, bestFitness, readGenomes(config, input));
+    }
+
+    static void writeResults(DataOutput output, List<EvolutionEngine.EvaluatedGenome> results) throws IOException {
+        output.writeByte(MESSAGE_RESULTS);
+        output.writeInt(results.size());
+        for (EvolutionEngine.EvaluatedGenome result : results) {
+            result.getGenome().writePacked(output);
+            output.writeDouble(result.getFitness());
+            GenomeMetrics metrics = GenomeMetrics.of(result.getGenome(), result.getSimulationData());
+            output.writeDouble(metrics.getAvgEUOutput());
+            output.writeDouble(metrics.getMaxTemp());
+            output.writeBoolean(metrics.isComponentBroken());
+        }
+    }
+
+    // The message type was already read
+    static List<EvolutionEngine.EvaluatedGenome> readResults(GAConfig config, DataInput input) throws IOException {
+        int count = input.readInt();
+        List<EvolutionEngine.EvaluatedGenome> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ReactorGenome genome = ReactorGenome.readPacked(config, input);
+            EvolutionEngine.EvaluatedGenome result = new EvolutionEngine.EvaluatedGenome(genome, input.readDouble());
+            GenomeMetrics metrics = new GenomeMetrics(genome.getFuelRodCount(), input.readDouble(), input.readDouble(), input.readBoolean());
+            result.setSimulationData(metrics.toSimulationData());
+            results.add(result);
+        }
+
+        return results;
+    }
+}
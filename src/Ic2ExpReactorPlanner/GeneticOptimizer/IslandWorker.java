@@ -0,0 +1,111 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.components.FuelRod;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Entry point of an island running in its own JVM, started by {@link IslandEngine}.
+ * <p>
+ * Usage: {@code IslandWorker <port> <island>}. Connects to the engine on the loopback interface, gets its seed, config
+ * and seed reactors, runs a regular {@link EvolutionEngine} exchanging migrants through the socket, sends its final
+ * population back and exits.
+ */
+public class IslandWorker {
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: IslandWorker <port> <island>");
+            System.exit(2);
+        }
+
+        int port = Integer.parseInt(args[0]);
+        int island = Integer.parseInt(args[1]);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(IslandProtocol.HELLO);
+            output.writeInt(island);
+            output.flush();
+
+            long seed = input.readLong();
+            FuelRod.setGTNHBehavior(input.readBoolean());
+            GAConfig config = GAConfig.fromJson(IslandProtocol.readString(input));
+            Logger.setLevel(config.getLogLevel());
+            List<ReactorGenome> seedGenomes = IslandProtocol.readGenomes(config, input);
+
+            SocketChannel channel = new SocketChannel(island, config, input, output);
+            EvolutionEngine engine = new EvolutionEngine(config, seed);
+            engine.preSeedGen0(seedGenomes);
+            engine.setMigrationChannel(channel);
+            channel.startReading();
+
+            List<EvolutionEngine.EvaluatedGenome> results = engine.run(false);
+            synchronized (output) {
+                IslandProtocol.writeResults(output, results);
+                output.flush();
+            }
+        } catch (IOException e) {
+            Logger.log(e, "Island " + island + " lost its connection to the engine");
+            System.exit(1);
+        }
+
+        // Nothing left to do, don't let a lingering non-daemon thread keep the process around
+        System.exit(0);
+    }
+
+    private static class SocketChannel implements EvolutionEngine.MigrationChannel {
+        private final int island;
+        private final GAConfig config;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+        private final ConcurrentLinkedQueue<ReactorGenome> immigrants;
+
+        public SocketChannel(int island, GAConfig config, DataInputStream input, DataOutputStream output) {
+            this.island = island;
+            this.config = config;
+            this.input = input;
+            this.output = output;
+            this.immigrants = new ConcurrentLinkedQueue<>();
+        }
+
+        public void startReading() {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (this.input.readByte() == IslandProtocol.MESSAGE_MIGRATION)
+                        this.immigrants.addAll(IslandProtocol.readMigration(this.config, this.input).getMigrants());
+                } catch (IOException e) {
+                    // The engine closes the connection once it has the results
+                }
+            }, "island-" + this.island + "-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        @Override
+        public void emigrate(int generation, double bestFitness, List<ReactorGenome> emigrants) {
+            try {
+                synchronized (this.output) {
+                    IslandProtocol.writeMigration(this.output, new MigrationHub.Migration(this.island, generation, bestFitness, emigrants));
+                    this.output.flush();
+                }
+            } catch (IOException e) {
+                Logger.log(Logger.LogLevel.WARNING, "Island %d could not send its migrants: %s", this.island, e.getMessage());
+            }
+        }
+
+        @Override
+        public List<ReactorGenome> immigrate() {
+            List<ReactorGenome> arrived = new ArrayList<>();
+            ReactorGenome immigrant;
+            while ((immigrant = this.immigrants.poll()) != null)
+                arrived.add(immigrant);
+            return arrived;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.components.FuelRod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running HTTP service queueing optimizer runs, so tuning campaigns don't need one hand-started JVM per config.
+ * <p>
+ * Usage: {@code JobService [config]}, settings in the config's {@code "jobService"} section. Up to
+ * {@code maxConcurrentJobs} runs go at once, the others wait in line, and the running ones get an even share of the
+ * same {@code threads} threads through a {@link FairShareExecutor}, so the CPU is never oversubscribed.
+ * <ul>
+ * <li>{@code POST /jobs[?seed=N]} with a config (comments allowed) queues a run and answers its status.</li>
+ * <li>{@code GET /jobs} and {@code GET /jobs/{id}} answer statuses: state, last generation, and once done, the best
+ * designs.</li>
+ * <li>{@code GET /jobs/{id}/events} streams Server-Sent Events: a {@code progress} event per generation (best and
+ * average fitness, simulations per second, alpha ERP code...) and a {@code state} event whenever the state changes,
+ * the stream ending with the run.</li>
+ * <li>{@code POST /jobs/{id}/pause}, {@code /resume} and {@code /cancel}. Pausing holds the run's simulations at
+ * once, cancelling stops it at the end of its current generation, keeping what it found.</li>
+ * </ul>
+ * Runs use the "evolution" engine, which reports its generations, whatever the config's {@code "engine"} says.
+ */
+public class JobService {
+    private static final int RESULT_COUNT = 10;
+    // Comment lines keep idle event streams from being dropped by proxies
+    private static final long KEEPALIVE_INTERVAL_MS = 15000;
+
+    private final GAConfig.JobServiceConfig serviceConfig;
+    private final Gson gson;
+    private final HttpServer server;
+    private final ExecutorService httpExecutor;
+    private final ExecutorService jobRunner;
+    private final FairShareExecutor sharedExecutor;
+    private final Map<Integer, Job> jobs;
+    private final AtomicInteger nextJobId;
+
+    /**
+     * Binds the service, {@link #start()} makes it answer.
+     *
+     * @throws IOException If the address can't be bound.
+     */
+    public JobService(GAConfig config) throws IOException {
+        this.serviceConfig = config.jobService;
+        this.gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+        int threadCount = this.serviceConfig.threads > 0 ? this.serviceConfig.threads : Runtime.getRuntime().availableProcessors();
+        this.sharedExecutor = new FairShareExecutor(threadCount, "job-worker");
+        // Its queue is the job queue
+        this.jobRunner = Executors.newFixedThreadPool(Math.max(1, this.serviceConfig.maxConcurrentJobs));
+        // Event streams hold their thread for as long as they are followed
+        this.httpExecutor = Executors.newCachedThreadPool();
+        this.jobs = new ConcurrentSkipListMap<>();
+        this.nextJobId = new AtomicInteger(1);
+
+        this.server = HttpServer.create(new InetSocketAddress(this.serviceConfig.bindAddress, this.serviceConfig.port), 0);
+        this.server.setExecutor(this.httpExecutor);
+    }
+
+    public void start() {
+        this.server.createContext("/jobs", this::handleJobs);
+        this.server.start();
+        Logger.log("Job service listening on %s:%d with %d threads, %d jobs at a time", this.serviceConfig.bindAddress, getPort(), this.sharedExecutor.getThreadCount(), this.serviceConfig.maxConcurrentJobs);
+    }
+
+    /**
+     * Stops answering and abandons the queued and running jobs.
+     */
+    public void stop() {
+        this.server.stop(0);
+        this.httpExecutor.shutdownNow();
+        this.jobRunner.shutdownNow();
+        this.sharedExecutor.shutdown();
+    }
+
+    /**
+     * @return The port the service answers on, useful when {@code jobService.port} is 0.
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Queues a run.
+     */
+    public Job submit(GAConfig config, long seed) {
+        Job job = new Job(this.nextJobId.getAndIncrement(), config, seed, this.sharedExecutor.newShare());
+        this.jobs.put(job.id, job);
+        this.jobRunner.execute(() -> runJob(job));
+        Logger.log("Job %d queued (config '%s', seed %d)", job.id, config.getConfigName(), seed);
+        return job;
+    }
+
+    public Job getJob(int id) {
+        return this.jobs.get(id);
+    }
+
+    private void runJob(Job job) {
+        if (!job.start())
+            return;
+
+        Logger.log("Job %d started", job.id);
+        try {
+            EvolutionEngine engine = new EvolutionEngine(job.config, job.seed, job.share);
+            if (job.config.evolution.seedFile != null && !job.config.evolution.seedFile.isEmpty()) {
+                List<ReactorGenome> seedGenomes = SeedFileLoader.LoadSeedFile(job.config, job.config.evolution.seedFile);
+                if (seedGenomes != null)
+                    engine.preSeedGen0(seedGenomes);
+            }
+            engine.setGenerationListener(job::recordProgress);
+
+            List<EvolutionEngine.EvaluatedGenome> population = engine.run(false);
+            job.finish(bestDesigns(population), null);
+        } catch (RuntimeException e) {
+            Logger.log(e, "Job " + job.id + " failed");
+            job.finish(null, e.toString());
+        } finally {
+            job.share.shutdownNow();
+        }
+        Logger.log("Job %d %s", job.id, job.getState().name().toLowerCase());
+    }
+
+    private static List<JobResult> bestDesigns(List<EvolutionEngine.EvaluatedGenome> population) {
+        List<EvolutionEngine.EvaluatedGenome> ranked = new ArrayList<>(population);
+        ranked.sort(Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+
+        List<JobResult> results = new ArrayList<>();
+        Set<ReactorGenome> seen = new HashSet<>();
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : ranked) {
+            if (results.size() >= RESULT_COUNT)
+                break;
+            if (seen.add(evaluatedGenome.getGenome()))
+                results.add(new JobResult(evaluatedGenome));
+        }
+        return results;
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            // /jobs, /jobs/{id} or /jobs/{id}/{action}
+            String[] path = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+
+            if (path.length == 2) {
+                if ("POST".equals(method))
+                    handleSubmit(exchange);
+                else if ("GET".equals(method))
+                    sendJson(exchange, 200, this.jobs.values().stream().map(Job::describe).toList());
+                else
+                    sendError(exchange, 405, "Use GET or POST");
+                return;
+            }
+
+            Job job;
+            try {
+                job = this.jobs.get(Integer.parseInt(path[2]));
+            } catch (NumberFormatException e) {
+                job = null;
+            }
+            if (job == null) {
+                sendError(exchange, 404, "No such job");
+                return;
+            }
+
+            String action = path.length > 3 ? path[3] : "";
+            if (action.isEmpty() && "GET".equals(method)) {
+                sendJson(exchange, 200, job.describe());
+            } else if (action.equals("events") && "GET".equals(method)) {
+                streamEvents(exchange, job);
+            } else if (!"POST".equals(method)) {
+                sendError(exchange, 405, "Use POST");
+            } else if (action.equals("cancel")) {
+                sendActionResult(exchange, job, job.cancel());
+            } else if (action.equals("pause")) {
+                sendActionResult(exchange, job, job.pause());
+            } else if (action.equals("resume")) {
+                sendActionResult(exchange, job, job.resume());
+            } else {
+                sendError(exchange, 404, "Unknown action '" + action + "'");
+            }
+        } catch (RuntimeException e) {
+            Logger.log(e, "Job request failed");
+            sendError(exchange, 500, e.toString());
+        }
+    }
+
+    private void handleSubmit(HttpExchange exchange) throws IOException {
+        GAConfig config;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            config = GAConfig.fromCommentedJson(reader);
+        } catch (RuntimeException e) {
+            sendError(exchange, 400, "Malformed config: " + e.getMessage());
+            return;
+        }
+        if (config == null || config.evolution == null || config.reactor == null) {
+            sendError(exchange, 400, "Expected a full config");
+            return;
+        }
+
+        long seed = new SecureRandom().nextLong();
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("seed=")) {
+                    try {
+                        seed = Long.parseLong(parameter.substring("seed=".length()));
+                    } catch (NumberFormatException e) {
+                        sendError(exchange, 400, "Invalid seed");
+                        return;
+                    }
+                }
+            }
+        }
+
+        sendJson(exchange, 202, submit(config, seed).describe());
+    }
+
+    private void streamEvents(HttpExchange exchange, Job job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            int sentProgressCount = 0;
+            Job.State sentState = null;
+            while (true) {
+                List<EvolutionEngine.GenerationProgress> newProgress;
+                Job.State state;
+                synchronized (job) {
+                    if (sentProgressCount == job.progress.size() && sentState == job.state)
+                        job.wait(KEEPALIVE_INTERVAL_MS);
+                    newProgress = new ArrayList<>(job.progress.subList(sentProgressCount, job.progress.size()));
+                    state = job.state;
+                }
+
+                for (EvolutionEngine.GenerationProgress progress : newProgress)
+                    writer.write("event: progress\ndata: " + this.gson.toJson(progress) + "\n\n");
+                sentProgressCount += newProgress.size();
+
+                if (state != sentState) {
+                    writer.write("event: state\ndata: " + this.gson.toJson(job.describe()) + "\n\n");
+                    sentState = state;
+                } else if (newProgress.isEmpty()) {
+                    writer.write(": keepalive\n\n");
+                }
+                writer.flush();
+
+                if (state.isFinal())
+                    return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client stopped following
+        }
+    }
+
+    private void sendActionResult(HttpExchange exchange, Job job, boolean applied) throws IOException {
+        if (applied)
+            sendJson(exchange, 200, job.describe());
+        else
+            sendError(exchange, 409, "Job is " + job.getState().name().toLowerCase());
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", message));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = this.gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * A queued, running or finished optimizer run. Thread safe.
+     */
+    public static class Job {
+        public enum State {
+            QUEUED, RUNNING, PAUSED, CANCELLED, DONE, FAILED;
+
+            public boolean isFinal() {
+                return this == CANCELLED || this == DONE || this == FAILED;
+            }
+        }
+
+        private final int id;
+        private final GAConfig config;
+        private final long seed;
+        private final FairShareExecutor.Share share;
+        private final List<EvolutionEngine.GenerationProgress> progress;
+        private State state;
+        private boolean cancelRequested;
+        private List<JobResult> results;
+        private String error;
+
+        private Job(int id, GAConfig config, long seed, FairShareExecutor.Share share) {
+            this.id = id;
+            this.config = config;
+            this.seed = seed;
+            this.share = share;
+            this.progress = new ArrayList<>();
+            this.state = State.QUEUED;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public synchronized State getState() {
+            return this.state;
+        }
+
+        public synchronized List<EvolutionEngine.GenerationProgress> getProgress() {
+            return new ArrayList<>(this.progress);
+        }
+
+        /**
+         * @return The best distinct designs of the run, null until it is over.
+         */
+        public synchronized List<JobResult> getResults() {
+            return this.results;
+        }
+
+        /**
+         * Waits for the run to be over.
+         *
+         * @return Whether it is, false on timeout.
+         */
+        public synchronized boolean awaitCompletion(long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (!this.state.isFinal()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    return false;
+                wait(remaining);
+            }
+            return true;
+        }
+
+        /**
+         * @return Whether the job was running or paused, and is now paused.
+         */
+        public synchronized boolean pause() {
+            if (this.state != State.RUNNING && this.state != State.PAUSED)
+                return false;
+
+            this.share.pause();
+            setState(State.PAUSED);
+            return true;
+        }
+
+        public synchronized boolean resume() {
+            if (this.state != State.RUNNING && this.state != State.PAUSED)
+                return false;
+
+            this.share.resume();
+            setState(State.RUNNING);
+            return true;
+        }
+
+        /**
+         * A queued job is dropped right away, a running one stops at the end of its current generation.
+         *
+         * @return Whether the job wasn't over yet.
+         */
+        public synchronized boolean cancel() {
+            if (this.state.isFinal())
+                return false;
+
+            this.cancelRequested = true;
+            if (this.state == State.QUEUED) {
+                setState(State.CANCELLED);
+            } else {
+                // The current generation has to finish for the run to stop
+                this.share.resume();
+                setState(State.RUNNING);
+            }
+            return true;
+        }
+
+        // Returns false when the job was cancelled before it started
+        private synchronized boolean start() {
+            if (this.state != State.QUEUED)
+                return false;
+
+            setState(State.RUNNING);
+            return true;
+        }
+
+        private synchronized boolean recordProgress(EvolutionEngine.GenerationProgress generationProgress) {
+            this.progress.add(generationProgress);
+            notifyAll();
+            return !this.cancelRequested;
+        }
+
+        private synchronized void finish(List<JobResult> results, String error) {
+            this.results = results;
+            this.error = error;
+            setState(error != null ? State.FAILED : this.cancelRequested ? State.CANCELLED : State.DONE);
+        }
+
+        private void setState(State state) {
+            this.state = state;
+            notifyAll();
+        }
+
+        private synchronized Map<String, Object> describe() {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("id", this.id);
+            description.put("config", this.config.getConfigName());
+            description.put("seed", this.seed);
+            description.put("state", this.state);
+            description.put("generations", this.progress.size());
+            description.put("maxGeneration", this.config.evolution.maxGeneration);
+            if (!this.progress.isEmpty())
+                description.put("lastProgress", this.progress.get(this.progress.size() - 1));
+            if (this.results != null)
+                description.put("results", this.results);
+            if (this.error != null)
+                description.put("error", this.error);
+            return description;
+        }
+    }
+
+    public static class JobResult {
+        private final double fitness;
+        private final double euOutput;
+        private final String code;
+
+        public JobResult(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+            this.fitness = evaluatedGenome.getFitness();
+            this.euOutput = evaluatedGenome.getSimulationData() != null ? evaluatedGenome.getSimulationData().avgEUOutput : 0;
+            this.code = evaluatedGenome.getGenome().getERPCode();
+        }
+
+        public double getFitness() {
+            return this.fitness;
+        }
+
+        public double getEUOutput() {
+            return this.euOutput;
+        }
+
+        public String getCode() {
+            return this.code;
+        }
+    }
+
+    public static void main(String[] args) {
+        GAConfig config = GAConfig.loadConfig(args.length > 0 ? args[0] : null);
+        if (config == null || config.jobService == null) {
+            System.exit(1);
+        }
+
+        Path logDirectory = Paths.get("logs");
+        try {
+            Logger.setLogFileFromDirectory("JobService", logDirectory);
+        } catch (IOException e) {
+            Logger.log(e, "Could not validate log directory '" + logDirectory + "'");
+        }
+        Logger.setLevel(config.getLogLevel());
+        // Runs until the process ends
+        MetricsExporter.start(config);
+
+        FuelRod.setGTNHBehavior(config.jobService.gtnh);
+
+        try {
+            new JobService(config).start();
+        } catch (IOException e) {
+            Logger.log(e, "Could not start the job service");
+            System.exit(1);
+        }
+    }
+}
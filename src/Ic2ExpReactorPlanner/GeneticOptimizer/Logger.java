@@ -1,16 +1,29 @@
 package Ic2ExpReactorPlanner.GeneticOptimizer;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.IllegalFormatException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -18,6 +31,12 @@ import java.util.stream.Collectors;
  * <p>
  * This logger supports different log levels, formatted messages (like String.format),
  * and configurable file output.
+ * <p>
+ * Messages below the level set with {@link #setLevel(LogLevel)} are dropped before anything is formatted, and
+ * messages that are costly to build can be passed as a {@link Supplier}, only called when the level is enabled.
+ * Logging never touches the console or the disk on the calling thread: entries go to a lock-free ring buffer,
+ * drained in batches by a background thread into one long-lived file channel. Entries still in the buffer are
+ * written on {@link #flush()} and when the JVM shuts down.
  *
  * <p><b>Example Usage:</b>
  * <pre>
@@ -27,18 +46,61 @@ import java.util.stream.Collectors;
  * // Log messages
  * Logger.log("Application starting up...");
  * Logger.log(Logger.LogLevel.WARNING, "Could not find config file '%s'", "settings.conf");
+ * Logger.log(Logger.LogLevel.DEBUG, () -> "Expensive details: " + computeDetails());
  * </pre>
  */
 public class Logger {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     private static final DateTimeFormatter LOG_FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd - HH-mm-ss");
-    private static String logFileName;
+    // Power of two, so a sequence maps to its slot with a mask
+    private static final int BUFFER_CAPACITY = 1 << 13;
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    // Arguments of these classes can't change once logged, so formatting them on the writer thread is safe
+    private static final Set<Class<?>> IMMUTABLE_ARGUMENTS = Set.of(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class);
+
+    private static volatile String logFileName;
+    private static volatile LogLevel minimumLevel = LogLevel.DEBUG;
+
+    // Producers claim a sequence on the tail then publish their entry in its slot, the writer thread takes the entries
+    // in sequence order and clears their slots
+    private static final AtomicReferenceArray<Entry> buffer = new AtomicReferenceArray<>(BUFFER_CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static volatile long head;
+    private static final Thread writerThread;
+
+    // Writer side, only touched while draining
+    private static final StringBuilder batch = new StringBuilder();
+    private static FileChannel logFileChannel;
+    private static String logFileChannelName;
+
+    static {
+        writerThread = new Thread(Logger::drainLoop, "logger-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::flush, "logger-flush"));
+    }
 
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
     private Logger() {}
 
+    /**
+     * Sets the lowest level logged, {@link LogLevel#DEBUG} (everything) by default.
+     */
+    public static void setLevel(LogLevel level) {
+        minimumLevel = level;
+    }
+
+    /**
+     * @return Whether messages of that level are logged. Worth checking before building a costly message by hand.
+     */
+    public static boolean isEnabled(LogLevel messageLevel) {
+        return messageLevel.severity >= minimumLevel.severity;
+    }
+
     /**
      * Logs a message with the default {@link LogLevel#INFO} level.
      *
@@ -55,28 +117,36 @@ public class Logger {
      * Formats a message with a timestamp and log level, prints it to the standard console,
      * and appends it to a file if one has been configured via {@link #setLogFileFromPath(String)}
      * or {@link #setLogFileFromDirectory(String, Path)}.
+     * <p>
+     * Nothing is formatted when the level is disabled. When every argument is an immutable value (boxed primitives,
+     * strings, big numbers, enums), the formatting itself happens on the writer thread. Other arguments could change
+     * in the meantime, the message is then formatted right away.
      *
      * @param level   The severity level of the message (e.g., {@code LogLevel.INFO}).
      * @param message The format string for the log message.
      * @param args    The arguments to be formatted into the message.
      */
     public static void log(LogLevel level, String message, Object... args) {
-        LocalDateTime now = LocalDateTime.now();
+        if (!isEnabled(level))
+            return;
 
-        String formattedDate = now.format(DATE_FORMATTER);
+        if (args.length == 0 || areImmutable(args))
+            publish(new Entry(System.currentTimeMillis(), level, message, args));
+        else
+            publish(new Entry(System.currentTimeMillis(), level, String.format(message, args), null));
+    }
 
-        String formattedMessage = String.format(message, args);
-        String logEntry = String.format("[%s]%s %s%n", formattedDate, level.getDisplayString(), formattedMessage);
-        System.out.print(logEntry);
+    /**
+     * Logs a message built only if the level is enabled, on the calling thread.
+     *
+     * @param level   The severity level of the message.
+     * @param message Builds the message, as is: it isn't used as a format string.
+     */
+    public static void log(LogLevel level, Supplier<String> message) {
+        if (!isEnabled(level))
+            return;
 
-        if (logFileName != null && !logFileName.isEmpty()) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFileName, true))) {
-                writer.write(logEntry);
-            } catch (IOException e) {
-                System.err.println("Error: Could not write to log file '" + logFileName + "'.");
-                e.printStackTrace();
-            }
-        }
+        publish(new Entry(System.currentTimeMillis(), level, message.get(), null));
     }
 
     /**
@@ -105,6 +175,9 @@ public class Logger {
      * @param message A custom, contextual message to prepend to the exception details.
      */
     public static void log(Throwable error, String message) {
+        if (!isEnabled(LogLevel.ERROR))
+            return;
+
         String prefix = message == null || message.isEmpty() ? "" : message + ": ";
         String causeMessage = prefix + "[" + Optional.ofNullable(error.getCause())
                 .map(Throwable::toString)
@@ -122,7 +195,7 @@ public class Logger {
             );
         }
 
-        Logger.log(LogLevel.ERROR, logMessage.toString());
+        publish(new Entry(System.currentTimeMillis(), LogLevel.ERROR, logMessage.toString(), null));
     }
 
     /**
@@ -155,23 +228,165 @@ public class Logger {
         logFileName = directory.resolve(defaultFileName).toString();
     }
 
+    /**
+     * Waits for every message logged so far to be written.
+     */
+    public static void flush() {
+        long target = tail.get();
+        while (head < target && writerThread.isAlive()) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(DRAIN_INTERVAL_NANOS / 5);
+        }
+
+        // The writer thread is gone during shutdown hooks if the JVM is being torn down, or after an unexpected error
+        if (head < target)
+            drain();
+    }
+
+    private static void publish(Entry entry) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= BUFFER_CAPACITY) {
+                // Full: the writer is behind, wait for it rather than lose messages
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS / 5);
+                if (!writerThread.isAlive())
+                    drain();
+                continue;
+            }
+
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                buffer.set((int) (sequence & (BUFFER_CAPACITY - 1)), entry);
+                return;
+            }
+        }
+    }
+
+    private static boolean areImmutable(Object[] args) {
+        for (Object arg : args) {
+            if (arg != null && !(IMMUTABLE_ARGUMENTS.contains(arg.getClass()) || arg instanceof Enum))
+                return false;
+        }
+        return true;
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            try {
+                drain();
+            } catch (Throwable e) {
+                System.err.println("Error: The logger failed to write its messages.");
+                e.printStackTrace();
+            }
+            LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+        }
+    }
+
+    // Only ever called by one thread at a time: the writer thread, or the flushing thread once it's gone
+    private static synchronized void drain() {
+        batch.setLength(0);
+        long sequence = head;
+        Entry entry;
+        while ((entry = buffer.get((int) (sequence & (BUFFER_CAPACITY - 1)))) != null) {
+            buffer.set((int) (sequence & (BUFFER_CAPACITY - 1)), null);
+            entry.appendTo(batch);
+            sequence++;
+        }
+
+        if (batch.length() == 0)
+            return;
+
+        System.out.print(batch);
+        writeToFile(batch.toString());
+        head = sequence;
+    }
+
+    private static void writeToFile(String text) {
+        String fileName = logFileName != null ? logFileName : "";
+        try {
+            if (!fileName.equals(logFileChannelName)) {
+                // The file changed or logging to a file was turned off, the previous one is done with
+                if (logFileChannel != null)
+                    logFileChannel.close();
+                logFileChannel = null;
+                logFileChannelName = null;
+                if (fileName.isEmpty())
+                    return;
+
+                logFileChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                logFileChannelName = fileName;
+            }
+
+            ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining())
+                logFileChannel.write(bytes);
+        } catch (IOException e) {
+            System.err.println("Error: Could not write to log file '" + fileName + "'.");
+            e.printStackTrace();
+            logFileChannelName = null;
+        }
+    }
+
+    private static class Entry {
+        private final long timeMillis;
+        private final LogLevel level;
+        private final String message;
+        private final Object[] args;
+
+        public Entry(long timeMillis, LogLevel level, String message, Object[] args) {
+            this.timeMillis = timeMillis;
+            this.level = level;
+            this.message = message;
+            this.args = args;
+        }
+
+        public void appendTo(StringBuilder output) {
+            String formattedDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(this.timeMillis), ZoneId.systemDefault()).format(DATE_FORMATTER);
+            String formattedMessage;
+            try {
+                formattedMessage = this.args != null && this.args.length > 0 ? String.format(this.message, this.args) : this.message;
+            } catch (IllegalFormatException e) {
+                formattedMessage = this.message + " " + Arrays.toString(this.args) + " (" + e + ")";
+            }
+
+            output.append('[').append(formattedDate).append(']').append(this.level.getDisplayString()).append(' ').append(formattedMessage).append(System.lineSeparator());
+        }
+    }
+
     /**
      * Represents the severity levels for log messages.
      */
     public enum LogLevel {
         /** For general informational messages about application progress. */
-        INFO("[INFO]"),
+        INFO("[INFO]", 1),
         /** For detailed, fine-grained messages useful for debugging. */
-        DEBUG("[DEBUG]"),
+        DEBUG("[DEBUG]", 0),
         /** For potentially harmful situations or warnings that do not prevent execution. */
-        WARNING("[WARNING]"),
+        WARNING("[WARNING]", 2),
         /** For error events that might still allow the application to continue running. */
-        ERROR("[ERROR]");
+        ERROR("[ERROR]", 3);
 
         private final String displayString;
+        private final int severity;
 
-        LogLevel(String displayString) {
+        LogLevel(String displayString, int severity) {
             this.displayString = displayString;
+            this.severity = severity;
+        }
+
+        /**
+         * @return The level with that name, case insensitive, or {@link #DEBUG} for null.
+         * @throws IllegalArgumentException If there is no level with that name.
+         */
+        public static LogLevel fromName(String name) {
+            if (name == null)
+                return DEBUG;
+
+            for (LogLevel logLevel : values()) {
+                if (logLevel.name().equalsIgnoreCase(name))
+                    return logLevel;
+            }
+            throw new IllegalArgumentException("Unknown log level '" + name + "'");
         }
 
         /**
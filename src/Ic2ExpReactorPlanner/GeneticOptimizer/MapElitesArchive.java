@@ -0,0 +1,165 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * MAP-Elites archive: a grid over behaviour descriptors that keeps the best genome found for every cell.
+ * <p>
+ * The descriptors are the fuel type, the fuel rod count (binned by {@code mapElites.fuelRodCountBinSize}) and the EU/t
+ * band ({@code mapElites.euBandWidth} wide, the last of the {@code mapElites.euBandCount} bands is open-ended). Only
+ * stable designs (fitness above 0) are archived, a genome can only fill an empty cell or beat the elite of its cell.
+ */
+public class MapElitesArchive {
+    public enum InsertResult {
+        FILLED,
+        IMPROVED,
+        REJECTED
+    }
+
+    private final int[] fuelTypes;
+    private final int fuelRodCountBinSize;
+    private final int fuelRodCountBins;
+    private final double euBandWidth;
+    private final int euBandCount;
+
+    private final EvolutionEngine.EvaluatedGenome[] cells;
+    private final List<Integer> filledCells;
+
+    public MapElitesArchive(GAConfig config) {
+        this.fuelTypes = config.fuels.valid.clone();
+        this.fuelRodCountBinSize = Math.max(1, config.mapElites.fuelRodCountBinSize);
+        this.fuelRodCountBins = config.reactor.rowCount * config.reactor.colCount / this.fuelRodCountBinSize + 1;
+        this.euBandWidth = config.mapElites.euBandWidth;
+        this.euBandCount = Math.max(1, config.mapElites.euBandCount);
+
+        this.cells = new EvolutionEngine.EvaluatedGenome[this.fuelTypes.length * this.fuelRodCountBins * this.euBandCount];
+        this.filledCells = new ArrayList<>();
+    }
+
+    /**
+     * Offers a fully evaluated genome to the archive.
+     */
+    public InsertResult insert(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+        int cell = cellIndex(evaluatedGenome);
+        if (cell < 0)
+            return InsertResult.REJECTED;
+
+        EvolutionEngine.EvaluatedGenome elite = this.cells[cell];
+        if (elite == null) {
+            this.cells[cell] = evaluatedGenome;
+            this.filledCells.add(cell);
+            return InsertResult.FILLED;
+        }
+
+        if (evaluatedGenome.getFitness() > elite.getFitness()) {
+            this.cells[cell] = evaluatedGenome;
+            return InsertResult.IMPROVED;
+        }
+
+        return InsertResult.REJECTED;
+    }
+
+    /**
+     * @return A uniformly picked elite, or null if the archive is empty.
+     */
+    public EvolutionEngine.EvaluatedGenome randomElite(RandomGenerator random) {
+        if (this.filledCells.isEmpty())
+            return null;
+
+        return this.cells[this.filledCells.get(random.nextInt(this.filledCells.size()))];
+    }
+
+    public int getFilledCount() {
+        return this.filledCells.size();
+    }
+
+    public int getCellCount() {
+        return this.cells.length;
+    }
+
+    /**
+     * @return The sum of the elites' fitness, the usual quality-diversity score of a MAP-Elites run.
+     */
+    public double getQualityDiversityScore() {
+        double score = 0;
+        for (int cell : this.filledCells)
+            score += this.cells[cell].getFitness();
+
+        return score;
+    }
+
+    public EvolutionEngine.EvaluatedGenome getBest() {
+        EvolutionEngine.EvaluatedGenome best = null;
+        for (int cell : this.filledCells) {
+            if (best == null || this.cells[cell].getFitness() > best.getFitness())
+                best = this.cells[cell];
+        }
+
+        return best;
+    }
+
+    /**
+     * @return Every elite of the archive, the best fitness first.
+     */
+    public List<EvolutionEngine.EvaluatedGenome> getElites() {
+        List<EvolutionEngine.EvaluatedGenome> elites = new ArrayList<>(this.filledCells.size());
+        for (int cell : this.filledCells)
+            elites.add(this.cells[cell]);
+
+        elites.sort(Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+        return elites;
+    }
+
+    /**
+     * @return The best elite of every (fuel type, fuel rod count bin) pair across the EU/t bands, ordered by fuel type
+     * then fuel rod count.
+     */
+    public List<EvolutionEngine.EvaluatedGenome> getBestPerFuelAndRodCount() {
+        List<EvolutionEngine.EvaluatedGenome> bests = new ArrayList<>();
+        for (int fuel = 0; fuel < this.fuelTypes.length; fuel++) {
+            for (int rodBin = 0; rodBin < this.fuelRodCountBins; rodBin++) {
+                EvolutionEngine.EvaluatedGenome best = null;
+                for (int band = 0; band < this.euBandCount; band++) {
+                    EvolutionEngine.EvaluatedGenome elite = this.cells[index(fuel, rodBin, band)];
+                    if (elite != null && (best == null || elite.getFitness() > best.getFitness()))
+                        best = elite;
+                }
+
+                if (best != null)
+                    bests.add(best);
+            }
+        }
+
+        return bests;
+    }
+
+    private int cellIndex(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+        if (evaluatedGenome.isPartialEvaluation() || evaluatedGenome.getFitness() <= 0 || evaluatedGenome.getSimulationData() == null)
+            return -1;
+
+        // The descriptors of an aborted simulation come from a partial run
+        if (evaluatedGenome.getSimulationData().aborted)
+            return -1;
+
+        ReactorGenome genome = evaluatedGenome.getGenome();
+        int fuel = -1;
+        for (int i = 0; i < this.fuelTypes.length; i++) {
+            if (this.fuelTypes[i] == genome.getFuelType())
+                fuel = i;
+        }
+        if (fuel < 0)
+            return -1;
+
+        int rodBin = genome.getFuelRodCount() / this.fuelRodCountBinSize;
+        int band = this.euBandWidth > 0 ? (int) (evaluatedGenome.getSimulationData().avgEUOutput / this.euBandWidth) : 0;
+
+        return index(fuel, Math.min(rodBin, this.fuelRodCountBins - 1), Math.max(0, Math.min(band, this.euBandCount - 1)));
+    }
+
+    private int index(int fuel, int rodBin, int band) {
+        return (fuel * this.fuelRodCountBins + rodBin) * this.euBandCount + band;
+    }
+}
@@ -0,0 +1,150 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Quality-diversity search with a {@link MapElitesArchive}.
+ * <p>
+ * After an initial batch of seeded and random genomes, every iteration breeds {@code mapElites.batchSize} offspring
+ * from elites picked uniformly in the archive (cross-bred with a second elite {@code mapElites.crossoverRate} of the
+ * time, then mutated with the exploration probabilities), evaluates them and offers them to the archive. Nothing is
+ * culled, an evaluation can only fill or improve a cell, and the run ends with the best design of every fuel type and
+ * fuel rod count instead of a single alpha.
+ */
+public class MapElitesEngine implements SearchEngine {
+    private final GAConfig config;
+    private final long seed;
+    private final List<ReactorGenome> startingPopulation;
+
+    private final ExecutorService executor;
+    private final SimulationPool simulationPool;
+    private final HeatBalanceAnalyzer heatBalanceAnalyzer;
+    private final GenomeEvaluator genomeEvaluator;
+    private final MapElitesArchive archive;
+
+    public MapElitesEngine(GAConfig config, long seed) {
+        this.config = config;
+        this.seed = seed;
+        this.startingPopulation = new ArrayList<>();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.simulationPool = new SimulationPool(this.executor);
+        this.heatBalanceAnalyzer = config.isHeatBalanceEnabled() ? new HeatBalanceAnalyzer(config) : null;
+        this.genomeEvaluator = new GenomeEvaluator(config, this.simulationPool, new FitnessCalculator(config), this.heatBalanceAnalyzer);
+        this.archive = new MapElitesArchive(config);
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+
+        printVerbose(verbose, "MAP-Elites settings: %s", this.config.mapElites.toString());
+        if (this.heatBalanceAnalyzer != null)
+            printVerbose(verbose, "Heat balance settings: %s", this.config.heatBalance.toString());
+        printVerbose(verbose, "Starting MAP-Elites with an archive of %d cells...", this.archive.getCellCount());
+
+        // Initial batch, seeds first
+        List<ReactorGenome> initialPopulation = new ArrayList<>(this.startingPopulation);
+        RandomGenerator initialRandom = RandomStreams.forSlot(this.seed, -1, 0);
+        while (initialPopulation.size() < this.config.mapElites.initialPopulationSize)
+            initialPopulation.add(ReactorGenome.randomGenome(this.config, initialRandom));
+        insertBatch(initialPopulation, -1, verbose);
+
+        for (int iteration = 0; iteration < this.config.mapElites.iterations; iteration++) {
+            insertBatch(breedBatch(iteration), iteration, verbose);
+        }
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        EvolutionEngine.EvaluatedGenome best = this.archive.getBest();
+        printVerbose(verbose, "MAP-Elites finished! %d/%d cells filled, best fitness: %.2f, took %.2fms", this.archive.getFilledCount(), this.archive.getCellCount(), best != null ? best.getFitness() : 0.0, globalElapsedTimeMS);
+
+        printVerbose(verbose, "Best design per fuel and rod count:");
+        for (EvolutionEngine.EvaluatedGenome elite : this.archive.getBestPerFuelAndRodCount()) {
+            ReactorItem fuelType = ComponentFactory.getDefaultComponent(elite.getGenome().getFuelType());
+            assert fuelType != null;
+            printVerbose(verbose, "%s x%d - Fitness: %7.2f; Output: %7.2fEU/t - %s", fuelType.name, elite.getGenome().getFuelRodCount(), elite.getFitness(), elite.getSimulationData().avgEUOutput, elite.getGenome().getERPCode());
+        }
+
+        this.genomeEvaluator.close();
+
+        // executor cleanup
+        try {
+            this.executor.shutdown();
+            if (!this.executor.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination timed out. Is there a threading issue?");
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination had to be interrupted. Is there a threading issue? [" + e.getCause() + "]");
+            Thread.currentThread().interrupt();
+        }
+
+        return this.archive.getElites();
+    }
+
+    private List<ReactorGenome> breedBatch(int iteration) {
+        List<ReactorGenome> batch = new ArrayList<>(this.config.mapElites.batchSize);
+        for (int i = 0; i < this.config.mapElites.batchSize; i++) {
+            RandomGenerator slotRandom = RandomStreams.forSlot(this.seed, iteration, i);
+
+            EvolutionEngine.EvaluatedGenome parentA = this.archive.randomElite(slotRandom);
+            if (parentA == null) {
+                // Nothing stable found yet, keep sampling at random
+                batch.add(ReactorGenome.randomGenome(this.config, slotRandom));
+                continue;
+            }
+
+            ReactorGenome child;
+            if (slotRandom.nextDouble() < this.config.mapElites.crossoverRate) {
+                EvolutionEngine.EvaluatedGenome parentB = this.archive.randomElite(slotRandom);
+                child = ReactorGenome.crossBreed(this.config, parentA.getGenome(), parentB.getGenome(), slotRandom);
+            } else {
+                child = parentA.getGenome().copy();
+            }
+
+            child.tryMutation(this.config, this.config.mutation.exploration, slotRandom);
+            batch.add(child);
+        }
+
+        return batch;
+    }
+
+    private void insertBatch(List<ReactorGenome> batch, int iteration, boolean verbose) {
+        long startTime = System.nanoTime();
+
+        int filledCount = 0, improvedCount = 0, stableCount = 0;
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : this.genomeEvaluator.evaluate(batch)) {
+            if (evaluatedGenome.getFitness() > 0)
+                stableCount++;
+
+            MapElitesArchive.InsertResult insertResult = this.archive.insert(evaluatedGenome);
+            if (insertResult == MapElitesArchive.InsertResult.FILLED)
+                filledCount++;
+            else if (insertResult == MapElitesArchive.InsertResult.IMPROVED)
+                improvedCount++;
+        }
+
+        double elapsedTimeMS = (System.nanoTime() - startTime) / 1e6;
+        EvolutionEngine.EvaluatedGenome best = this.archive.getBest();
+        String iterationName = iteration < 0 ? "initial batch" : "iteration " + iteration;
+        Logger.log(Logger.LogLevel.DEBUG, "Valid designs in %s: %d/%d (%.1f%%)", iterationName, stableCount, batch.size(), 100.0 * stableCount / Math.max(1, batch.size()));
+        printVerbose(verbose, "MAP-Elites %s: %d cells filled, %d improved. Archive: %d/%d cells, best fitness: %.2f, QD score: %.0f, took %.2fms", iterationName, filledCount, improvedCount, this.archive.getFilledCount(), this.archive.getCellCount(), best != null ? best.getFitness() : 0.0, this.archive.getQualityDiversityScore(), elapsedTimeMS);
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+}
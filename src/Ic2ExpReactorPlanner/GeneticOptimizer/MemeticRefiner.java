@@ -0,0 +1,158 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.*;
+
+/**
+ * Memetic local search on the best genomes of a generation.
+ * <p>
+ * Instead of waiting for a lucky layout mutation, the {@code memetic.eliteCount} best fully evaluated genomes get their
+ * whole single-slot neighbourhood evaluated: every slot set to every other value of {@code components.valid}, plus
+ * every other fuel type of {@code fuels.valid}. The best improving neighbour is adopted and the sweep starts again from
+ * it, until no neighbour improves or the generation's {@code memetic.evaluationBudget} runs out.
+ * <p>
+ * A neighbourhood is evaluated as one parallel batch. Neighbours already evaluated during the generation are skipped,
+ * and when the budget can't cover a whole neighbourhood a random part of it is evaluated.
+ */
+public class MemeticRefiner {
+    /**
+     * Fully evaluates a batch of genomes, results in the same order as the genomes.
+     */
+    public interface BatchEvaluator {
+        List<EvolutionEngine.EvaluatedGenome> evaluate(List<ReactorGenome> genomes);
+    }
+
+    private final GAConfig config;
+    private final BatchEvaluator batchEvaluator;
+
+    public MemeticRefiner(GAConfig config, BatchEvaluator batchEvaluator) {
+        this.config = config;
+        this.batchEvaluator = batchEvaluator;
+    }
+
+    /**
+     * Refines the elites of an evaluated population. Improved elites are updated in place (genome, fitness and
+     * simulation data), so the population keeps its order and size.
+     *
+     * @param evaluatedPopulation The evaluated generation.
+     * @param random              Only used to pick the part of a neighbourhood to evaluate when the budget runs low.
+     * @return What the refinement did, for logging.
+     */
+    public RefinementResult refine(List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation, Random random) {
+        RefinementResult refinementResult = new RefinementResult();
+
+        // Partial evaluations are estimates, improving on them wouldn't mean anything
+        List<EvolutionEngine.EvaluatedGenome> elites = new ArrayList<>();
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : evaluatedPopulation) {
+            if (!evaluatedGenome.isPartialEvaluation() && evaluatedGenome.getFitness() > 0)
+                elites.add(evaluatedGenome);
+        }
+        elites.sort(Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness).reversed());
+        elites = elites.subList(0, Math.min(this.config.memetic.eliteCount, elites.size()));
+
+        Set<ReactorGenome> seen = new HashSet<>();
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : evaluatedPopulation)
+            seen.add(evaluatedGenome.getGenome());
+
+        int budget = this.config.memetic.evaluationBudget;
+        for (EvolutionEngine.EvaluatedGenome elite : elites) {
+            if (budget <= 0)
+                break;
+
+            double startingFitness = elite.getFitness();
+            boolean improved = true;
+            while (improved && budget > 0) {
+                improved = false;
+
+                List<ReactorGenome> neighbours = neighbourhood(elite.getGenome(), seen, refinementResult);
+                if (neighbours.size() > budget) {
+                    Collections.shuffle(neighbours, random);
+                    neighbours = new ArrayList<>(neighbours.subList(0, budget));
+                }
+                if (neighbours.isEmpty())
+                    break;
+
+                List<EvolutionEngine.EvaluatedGenome> evaluatedNeighbours = this.batchEvaluator.evaluate(neighbours);
+                budget -= neighbours.size();
+                refinementResult.evaluationCount += neighbours.size();
+
+                EvolutionEngine.EvaluatedGenome best = null;
+                for (EvolutionEngine.EvaluatedGenome evaluatedNeighbour : evaluatedNeighbours) {
+                    if (evaluatedNeighbour.getFitness() > elite.getFitness() && (best == null || evaluatedNeighbour.getFitness() > best.getFitness()))
+                        best = evaluatedNeighbour;
+                }
+
+                if (best != null) {
+                    elite.setGenome(best.getGenome());
+                    elite.setFitness(best.getFitness());
+                    elite.setSimulationData(best.getSimulationData());
+                    refinementResult.moveCount++;
+                    improved = true;
+                }
+            }
+
+            if (elite.getFitness() > startingFitness) {
+                refinementResult.improvedEliteCount++;
+                refinementResult.totalGain += elite.getFitness() - startingFitness;
+            }
+            refinementResult.eliteCount++;
+        }
+
+        return refinementResult;
+    }
+
+    private List<ReactorGenome> neighbourhood(ReactorGenome genome, Set<ReactorGenome> seen, RefinementResult refinementResult) {
+        List<ReactorGenome> neighbours = new ArrayList<>();
+
+        for (int fuelType : this.config.fuels.valid) {
+            if (fuelType == genome.getFuelType())
+                continue;
+
+            ReactorGenome neighbour = genome.copy();
+            neighbour.setFuelType(fuelType);
+            addIfUnseen(neighbour, neighbours, seen, refinementResult);
+        }
+
+        int[] layout = genome.getReactorLayout();
+        for (int i = 0; i < layout.length; i++) {
+            for (int componentId : this.config.components.valid) {
+                if (componentId == layout[i])
+                    continue;
+
+                ReactorGenome neighbour = genome.copy();
+                neighbour.setComponentAt(i, componentId);
+                addIfUnseen(neighbour, neighbours, seen, refinementResult);
+            }
+        }
+
+        return neighbours;
+    }
+
+    private static void addIfUnseen(ReactorGenome neighbour, List<ReactorGenome> neighbours, Set<ReactorGenome> seen, RefinementResult refinementResult) {
+        if (seen.add(neighbour))
+            neighbours.add(neighbour);
+        else
+            refinementResult.duplicateCount++;
+    }
+
+    public static class RefinementResult {
+        private int eliteCount;
+        private int improvedEliteCount;
+        private int moveCount;
+        private int evaluationCount;
+        private int duplicateCount;
+        private double totalGain;
+
+        public int getEvaluationCount() {
+            return this.evaluationCount;
+        }
+
+        public int getImprovedEliteCount() {
+            return this.improvedEliteCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d elites improved (%d moves, +%.2f fitness) over %d evaluations, %d duplicate neighbours skipped", this.improvedEliteCount, this.eliteCount, this.moveCount, this.totalGain, this.evaluationCount, this.duplicateCount);
+        }
+    }
+}
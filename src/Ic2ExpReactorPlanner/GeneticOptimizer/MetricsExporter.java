@@ -0,0 +1,139 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link MetricsRegistry#getDefault() default metrics registry} as configured in the {@code metrics}
+ * section of the config: as a JMX MBean, and as a Prometheus text file rewritten every few seconds for the node
+ * exporter's textfile collector.
+ * <p>
+ * Each refresh also turns the simulation and tick counters into per-second rates over the last interval, for JMX
+ * consoles that can't compute rates themselves. Like the checkpoints, the text file is written next to its target and
+ * moved over it, so the collector never reads half a file.
+ */
+public class MetricsExporter {
+    private static final String OBJECT_NAME = "Ic2ExpReactorPlanner.GeneticOptimizer:type=Metrics";
+
+    private static final MetricsRegistry.Gauge SIMULATION_RATE = MetricsRegistry.getDefault().gauge("ga_simulations_per_second", "Simulations per second over the last export interval");
+    private static final MetricsRegistry.Gauge TICK_RATE = MetricsRegistry.getDefault().gauge("ga_simulation_ticks_per_second", "Simulated ticks per second over the last export interval");
+
+    private final MetricsRegistry registry;
+    private final Path textFilePath;
+    private final Path temporaryPath;
+    private final ObjectName objectName;
+    private final ScheduledExecutorService exportThread;
+
+    private long lastRefreshTime;
+    private long lastSimulationCount;
+    private long lastTickCount;
+
+    private MetricsExporter(MetricsRegistry registry, Path textFilePath, ObjectName objectName, int intervalSeconds) {
+        this.registry = registry;
+        this.textFilePath = textFilePath != null ? textFilePath.toAbsolutePath() : null;
+        this.temporaryPath = this.textFilePath != null ? this.textFilePath.resolveSibling(this.textFilePath.getFileName() + ".tmp") : null;
+        this.objectName = objectName;
+        this.lastRefreshTime = System.nanoTime();
+        this.lastSimulationCount = SimulationPool.SIMULATION_COUNTER.get();
+        this.lastTickCount = SimulationPool.TICK_COUNTER.get();
+
+        this.exportThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.exportThread.scheduleAtFixedRate(this::refresh, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return The running exporter, null when metrics are disabled or there's nowhere to export them.
+     */
+    public static MetricsExporter start(GAConfig config) {
+        if (!config.isMetricsEnabled())
+            return null;
+
+        Path textFilePath = config.metrics.textFilePath != null && !config.metrics.textFilePath.isEmpty() ? Paths.get(config.metrics.textFilePath) : null;
+
+        ObjectName objectName = null;
+        if (config.metrics.jmx) {
+            try {
+                objectName = new ObjectName(OBJECT_NAME);
+                MetricsRegistry.getDefault().registerMBean(objectName);
+            } catch (JMException e) {
+                Logger.log(e, "Could not register the metrics MBean");
+                objectName = null;
+            }
+        }
+
+        if (textFilePath == null && objectName == null)
+            return null;
+
+        Logger.log("Exporting metrics%s%s", textFilePath != null ? " to '" + textFilePath + "'" : "", objectName != null ? " as MBean " + objectName : "");
+        return new MetricsExporter(MetricsRegistry.getDefault(), textFilePath, objectName, Math.max(1, config.metrics.intervalSeconds));
+    }
+
+    /**
+     * Stops the periodic exports after a last one, so the text file ends with the final values. The rates keep their
+     * last full interval.
+     */
+    public void close() {
+        this.exportThread.shutdown();
+        try {
+            if (!this.exportThread.awaitTermination(10, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "Metrics exporter timed out, the last export may be missing");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.textFilePath != null)
+            writeTextFile();
+
+        if (this.objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+            } catch (JMException e) {
+                Logger.log(Logger.LogLevel.WARNING, "Could not unregister the metrics MBean: %s", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void refresh() {
+        long now = System.nanoTime();
+        long simulationCount = SimulationPool.SIMULATION_COUNTER.get();
+        long tickCount = SimulationPool.TICK_COUNTER.get();
+        double elapsedSeconds = (now - this.lastRefreshTime) / 1e9;
+        if (elapsedSeconds > 0) {
+            SIMULATION_RATE.set((simulationCount - this.lastSimulationCount) / elapsedSeconds);
+            TICK_RATE.set((tickCount - this.lastTickCount) / elapsedSeconds);
+        }
+        this.lastRefreshTime = now;
+        this.lastSimulationCount = simulationCount;
+        this.lastTickCount = tickCount;
+
+        if (this.textFilePath != null)
+            writeTextFile();
+    }
+
+    private void writeTextFile() {
+        try {
+            Files.writeString(this.temporaryPath, this.registry.toPrometheusText(), StandardCharsets.UTF_8);
+            try {
+                Files.move(this.temporaryPath, this.textFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(this.temporaryPath, this.textFilePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Logger.log(e, "Could not write metrics '" + this.textFilePath + "'");
+        }
+    }
+}
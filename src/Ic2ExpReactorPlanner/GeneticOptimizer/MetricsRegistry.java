@@ -0,0 +1,349 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import javax.management.*;
+import java.math.BigDecimal;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Counters, gauges and histograms describing the optimizer at run time: simulation throughput, caches, generations.
+ * <p>
+ * The optimizer's components record into the {@link #getDefault() default registry} whether anything exports it or
+ * not, recording is an atomic addition or two. {@link MetricsExporter} exposes it as a JMX MBean and as a Prometheus
+ * text file. Names follow the Prometheus conventions: {@code _total} for counters, base units (seconds, bytes).
+ * Metrics are shared by every engine of the process, gauges hold whatever was set last.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    // Registration order, which is also the export order
+    private final Map<String, Metric> metrics;
+
+    public MetricsRegistry() {
+        this.metrics = new LinkedHashMap<>();
+    }
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return The counter with that name, created on first use.
+     * @throws IllegalArgumentException If a metric of another type has that name.
+     */
+    public Counter counter(String name, String help) {
+        return register(new Counter(name, help), Counter.class);
+    }
+
+    /**
+     * @return The gauge with that name, created on first use and set with {@link Gauge#set(double)}.
+     * @throws IllegalArgumentException If a metric of another type has that name.
+     */
+    public Gauge gauge(String name, String help) {
+        return register(new Gauge(name, help, null), Gauge.class);
+    }
+
+    /**
+     * @param value Computes the value whenever the gauge is read.
+     * @return The gauge with that name, created on first use.
+     * @throws IllegalArgumentException If a metric of another type has that name.
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier value) {
+        return register(new Gauge(name, help, value), Gauge.class);
+    }
+
+    /**
+     * @param bucketBounds Upper bounds of the buckets, increasing. Values above the last one only count in the total.
+     * @return The histogram with that name, created on first use.
+     * @throws IllegalArgumentException If a metric of another type has that name.
+     */
+    public Histogram histogram(String name, String help, double... bucketBounds) {
+        return register(new Histogram(name, help, bucketBounds), Histogram.class);
+    }
+
+    private synchronized <T extends Metric> T register(T metric, Class<T> type) {
+        Metric existing = this.metrics.putIfAbsent(metric.getName(), metric);
+        if (existing == null)
+            return metric;
+        if (!type.isInstance(existing))
+            throw new IllegalArgumentException("Metric '" + metric.getName() + "' is already registered as a " + existing.getType());
+        return type.cast(existing);
+    }
+
+    private synchronized List<Metric> getMetrics() {
+        return new ArrayList<>(this.metrics.values());
+    }
+
+    /**
+     * @return Every metric in the Prometheus text exposition format, histogram buckets cumulative.
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        for (Metric metric : getMetrics()) {
+            text.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+            text.append("# TYPE ").append(metric.name).append(' ').append(metric.getType()).append('\n');
+            metric.appendPrometheusSamples(text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return The value of every metric by name. Histograms give their count, sum and mean.
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Metric metric : getMetrics())
+            metric.addValues(values);
+        return values;
+    }
+
+    /**
+     * Registers the registry as a read-only MBean with one attribute per {@link #snapshot()} value.
+     *
+     * @throws JMException If the name is taken or the MBean can't be registered.
+     */
+    public void registerMBean(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), objectName);
+    }
+
+    /**
+     * @return The bytes allocated so far by the live threads of the process, -1 if the JVM can't tell.
+     */
+    public static long getAllocatedBytes() {
+        if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean))
+            return -1;
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        if (!threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled())
+            return -1;
+
+        long total = 0;
+        for (long allocatedBytes : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            // -1 for the threads that ended in the meantime
+            if (allocatedBytes > 0)
+                total += allocatedBytes;
+        }
+        return total;
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "+Inf" : "-Inf";
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    public abstract static class Metric {
+        private final String name;
+        private final String help;
+
+        protected Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        protected abstract String getType();
+
+        protected abstract void appendPrometheusSamples(StringBuilder text);
+
+        protected abstract void addValues(Map<String, Double> values);
+    }
+
+    public static class Counter extends Metric {
+        private final LongAdder count;
+
+        private Counter(String name, String help) {
+            super(name, help);
+            this.count = new LongAdder();
+        }
+
+        public void increment() {
+            this.count.increment();
+        }
+
+        public void add(long amount) {
+            this.count.add(amount);
+        }
+
+        public long get() {
+            return this.count.sum();
+        }
+
+        @Override
+        protected String getType() {
+            return "counter";
+        }
+
+        @Override
+        protected void appendPrometheusSamples(StringBuilder text) {
+            text.append(getName()).append(' ').append(get()).append('\n');
+        }
+
+        @Override
+        protected void addValues(Map<String, Double> values) {
+            values.put(getName(), (double) get());
+        }
+    }
+
+    public static class Gauge extends Metric {
+        private final DoubleSupplier supplier;
+        private final AtomicLong valueBits;
+
+        private Gauge(String name, String help, DoubleSupplier supplier) {
+            super(name, help);
+            this.supplier = supplier;
+            this.valueBits = new AtomicLong(Double.doubleToLongBits(0));
+        }
+
+        /**
+         * Ignored by gauges computing their value.
+         */
+        public void set(double value) {
+            this.valueBits.set(Double.doubleToLongBits(value));
+        }
+
+        public double get() {
+            return this.supplier != null ? this.supplier.getAsDouble() : Double.longBitsToDouble(this.valueBits.get());
+        }
+
+        @Override
+        protected String getType() {
+            return "gauge";
+        }
+
+        @Override
+        protected void appendPrometheusSamples(StringBuilder text) {
+            text.append(getName()).append(' ').append(formatValue(get())).append('\n');
+        }
+
+        @Override
+        protected void addValues(Map<String, Double> values) {
+            values.put(getName(), get());
+        }
+    }
+
+    public static class Histogram extends Metric {
+        private final double[] bucketBounds;
+        private final LongAdder[] bucketCounts;
+        private final LongAdder count;
+        private final DoubleAdder sum;
+
+        private Histogram(String name, String help, double[] bucketBounds) {
+            super(name, help);
+            this.bucketBounds = bucketBounds.clone();
+            this.bucketCounts = new LongAdder[bucketBounds.length];
+            for (int i = 0; i < bucketBounds.length; i++)
+                this.bucketCounts[i] = new LongAdder();
+            this.count = new LongAdder();
+            this.sum = new DoubleAdder();
+        }
+
+        public void observe(double value) {
+            for (int i = 0; i < this.bucketBounds.length; i++) {
+                if (value <= this.bucketBounds[i]) {
+                    this.bucketCounts[i].increment();
+                    break;
+                }
+            }
+            this.count.increment();
+            this.sum.add(value);
+        }
+
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        public double getSum() {
+            return this.sum.sum();
+        }
+
+        @Override
+        protected String getType() {
+            return "histogram";
+        }
+
+        @Override
+        protected void appendPrometheusSamples(StringBuilder text) {
+            // Read the total first, so no cumulative bucket goes above it
+            long total = getCount();
+            double sumValue = getSum();
+            long cumulative = 0;
+            for (int i = 0; i < this.bucketBounds.length; i++) {
+                cumulative += this.bucketCounts[i].sum();
+                text.append(getName()).append("_bucket{le=\"").append(formatValue(this.bucketBounds[i])).append("\"} ").append(Math.min(cumulative, total)).append('\n');
+            }
+            text.append(getName()).append("_bucket{le=\"+Inf\"} ").append(total).append('\n');
+            text.append(getName()).append("_sum ").append(formatValue(sumValue)).append('\n');
+            text.append(getName()).append("_count ").append(total).append('\n');
+        }
+
+        @Override
+        protected void addValues(Map<String, Double> values) {
+            long total = getCount();
+            double sumValue = getSum();
+            values.put(getName() + "_count", (double) total);
+            values.put(getName() + "_sum", sumValue);
+            values.put(getName() + "_mean", total > 0 ? sumValue / total : 0);
+        }
+    }
+
+    // Attributes are read from the registry when asked for, metrics registered later show up too
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Double value = snapshot().get(attribute);
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Double> values = snapshot();
+            AttributeList attributeList = new AttributeList();
+            for (String attribute : attributes) {
+                if (values.containsKey(attribute))
+                    attributeList.add(new Attribute(attribute, values.get(attribute)));
+            }
+            return attributeList;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : snapshot().keySet())
+                attributes.add(new MBeanAttributeInfo(name, Double.class.getName(), name, true, false, false));
+
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Genetic optimizer metrics", attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Routes migrants between the islands of an {@link IslandEngine}.
+ * <p>
+ * With {@link GAConfig#TOPOLOGY_RING}, island {@code i} sends to island {@code i + 1} (the last one to the first), so
+ * good designs spread slowly and islands keep their own flavour for longer. With {@link GAConfig#TOPOLOGY_ALL_TO_ALL},
+ * every island sends to every other one. Delivery never waits on the receiving island, migrants just pile up until
+ * its next generation picks them up.
+ */
+public class MigrationHub {
+    /**
+     * Receives the migrants routed to an island. Must not block.
+     */
+    public interface Destination {
+        void deliver(Migration migration);
+    }
+
+    private final String topology;
+    // Islands connect and disconnect from their own threads
+    private final AtomicReferenceArray<Destination> destinations;
+
+    public MigrationHub(String topology, int islandCount) {
+        this.topology = topology;
+        this.destinations = new AtomicReferenceArray<>(islandCount);
+    }
+
+    /**
+     * @param destination Where the island's migrants go, null to disconnect it.
+     */
+    public void connect(int island, Destination destination) {
+        this.destinations.set(island, destination);
+    }
+
+    /**
+     * Sends a migration to the islands the topology links its source island to. Islands that aren't connected (yet,
+     * or anymore) miss it.
+     */
+    public void migrate(Migration migration) {
+        for (int island : routes(this.topology, this.destinations.length(), migration.getSourceIsland())) {
+            Destination destination = this.destinations.get(island);
+            if (destination != null)
+                destination.deliver(migration);
+        }
+    }
+
+    /**
+     * @return The islands a migration from {@code sourceIsland} goes to, unknown topologies falling back to a ring.
+     */
+    public static List<Integer> routes(String topology, int islandCount, int sourceIsland) {
+        List<Integer> routes = new ArrayList<>();
+        if (islandCount < 2)
+            return routes;
+
+        if (GAConfig.TOPOLOGY_ALL_TO_ALL.equalsIgnoreCase(topology)) {
+            for (int island = 0; island < islandCount; island++) {
+                if (island != sourceIsland)
+                    routes.add(island);
+            }
+        } else {
+            routes.add((sourceIsland + 1) % islandCount);
+        }
+
+        return routes;
+    }
+
+    public static class Migration {
+        private final int sourceIsland;
+        private final int generation;
+        private final double bestFitness;
+        private final List<ReactorGenome> migrants;
+
+        public Migration(int sourceIsland, int generation, double bestFitness, List<ReactorGenome> migrants) {
+            this.sourceIsland = sourceIsland;
+            this.generation = generation;
+            this.bestFitness = bestFitness;
+            this.migrants = migrants;
+        }
+
+        public int getSourceIsland() {
+            return this.sourceIsland;
+        }
+
+        public int getGeneration() {
+            return this.generation;
+        }
+
+        /**
+         * @return The best fitness of the source island's generation, for progress reporting.
+         */
+        public double getBestFitness() {
+            return this.bestFitness;
+        }
+
+        public List<ReactorGenome> getMigrants() {
+            return this.migrants;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Non-dominated sorting and crowding distance for multi-objective selection, every objective being minimized.
+ * <p>
+ * Sorting uses the efficient non-dominated sort with binary search (ENS-BS): solutions are sorted once
+ * lexicographically, so a solution can only be dominated by the ones before it, then each solution is placed in the
+ * first front none of whose members dominates it, that front being found by binary search. This keeps the sort close to
+ * {@code O(M N log N)} on typical populations instead of the {@code O(M N^2)} of the original NSGA-II sort.
+ * <p>
+ * Constraints follow the usual constrained-domination rule: a feasible solution (violation of 0) dominates an infeasible
+ * one, and between infeasible solutions the smaller violation wins.
+ */
+public final class NonDominatedSorter {
+    private NonDominatedSorter() {}
+
+    /**
+     * Sorts solutions into non-dominated fronts.
+     *
+     * @param objectives The objective vectors to minimize, one per solution.
+     * @param violations The constraint violation of each solution, 0 when feasible.
+     * @return The fronts, best first, each one a list of solution indices.
+     */
+    public static List<List<Integer>> sort(double[][] objectives, double[] violations) {
+        int n = objectives.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+
+        // Any solution dominating another comes before it in this order
+        Arrays.sort(order, (a, b) -> {
+            int comparison = Double.compare(violations[a], violations[b]);
+            for (int k = 0; comparison == 0 && k < objectives[a].length; k++)
+                comparison = Double.compare(objectives[a][k], objectives[b][k]);
+            return comparison;
+        });
+
+        List<List<Integer>> fronts = new ArrayList<>();
+        for (int solution : order) {
+            // Binary search for the first front that doesn't dominate the solution. If front k dominates it, so does
+            // every front before k (they hold a solution dominating a member of front k that came earlier).
+            int low = 0, high = fronts.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (frontDominates(fronts.get(middle), solution, objectives, violations))
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            if (low == fronts.size())
+                fronts.add(new ArrayList<>());
+            fronts.get(low).add(solution);
+        }
+
+        return fronts;
+    }
+
+    /**
+     * Crowding distance of the members of one front: the half-perimeter of the box formed by their neighbours on every
+     * objective, normalized by the front's range. The extremes of each objective get an infinite distance.
+     *
+     * @return The distances, in the same order as the front.
+     */
+    public static double[] crowdingDistance(List<Integer> front, double[][] objectives) {
+        int size = front.size();
+        double[] distances = new double[size];
+        if (size == 0)
+            return distances;
+
+        int objectiveCount = objectives[front.get(0)].length;
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < objectiveCount; k++) {
+            final int objective = k;
+            for (int i = 0; i < size; i++)
+                order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble((Integer i) -> objectives[front.get(i)][objective]));
+
+            double min = objectives[front.get(order[0])][objective];
+            double max = objectives[front.get(order[size - 1])][objective];
+            distances[order[0]] = Double.POSITIVE_INFINITY;
+            distances[order[size - 1]] = Double.POSITIVE_INFINITY;
+            if (max <= min)
+                continue;
+
+            for (int i = 1; i < size - 1; i++) {
+                double previous = objectives[front.get(order[i - 1])][objective];
+                double next = objectives[front.get(order[i + 1])][objective];
+                distances[order[i]] += (next - previous) / (max - min);
+            }
+        }
+
+        return distances;
+    }
+
+    /**
+     * @return Whether solution {@code a} constrained-dominates solution {@code b}.
+     */
+    public static boolean dominates(int a, int b, double[][] objectives, double[] violations) {
+        if (violations[a] != violations[b])
+            return violations[a] < violations[b];
+        if (violations[a] > 0)
+            return false;
+
+        boolean strictlyBetter = false;
+        for (int k = 0; k < objectives[a].length; k++) {
+            if (objectives[a][k] > objectives[b][k])
+                return false;
+            if (objectives[a][k] < objectives[b][k])
+                strictlyBetter = true;
+        }
+
+        return strictlyBetter;
+    }
+
+    private static boolean frontDominates(List<Integer> front, int solution, double[][] objectives, double[] violations) {
+        // The latest members are the most similar to the solution, check them first
+        for (int i = front.size() - 1; i >= 0; i--) {
+            if (dominates(front.get(i), solution, objectives, violations))
+                return true;
+        }
+
+        return false;
+    }
+}
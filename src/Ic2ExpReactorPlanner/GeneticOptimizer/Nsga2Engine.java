@@ -0,0 +1,276 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.SimulationData;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Multi-objective NSGA-II search.
+ * <p>
+ * Instead of the weighted {@code fitness} score, genomes are compared on three objectives: EU/t (maximized), EU/t per
+ * fuel rod (maximized) and max hull heat (minimized). Designs that would be disqualified by the fitness (too hot) or
+ * that break a component are infeasible, and lose to every feasible design.
+ * <p>
+ * Every generation breeds {@code nsga2.populationSize} offspring from binary tournaments on (front, crowding distance),
+ * then the parents and offspring are sorted into non-dominated fronts with {@link NonDominatedSorter} and the best
+ * fronts make the next population, the last one being cut on crowding distance. The run ends with the whole Pareto
+ * front, which covers the trade-offs otherwise explored with several weighted runs.
+ * <p>
+ * The scalar fitness is still computed for logging and for the runtime's summary.
+ */
+public class Nsga2Engine implements SearchEngine {
+    private static final int OBJECTIVE_COUNT = 3;
+
+    private final GAConfig config;
+    private final long seed;
+    private final List<ReactorGenome> startingPopulation;
+
+    private final ExecutorService executor;
+    private final GenomeEvaluator genomeEvaluator;
+
+    public Nsga2Engine(GAConfig config, long seed) {
+        this.config = config;
+        this.seed = seed;
+        this.startingPopulation = new ArrayList<>();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HeatBalanceAnalyzer heatBalanceAnalyzer = config.isHeatBalanceEnabled() ? new HeatBalanceAnalyzer(config) : null;
+        this.genomeEvaluator = new GenomeEvaluator(config, new SimulationPool(this.executor), new FitnessCalculator(config), heatBalanceAnalyzer);
+    }
+
+    @Override
+    public void preSeedGen0(List<ReactorGenome> startingPopulation) {
+        this.startingPopulation.addAll(startingPopulation);
+    }
+
+    @Override
+    public List<EvolutionEngine.EvaluatedGenome> run(boolean verbose) {
+        long globalStartTime = System.nanoTime();
+        int populationSize = this.config.nsga2.populationSize;
+
+        printVerbose(verbose, "NSGA-II settings: %s", this.config.nsga2.toString());
+        printVerbose(verbose, "Starting NSGA-II...");
+
+        List<ReactorGenome> initialPopulation = new ArrayList<>();
+        for (int i = 0; i < Math.min(this.startingPopulation.size(), populationSize); i++)
+            initialPopulation.add(this.startingPopulation.get(i));
+        RandomGenerator initialRandom = RandomStreams.forSlot(this.seed, -1, 0);
+        while (initialPopulation.size() < populationSize)
+            initialPopulation.add(ReactorGenome.randomGenome(this.config, initialRandom));
+
+        Population population = new Population(this.genomeEvaluator.evaluate(initialPopulation));
+        population.rank(populationSize);
+
+        for (int generation = 0; generation < this.config.nsga2.maxGeneration; generation++) {
+            long generationStartTime = System.nanoTime();
+
+            List<EvolutionEngine.EvaluatedGenome> offspring = this.genomeEvaluator.evaluate(breedOffspring(population, generation));
+
+            // Elitist survival on parents + offspring, exact duplicates only count once
+            List<EvolutionEngine.EvaluatedGenome> combined = new ArrayList<>(population.members);
+            Set<ReactorGenome> seen = new HashSet<>();
+            for (EvolutionEngine.EvaluatedGenome member : combined)
+                seen.add(member.getGenome());
+            for (EvolutionEngine.EvaluatedGenome child : offspring) {
+                if (seen.add(child.getGenome()))
+                    combined.add(child);
+            }
+
+            population = new Population(combined);
+            population.rank(populationSize);
+
+            double generationElapsedTimeMS = (System.nanoTime() - generationStartTime) / 1e6;
+            logGeneration(verbose, generation, population, generationElapsedTimeMS);
+        }
+
+        List<EvolutionEngine.EvaluatedGenome> paretoFront = population.getParetoFront();
+        paretoFront.sort(Comparator.comparingDouble((EvolutionEngine.EvaluatedGenome evaluatedGenome) -> evaluatedGenome.getSimulationData().avgEUOutput).reversed());
+
+        long globalEndTime = System.nanoTime();
+        double globalElapsedTimeMS = (globalEndTime - globalStartTime) / 1e6;
+        printVerbose(verbose, "NSGA-II finished! Pareto front of %d designs, took %.2fms", paretoFront.size(), globalElapsedTimeMS);
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : paretoFront) {
+            ReactorItem fuelType = ComponentFactory.getDefaultComponent(evaluatedGenome.getGenome().getFuelType());
+            assert fuelType != null;
+            SimulationData simulationData = evaluatedGenome.getSimulationData();
+            printVerbose(verbose, "%s x%d - Output: %7.2fEU/t; %7.2fEU/t per rod; max hull heat: %5.0f - %s", fuelType.name, evaluatedGenome.getGenome().getFuelRodCount(), simulationData.avgEUOutput, FitnessCalculator.computeGenomeFuelEfficiency(evaluatedGenome.getGenome(), simulationData.avgEUOutput), simulationData.maxTemp, evaluatedGenome.getGenome().getERPCode());
+        }
+
+        this.genomeEvaluator.close();
+
+        // executor cleanup
+        try {
+            this.executor.shutdown();
+            if (!this.executor.awaitTermination(60, TimeUnit.SECONDS))
+                Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination timed out. Is there a threading issue?");
+        } catch (Exception e) {
+            Logger.log(Logger.LogLevel.WARNING, "executor.awaitTermination had to be interrupted. Is there a threading issue? [" + e.getCause() + "]");
+            Thread.currentThread().interrupt();
+        }
+
+        return paretoFront;
+    }
+
+    private List<ReactorGenome> breedOffspring(Population population, int generation) {
+        List<ReactorGenome> offspring = new ArrayList<>(this.config.nsga2.populationSize);
+        for (int i = 0; i < this.config.nsga2.populationSize; i++) {
+            RandomGenerator slotRandom = RandomStreams.forSlot(this.seed, generation, i);
+
+            ReactorGenome parentA = population.tournament(slotRandom).getGenome();
+            ReactorGenome child;
+            if (slotRandom.nextDouble() < this.config.nsga2.crossoverRate) {
+                ReactorGenome parentB = population.tournament(slotRandom).getGenome();
+                child = ReactorGenome.crossBreed(this.config, parentA, parentB, slotRandom);
+            } else {
+                child = parentA.copy();
+            }
+
+            child.tryMutation(this.config, this.config.mutation.exploration, slotRandom);
+            offspring.add(child);
+        }
+
+        return offspring;
+    }
+
+    private void logGeneration(boolean verbose, int generation, Population population, double elapsedTimeMS) {
+        List<EvolutionEngine.EvaluatedGenome> paretoFront = population.getParetoFront();
+
+        double minEUOutput = Double.MAX_VALUE, maxEUOutput = 0, bestEUPerRod = 0, minMaxTemp = Double.MAX_VALUE;
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : paretoFront) {
+            SimulationData simulationData = evaluatedGenome.getSimulationData();
+            minEUOutput = Math.min(minEUOutput, simulationData.avgEUOutput);
+            maxEUOutput = Math.max(maxEUOutput, simulationData.avgEUOutput);
+            bestEUPerRod = Math.max(bestEUPerRod, FitnessCalculator.computeGenomeFuelEfficiency(evaluatedGenome.getGenome(), simulationData.avgEUOutput));
+            minMaxTemp = Math.min(minMaxTemp, simulationData.maxTemp);
+        }
+
+        Logger.log(Logger.LogLevel.DEBUG, "Fronts in generation %d: %d fronts, %d/%d members feasible", generation, population.frontCount, population.feasibleCount, population.members.size());
+        if (paretoFront.isEmpty())
+            printVerbose(verbose, "Generation %d: no feasible design yet, took %.2fms", generation, elapsedTimeMS);
+        else
+            printVerbose(verbose, "Generation %d: Pareto front of %d designs, %.2f-%.2fEU/t, best %.2fEU/t per rod, lowest max hull heat %.0f, took %.2fms", generation, paretoFront.size(), minEUOutput, maxEUOutput, bestEUPerRod, minMaxTemp, elapsedTimeMS);
+    }
+
+    private void printVerbose(boolean verbose, String message, Object... args) {
+        if (verbose)
+            Logger.log(message, args);
+    }
+
+    // Objectives to minimize: -EU/t, -EU/t per rod, max hull heat
+    private static double[] objectives(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+        SimulationData simulationData = evaluatedGenome.getSimulationData();
+        double[] objectives = new double[OBJECTIVE_COUNT];
+        objectives[0] = -simulationData.avgEUOutput;
+        objectives[1] = -FitnessCalculator.computeGenomeFuelEfficiency(evaluatedGenome.getGenome(), simulationData.avgEUOutput);
+        objectives[2] = simulationData.maxTemp;
+        return objectives;
+    }
+
+    private static double violation(EvolutionEngine.EvaluatedGenome evaluatedGenome) {
+        SimulationData simulationData = evaluatedGenome.getSimulationData();
+        // Stopped by the watchdog, the partial metrics say nothing about the design: worse than any real violation
+        if (simulationData.aborted)
+            return Double.MAX_VALUE;
+
+        double violation = 0;
+        if (FitnessCalculator.isDisqualified(simulationData.maxTemp))
+            violation += simulationData.maxTemp - FitnessCalculator.MAX_ALLOWED_TEMP;
+        if (simulationData.firstComponentBrokenTime < Integer.MAX_VALUE)
+            violation += 1;
+        return violation;
+    }
+
+    /**
+     * A population with its NSGA-II rank (front index) and crowding distance.
+     */
+    private static class Population {
+        private List<EvolutionEngine.EvaluatedGenome> members;
+        private int[] fronts;
+        private double[] crowding;
+        private double[] violations;
+        private int frontCount;
+        private int feasibleCount;
+
+        public Population(List<EvolutionEngine.EvaluatedGenome> members) {
+            this.members = members;
+        }
+
+        /**
+         * Sorts the members into fronts and keeps the best {@code size} of them.
+         */
+        public void rank(int size) {
+            int n = this.members.size();
+            double[][] objectives = new double[n][];
+            double[] violations = new double[n];
+            for (int i = 0; i < n; i++) {
+                objectives[i] = objectives(this.members.get(i));
+                violations[i] = violation(this.members.get(i));
+            }
+
+            List<List<Integer>> sortedFronts = NonDominatedSorter.sort(objectives, violations);
+
+            List<EvolutionEngine.EvaluatedGenome> survivors = new ArrayList<>(Math.min(size, n));
+            List<Integer> survivorFronts = new ArrayList<>();
+            List<Double> survivorCrowding = new ArrayList<>();
+            List<Double> survivorViolations = new ArrayList<>();
+            for (int f = 0; f < sortedFronts.size() && survivors.size() < size; f++) {
+                List<Integer> front = sortedFronts.get(f);
+                double[] distances = NonDominatedSorter.crowdingDistance(front, objectives);
+
+                // The last front that doesn't fit entirely keeps its least crowded members
+                Integer[] order = new Integer[front.size()];
+                for (int i = 0; i < order.length; i++)
+                    order[i] = i;
+                if (survivors.size() + front.size() > size)
+                    Arrays.sort(order, Comparator.comparingDouble((Integer i) -> distances[i]).reversed());
+
+                for (int i = 0; i < order.length && survivors.size() < size; i++) {
+                    int member = front.get(order[i]);
+                    survivors.add(this.members.get(member));
+                    survivorFronts.add(f);
+                    survivorCrowding.add(distances[order[i]]);
+                    survivorViolations.add(violations[member]);
+                }
+            }
+
+            this.members = survivors;
+            this.fronts = survivorFronts.stream().mapToInt(Integer::intValue).toArray();
+            this.crowding = survivorCrowding.stream().mapToDouble(Double::doubleValue).toArray();
+            this.violations = survivorViolations.stream().mapToDouble(Double::doubleValue).toArray();
+            this.frontCount = sortedFronts.size();
+            this.feasibleCount = (int) Arrays.stream(this.violations).filter(violation -> violation == 0).count();
+        }
+
+        /**
+         * Binary tournament: lower front wins, then larger crowding distance.
+         */
+        public EvolutionEngine.EvaluatedGenome tournament(RandomGenerator random) {
+            int a = random.nextInt(this.members.size());
+            int b = random.nextInt(this.members.size());
+
+            if (this.fronts[a] != this.fronts[b])
+                return this.members.get(this.fronts[a] < this.fronts[b] ? a : b);
+
+            return this.members.get(this.crowding[a] >= this.crowding[b] ? a : b);
+        }
+
+        /**
+         * @return The feasible members of the first front.
+         */
+        public List<EvolutionEngine.EvaluatedGenome> getParetoFront() {
+            List<EvolutionEngine.EvaluatedGenome> paretoFront = new ArrayList<>();
+            for (int i = 0; i < this.members.size(); i++) {
+                if (this.fronts[i] == 0 && this.violations[i] == 0)
+                    paretoFront.add(this.members.get(i));
+            }
+
+            return paretoFront;
+        }
+    }
+}
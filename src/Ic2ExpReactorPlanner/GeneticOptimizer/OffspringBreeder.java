@@ -0,0 +1,100 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * Breeds offspring in parallel: tournament selection of two parents, crossover, then mutation.
+ * <p>
+ * Every offspring slot breeds from its own random stream derived from {@code (seed, generation, slot)}, see
+ * {@link RandomStreams}, so the offspring don't depend on the thread count or on how the slots are spread across
+ * threads.
+ */
+public class OffspringBreeder {
+    // Breeding work is split into roughly this many chunks per thread to even out the load
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final GAConfig config;
+    private final long seed;
+    private final ExecutorService executor;
+    private final int threadCount;
+
+    /**
+     * @param threadCount How many threads of the executor breeding is spread across, only affects the chunk size.
+     */
+    public OffspringBreeder(GAConfig config, long seed, ExecutorService executor, int threadCount) {
+        this.config = config;
+        this.seed = seed;
+        this.executor = executor;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @param statTracker Collects the mutation statistics of every offspring.
+     * @return The offspring, in slot order.
+     * @throws IllegalStateException If breeding failed on one of the threads, the generation can't go on without it.
+     */
+    public List<ReactorGenome> breed(List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation, boolean exploratoryPhase, int generation, int offspringCount, ReactorGenome.MutationStatTracker statTracker) {
+        GAConfig.PhaseProbabilities mutationProbabilities = exploratoryPhase ? this.config.mutation.exploration : this.config.mutation.refinement;
+        ReactorGenome[] offspring = new ReactorGenome[Math.max(0, offspringCount)];
+
+        int chunkSize = Math.max(1, (int) Math.ceil((double) offspring.length / (this.threadCount * CHUNKS_PER_THREAD)));
+        List<Future<ReactorGenome.MutationStatTracker>> chunkFutures = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < offspring.length; chunkStart += chunkSize) {
+            final int start = chunkStart;
+            final int end = Math.min(chunkStart + chunkSize, offspring.length);
+
+            Callable<ReactorGenome.MutationStatTracker> task = () -> {
+                ReactorGenome.MutationStatTracker chunkStatTracker = new ReactorGenome.MutationStatTracker();
+                for (int i = start; i < end; i++) {
+                    RandomGenerator slotRandom = RandomStreams.forSlot(this.seed, generation, i);
+
+                    // Parent selection
+                    ReactorGenome parentA = selectParentViaTournament(slotRandom, evaluatedPopulation);
+                    ReactorGenome parentB = selectParentViaTournament(slotRandom, evaluatedPopulation);
+
+                    // Breeding phase
+                    ReactorGenome childGenome = ReactorGenome.crossBreed(this.config, parentA, parentB, slotRandom);
+
+                    // Mutation phase
+                    childGenome.tryMutation(this.config, mutationProbabilities, slotRandom, chunkStatTracker);
+
+                    offspring[i] = childGenome;
+                }
+
+                return chunkStatTracker;
+            };
+
+            chunkFutures.add(this.executor.submit(task));
+        }
+
+        try {
+            for (Future<ReactorGenome.MutationStatTracker> chunkFuture : chunkFutures) {
+                statTracker.merge(chunkFuture.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while breeding generation " + generation, e);
+        } catch (ExecutionException e) {
+            // Unbred slots would be null, no generation is better than a partial one
+            throw new IllegalStateException("Breeding failed in generation " + generation, e.getCause());
+        } finally {
+            for (Future<ReactorGenome.MutationStatTracker> chunkFuture : chunkFutures)
+                chunkFuture.cancel(true);
+        }
+
+        return Arrays.asList(offspring);
+    }
+
+    private ReactorGenome selectParentViaTournament(RandomGenerator random, List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation) {
+        List<EvolutionEngine.EvaluatedGenome> tournamentSelection = new ArrayList<>();
+        for (int k = 0; k < this.config.evolution.tournamentSizeK; k++) {
+            tournamentSelection.add(evaluatedPopulation.get(random.nextInt(evaluatedPopulation.size())));
+        }
+
+        assert !tournamentSelection.isEmpty() : "Tournament competitor list cannot be empty.";
+
+        return Collections.max(tournamentSelection, Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness)).getGenome();
+    }
+}
@@ -0,0 +1,203 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.SimulationData;
+import Ic2ExpReactorPlanner.components.ReactorItem;
+
+import java.util.*;
+
+/**
+ * Successive-halving evaluation of a population.
+ * <p>
+ * Every genome is first simulated for the shortest horizon in {@code racing.horizons} and ranked on an estimate of
+ * its fitness. Only the best {@code racing.promotionRatio} of them move on to the next horizon, and the survivors of
+ * the last horizon get a full simulation. Genomes that stop racing keep their estimate, scaled down by
+ * {@code racing.nonPromotedFitnessScale}, as a conservative fitness for tournament selection.
+ * <p>
+ * Genomes whose simulation ends on its own before the horizon (explosion, depletion) are already fully evaluated and
+ * leave the race with their real fitness. Genomes whose simulation the {@link SimulationWatchdog} aborted leave it with
+ * the fallback fitness.
+ */
+public class RacingEvaluator {
+    private final GAConfig config;
+    private final SimulationPool simulationPool;
+    private final FitnessFunction fitnessFunction;
+
+    public RacingEvaluator(GAConfig config, SimulationPool simulationPool, FitnessFunction fitnessFunction) {
+        this.config = config;
+        this.simulationPool = simulationPool;
+        this.fitnessFunction = fitnessFunction;
+    }
+
+    /**
+     * Races the population through the configured horizons.
+     *
+     * @param population The genomes to evaluate.
+     * @return The race result, its evaluated genomes are in the same order as the population.
+     */
+    public RaceResult race(List<ReactorGenome> population) {
+        EvolutionEngine.EvaluatedGenome[] results = new EvolutionEngine.EvaluatedGenome[population.size()];
+        RaceResult raceResult = new RaceResult(population.size());
+
+        int[] horizons = this.config.racing.horizons.clone();
+        Arrays.sort(horizons);
+
+        List<Integer> contenders = new ArrayList<>(population.size());
+        for (int i = 0; i < population.size(); i++)
+            contenders.add(i);
+
+        for (int horizon : horizons) {
+            if (contenders.isEmpty())
+                break;
+
+            List<SimulationData> simulationResults = this.simulationPool.simulate(pick(population, contenders), horizon);
+
+            List<Integer> stillRacing = new ArrayList<>(contenders.size());
+            for (int i = 0; i < contenders.size(); i++) {
+                int index = contenders.get(i);
+                ReactorGenome genome = population.get(index);
+                SimulationData simulationData = simulationResults.get(i);
+
+                EvolutionEngine.EvaluatedGenome evaluatedGenome = new EvolutionEngine.EvaluatedGenome(genome);
+                evaluatedGenome.setSimulationData(simulationData);
+
+                if (simulationData.aborted) {
+                    // Stopped by the watchdog, the metrics don't tell how the design does: out of the race
+                    evaluatedGenome.setFitness(exactFitness(genome, simulationData));
+                    raceResult.abortedCount++;
+                } else if (simulationData.totalReactorTicks < horizon) {
+                    // The simulation ended on its own, this is the real thing
+                    evaluatedGenome.setFitness(exactFitness(genome, simulationData));
+                    raceResult.finishedEarlyCount++;
+                } else {
+                    evaluatedGenome.setFitness(estimatePartialFitness(genome, simulationData, horizon));
+                    evaluatedGenome.setPartialEvaluation(true);
+                    stillRacing.add(index);
+                }
+
+                results[index] = evaluatedGenome;
+            }
+
+            // Stable sort, ties keep the population order
+            stillRacing.sort(Comparator.comparingDouble((Integer index) -> results[index].getFitness()).reversed());
+
+            int promotedCount = Math.min(stillRacing.size(), Math.max(1, (int) Math.ceil(stillRacing.size() * this.config.racing.promotionRatio)));
+            for (int i = promotedCount; i < stillRacing.size(); i++) {
+                EvolutionEngine.EvaluatedGenome eliminated = results[stillRacing.get(i)];
+                eliminated.setFitness(conservativeBound(eliminated.getFitness()));
+            }
+
+            contenders = new ArrayList<>(stillRacing.subList(0, promotedCount));
+            raceResult.rungs.add(new Rung(horizon, stillRacing.size(), promotedCount));
+        }
+
+        // Full fidelity for the survivors
+        List<SimulationData> simulationResults = this.simulationPool.simulate(pick(population, contenders));
+        for (int i = 0; i < contenders.size(); i++) {
+            int index = contenders.get(i);
+            ReactorGenome genome = population.get(index);
+
+            EvolutionEngine.EvaluatedGenome evaluatedGenome = new EvolutionEngine.EvaluatedGenome(genome);
+            evaluatedGenome.setSimulationData(simulationResults.get(i));
+            evaluatedGenome.setFitness(exactFitness(genome, simulationResults.get(i)));
+            results[index] = evaluatedGenome;
+        }
+        raceResult.fullSimulationCount = contenders.size();
+
+        raceResult.evaluatedPopulation.addAll(Arrays.asList(results));
+        return raceResult;
+    }
+
+    private double exactFitness(ReactorGenome genome, SimulationData simulationData) {
+        return this.fitnessFunction.score(genome, simulationData);
+    }
+
+    private double estimatePartialFitness(ReactorGenome genome, SimulationData simulationData, int horizon) {
+        double projectedMaxTemp = simulationData.maxTemp;
+
+        // Still heating up at the end of the horizon: assume the average heating rate holds until the fuel runs out
+        if (simulationData.finalTemp > 0 && simulationData.finalTemp >= simulationData.maxTemp) {
+            int expectedTicks = Math.max(horizon, expectedFuelLifetime(genome));
+            projectedMaxTemp = simulationData.maxTemp * expectedTicks / (double) horizon;
+        }
+
+        GenomeMetrics metrics = GenomeMetrics.of(genome, simulationData);
+        return this.fitnessFunction.score(new GenomeMetrics(metrics.getFuelRodCount(), metrics.getAvgEUOutput(), projectedMaxTemp, metrics.isComponentBroken()));
+    }
+
+    private double conservativeBound(double estimate) {
+        double scale = this.config.racing.nonPromotedFitnessScale;
+        return estimate >= 0 ? estimate * scale : estimate / scale;
+    }
+
+    private static int expectedFuelLifetime(ReactorGenome genome) {
+        // Fuel rods take 1 damage per tick
+        ReactorItem fuelRod = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        return fuelRod != null ? (int) fuelRod.getMaxDamage() : 0;
+    }
+
+    private static List<ReactorGenome> pick(List<ReactorGenome> population, List<Integer> indices) {
+        List<ReactorGenome> genomes = new ArrayList<>(indices.size());
+        for (int index : indices)
+            genomes.add(population.get(index));
+
+        return genomes;
+    }
+
+    private static class Rung {
+        public final int horizon;
+        public final int racingCount;
+        public final int promotedCount;
+
+        public Rung(int horizon, int racingCount, int promotedCount) {
+            this.horizon = horizon;
+            this.racingCount = racingCount;
+            this.promotedCount = promotedCount;
+        }
+    }
+
+    public static class RaceResult {
+        private final List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation;
+        private final List<Rung> rungs;
+        private final int populationSize;
+        private int finishedEarlyCount;
+        private int abortedCount;
+        private int fullSimulationCount;
+
+        public RaceResult(int populationSize) {
+            this.evaluatedPopulation = new ArrayList<>(populationSize);
+            this.rungs = new ArrayList<>();
+            this.populationSize = populationSize;
+        }
+
+        public List<EvolutionEngine.EvaluatedGenome> getEvaluatedPopulation() {
+            return this.evaluatedPopulation;
+        }
+
+        public int getFullSimulationCount() {
+            return this.fullSimulationCount;
+        }
+
+        public int getFinishedEarlyCount() {
+            return this.finishedEarlyCount;
+        }
+
+        public int getAbortedCount() {
+            return this.abortedCount;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buffer = new StringBuilder();
+            buffer.append(this.populationSize).append(" genomes");
+            for (Rung rung : this.rungs) {
+                buffer.append(String.format(" -> %d raced %d ticks, %d promoted", rung.racingCount, rung.horizon, rung.promotedCount));
+            }
+            buffer.append(String.format(" -> %d fully simulated; %d finished early", this.fullSimulationCount, this.finishedEarlyCount));
+            if (this.abortedCount > 0)
+                buffer.append(String.format("; %d aborted", this.abortedCount));
+
+            return buffer.toString();
+        }
+    }
+}
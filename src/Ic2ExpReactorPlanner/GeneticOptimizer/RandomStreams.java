@@ -0,0 +1,45 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.SplittableRandom;
+
+/**
+ * Derives independent, reproducible random streams from a run seed.
+ * <p>
+ * Work that gets spread across threads cannot share a single {@link java.util.Random} without the result depending on
+ * scheduling order. Instead, every unit of work (an offspring slot, a chain, ...) gets its own stream whose seed is a
+ * pure function of {@code (seed, generation, index)}, so a seeded run produces the same trajectory regardless of the
+ * thread count.
+ */
+public final class RandomStreams {
+    // Same odd constant SplittableRandom uses as its default gamma
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private RandomStreams() {}
+
+    /**
+     * Creates the random stream for one unit of work of a generation.
+     *
+     * @param seed       The run seed.
+     * @param generation The generation (or step) the work belongs to.
+     * @param index      The index of the unit of work inside that generation.
+     * @return A new {@link SplittableRandom} that only depends on the three arguments.
+     */
+    public static SplittableRandom forSlot(long seed, int generation, int index) {
+        return new SplittableRandom(deriveSeed(seed, generation, index));
+    }
+
+    /**
+     * Mixes a run seed with a generation and index into a well-distributed stream seed.
+     */
+    public static long deriveSeed(long seed, int generation, int index) {
+        long generationSeed = mix64(seed + GOLDEN_GAMMA * ((long) generation + 1));
+        return mix64(generationSeed + GOLDEN_GAMMA * ((long) index + 1));
+    }
+
+    // David Stafford's Mix13 variant, as used by SplittableRandom
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -5,20 +5,27 @@ import Ic2ExpReactorPlanner.Reactor;
 import Ic2ExpReactorPlanner.components.FuelRod;
 import Ic2ExpReactorPlanner.components.ReactorItem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class ReactorGenome {
     public static final int FUEL_VALUE = 999;
 
+    // Byte standing for FUEL_VALUE in the packed format, component ids and -1 (empty) fit in a byte as they are
+    private static final byte PACKED_FUEL_VALUE = Byte.MAX_VALUE;
+
     // Genome data
     private int fuelType;
     private final int[] reactorLayout;
 
     // Util stuff
     private int fuelRodCount;
+    private int speciesId; // species hint inherited from the parents, not part of the genome's identity
 
     // Config stuff
     private final GAConfig config;
@@ -29,6 +36,7 @@ public class ReactorGenome {
         this.fuelType = -1;
         this.reactorLayout = new int[this.config.reactor.rowCount * this.config.reactor.colCount];
         this.fuelRodCount = -1;
+        this.speciesId = -1;
     }
 
     public int getFuelType() {
@@ -43,7 +51,20 @@ public class ReactorGenome {
         this.fuelType = type;
     }
 
-    public static ReactorGenome randomGenome(GAConfig config, Random random) {
+    public void setComponentAt(int index, int componentId) {
+        this.reactorLayout[index] = componentId;
+        this.fuelRodCount = -1;
+    }
+
+    public int getSpeciesId() {
+        return speciesId;
+    }
+
+    public void setSpeciesId(int speciesId) {
+        this.speciesId = speciesId;
+    }
+
+    public static ReactorGenome randomGenome(GAConfig config, RandomGenerator random) {
         ReactorGenome genome = new ReactorGenome(config);
 
         genome.fuelType = config.fuels.valid[random.nextInt(config.fuels.valid.length)];
@@ -76,6 +97,35 @@ public class ReactorGenome {
         return genome;
     }
 
+    /**
+     * Writes the genome in its packed binary form: the fuel type as a short, then one byte per slot.
+     */
+    public void writePacked(DataOutput output) throws IOException {
+        output.writeShort(this.fuelType);
+        for (int componentId : this.reactorLayout) {
+            if (componentId == FUEL_VALUE)
+                output.writeByte(PACKED_FUEL_VALUE);
+            else if (componentId >= Byte.MIN_VALUE && componentId < PACKED_FUEL_VALUE)
+                output.writeByte(componentId);
+            else
+                throw new IOException("Component id " + componentId + " doesn't fit in the packed genome format");
+        }
+    }
+
+    /**
+     * Reads a genome written by {@link #writePacked(DataOutput)} with the same reactor size.
+     */
+    public static ReactorGenome readPacked(GAConfig config, DataInput input) throws IOException {
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.fuelType = input.readShort();
+        for (int i = 0; i < genome.reactorLayout.length; i++) {
+            byte packedValue = input.readByte();
+            genome.reactorLayout[i] = packedValue == PACKED_FUEL_VALUE ? FUEL_VALUE : packedValue;
+        }
+
+        return genome;
+    }
+
     public static double calculateSimilarity(GAConfig config, ReactorGenome genomeA, ReactorGenome genomeB) {
         // thinking about maybe giving some leniency to the fuel type. Perhaps a reactor that only mutated its fuel type could be considered related to its parent?
         if (genomeA.getFuelType() != genomeB.getFuelType())
@@ -171,7 +221,7 @@ public class ReactorGenome {
         return genome;
     }
 
-    public static ReactorGenome crossBreed(GAConfig config, ReactorGenome parentA, ReactorGenome parentB, Random random) {
+    public static ReactorGenome crossBreed(GAConfig config, ReactorGenome parentA, ReactorGenome parentB, RandomGenerator random) {
         ReactorGenome newGenome = new ReactorGenome(config);
 
         newGenome.fuelType = random.nextDouble() < 0.5 ? parentA.fuelType : parentB.fuelType;
@@ -191,6 +241,10 @@ public class ReactorGenome {
             newGenome.reactorLayout[i] = geneValue;
         }
 
+        // The child is most likely of the same species as the parent that gave it the most genes
+        boolean mostlyParentB = (crossoverEnd - crossoverStart) * 2 > newGenome.reactorLayout.length;
+        newGenome.speciesId = mostlyParentB ? parentB.speciesId : parentA.speciesId;
+
         return newGenome;
     }
 
@@ -221,11 +275,11 @@ public class ReactorGenome {
         return reactor;
     }
 
-    public void tryMutation(GAConfig config, GAConfig.PhaseProbabilities probabilities, Random random) {
+    public void tryMutation(GAConfig config, GAConfig.PhaseProbabilities probabilities, RandomGenerator random) {
         tryMutation(config, probabilities, random, null);
     }
 
-    public void tryMutation(GAConfig config, GAConfig.PhaseProbabilities probabilities, Random random, MutationStatTracker mutationStatTracker) {
+    public void tryMutation(GAConfig config, GAConfig.PhaseProbabilities probabilities, RandomGenerator random, MutationStatTracker mutationStatTracker) {
         // fuel type mutation
         if (random.nextDouble() < probabilities.probabilityFuelMutation) {
             this.fuelType = config.fuels.valid[random.nextInt(config.fuels.valid.length)];
@@ -265,6 +319,7 @@ public class ReactorGenome {
     public ReactorGenome copy() {
         ReactorGenome newGenome = new ReactorGenome(this.config);
         newGenome.fuelType = this.fuelType;
+        newGenome.speciesId = this.speciesId;
         System.arraycopy(this.reactorLayout, 0, newGenome.reactorLayout, 0, this.reactorLayout.length);
 
         return newGenome;
@@ -312,6 +367,12 @@ public class ReactorGenome {
             this.layoutPerSlotMutationCount = 0;
         }
 
+        public void merge(MutationStatTracker other) {
+            this.fuelMutationCount += other.fuelMutationCount;
+            this.layoutMutationCount += other.layoutMutationCount;
+            this.layoutPerSlotMutationCount += other.layoutPerSlotMutationCount;
+        }
+
         @Override
         public String toString() {
             return String.format("Fuel Mutations = %d; Layout Mutations = %d; Layout Per Slot Mutations = %d", this.fuelMutationCount, this.layoutMutationCount, this.layoutPerSlotMutationCount);
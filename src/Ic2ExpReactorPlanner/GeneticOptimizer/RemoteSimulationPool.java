@@ -0,0 +1,305 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+import Ic2ExpReactorPlanner.components.FuelRod;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulation pool farming the simulations out to {@link SimulationWorker} processes, on this machine or others.
+ * <p>
+ * Workers connect to {@code remoteWorkers.bindAddress:port} whenever they like. A batch of genomes is cut into
+ * batches of {@code remoteWorkers.batchSize}, and every worker keeps up to {@code remoteWorkers.pipelineDepth} of them
+ * in flight so it never sits idle waiting for the next one. A worker that closes its connection or stays quiet for
+ * {@code remoteWorkers.heartbeatTimeoutMs} is dropped, and its unfinished batches go back to the front of the queue
+ * for the others. While no worker is connected, simulations run on the local executor like a regular
+ * {@link SimulationPool}.
+ * <p>
+ * See {@link SimulationProtocol} for the wire format.
+ */
+public class RemoteSimulationPool extends SimulationPool {
+    // How often a waiting batch checks that someone is still there to simulate it
+    private static final long WORKER_CHECK_INTERVAL_MS = 1000;
+
+    private final GAConfig config;
+    private final ServerSocket serverSocket;
+    private final BlockingDeque<Batch> pendingBatches;
+    private final Set<WorkerConnection> workers;
+    private final AtomicLong nextBatchId;
+    private volatile boolean closed;
+
+    /**
+     * Starts listening for workers.
+     *
+     * @param executor Used while no worker is connected.
+     * @throws IOException If the address can't be listened on.
+     */
+    public RemoteSimulationPool(GAConfig config, ExecutorService executor) throws IOException {
+        super(executor);
+        this.config = config;
+        this.pendingBatches = new LinkedBlockingDeque<>();
+        this.workers = ConcurrentHashMap.newKeySet();
+        this.nextBatchId = new AtomicLong();
+
+        GAConfig.RemoteWorkersConfig remoteWorkers = config.remoteWorkers;
+        this.serverSocket = new ServerSocket(remoteWorkers.port, 50, InetAddress.getByName(remoteWorkers.bindAddress));
+        Thread acceptor = new Thread(this::acceptWorkers, "simulation-worker-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        Logger.log("Waiting for simulation workers on %s:%d", remoteWorkers.bindAddress, this.serverSocket.getLocalPort());
+    }
+
+    /**
+     * @return The port workers connect to, useful when {@code remoteWorkers.port} is 0.
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    public int getWorkerCount() {
+        return this.workers.size();
+    }
+
+    @Override
+    public List<SimulationData> simulate(List<ReactorGenome> genomes, int maxTicks) {
+        if (this.workers.isEmpty())
+            return super.simulate(genomes, maxTicks);
+
+        int batchSize = Math.max(1, this.config.remoteWorkers.batchSize);
+        List<Batch> batches = new ArrayList<>();
+        for (int start = 0; start < genomes.size(); start += batchSize) {
+            try {
+                batches.add(new Batch(this.nextBatchId.getAndIncrement(), genomes.subList(start, Math.min(start + batchSize, genomes.size())), maxTicks));
+            } catch (IOException e) {
+                Logger.log(e, "Could not pack a simulation batch, simulating locally");
+                return super.simulate(genomes, maxTicks);
+            }
+        }
+        this.pendingBatches.addAll(batches);
+
+        List<SimulationData> simulationResults = new ArrayList<>(genomes.size());
+        for (Batch batch : batches) {
+            while (true) {
+                try {
+                    simulationResults.addAll(batch.result.get(WORKER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS));
+                    break;
+                } catch (TimeoutException e) {
+                    // Every worker is gone, take the batch back unless one is about to finish it
+                    if (this.workers.isEmpty() && this.pendingBatches.remove(batch)) {
+                        Logger.log(Logger.LogLevel.DEBUG, "No simulation worker left, simulating batch %d locally", batch.id);
+                        batch.result.complete(super.simulate(batch.genomes, maxTicks));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for simulation workers", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Simulation batch failed", e);
+                }
+            }
+        }
+
+        return simulationResults;
+    }
+
+    /**
+     * Stops listening and disconnects the workers, they go back to waiting for a pool.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            Logger.log(Logger.LogLevel.WARNING, "Could not close the simulation worker socket: %s", e.getMessage());
+        }
+
+        for (WorkerConnection worker : this.workers)
+            worker.disconnect(null);
+    }
+
+    private void acceptWorkers() {
+        while (!this.closed) {
+            Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                if (!this.closed)
+                    Logger.log(e, "Stopped accepting simulation workers");
+                return;
+            }
+
+            try {
+                WorkerConnection worker = new WorkerConnection(socket);
+                this.workers.add(worker);
+                worker.start();
+                Logger.log("Simulation worker %s connected with %d threads (%d workers)", worker.name, worker.threadCount, this.workers.size());
+            } catch (IOException e) {
+                Logger.log(Logger.LogLevel.WARNING, "Simulation worker %s failed its handshake: %s", socket.getRemoteSocketAddress(), e.getMessage());
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static class Batch {
+        public final long id;
+        public final List<ReactorGenome> genomes;
+        public final byte[] payload;
+        public final CompletableFuture<List<SimulationData>> result;
+
+        public Batch(long id, List<ReactorGenome> genomes, int maxTicks) throws IOException {
+            this.id = id;
+            this.genomes = genomes;
+            this.result = new CompletableFuture<>();
+
+            // Packed once, a re-dispatch sends the same bytes
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream payload = new DataOutputStream(bytes)) {
+                payload.writeLong(id);
+                payload.writeInt(maxTicks);
+                payload.writeInt(genomes.size());
+                for (ReactorGenome genome : genomes)
+                    genome.writePacked(payload);
+            }
+            this.payload = bytes.toByteArray();
+        }
+    }
+
+    private class WorkerConnection {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+        private final String name;
+        private final int threadCount;
+
+        private final Map<Long, Batch> inFlight;
+        private final Semaphore pipelineSlots;
+        private volatile boolean connected;
+        private Thread dispatcher;
+
+        public WorkerConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.name = socket.getRemoteSocketAddress().toString();
+            this.inFlight = new ConcurrentHashMap<>();
+            this.pipelineSlots = new Semaphore(Math.max(1, config.remoteWorkers.pipelineDepth));
+
+            GAConfig.RemoteWorkersConfig remoteWorkers = config.remoteWorkers;
+            socket.setSoTimeout(remoteWorkers.heartbeatTimeoutMs);
+            SimulationProtocol.Frame hello = SimulationProtocol.readFrame(this.input);
+            if (hello.getType() != SimulationProtocol.FRAME_HELLO)
+                throw new IOException("Expected a hello, got frame type " + hello.getType());
+            DataInputStream helloPayload = hello.getPayload();
+            int version = helloPayload.readInt();
+            if (version != SimulationProtocol.VERSION)
+                throw new IOException("Unsupported protocol version " + version);
+            this.threadCount = helloPayload.readInt();
+
+            SimulationProtocol.writeFrame(this.output, SimulationProtocol.FRAME_SETUP, payload -> {
+                payload.writeBoolean(FuelRod.isGTNHBehavior());
+                payload.writeInt(remoteWorkers.heartbeatIntervalMs);
+                SimulationProtocol.writeString(payload, config.toJson());
+            });
+            this.connected = true;
+        }
+
+        public void start() {
+            this.dispatcher = new Thread(this::dispatch, "simulation-worker-dispatcher " + this.name);
+            this.dispatcher.setDaemon(true);
+            this.dispatcher.start();
+
+            Thread reader = new Thread(this::read, "simulation-worker-reader " + this.name);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void dispatch() {
+            try {
+                while (this.connected) {
+                    this.pipelineSlots.acquire();
+                    Batch batch = pendingBatches.poll(WORKER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (batch == null || batch.result.isDone()) {
+                        this.pipelineSlots.release();
+                        continue;
+                    }
+
+                    this.inFlight.put(batch.id, batch);
+                    if (!this.connected) {
+                        // Lost the connection meanwhile, and maybe the requeue of this batch with it
+                        if (this.inFlight.remove(batch.id) != null)
+                            pendingBatches.addFirst(batch);
+                        return;
+                    }
+
+                    SimulationProtocol.writeFrame(this.output, SimulationProtocol.FRAME_BATCH, payload -> payload.write(batch.payload));
+                }
+            } catch (InterruptedException e) {
+                // Disconnected
+            } catch (IOException e) {
+                disconnect(e);
+            }
+        }
+
+        private void read() {
+            try {
+                while (this.connected) {
+                    SimulationProtocol.Frame frame = SimulationProtocol.readFrame(this.input);
+                    if (frame.getType() == SimulationProtocol.FRAME_RESULTS) {
+                        DataInputStream payload = frame.getPayload();
+                        Batch batch = this.inFlight.remove(payload.readLong());
+                        if (batch != null) {
+                            if (batch.result.complete(SimulationProtocol.readMetricsList(payload))) {
+                                countSimulations(batch.genomes.size());
+                                SIMULATION_COUNTER.add(batch.genomes.size());
+                            }
+                            this.pipelineSlots.release();
+                        }
+                    } else if (frame.getType() != SimulationProtocol.FRAME_HEARTBEAT) {
+                        throw new IOException("Unexpected frame type " + frame.getType());
+                    }
+                }
+            } catch (IOException e) {
+                disconnect(e);
+            }
+        }
+
+        /**
+         * @param cause Why the worker is dropped, null when the pool closes.
+         */
+        public synchronized void disconnect(IOException cause) {
+            if (!this.connected)
+                return;
+
+            this.connected = false;
+            workers.remove(this);
+            try {
+                this.socket.close();
+            } catch (IOException ignored) {
+            }
+            if (this.dispatcher != null)
+                this.dispatcher.interrupt();
+
+            // Unfinished batches go first, somebody is already waiting on them
+            int requeuedCount = 0;
+            for (Batch batch : this.inFlight.values()) {
+                if (this.inFlight.remove(batch.id) != null && !batch.result.isDone()) {
+                    pendingBatches.addFirst(batch);
+                    requeuedCount++;
+                }
+            }
+
+            if (cause != null && !closed)
+                Logger.log(Logger.LogLevel.WARNING, "Simulation worker %s lost (%s), %d batches re-dispatched, %d workers left", this.name, cause.getMessage(), requeuedCount, workers.size());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.util.List;
+
+/**
+ * A search strategy over reactor genomes. The runtime picks one with the {@code engine} entry of the config.
+ */
+public interface SearchEngine {
+    /**
+     * Adds genomes to the starting population, before {@link #run(boolean)}.
+     */
+    void preSeedGen0(List<ReactorGenome> startingPopulation);
+
+    /**
+     * Runs the search to completion and releases its threads.
+     *
+     * @param verbose Whether to log the progress.
+     * @return The final evaluated genomes, in no particular order.
+     */
+    List<EvolutionEngine.EvaluatedGenome> run(boolean verbose);
+}
@@ -3,21 +3,24 @@ package Ic2ExpReactorPlanner.GeneticOptimizer;
 import Ic2ExpReactorPlanner.Reactor;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class SeedFileLoader {
-    private static final String COMMENT_PATTERN = "\\h*(//|#).*$";
+    // Comments must start a line or follow whitespace, ERP codes can contain "//"
+    private static final String COMMENT_PATTERN = "(^|\\h+)(//|#).*$";
 
     public static List<ReactorGenome> LoadSeedFile(GAConfig config, String path) {
         List<ReactorGenome> seedList = new ArrayList<>();
 
         String cleanedContent;
         Pattern commentPattern = Pattern.compile(COMMENT_PATTERN);
-        try (InputStream inputStream = SeedFileLoader.class.getClassLoader().getResourceAsStream(path)) {
-            assert inputStream != null;
+        try (InputStream inputStream = openSeedFile(path)) {
             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
             cleanedContent = reader
                     .lines()
@@ -39,4 +42,17 @@ public class SeedFileLoader {
 
         return seedList;
     }
+
+    // Bundled seed files first, then the filesystem (e.g. seed files written by FitnessRescorer)
+    private static InputStream openSeedFile(String path) throws IOException {
+        InputStream inputStream = SeedFileLoader.class.getClassLoader().getResourceAsStream(path);
+        if (inputStream != null)
+            return inputStream;
+
+        Path filePath = Paths.get(path);
+        if (!Files.exists(filePath))
+            throw new FileNotFoundException("No seed file resource or file named '" + path + "'");
+
+        return Files.newInputStream(filePath);
+    }
 }
@@ -0,0 +1,110 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded genome to simulation data cache, shared by {@link CachingSimulationPool}s so engines exploring the same
+ * designs only simulate them once. A simulation only depends on the genome and its tick horizon, never on the fitness
+ * settings, so engines with different configs can share a cache. The least recently used entries go first.
+ * <p>
+ * Cached simulation data is shared, callers must not modify it.
+ */
+public class SimulationCache {
+    private static final MetricsRegistry.Counter HIT_COUNTER = MetricsRegistry.getDefault().counter("ga_simulation_cache_hits_total", "Simulations found in a simulation cache");
+    private static final MetricsRegistry.Counter MISS_COUNTER = MetricsRegistry.getDefault().counter("ga_simulation_cache_misses_total", "Simulations missing from a simulation cache");
+
+    static {
+        MetricsRegistry.getDefault().gauge("ga_simulation_cache_hit_ratio", "Share of the simulation cache lookups that hit, every cache of the process together", () -> {
+            long hits = HIT_COUNTER.get();
+            long lookups = hits + MISS_COUNTER.get();
+            return lookups > 0 ? (double) hits / lookups : 0;
+        });
+    }
+
+    private final Map<Key, SimulationData> entries;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+
+    public SimulationCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SimulationData> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
+    /**
+     * @return The cached simulation of the genome at that horizon, null when there is none.
+     */
+    public SimulationData get(ReactorGenome genome, int maxTicks) {
+        SimulationData simulationData;
+        synchronized (this.entries) {
+            simulationData = this.entries.get(new Key(genome, maxTicks));
+        }
+
+        if (simulationData != null) {
+            this.hitCount.incrementAndGet();
+            HIT_COUNTER.increment();
+        } else {
+            this.missCount.incrementAndGet();
+            MISS_COUNTER.increment();
+        }
+        return simulationData;
+    }
+
+    public void put(ReactorGenome genome, int maxTicks, SimulationData simulationData) {
+        // The genome is copied, the caller may go on mutating it
+        Key key = new Key(genome.copy(), maxTicks);
+        synchronized (this.entries) {
+            this.entries.put(key, simulationData);
+        }
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    private static class Key {
+        private final ReactorGenome genome;
+        private final int maxTicks;
+
+        public Key(ReactorGenome genome, int maxTicks) {
+            this.genome = genome;
+            this.maxTicks = maxTicks;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return this.maxTicks == key.maxTicks && this.genome.equals(key.genome);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.genome, this.maxTicks);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.Reactor;
+import Ic2ExpReactorPlanner.ReactorSimulator;
+import Ic2ExpReactorPlanner.SimulationData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs batches of genome simulations on a thread pool, one {@link ReactorSimulator} per thread.
+ */
+public class SimulationPool {
+    /** Tick horizon meaning "simulate until the reactor stops on its own", cooldown included. */
+    public static final int FULL_SIMULATION = -1;
+
+    static final MetricsRegistry.Counter SIMULATION_COUNTER = MetricsRegistry.getDefault().counter("ga_simulations_total", "Genomes simulated, locally or by remote workers");
+    static final MetricsRegistry.Counter TICK_COUNTER = MetricsRegistry.getDefault().counter("ga_simulation_ticks_total", "Reactor and cooldown ticks simulated in this process");
+    private static final MetricsRegistry.Histogram QUEUE_WAIT = MetricsRegistry.getDefault().histogram("ga_simulation_queue_wait_seconds", "Time simulations wait for a thread of the pool", 0.0001, 0.001, 0.01, 0.1, 1, 10, 60);
+
+    private final ExecutorService executor;
+    private final ThreadLocal<ReactorSimulator> simulatorThreadLocal;
+    private final AtomicLong simulationCount;
+    private volatile SimulationWatchdog watchdog;
+
+    public SimulationPool(ExecutorService executor) {
+        this.executor = executor;
+        this.simulatorThreadLocal = ThreadLocal.withInitial(ReactorSimulator::new);
+        this.simulationCount = new AtomicLong();
+    }
+
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * @return How many genomes the pool has simulated so far, whatever their horizon.
+     */
+    public long getSimulationCount() {
+        return this.simulationCount.get();
+    }
+
+    /**
+     * Limits the simulations the pool runs itself, see {@link SimulationWatchdog}. Null for no limits.
+     */
+    public void setWatchdog(SimulationWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    public SimulationWatchdog getWatchdog() {
+        return this.watchdog;
+    }
+
+    protected void countSimulations(int count) {
+        this.simulationCount.addAndGet(count);
+    }
+
+    public List<SimulationData> simulate(List<ReactorGenome> genomes) {
+        return simulate(genomes, FULL_SIMULATION);
+    }
+
+    /**
+     * Simulates every genome in parallel.
+     *
+     * @param genomes  The genomes to simulate. They are copied before being handed to the simulation threads.
+     * @param maxTicks The tick horizon of the simulations, or {@link #FULL_SIMULATION}. Cooldown isn't simulated for
+     *                 limited horizons.
+     * @return The simulation data, in the same order as the genomes.
+     */
+    public List<SimulationData> simulate(List<ReactorGenome> genomes, int maxTicks) {
+        // thread creation
+        List<Future<SimulationData>> simulationFutures = new ArrayList<>(genomes.size());
+        for (ReactorGenome genome : genomes) {
+            final ReactorGenome genomeForThread = genome.copy();
+
+            long submitTime = System.nanoTime();
+            Callable<SimulationData> task = () -> {
+                QUEUE_WAIT.observe((System.nanoTime() - submitTime) / 1e9);
+                return simulateGenome(genomeForThread, maxTicks);
+            };
+            simulationFutures.add(this.executor.submit(task));
+        }
+
+        countSimulations(genomes.size());
+
+        // data gathering from threads
+        List<SimulationData> simulationResults = new ArrayList<>(genomes.size());
+        for (Future<SimulationData> simulationFuture : simulationFutures) {
+            try {
+                simulationResults.add(simulationFuture.get());
+            } catch (Exception e) {
+                Logger.log(e, "A simulation thread failed");
+                simulationResults.add(new SimulationData());
+            }
+        }
+
+        return simulationResults;
+    }
+
+    /**
+     * Releases whatever the pool holds besides the executor, which belongs to whoever created it.
+     */
+    public void close() {
+    }
+
+    private SimulationData simulateGenome(ReactorGenome genome, int maxTicks) {
+        ReactorSimulator threadSimulator = this.simulatorThreadLocal.get();
+        threadSimulator.resetState();
+        threadSimulator.setCooldownSimulationEnabled(maxTicks == FULL_SIMULATION);
+        SimulationWatchdog simulationWatchdog = this.watchdog;
+        // Simulators are reused, a watchdog removed since the last simulation must not leave its limits behind
+        if (simulationWatchdog != null)
+            simulationWatchdog.configure(threadSimulator);
+        else
+            threadSimulator.setWatchdog(0, 0);
+
+        Reactor reactor = genome.toReactor();
+        if (maxTicks != FULL_SIMULATION)
+            reactor.setMaxSimulationTicks(maxTicks);
+
+        long startCpuTime = FairShareExecutor.currentThreadCpuTime();
+        SimulationData simulationData = threadSimulator.runSimulation(reactor);
+        simulationData.cpuTimeNanos = FairShareExecutor.currentThreadCpuTime() - startCpuTime;
+        // Counted as they finish, for a steady rate
+        SIMULATION_COUNTER.increment();
+        TICK_COUNTER.add(threadSimulator.getReactorTicks() + threadSimulator.getCooldownTicks());
+        if (simulationWatchdog != null)
+            simulationWatchdog.record(genome, simulationData, threadSimulator.getReactorTicks());
+        return simulationData;
+    }
+}
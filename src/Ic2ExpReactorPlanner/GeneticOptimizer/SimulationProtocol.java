@@ -0,0 +1,132 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary protocol between a {@link RemoteSimulationPool} and its {@link SimulationWorker}s.
+ * <p>
+ * Every frame is a type byte, the payload length as an int, then the payload. A worker connects and sends
+ * {@link #FRAME_HELLO} (protocol version, simulation thread count). The pool answers with {@link #FRAME_SETUP} (GTNH
+ * fuel behavior, heartbeat interval, config as JSON), then sends {@link #FRAME_BATCH}es of packed genomes whenever the
+ * worker has room for them. The worker answers each one with a {@link #FRAME_RESULTS}, in whatever order the batches
+ * finish, and sends a {@link #FRAME_HEARTBEAT} every heartbeat interval. A worker quiet for longer than the pool's
+ * heartbeat timeout is considered dead.
+ * <p>
+ * Results only carry the simulation fields the optimizer reads, 33 bytes per genome, see {@link #writeMetrics}.
+ */
+public final class SimulationProtocol {
+    public static final int VERSION = 2;
+
+    public static final byte FRAME_HELLO = 1;
+    public static final byte FRAME_SETUP = 2;
+    public static final byte FRAME_BATCH = 3;
+    public static final byte FRAME_RESULTS = 4;
+    public static final byte FRAME_HEARTBEAT = 5;
+
+    private SimulationProtocol() {}
+
+    public static class Frame {
+        private final byte type;
+        private final byte[] payload;
+
+        public Frame(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+        public byte getType() {
+            return this.type;
+        }
+
+        public DataInputStream getPayload() {
+            return new DataInputStream(new ByteArrayInputStream(this.payload));
+        }
+    }
+
+    /**
+     * Builds a frame's payload.
+     */
+    public interface PayloadWriter {
+        void write(DataOutputStream payload) throws IOException;
+    }
+
+    /**
+     * Writes and flushes a frame. Frames from several threads never interleave as long as they share the stream.
+     */
+    public static void writeFrame(DataOutputStream output, byte type, PayloadWriter payloadWriter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream payload = new DataOutputStream(bytes)) {
+            payloadWriter.write(payload);
+        }
+
+        synchronized (output) {
+            output.writeByte(type);
+            output.writeInt(bytes.size());
+            bytes.writeTo(output);
+            output.flush();
+        }
+    }
+
+    public static Frame readFrame(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        int length = input.readInt();
+        if (length < 0)
+            throw new IOException("Corrupted frame of type " + type);
+
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+        return new Frame(type, payload);
+    }
+
+    public static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    public static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the fields of a simulation the optimizer reads: average EU/t, max and final hull heat, first component
+     * break, simulated ticks and whether the watchdog aborted the simulation.
+     */
+    public static void writeMetrics(DataOutput output, SimulationData simulationData) throws IOException {
+        output.writeDouble(simulationData.avgEUOutput);
+        output.writeDouble(simulationData.maxTemp);
+        output.writeDouble(simulationData.finalTemp);
+        output.writeInt(simulationData.firstComponentBrokenTime);
+        output.writeInt(simulationData.totalReactorTicks);
+        output.writeBoolean(simulationData.aborted);
+    }
+
+    /**
+     * @return Simulation data holding the fields written by {@link #writeMetrics}, every other one at its default.
+     */
+    public static SimulationData readMetrics(DataInput input) throws IOException {
+        SimulationData simulationData = new SimulationData();
+        simulationData.avgEUOutput = input.readDouble();
+        simulationData.maxTemp = input.readDouble();
+        simulationData.finalTemp = input.readDouble();
+        simulationData.firstComponentBrokenTime = input.readInt();
+        simulationData.totalReactorTicks = input.readInt();
+        simulationData.aborted = input.readBoolean();
+        return simulationData;
+    }
+
+    public static List<SimulationData> readMetricsList(DataInput input) throws IOException {
+        int count = input.readInt();
+        List<SimulationData> simulationResults = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            simulationResults.add(readMetrics(input));
+        return simulationResults;
+    }
+}
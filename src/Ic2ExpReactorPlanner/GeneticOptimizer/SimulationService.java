@@ -0,0 +1,314 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.Reactor;
+import Ic2ExpReactorPlanner.ReactorSimulator;
+import Ic2ExpReactorPlanner.SimulationData;
+import Ic2ExpReactorPlanner.components.FuelRod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless HTTP service simulating reactors from their ERP codes, so other tools can score designs without starting
+ * the planner.
+ * <p>
+ * Usage: {@code SimulationService [config]}, settings in the config's {@code "service"} section.
+ * <ul>
+ * <li>{@code POST /simulate} with {@code {"code": "erp=..."}} or {@code {"codes": ["erp=...", ...]}}, and optionally
+ * {@code "timeoutMs"}, answers {@code {"results": [...]}} in request order. Each result holds the canonical
+ * {@code code} and either the full {@code simulation} data or an {@code error}.</li>
+ * <li>{@code GET /status} answers counters about the cache and the simulation queue.</li>
+ * </ul>
+ * Simulations run on a bounded pool. Results are kept in an LRU cache keyed by the canonical code, and requests for a
+ * reactor that is already being simulated wait for that simulation instead of starting another one. A simulation
+ * still running when its request times out carries on and lands in the cache for the next request.
+ * <p>
+ * Only "erp=" codes (with or without the prefix) are accepted, the older formats report their problems through dialogs.
+ */
+public class SimulationService {
+    private static final String ERP_PREFIX = "erp=";
+
+    private final GAConfig.ServiceConfig serviceConfig;
+    private final Gson gson;
+    private final HttpServer server;
+    private final ExecutorService httpExecutor;
+    private final ThreadPoolExecutor simulationExecutor;
+    private final ThreadLocal<ReactorSimulator> simulatorThreadLocal;
+
+    private final Map<String, SimulationData> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<SimulationData>> inFlight;
+    private final AtomicLong cacheHits;
+    private final AtomicLong coalescedRequests;
+    private final AtomicLong simulations;
+
+    /**
+     * Binds the service, {@link #start()} makes it answer.
+     *
+     * @throws IOException If the address can't be bound.
+     */
+    public SimulationService(GAConfig config) throws IOException {
+        this.serviceConfig = config.service;
+        this.gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+        this.simulatorThreadLocal = ThreadLocal.withInitial(ReactorSimulator::new);
+
+        int threadCount = this.serviceConfig.threads > 0 ? this.serviceConfig.threads : Runtime.getRuntime().availableProcessors();
+        this.simulationExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, this.serviceConfig.queueCapacity)));
+        this.httpExecutor = Executors.newFixedThreadPool(Math.max(4, threadCount));
+
+        int cacheSize = this.serviceConfig.cacheSize;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SimulationData> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.inFlight = new ConcurrentHashMap<>();
+        this.cacheHits = new AtomicLong();
+        this.coalescedRequests = new AtomicLong();
+        this.simulations = new AtomicLong();
+
+        this.server = HttpServer.create(new InetSocketAddress(this.serviceConfig.bindAddress, this.serviceConfig.port), 0);
+        this.server.setExecutor(this.httpExecutor);
+        this.server.createContext("/simulate", this::handleSimulate);
+        this.server.createContext("/status", this::handleStatus);
+    }
+
+    public void start() {
+        this.server.start();
+        Logger.log("Simulation service listening on %s:%d", this.serviceConfig.bindAddress, getPort());
+    }
+
+    /**
+     * Stops answering, running simulations are abandoned.
+     */
+    public void stop() {
+        this.server.stop(0);
+        this.httpExecutor.shutdownNow();
+        this.simulationExecutor.shutdownNow();
+    }
+
+    /**
+     * @return The port the service answers on, useful when {@code service.port} is 0.
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    private void handleSimulate(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST");
+                return;
+            }
+
+            SimulationRequest request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = this.gson.fromJson(new String(body.readAllBytes(), StandardCharsets.UTF_8), SimulationRequest.class);
+            } catch (JsonParseException e) {
+                sendError(exchange, 400, "Malformed request: " + e.getMessage());
+                return;
+            }
+
+            List<String> codes = new ArrayList<>();
+            if (request != null && request.code != null)
+                codes.add(request.code);
+            if (request != null && request.codes != null)
+                codes.addAll(request.codes);
+            if (codes.isEmpty()) {
+                sendError(exchange, 400, "Expected \"code\" or \"codes\"");
+                return;
+            }
+            if (codes.size() > this.serviceConfig.maxBatchSize) {
+                sendError(exchange, 413, "At most " + this.serviceConfig.maxBatchSize + " codes per request");
+                return;
+            }
+
+            long timeoutMs = request.timeoutMs > 0 ? Math.min(request.timeoutMs, this.serviceConfig.timeoutMs) : this.serviceConfig.timeoutMs;
+            sendJson(exchange, 200, new SimulationResponse(simulateAll(codes, System.nanoTime() + timeoutMs * 1_000_000L)));
+        } catch (RuntimeException e) {
+            Logger.log(e, "Simulation request failed");
+            sendError(exchange, 500, e.toString());
+        }
+    }
+
+    private List<SimulationResult> simulateAll(List<String> codes, long deadline) {
+        // Everything is queued before anything is waited on, so a batch simulates in parallel
+        List<SimulationResult> results = new ArrayList<>(codes.size());
+        List<CompletableFuture<SimulationData>> futures = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            SimulationResult result = new SimulationResult();
+            results.add(result);
+            try {
+                Reactor reactor = decode(code);
+                result.code = reactor.getCode();
+                futures.add(simulate(result.code, reactor));
+            } catch (RuntimeException e) {
+                result.code = code;
+                result.error = "Invalid code: " + e.getMessage();
+                futures.add(null);
+            }
+        }
+
+        for (int i = 0; i < codes.size(); i++) {
+            CompletableFuture<SimulationData> future = futures.get(i);
+            if (future == null)
+                continue;
+
+            SimulationResult result = results.get(i);
+            try {
+                result.simulation = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                result.error = "Timed out";
+            } catch (ExecutionException e) {
+                result.error = e.getCause() instanceof RejectedExecutionException ? "Too many simulations queued" : "Simulation failed: " + e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.error = "Interrupted";
+            }
+        }
+
+        return results;
+    }
+
+    private CompletableFuture<SimulationData> simulate(String code, Reactor reactor) {
+        SimulationData cached = this.cache.get(code);
+        if (cached != null) {
+            this.cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<SimulationData> simulation = new CompletableFuture<>();
+        CompletableFuture<SimulationData> running = this.inFlight.putIfAbsent(code, simulation);
+        if (running != null) {
+            this.coalescedRequests.incrementAndGet();
+            return running;
+        }
+
+        // A simulation may have been cached and left the in-flight map since the first look
+        cached = this.cache.get(code);
+        if (cached != null) {
+            this.inFlight.remove(code, simulation);
+            this.cacheHits.incrementAndGet();
+            simulation.complete(cached);
+            return simulation;
+        }
+
+        try {
+            this.simulationExecutor.execute(() -> {
+                try {
+                    ReactorSimulator simulator = this.simulatorThreadLocal.get();
+                    simulator.resetState();
+                    SimulationData simulationData = simulator.runSimulation(reactor);
+                    this.simulations.incrementAndGet();
+                    // Cached before leaving the in-flight map, a request missing both looks at the cache again
+                    this.cache.put(code, simulationData);
+                    simulation.complete(simulationData);
+                } catch (RuntimeException e) {
+                    simulation.completeExceptionally(e);
+                } finally {
+                    this.inFlight.remove(code);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.inFlight.remove(code);
+            simulation.completeExceptionally(e);
+        }
+
+        return simulation;
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("cachedResults", this.cache.size());
+        status.put("cacheHits", this.cacheHits.get());
+        status.put("coalescedRequests", this.coalescedRequests.get());
+        status.put("simulations", this.simulations.get());
+        status.put("runningSimulations", this.simulationExecutor.getActiveCount());
+        status.put("queuedSimulations", this.simulationExecutor.getQueue().size());
+        sendJson(exchange, 200, status);
+    }
+
+    private static Reactor decode(String code) {
+        String trimmedCode = code.trim();
+        if (!trimmedCode.startsWith(ERP_PREFIX))
+            trimmedCode = ERP_PREFIX + trimmedCode;
+        if (!trimmedCode.substring(ERP_PREFIX.length()).matches("[0-9A-Za-z+/=]+"))
+            throw new IllegalArgumentException("not an ERP code");
+
+        Reactor reactor = new Reactor();
+        reactor.setCode(trimmedCode);
+        return reactor;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", message));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = this.gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static class SimulationRequest {
+        public String code;
+        public List<String> codes;
+        public long timeoutMs;
+    }
+
+    private static class SimulationResponse {
+        public final List<SimulationResult> results;
+
+        public SimulationResponse(List<SimulationResult> results) {
+            this.results = results;
+        }
+    }
+
+    private static class SimulationResult {
+        public String code;
+        public SimulationData simulation;
+        public String error;
+    }
+
+    public static void main(String[] args) {
+        GAConfig config = GAConfig.loadConfig(args.length > 0 ? args[0] : null);
+        if (config == null || config.service == null) {
+            System.exit(1);
+        }
+
+        Path logDirectory = Paths.get("logs");
+        try {
+            Logger.setLogFileFromDirectory("SimulationService", logDirectory);
+        } catch (IOException e) {
+            Logger.log(e, "Could not validate log directory '" + logDirectory + "'");
+        }
+        Logger.setLevel(config.getLogLevel());
+        // Runs until the process ends
+        MetricsExporter.start(config);
+
+        FuelRod.setGTNHBehavior(config.service.gtnh);
+
+        try {
+            new SimulationService(config).start();
+        } catch (IOException e) {
+            Logger.log(e, "Could not start the simulation service");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ReactorSimulator;
+import Ic2ExpReactorPlanner.SimulationData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the simulations of a {@link SimulationPool} within the {@code watchdog} limits of the config, and remembers
+ * the slowest 1% of them for profiling.
+ * <p>
+ * The limits are enforced by the simulators themselves, see {@link ReactorSimulator#setWatchdog}: an aborted
+ * simulation ends with the tick it was on, on the thread it ran on. The slowest simulations are kept in a heap growing
+ * with the simulation count, so what {@link #writeSlowGenomes} writes is close to, not exactly, the 99th percentile.
+ */
+public class SimulationWatchdog {
+    private static final int SLOW_GENOME_FRACTION = 100;
+
+    private final int maxTicks;
+    private final long maxNanos;
+    private final int maxSlowGenomes;
+
+    // Fastest of the slow simulations on top, so it's the one replaced
+    private final PriorityQueue<SlowGenome> slowGenomes;
+    private long simulationCount;
+    private final AtomicLong abortedCount;
+
+    public SimulationWatchdog(GAConfig.WatchdogConfig watchdogConfig) {
+        this.maxTicks = Math.max(0, watchdogConfig.maxTicks);
+        this.maxNanos = Math.max(0, watchdogConfig.maxMillis) * 1_000_000L;
+        this.maxSlowGenomes = Math.max(0, watchdogConfig.maxSlowGenomes);
+        this.slowGenomes = new PriorityQueue<>(Comparator.comparingLong(slowGenome -> slowGenome.nanos));
+        this.abortedCount = new AtomicLong();
+    }
+
+    /**
+     * Sets the limits on a simulator, before each simulation since simulators are reused.
+     */
+    public void configure(ReactorSimulator simulator) {
+        simulator.setWatchdog(this.maxTicks, this.maxNanos);
+    }
+
+    /**
+     * Takes note of a finished simulation.
+     *
+     * @param genome The simulated genome, kept as is if it's among the slowest.
+     * @param ticks  How many ticks the simulation ran, cooldown excluded.
+     */
+    public void record(ReactorGenome genome, SimulationData simulationData, int ticks) {
+        long nanos = simulationData.endTime - simulationData.startTime;
+        if (simulationData.aborted) {
+            this.abortedCount.incrementAndGet();
+            Logger.log(Logger.LogLevel.DEBUG, () -> String.format("Simulation aborted after %d ticks and %.1fms: %s", ticks, nanos / 1e6, genome.getERPCode()));
+        }
+
+        synchronized (this.slowGenomes) {
+            this.simulationCount++;
+            int capacity = (int) Math.min(this.maxSlowGenomes, (this.simulationCount + SLOW_GENOME_FRACTION - 1) / SLOW_GENOME_FRACTION);
+            if (capacity == 0)
+                return;
+
+            if (this.slowGenomes.size() < capacity) {
+                this.slowGenomes.add(new SlowGenome(genome, nanos, ticks, simulationData.aborted));
+            } else if (nanos > this.slowGenomes.peek().nanos) {
+                this.slowGenomes.poll();
+                this.slowGenomes.add(new SlowGenome(genome, nanos, ticks, simulationData.aborted));
+            }
+        }
+    }
+
+    public long getAbortedCount() {
+        return this.abortedCount.get();
+    }
+
+    /**
+     * Writes the slowest simulated genomes as a seed file, slowest first, so they can be loaded in the planner or
+     * replayed under a profiler.
+     *
+     * @return How many genomes were written.
+     */
+    public int writeSlowGenomes(Path path) throws IOException {
+        List<SlowGenome> sorted;
+        long count;
+        synchronized (this.slowGenomes) {
+            sorted = new ArrayList<>(this.slowGenomes);
+            count = this.simulationCount;
+        }
+        sorted.sort(Comparator.comparingLong((SlowGenome slowGenome) -> slowGenome.nanos).reversed());
+
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.format(Locale.ROOT, "// Slowest %d of %d simulations, %d aborted by the watchdog", sorted.size(), count, getAbortedCount()));
+            writer.newLine();
+
+            for (int i = 0; i < sorted.size(); i++) {
+                SlowGenome slowGenome = sorted.get(i);
+                writer.newLine();
+                writer.write(String.format(Locale.ROOT, "# %d - %.1fms, %d ticks%s", i + 1, slowGenome.nanos / 1e6, slowGenome.ticks, slowGenome.aborted ? ", aborted" : ""));
+                writer.newLine();
+                writer.write(slowGenome.genome.getERPCode());
+                writer.newLine();
+            }
+        }
+
+        return sorted.size();
+    }
+
+    private static class SlowGenome {
+        public final ReactorGenome genome;
+        public final long nanos;
+        public final int ticks;
+        public final boolean aborted;
+
+        public SlowGenome(ReactorGenome genome, long nanos, int ticks, boolean aborted) {
+            this.genome = genome;
+            this.nanos = nanos;
+            this.ticks = ticks;
+            this.aborted = aborted;
+        }
+    }
+}
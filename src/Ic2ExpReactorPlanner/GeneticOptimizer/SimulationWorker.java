@@ -0,0 +1,164 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.SimulationData;
+import Ic2ExpReactorPlanner.components.FuelRod;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates batches of genomes for a {@link RemoteSimulationPool}, possibly on another machine.
+ * <p>
+ * Usage: {@code SimulationWorker <host> <port> [threads]}. The worker connects to the pool, simulates whatever it is
+ * sent on {@code threads} threads (all cores by default) and reconnects whenever the pool goes away, so it can be left
+ * running across optimizer runs.
+ */
+public class SimulationWorker {
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final String host;
+    private final int port;
+    private final int threadCount;
+    private volatile Socket socket;
+
+    public SimulationWorker(String host, int port, int threadCount) {
+        this.host = host;
+        this.port = port;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Serves one pool until it closes the connection.
+     *
+     * @throws IOException If the pool can't be reached or the connection breaks.
+     */
+    public void serve() throws IOException {
+        ExecutorService simulationThreads = Executors.newFixedThreadPool(this.threadCount);
+        ExecutorService batchThreads = Executors.newCachedThreadPool();
+        ScheduledExecutorService heartbeatThread = Executors.newSingleThreadScheduledExecutor();
+
+        try (Socket socket = new Socket(this.host, this.port)) {
+            this.socket = socket;
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            SimulationProtocol.writeFrame(output, SimulationProtocol.FRAME_HELLO, payload -> {
+                payload.writeInt(SimulationProtocol.VERSION);
+                payload.writeInt(this.threadCount);
+            });
+
+            SimulationProtocol.Frame setup = SimulationProtocol.readFrame(input);
+            if (setup.getType() != SimulationProtocol.FRAME_SETUP)
+                throw new IOException("Expected a setup, got frame type " + setup.getType());
+            DataInputStream setupPayload = setup.getPayload();
+            FuelRod.setGTNHBehavior(setupPayload.readBoolean());
+            int heartbeatIntervalMs = Math.max(1, setupPayload.readInt());
+            GAConfig config = GAConfig.fromJson(SimulationProtocol.readString(setupPayload));
+            Logger.setLevel(config.getLogLevel());
+            SimulationPool simulationPool = new SimulationPool(simulationThreads);
+            // Same limits as local simulations, the slowest genomes are only written by the optimizer's own pool
+            if (config.isWatchdogEnabled())
+                simulationPool.setWatchdog(new SimulationWatchdog(config.watchdog));
+
+            Logger.log("Connected to %s:%d, simulating on %d threads", this.host, this.port, this.threadCount);
+
+            heartbeatThread.scheduleAtFixedRate(() -> {
+                try {
+                    SimulationProtocol.writeFrame(output, SimulationProtocol.FRAME_HEARTBEAT, payload -> {});
+                } catch (IOException e) {
+                    // The reading loop notices too
+                }
+            }, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+
+            while (true) {
+                SimulationProtocol.Frame frame;
+                try {
+                    frame = SimulationProtocol.readFrame(input);
+                } catch (EOFException e) {
+                    return;
+                }
+
+                if (frame.getType() != SimulationProtocol.FRAME_BATCH)
+                    throw new IOException("Unexpected frame type " + frame.getType());
+
+                DataInputStream batch = frame.getPayload();
+                long batchId = batch.readLong();
+                int maxTicks = batch.readInt();
+                int genomeCount = batch.readInt();
+                List<ReactorGenome> genomes = new ArrayList<>(genomeCount);
+                for (int i = 0; i < genomeCount; i++)
+                    genomes.add(ReactorGenome.readPacked(config, batch));
+
+                // Pipelined batches share the simulation threads
+                batchThreads.submit(() -> {
+                    List<SimulationData> simulationResults = simulationPool.simulate(genomes, maxTicks);
+                    try {
+                        SimulationProtocol.writeFrame(output, SimulationProtocol.FRAME_RESULTS, payload -> {
+                            payload.writeLong(batchId);
+                            payload.writeInt(simulationResults.size());
+                            for (SimulationData simulationData : simulationResults)
+                                SimulationProtocol.writeMetrics(payload, simulationData);
+                        });
+                    } catch (IOException e) {
+                        Logger.log(Logger.LogLevel.DEBUG, "Could not send the results of batch %d: %s", batchId, e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            this.socket = null;
+            heartbeatThread.shutdownNow();
+            batchThreads.shutdownNow();
+            simulationThreads.shutdownNow();
+        }
+    }
+
+    /**
+     * Drops the current connection, making {@link #serve()} return.
+     */
+    public void disconnect() {
+        Socket currentSocket = this.socket;
+        if (currentSocket == null)
+            return;
+
+        try {
+            currentSocket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: SimulationWorker <host> <port> [threads]");
+            System.exit(2);
+        }
+
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SimulationWorker worker = new SimulationWorker(host, port, threadCount);
+
+        while (true) {
+            try {
+                worker.serve();
+                Logger.log("Disconnected from %s:%d", host, port);
+            } catch (ConnectException e) {
+                Logger.log(Logger.LogLevel.DEBUG, "Nothing listening on %s:%d yet", host, port);
+            } catch (IOException e) {
+                Logger.log(Logger.LogLevel.WARNING, "Connection to %s:%d lost: %s", host, port, e.getMessage());
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
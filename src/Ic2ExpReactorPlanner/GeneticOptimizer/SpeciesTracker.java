@@ -0,0 +1,341 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps track of species across generations.
+ * <p>
+ * Species representatives persist from one generation to the next. Every genome first gets compared to the species of
+ * its parents (see {@link ReactorGenome#getSpeciesId()}), then to the other known species, and only becomes the
+ * representative of a new species if nothing matches. Assignment runs in parallel chunks against the representatives
+ * known at the start of the generation; the species each chunk discovers are merged afterward in chunk order.
+ * <p>
+ * Chunks have a fixed size so the outcome never depends on the number of threads.
+ */
+public class SpeciesTracker {
+    private static final int CHUNK_SIZE = 64;
+
+    private final GAConfig config;
+    private final ExecutorService executor;
+
+    private final List<Species> species;
+    private int nextSpeciesId;
+
+    public SpeciesTracker(GAConfig config, ExecutorService executor) {
+        this.config = config;
+        this.executor = executor;
+        this.species = new ArrayList<>();
+        this.nextSpeciesId = 0;
+    }
+
+    /**
+     * Assigns every genome of the population to a species, updates the representatives and drops extinct species.
+     * The genomes' species hints are updated to their new species.
+     *
+     * @param evaluatedPopulation The evaluated population of the current generation.
+     * @return The per-species statistics of the generation.
+     */
+    public SpeciesSummary update(List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation) {
+        if (evaluatedPopulation.isEmpty())
+            return new SpeciesSummary(Collections.emptyList(), 0);
+
+        Map<Integer, Species> knownSpecies = new HashMap<>();
+        for (Species current : this.species)
+            knownSpecies.put(current.id, current);
+
+        // Parallel assignment against the species known at the start of the generation
+        List<Future<ChunkAssignment>> chunkFutures = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < evaluatedPopulation.size(); chunkStart += CHUNK_SIZE) {
+            final int start = chunkStart;
+            final int end = Math.min(chunkStart + CHUNK_SIZE, evaluatedPopulation.size());
+
+            Callable<ChunkAssignment> task = () -> assignChunk(evaluatedPopulation, start, end, knownSpecies);
+            chunkFutures.add(this.executor.submit(task));
+        }
+
+        int[] assignments = new int[evaluatedPopulation.size()];
+        List<Species> discoveredSpecies = new ArrayList<>();
+        int chunkStart = 0;
+        boolean interrupted = false;
+        for (Future<ChunkAssignment> chunkFuture : chunkFutures) {
+            int chunkEnd = Math.min(chunkStart + CHUNK_SIZE, evaluatedPopulation.size());
+            ChunkAssignment chunk = null;
+            while (chunk == null) {
+                try {
+                    chunk = chunkFuture.get();
+                } catch (InterruptedException e) {
+                    // The chunks are short, wait them out: the species below can't change while a thread still reads them
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Logger.log(e.getCause(), "A species assignment thread failed, assigning its chunk serially");
+                    chunk = assignChunk(evaluatedPopulation, chunkStart, chunkEnd, knownSpecies);
+                }
+            }
+            int[] localToGlobal = mergeDiscoveredSpecies(chunk.newRepresentatives, discoveredSpecies);
+
+            for (int i = 0; i < chunk.assignments.length; i++) {
+                int assignment = chunk.assignments[i];
+                assignments[chunkStart + i] = assignment >= 0 ? assignment : localToGlobal[-assignment - 1];
+            }
+
+            chunkStart = chunkEnd;
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        Map<Integer, Species> updatedSpecies = new HashMap<>();
+        for (Species current : this.species)
+            updatedSpecies.put(current.id, current);
+        for (Species current : discoveredSpecies)
+            updatedSpecies.put(current.id, current);
+
+        for (Species current : updatedSpecies.values())
+            current.resetGeneration();
+
+        // Gather the statistics and move the representatives to their species' champion
+        for (int i = 0; i < evaluatedPopulation.size(); i++) {
+            EvolutionEngine.EvaluatedGenome evaluatedGenome = evaluatedPopulation.get(i);
+            Species assignedSpecies = updatedSpecies.get(assignments[i]);
+            if (assignedSpecies == null)
+                continue;
+
+            evaluatedGenome.getGenome().setSpeciesId(assignedSpecies.id);
+            assignedSpecies.memberCount++;
+            if (assignedSpecies.champion == null || evaluatedGenome.getFitness() > assignedSpecies.champion.getFitness())
+                assignedSpecies.champion = evaluatedGenome;
+        }
+
+        this.species.addAll(discoveredSpecies);
+        this.species.removeIf(current -> current.memberCount == 0);
+
+        List<SpeciesStats> speciesStats = new ArrayList<>(this.species.size());
+        for (Species current : this.species) {
+            current.representative = current.champion.getGenome().copy();
+            current.age++;
+            speciesStats.add(new SpeciesStats(current.id, current.memberCount, current.champion.getFitness(), current.age, current.representative));
+        }
+
+        return new SpeciesSummary(speciesStats, evaluatedPopulation.size());
+    }
+
+    /**
+     * @return The number of species still alive after the last update.
+     */
+    public int getSpeciesCount() {
+        return this.species.size();
+    }
+
+    /**
+     * Writes the species carried over to the next generation (id, age and representative), for checkpoints.
+     */
+    public void writeState(DataOutput output) throws IOException {
+        output.writeInt(this.nextSpeciesId);
+        output.writeInt(this.species.size());
+        for (Species current : this.species) {
+            output.writeInt(current.id);
+            output.writeInt(current.age);
+            current.representative.writePacked(output);
+        }
+    }
+
+    /**
+     * Replaces the tracked species with the ones written by {@link #writeState(DataOutput)}.
+     */
+    public void readState(DataInput input) throws IOException {
+        this.species.clear();
+        this.nextSpeciesId = input.readInt();
+        int speciesCount = input.readInt();
+        for (int i = 0; i < speciesCount; i++) {
+            int id = input.readInt();
+            int age = input.readInt();
+            Species current = new Species(id, ReactorGenome.readPacked(this.config, input));
+            current.age = age;
+            this.species.add(current);
+        }
+    }
+
+    /**
+     * Picks the best genome of up to {@code count} distinct species, the alpha always being the first.
+     *
+     * @param sortedPopulation The candidates, the best fitness first.
+     */
+    public static List<EvolutionEngine.EvaluatedGenome> selectTopSpecies(GAConfig config, List<EvolutionEngine.EvaluatedGenome> sortedPopulation, int count) {
+        List<EvolutionEngine.EvaluatedGenome> topSpecies = new ArrayList<>();
+        if (sortedPopulation.isEmpty())
+            return topSpecies;
+
+        // Always add the alpha
+        topSpecies.add(sortedPopulation.get(0));
+
+        for (EvolutionEngine.EvaluatedGenome candidate : sortedPopulation) {
+            if (topSpecies.size() >= count) break;
+
+            boolean distinctSpecies = true;
+            for (EvolutionEngine.EvaluatedGenome champion : topSpecies) {
+                if (ReactorGenome.calculateSimilarity(config, champion.getGenome(), candidate.getGenome()) > config.speciation.speciesSimilarityThreshold) {
+                    distinctSpecies = false;
+                    break;
+                }
+            }
+
+            if (distinctSpecies)
+                topSpecies.add(candidate);
+        }
+
+        return topSpecies;
+    }
+
+    private ChunkAssignment assignChunk(List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation, int start, int end, Map<Integer, Species> knownSpecies) {
+        ChunkAssignment chunk = new ChunkAssignment(end - start);
+
+        for (int i = start; i < end; i++) {
+            ReactorGenome genome = evaluatedPopulation.get(i).getGenome();
+            chunk.assignments[i - start] = findSpecies(genome, knownSpecies, chunk.newRepresentatives);
+        }
+
+        return chunk;
+    }
+
+    // Returns a known species id, or -(index + 1) of a representative newly discovered by the chunk
+    private int findSpecies(ReactorGenome genome, Map<Integer, Species> knownSpecies, List<ReactorGenome> newRepresentatives) {
+        // Start with the parents' species, it's usually a match
+        Species hintedSpecies = knownSpecies.get(genome.getSpeciesId());
+        if (hintedSpecies != null && isSameSpecies(genome, hintedSpecies.representative))
+            return hintedSpecies.id;
+
+        for (Species current : this.species) {
+            if (current != hintedSpecies && isSameSpecies(genome, current.representative))
+                return current.id;
+        }
+
+        for (int i = 0; i < newRepresentatives.size(); i++) {
+            if (isSameSpecies(genome, newRepresentatives.get(i)))
+                return -i - 1;
+        }
+
+        newRepresentatives.add(genome);
+        return -newRepresentatives.size();
+    }
+
+    private int[] mergeDiscoveredSpecies(List<ReactorGenome> newRepresentatives, List<Species> discoveredSpecies) {
+        int[] localToGlobal = new int[newRepresentatives.size()];
+
+        for (int i = 0; i < newRepresentatives.size(); i++) {
+            ReactorGenome representative = newRepresentatives.get(i);
+
+            Species match = null;
+            for (Species discovered : discoveredSpecies) {
+                if (isSameSpecies(representative, discovered.representative)) {
+                    match = discovered;
+                    break;
+                }
+            }
+
+            if (match == null) {
+                match = new Species(this.nextSpeciesId++, representative);
+                discoveredSpecies.add(match);
+            }
+
+            localToGlobal[i] = match.id;
+        }
+
+        return localToGlobal;
+    }
+
+    private boolean isSameSpecies(ReactorGenome genome, ReactorGenome representative) {
+        return ReactorGenome.calculateSimilarity(this.config, genome, representative) > this.config.speciation.speciesSimilarityThreshold;
+    }
+
+    private static class Species {
+        public final int id;
+        public ReactorGenome representative;
+        public int age;
+
+        // Per generation data
+        public int memberCount;
+        public EvolutionEngine.EvaluatedGenome champion;
+
+        public Species(int id, ReactorGenome representative) {
+            this.id = id;
+            this.representative = representative;
+            this.age = 0;
+        }
+
+        public void resetGeneration() {
+            this.memberCount = 0;
+            this.champion = null;
+        }
+    }
+
+    private static class ChunkAssignment {
+        public final int[] assignments;
+        public final List<ReactorGenome> newRepresentatives;
+
+        public ChunkAssignment(int size) {
+            this.assignments = new int[size];
+            this.newRepresentatives = new ArrayList<>();
+        }
+    }
+
+    public static class SpeciesStats {
+        public final int speciesId;
+        public final int memberCount;
+        public final double bestFitness;
+        public final int age;
+        public final ReactorGenome representative;
+
+        public SpeciesStats(int speciesId, int memberCount, double bestFitness, int age, ReactorGenome representative) {
+            this.speciesId = speciesId;
+            this.memberCount = memberCount;
+            this.bestFitness = bestFitness;
+            this.age = age;
+            this.representative = representative;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d: %d members, best fitness %.2f, %d generations old", this.speciesId, this.memberCount, this.bestFitness, this.age);
+        }
+    }
+
+    public static class SpeciesSummary {
+        private final List<SpeciesStats> species;
+        private final int populationSize;
+
+        public SpeciesSummary(List<SpeciesStats> species, int populationSize) {
+            this.species = species;
+            this.populationSize = populationSize;
+        }
+
+        public List<SpeciesStats> getSpecies() {
+            return this.species;
+        }
+
+        public int getSpeciesCount() {
+            return this.species.size();
+        }
+
+        /**
+         * @return The species count as a ratio of the population size, 1.0 meaning every genome is its own species.
+         */
+        public double getDiversity() {
+            return this.populationSize > 0 ? (double) this.species.size() / (double) this.populationSize : 0.0;
+        }
+
+        /**
+         * @return The species sorted by the fitness of their champion, best first.
+         */
+        public List<SpeciesStats> getSpeciesByBestFitness() {
+            List<SpeciesStats> sorted = new ArrayList<>(this.species);
+            sorted.sort(Comparator.comparingDouble((SpeciesStats stats) -> stats.bestFitness).reversed());
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.Reactor;
+import Ic2ExpReactorPlanner.components.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Long-run heat balance of a non-pulsed EU reactor, solved as a linear heat-flow network instead of tick by tick.
+ * <p>
+ * Every heat accepting component and the hull is a node whose unknown is its fill ratio (heat over max heat). Heat
+ * moves along elements whose flow is linear in the fill ratios until it reaches a limit:
+ * <ul>
+ *     <li>fuel rods inject a constant heat into their heat accepting neighbors, or into the hull</li>
+ *     <li>vents dissipate {@code min(selfVent, heat)}, and empty the hull one after the other up to their
+ *     {@code hullDraw} in the order the simulator runs them</li>
+ *     <li>component vents remove {@code min(sideVent, heat)} from each coolable neighbor</li>
+ *     <li>exchangers push heat toward the lowest fill ratio, modeled as a stiff conductance capped at their switch
+ *     values (the game's stepped transfer is only approximated)</li>
+ * </ul>
+ * The steady state is found with a dense linear solve, repeated while an active set of elements stuck at one of
+ * their limits settles. A node that keeps receiving more heat than it can get rid of has no steady state and is
+ * flagged as saturating: the component would eventually break, or the reactor would melt down for the hull.
+ * <p>
+ * Fluid reactors, pulsed reactors and reflector wear are not modeled.
+ */
+public class SteadyStateSolver {
+    // Exchangers reach their max transfer at a 1% fill ratio difference
+    private static final double EXCHANGER_STIFFNESS = 100.0;
+
+    // Tiny leak on every node, keeps the system solvable when a group of nodes has no way out. Such a group ends up
+    // with a fill ratio way over 1 if it receives any heat, which is exactly what flags it as saturating.
+    private static final double NODE_LEAK = 1e-9;
+
+    private static final int MAX_ITERATIONS = 256;
+    private static final double GAME_TICKS_PER_REACTOR_TICK = 20.0;
+
+    private final int rowCount;
+    private final int colCount;
+    private final double baseHullMaxHeat;
+
+    public SteadyStateSolver(GAConfig config) {
+        this.rowCount = config.reactor.rowCount;
+        this.colCount = config.reactor.colCount;
+        this.baseHullMaxHeat = new Reactor().getMaxHeat();
+    }
+
+    public Result solve(ReactorGenome genome) {
+        int[] layout = genome.getReactorLayout();
+        ReactorItem[] grid = new ReactorItem[layout.length];
+        double hullMaxHeat = this.baseHullMaxHeat;
+
+        for (int i = 0; i < layout.length; i++) {
+            int componentId = layout[i] == ReactorGenome.FUEL_VALUE ? genome.getFuelType() : layout[i];
+            grid[i] = componentId >= 0 ? ComponentFactory.getDefaultComponent(componentId) : null;
+
+            if (grid[i] instanceof Plating)
+                hullMaxHeat += ((Plating) grid[i]).getHeatAdjustment();
+        }
+
+        return solve(grid, hullMaxHeat);
+    }
+
+    public Result solve(Reactor reactor) {
+        ReactorItem[] grid = new ReactorItem[this.rowCount * this.colCount];
+        for (int row = 0; row < this.rowCount; row++) {
+            for (int col = 0; col < this.colCount; col++)
+                grid[row * this.colCount + col] = reactor.getComponentAt(row, col);
+        }
+
+        return solve(grid, reactor.getMaxHeat());
+    }
+
+    private Result solve(ReactorItem[] grid, double hullMaxHeat) {
+        // Nodes: the heat accepting components, then the hull
+        int[] nodeOfSlot = new int[grid.length];
+        List<Double> nodeMaxHeats = new ArrayList<>();
+        for (int i = 0; i < grid.length; i++) {
+            nodeOfSlot[i] = -1;
+            if (grid[i] != null && grid[i].isHeatAcceptor()) {
+                nodeOfSlot[i] = nodeMaxHeats.size();
+                nodeMaxHeats.add(grid[i].getMaxHeat());
+            }
+        }
+
+        int hullNode = nodeMaxHeats.size();
+        nodeMaxHeats.add(hullMaxHeat);
+        int nodeCount = nodeMaxHeats.size();
+        double[] maxHeats = nodeMaxHeats.stream().mapToDouble(Double::doubleValue).toArray();
+
+        double[] sources = new double[nodeCount];
+        List<Element> elements = new ArrayList<>();
+        List<Element> hullDraws = new ArrayList<>(); // in the order the simulator runs them
+        List<int[]> fuelRods = new ArrayList<>(); // {slot, pulses}
+
+        for (int i = 0; i < grid.length; i++) {
+            ReactorItem component = grid[i];
+            if (component == null)
+                continue;
+
+            int[] neighbors = neighbors(i);
+            if (component instanceof FuelRod) {
+                FuelRod fuelRod = (FuelRod) component;
+                int pulses = fuelRod.getBasePulses();
+                List<Integer> heatAcceptors = new ArrayList<>(4);
+                for (int neighbor : neighbors) {
+                    if (neighbor < 0 || grid[neighbor] == null)
+                        continue;
+                    if (grid[neighbor].isNeutronReflector())
+                        pulses++;
+                    if (nodeOfSlot[neighbor] >= 0)
+                        heatAcceptors.add(nodeOfSlot[neighbor]);
+                }
+                fuelRods.add(new int[] { i, pulses });
+
+                // Same split as FuelRod.handleHeat: even shares, the remainder to the first neighbor
+                int heat = fuelRod.getHeatForPulses(pulses);
+                if (heatAcceptors.isEmpty()) {
+                    sources[hullNode] += heat;
+                } else {
+                    for (int node : heatAcceptors)
+                        sources[node] += heat / heatAcceptors.size();
+                    sources[heatAcceptors.get(0)] += heat % heatAcceptors.size();
+                }
+            } else if (component instanceof Vent) {
+                Vent vent = (Vent) component;
+                int node = nodeOfSlot[i];
+                if (node >= 0 && vent.getHullDraw() > 0)
+                    hullDraws.add(new Element(hullNode, node, 0, 0, 0, vent.getHullDraw()));
+                if (node >= 0 && vent.getSelfVent() > 0)
+                    elements.add(new Element(node, -1, maxHeats[node], 0, 0, vent.getSelfVent()));
+
+                if (vent.getSideVent() > 0) {
+                    for (int neighbor : neighbors) {
+                        if (neighbor >= 0 && grid[neighbor] != null && grid[neighbor].isCoolable() && nodeOfSlot[neighbor] >= 0) {
+                            int neighborNode = nodeOfSlot[neighbor];
+                            elements.add(new Element(neighborNode, -1, maxHeats[neighborNode], 0, 0, vent.getSideVent()));
+                        }
+                    }
+                }
+            } else if (component instanceof Exchanger) {
+                Exchanger exchanger = (Exchanger) component;
+                int node = nodeOfSlot[i];
+                if (node < 0)
+                    continue;
+
+                if (exchanger.getSwitchSide() > 0) {
+                    double stiffness = EXCHANGER_STIFFNESS * exchanger.getSwitchSide();
+                    for (int neighbor : neighbors) {
+                        if (neighbor >= 0 && nodeOfSlot[neighbor] >= 0)
+                            elements.add(new Element(node, nodeOfSlot[neighbor], stiffness, stiffness, -exchanger.getSwitchSide(), exchanger.getSwitchSide()));
+                    }
+                }
+
+                if (exchanger.getSwitchReactor() > 0) {
+                    double stiffness = EXCHANGER_STIFFNESS * exchanger.getSwitchReactor();
+                    elements.add(new Element(node, hullNode, stiffness, stiffness, -exchanger.getSwitchReactor(), exchanger.getSwitchReactor()));
+                }
+            }
+        }
+
+        // Active set iterations: solve with the current limits, then move the elements that crossed (or left) them.
+        // Nodes going over their max heat stay full from then on, whatever they receive past that point is lost.
+        HullState hullState = new HullState(hullNode, hullDraws);
+        double[] ratios = new double[nodeCount];
+        boolean[] full = new boolean[nodeCount];
+        boolean converged = false;
+        int iteration = 0;
+        while (!converged && iteration < MAX_ITERATIONS) {
+            iteration++;
+            ratios = solveNetwork(maxHeats, sources, elements, hullState, full);
+
+            // Settle the hull first, the other limits are only worth checking against a consistent drain
+            if (hullState.update(ratios))
+                continue;
+
+            converged = true;
+            for (int node = 0; node < nodeCount; node++) {
+                if (!full[node] && ratios[node] > 1.0) {
+                    full[node] = true;
+                    converged = false;
+                }
+            }
+
+            for (Element element : elements) {
+                if (element.updateState(ratios))
+                    converged = false;
+            }
+        }
+
+        // Results
+        double[] componentHeats = new double[grid.length];
+        boolean[] saturating = new boolean[grid.length];
+        Arrays.fill(componentHeats, Double.NaN);
+        for (int i = 0; i < grid.length; i++) {
+            int node = nodeOfSlot[i];
+            if (node < 0)
+                continue;
+
+            saturating[i] = full[node];
+            componentHeats[i] = Math.max(0, Math.min(1.0, ratios[node])) * maxHeats[node];
+        }
+
+        double hullRatio = Math.max(0, Math.min(1.0, ratios[hullNode]));
+        double euOutput = 0;
+        for (int[] fuelRod : fuelRods)
+            euOutput += ((FuelRod) grid[fuelRod[0]]).getEnergyForPulses(fuelRod[1], hullRatio);
+
+        // Fuel rods produce per reactor tick (once a second), EU/t is per game tick
+        euOutput /= GAME_TICKS_PER_REACTOR_TICK;
+
+        return new Result(this.colCount, hullRatio * hullMaxHeat, hullMaxHeat, full[hullNode], euOutput, componentHeats, saturating, iteration, converged);
+    }
+
+    private static double[] solveNetwork(double[] maxHeats, double[] sources, List<Element> elements, HullState hullState, boolean[] full) {
+        int n = maxHeats.length;
+        int hullNode = hullState.hullNode;
+        double[][] matrix = new double[n][n];
+        double[] rhs = new double[n];
+
+        // Per node: inflow - outflow = 0, linear terms on the left, constants on the right. A drained hull has a
+        // fill ratio of 0, its column holds the total heat the vents draw from it instead.
+        for (int i = 0; i < n; i++) {
+            if (i != hullNode || !hullState.drained)
+                matrix[i][i] -= NODE_LEAK * maxHeats[i];
+            rhs[i] = -sources[i];
+        }
+
+        for (Element element : elements) {
+            if (element.state == Element.LINEAR) {
+                // flow = conductanceFrom * r[from] - conductanceTo * r[to]
+                boolean fromTerm = element.from != hullNode || !hullState.drained;
+                boolean toTerm = element.to >= 0 && (element.to != hullNode || !hullState.drained);
+
+                if (fromTerm)
+                    matrix[element.from][element.from] -= element.conductanceFrom;
+                if (toTerm)
+                    matrix[element.from][element.to] += element.conductanceTo;
+                if (element.to >= 0 && fromTerm)
+                    matrix[element.to][element.from] += element.conductanceFrom;
+                if (toTerm)
+                    matrix[element.to][element.to] -= element.conductanceTo;
+            } else {
+                double flow = element.state == Element.AT_MAX ? element.maxFlow : element.minFlow;
+                rhs[element.from] += flow;
+                if (element.to >= 0)
+                    rhs[element.to] -= flow;
+            }
+        }
+
+        if (hullState.drained) {
+            // Vents before the boundary draw their max, the boundary one draws what's left, the others nothing
+            double drawnBefore = 0;
+            for (int i = 0; i < hullState.boundary; i++) {
+                Element hullDraw = hullState.hullDraws.get(i);
+                rhs[hullDraw.to] -= hullDraw.maxFlow;
+                drawnBefore += hullDraw.maxFlow;
+            }
+
+            Element boundaryDraw = hullState.hullDraws.get(hullState.boundary);
+            matrix[boundaryDraw.to][hullNode] += 1.0;
+            rhs[boundaryDraw.to] += drawnBefore;
+            matrix[hullNode][hullNode] -= 1.0;
+        } else {
+            for (Element hullDraw : hullState.hullDraws) {
+                rhs[hullNode] += hullDraw.maxFlow;
+                rhs[hullDraw.to] -= hullDraw.maxFlow;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (full[i]) {
+                Arrays.fill(matrix[i], 0);
+                matrix[i][i] = 1.0;
+                rhs[i] = 1.0;
+            }
+        }
+
+        double[] solution = gaussianElimination(matrix, rhs);
+        if (hullState.drained) {
+            hullState.drawn = solution[hullNode];
+            solution[hullNode] = 0;
+        }
+
+        return solution;
+    }
+
+    // Partial pivoting, fine for the few dozen nodes of a reactor
+    private static double[] gaussianElimination(double[][] a, double[] b) {
+        int n = b.length;
+        for (int pivot = 0; pivot < n; pivot++) {
+            int best = pivot;
+            for (int row = pivot + 1; row < n; row++) {
+                if (Math.abs(a[row][pivot]) > Math.abs(a[best][pivot]))
+                    best = row;
+            }
+
+            double[] swapRow = a[pivot]; a[pivot] = a[best]; a[best] = swapRow;
+            double swapValue = b[pivot]; b[pivot] = b[best]; b[best] = swapValue;
+
+            if (a[pivot][pivot] == 0)
+                continue;
+
+            for (int row = pivot + 1; row < n; row++) {
+                double factor = a[row][pivot] / a[pivot][pivot];
+                if (factor == 0)
+                    continue;
+
+                for (int col = pivot; col < n; col++)
+                    a[row][col] -= factor * a[pivot][col];
+                b[row] -= factor * b[pivot];
+            }
+        }
+
+        double[] solution = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = b[row];
+            for (int col = row + 1; col < n; col++)
+                sum -= a[row][col] * solution[col];
+            solution[row] = a[row][row] != 0 ? sum / a[row][row] : 0;
+        }
+
+        return solution;
+    }
+
+    // North, east, south, west like ReactorItem's neighbors, -1 past the edges
+    private int[] neighbors(int index) {
+        int row = index / this.colCount;
+        int col = index % this.colCount;
+
+        return new int[] {
+                row > 0 ? index - this.colCount : -1,
+                col < this.colCount - 1 ? index + 1 : -1,
+                row < this.rowCount - 1 ? index + this.colCount : -1,
+                col > 0 ? index - 1 : -1
+        };
+    }
+
+    /**
+     * Heat moving from one node to another (or out of the reactor when {@code to} is -1), linear in the fill ratios of
+     * both nodes between a min and a max flow.
+     */
+    private static class Element {
+        static final int LINEAR = 0;
+        static final int AT_MIN = 1;
+        static final int AT_MAX = 2;
+
+        final int from;
+        final int to;
+        final double conductanceFrom;
+        final double conductanceTo;
+        final double minFlow;
+        final double maxFlow;
+        int state;
+
+        Element(int from, int to, double conductanceFrom, double conductanceTo, double minFlow, double maxFlow) {
+            this.from = from;
+            this.to = to;
+            this.conductanceFrom = conductanceFrom;
+            this.conductanceTo = conductanceTo;
+            this.minFlow = minFlow;
+            this.maxFlow = maxFlow;
+            this.state = LINEAR;
+        }
+
+        double linearFlow(double[] ratios) {
+            return this.conductanceFrom * ratios[this.from] - (this.to >= 0 ? this.conductanceTo * ratios[this.to] : 0);
+        }
+
+        // Returns whether the state changed
+        boolean updateState(double[] ratios) {
+            double linearFlow = linearFlow(ratios);
+
+            int newState;
+            if (linearFlow > this.maxFlow)
+                newState = AT_MAX;
+            else if (linearFlow < this.minFlow)
+                newState = AT_MIN;
+            else
+                newState = LINEAR;
+
+            boolean changed = newState != this.state;
+            this.state = newState;
+            return changed;
+        }
+    }
+
+    /**
+     * Vents empty the hull one after the other, each taking what it can of what's left. While they can keep up, the
+     * hull is drained: its fill ratio is 0 and the vents before the boundary draw their max, the boundary one draws the
+     * rest. Once they can't, every vent draws its max and the hull fills up.
+     */
+    private static class HullState {
+        final int hullNode;
+        final List<Element> hullDraws; // in the order the simulator runs them
+        boolean drained;
+        int boundary;
+        double drawn;
+
+        HullState(int hullNode, List<Element> hullDraws) {
+            this.hullNode = hullNode;
+            this.hullDraws = hullDraws;
+            this.drained = !hullDraws.isEmpty();
+            this.boundary = 0;
+        }
+
+        // Returns whether the state changed
+        boolean update(double[] ratios) {
+            if (!this.drained) {
+                if (ratios[this.hullNode] < 0 && !this.hullDraws.isEmpty()) {
+                    this.drained = true;
+                    this.boundary = this.hullDraws.size() - 1;
+                    return true;
+                }
+
+                return false;
+            }
+
+            double drawnBefore = 0;
+            for (int i = 0; i < this.boundary; i++)
+                drawnBefore += this.hullDraws.get(i).maxFlow;
+            double drawnThrough = drawnBefore + this.hullDraws.get(this.boundary).maxFlow;
+
+            if (this.drawn > drawnThrough + 1e-9) {
+                if (this.boundary < this.hullDraws.size() - 1)
+                    this.boundary++;
+                else
+                    this.drained = false;
+                return true;
+            }
+
+            if (this.drawn < drawnBefore - 1e-9 && this.boundary > 0) {
+                this.boundary--;
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    public static class Result {
+        private final int colCount;
+        private final double hullHeat;
+        private final double hullMaxHeat;
+        private final boolean hullSaturating;
+        private final double euOutput;
+        private final double[] componentHeats;
+        private final boolean[] saturating;
+        private final int iterations;
+        private final boolean converged;
+
+        public Result(int colCount, double hullHeat, double hullMaxHeat, boolean hullSaturating, double euOutput, double[] componentHeats, boolean[] saturating, int iterations, boolean converged) {
+            this.colCount = colCount;
+            this.hullHeat = hullHeat;
+            this.hullMaxHeat = hullMaxHeat;
+            this.hullSaturating = hullSaturating;
+            this.euOutput = euOutput;
+            this.componentHeats = componentHeats;
+            this.saturating = saturating;
+            this.iterations = iterations;
+            this.converged = converged;
+        }
+
+        /**
+         * @return The equilibrium hull heat, or the hull max heat if it's saturating.
+         */
+        public double getHullHeat() {
+            return this.hullHeat;
+        }
+
+        public double getHullMaxHeat() {
+            return this.hullMaxHeat;
+        }
+
+        /**
+         * @return Whether the hull keeps heating up, meaning the reactor would melt down.
+         */
+        public boolean isHullSaturating() {
+            return this.hullSaturating;
+        }
+
+        /**
+         * @return The EU/t of the reactor at equilibrium.
+         */
+        public double getEUOutput() {
+            return this.euOutput;
+        }
+
+        /**
+         * @return The equilibrium heat of the component, its max heat if it's saturating, or {@code Double.NaN} if the
+         * slot doesn't hold heat.
+         */
+        public double getComponentHeat(int row, int col) {
+            return this.componentHeats[row * this.colCount + col];
+        }
+
+        /**
+         * @return Whether the component keeps heating up until it breaks.
+         */
+        public boolean isSaturating(int row, int col) {
+            return this.saturating[row * this.colCount + col];
+        }
+
+        /**
+         * @return Whether any component or the hull keeps heating up.
+         */
+        public boolean isAnySaturating() {
+            if (this.hullSaturating)
+                return true;
+
+            for (boolean componentSaturating : this.saturating) {
+                if (componentSaturating)
+                    return true;
+            }
+
+            return false;
+        }
+
+        public int getIterations() {
+            return this.iterations;
+        }
+
+        /**
+         * @return Whether the active set settled, the result is an approximation of the last iteration otherwise.
+         */
+        public boolean isConverged() {
+            return this.converged;
+        }
+    }
+}
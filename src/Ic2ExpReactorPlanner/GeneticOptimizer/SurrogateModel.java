@@ -0,0 +1,395 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.ComponentFactory;
+import Ic2ExpReactorPlanner.SimulationData;
+import Ic2ExpReactorPlanner.components.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Online linear regression of a genome's fitness over a handful of layout features.
+ * <p>
+ * The model is a ridge regression whose normal equations are accumulated as genomes get simulated, so training is
+ * incremental and only the small feature-sized system has to be solved again after each generation. It is nowhere
+ * near as accurate as the simulator, but it ranks candidates well enough to discard the obviously bad children before
+ * spending a simulation on them.
+ * <p>
+ * Features (per fuel type intercept, then):
+ * <ul>
+ *     <li>fuel rod count and fuel-fuel / fuel-reflector adjacencies, weighted by the rod count of the fuel</li>
+ *     <li>vent self cooling, vent hull draw and vents next to fuel rods</li>
+ *     <li>exchanger count and exchanger hull transfer capacity</li>
+ *     <li>coolant cell, plating and empty slot counts</li>
+ * </ul>
+ * Every structural feature is expressed per reactor slot.
+ */
+public class SurrogateModel {
+    private static final int STRUCTURAL_FEATURE_COUNT = 11;
+
+    private final GAConfig config;
+    private final int[] fuelTypes;
+    private final int featureCount;
+
+    // Accumulated normal equations: (X^T X + lambda I) w = X^T y
+    private final double[][] gramMatrix;
+    private final double[] momentVector;
+    private double[] weights;
+    private boolean dirty;
+    private int sampleCount;
+
+    public SurrogateModel(GAConfig config) {
+        this.config = config;
+        this.fuelTypes = config.fuels.valid.clone();
+        this.featureCount = this.fuelTypes.length + STRUCTURAL_FEATURE_COUNT;
+
+        this.gramMatrix = new double[this.featureCount][this.featureCount];
+        this.momentVector = new double[this.featureCount];
+        this.weights = new double[this.featureCount];
+        this.dirty = false;
+        this.sampleCount = 0;
+
+        for (int i = 0; i < this.featureCount; i++)
+            this.gramMatrix[i][i] = config.surrogate.ridgeLambda;
+    }
+
+    /**
+     * @return The number of genomes the model was trained on.
+     */
+    public int getSampleCount() {
+        return this.sampleCount;
+    }
+
+    /**
+     * @return Whether the model has seen enough genomes ({@code surrogate.minTrainingSamples}) to be trusted.
+     */
+    public boolean isReady() {
+        return this.sampleCount >= this.config.surrogate.minTrainingSamples;
+    }
+
+    /**
+     * Writes the accumulated normal equations, for checkpoints. The weights are solved again after reading.
+     */
+    public void writeState(DataOutput output) throws IOException {
+        output.writeInt(this.featureCount);
+        output.writeInt(this.sampleCount);
+        for (double[] row : this.gramMatrix) {
+            for (double value : row)
+                output.writeDouble(value);
+        }
+        for (double value : this.momentVector)
+            output.writeDouble(value);
+    }
+
+    /**
+     * Replaces the training state with the one written by {@link #writeState(DataOutput)}.
+     *
+     * @throws IOException If the state was written for another fuel list.
+     */
+    public void readState(DataInput input) throws IOException {
+        int featureCount = input.readInt();
+        if (featureCount != this.featureCount)
+            throw new IOException(String.format("Surrogate state has %d features, config gives %d", featureCount, this.featureCount));
+
+        this.sampleCount = input.readInt();
+        for (double[] row : this.gramMatrix) {
+            for (int j = 0; j < row.length; j++)
+                row[j] = input.readDouble();
+        }
+        for (int i = 0; i < this.momentVector.length; i++)
+            this.momentVector[i] = input.readDouble();
+        this.dirty = true;
+    }
+
+    /**
+     * Adds the fully evaluated genomes of a generation to the training set. Estimated (partially evaluated) genomes
+     * are ignored, and so are the fitness values the simulator never produced: the watchdog's fallback fitness and the
+     * meltdown penalty of the heat balance check would be learned as plateaus.
+     */
+    public void train(List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation) {
+        for (EvolutionEngine.EvaluatedGenome evaluatedGenome : evaluatedPopulation) {
+            if (evaluatedGenome.isPartialEvaluation())
+                continue;
+
+            SimulationData simulationData = evaluatedGenome.getSimulationData();
+            if (simulationData != null && (simulationData.aborted || simulationData.meltdownPredicted))
+                continue;
+
+            double[] features = extractFeatures(evaluatedGenome.getGenome());
+            double fitness = evaluatedGenome.getFitness();
+            for (int i = 0; i < this.featureCount; i++) {
+                if (features[i] == 0)
+                    continue;
+
+                for (int j = 0; j < this.featureCount; j++)
+                    this.gramMatrix[i][j] += features[i] * features[j];
+                this.momentVector[i] += features[i] * fitness;
+            }
+
+            this.sampleCount++;
+            this.dirty = true;
+        }
+    }
+
+    public double predict(ReactorGenome genome) {
+        if (this.dirty) {
+            this.weights = solve(this.gramMatrix, this.momentVector);
+            this.dirty = false;
+        }
+
+        double[] features = extractFeatures(genome);
+        double prediction = 0;
+        for (int i = 0; i < this.featureCount; i++)
+            prediction += this.weights[i] * features[i];
+
+        return prediction;
+    }
+
+    /**
+     * Keeps the candidates predicted above the {@code surrogate.selectionPercentile}, best first, and fills the
+     * {@code surrogate.explorationFraction} left over with random picks among the rejected ones.
+     *
+     * @param candidates     Bred children, many more than needed.
+     * @param offspringCount How many of them to keep.
+     * @param generation     For the log.
+     * @return The kept candidates, at most {@code offspringCount} of them.
+     */
+    public List<ReactorGenome> screen(List<ReactorGenome> candidates, int offspringCount, Random random, int generation) {
+        if (offspringCount <= 0)
+            return new ArrayList<>();
+
+        double[] predictions = new double[candidates.size()];
+        List<Integer> ranking = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            predictions[i] = predict(candidates.get(i));
+            ranking.add(i);
+        }
+
+        // Stable sort, ties keep the breeding order
+        ranking.sort(Comparator.comparingDouble((Integer index) -> predictions[index]).reversed());
+
+        int eligibleCount = Math.max(1, (int) Math.ceil(candidates.size() * (1.0 - this.config.surrogate.selectionPercentile)));
+        int explorationCount = Math.min(offspringCount, (int) Math.round(offspringCount * this.config.surrogate.explorationFraction));
+        int predictedCount = Math.min(eligibleCount, offspringCount - explorationCount);
+
+        List<ReactorGenome> offspring = new ArrayList<>(offspringCount);
+        for (int i = 0; i < predictedCount; i++)
+            offspring.add(candidates.get(ranking.get(i)));
+
+        // Fill the rest with random picks among the candidates that didn't make the cut
+        List<Integer> leftovers = new ArrayList<>(ranking.subList(predictedCount, ranking.size()));
+        while (offspring.size() < offspringCount && !leftovers.isEmpty()) {
+            int pick = random.nextInt(leftovers.size());
+            offspring.add(candidates.get(leftovers.get(pick)));
+            leftovers.set(pick, leftovers.get(leftovers.size() - 1));
+            leftovers.remove(leftovers.size() - 1);
+        }
+
+        Logger.log(Logger.LogLevel.DEBUG, "Surrogate screening in generation %d: %d candidates bred, %d selected on prediction, %d picked for exploration", generation, candidates.size(), predictedCount, offspring.size() - predictedCount);
+        return offspring;
+    }
+
+    /**
+     * Spearman rank correlation between the model's predictions and the actual fitness of the fully evaluated genomes.
+     * Meant to be called on a generation before training on it.
+     *
+     * @return The rank correlation in [-1, 1], or {@code Double.NaN} if there are less than two genomes to compare.
+     */
+    public double rankCorrelation(List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation) {
+        List<EvolutionEngine.EvaluatedGenome> evaluated = evaluatedPopulation.stream().filter(evaluatedGenome -> !evaluatedGenome.isPartialEvaluation()).toList();
+        if (evaluated.size() < 2)
+            return Double.NaN;
+
+        double[] predicted = new double[evaluated.size()];
+        double[] actual = new double[evaluated.size()];
+        for (int i = 0; i < evaluated.size(); i++) {
+            predicted[i] = predict(evaluated.get(i).getGenome());
+            actual[i] = evaluated.get(i).getFitness();
+        }
+
+        return pearsonCorrelation(ranks(predicted), ranks(actual));
+    }
+
+    private double[] extractFeatures(ReactorGenome genome) {
+        double[] features = new double[this.featureCount];
+
+        int fuelTypeIndex = indexOf(this.fuelTypes, genome.getFuelType());
+        if (fuelTypeIndex >= 0)
+            features[fuelTypeIndex] = 1.0;
+
+        ReactorItem fuelRod = ComponentFactory.getDefaultComponent(genome.getFuelType());
+        double rodCount = fuelRod != null ? fuelRod.getRodCount() : 1.0;
+
+        int rowCount = this.config.reactor.rowCount;
+        int colCount = this.config.reactor.colCount;
+        int[] layout = genome.getReactorLayout();
+
+        double fuelCount = 0, fuelAdjacency = 0, reflectorAdjacency = 0;
+        double ventCooling = 0, ventHullDraw = 0, ventsNextToFuel = 0;
+        double exchangerCount = 0, exchangerHullTransfer = 0;
+        double coolantCellCount = 0, platingCount = 0, emptyCount = 0;
+
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < colCount; col++) {
+                int index = row * colCount + col;
+                int componentId = layout[index];
+
+                if (componentId < 0) {
+                    emptyCount++;
+                    continue;
+                }
+
+                if (componentId == ReactorGenome.FUEL_VALUE) {
+                    fuelCount++;
+                    for (int neighbor : neighbors(row, col)) {
+                        if (layout[neighbor] == ReactorGenome.FUEL_VALUE)
+                            fuelAdjacency++;
+                        else if (layout[neighbor] >= 0 && ComponentFactory.getDefaultComponent(layout[neighbor]) instanceof Reflector)
+                            reflectorAdjacency++;
+                    }
+                    continue;
+                }
+
+                ReactorItem component = ComponentFactory.getDefaultComponent(componentId);
+                if (component instanceof Vent) {
+                    ventCooling += ((Vent) component).getSelfVent();
+                    ventHullDraw += ((Vent) component).getHullDraw();
+                    for (int neighbor : neighbors(row, col)) {
+                        if (layout[neighbor] == ReactorGenome.FUEL_VALUE) {
+                            ventsNextToFuel++;
+                            break;
+                        }
+                    }
+                } else if (component instanceof Exchanger) {
+                    exchangerCount++;
+                    exchangerHullTransfer += ((Exchanger) component).getSwitchReactor();
+                } else if (component instanceof CoolantCell) {
+                    coolantCellCount++;
+                } else if (component instanceof Plating) {
+                    platingCount++;
+                }
+            }
+        }
+
+        double slotCount = layout.length;
+        int i = this.fuelTypes.length;
+        features[i++] = fuelCount * rodCount / slotCount;
+        features[i++] = fuelAdjacency * rodCount / slotCount;
+        features[i++] = reflectorAdjacency * rodCount / slotCount;
+        features[i++] = ventCooling / slotCount;
+        features[i++] = ventHullDraw / slotCount;
+        features[i++] = ventsNextToFuel / slotCount;
+        features[i++] = exchangerCount / slotCount;
+        features[i++] = exchangerHullTransfer / slotCount;
+        features[i++] = coolantCellCount / slotCount;
+        features[i++] = platingCount / slotCount;
+        features[i] = emptyCount / slotCount;
+
+        return features;
+    }
+
+    private int[] neighbors(int row, int col) {
+        int colCount = this.config.reactor.colCount;
+        int[] buffer = new int[4];
+        int count = 0;
+
+        if (row > 0) buffer[count++] = (row - 1) * colCount + col;
+        if (row < this.config.reactor.rowCount - 1) buffer[count++] = (row + 1) * colCount + col;
+        if (col > 0) buffer[count++] = row * colCount + col - 1;
+        if (col < colCount - 1) buffer[count++] = row * colCount + col + 1;
+
+        return Arrays.copyOf(buffer, count);
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value)
+                return i;
+        }
+
+        return -1;
+    }
+
+    // Gaussian elimination with partial pivoting, the system is tiny and symmetric positive definite thanks to the ridge
+    private static double[] solve(double[][] matrix, double[] vector) {
+        int n = vector.length;
+        double[][] a = new double[n][];
+        for (int i = 0; i < n; i++)
+            a[i] = matrix[i].clone();
+        double[] b = vector.clone();
+
+        for (int pivot = 0; pivot < n; pivot++) {
+            int best = pivot;
+            for (int row = pivot + 1; row < n; row++) {
+                if (Math.abs(a[row][pivot]) > Math.abs(a[best][pivot]))
+                    best = row;
+            }
+
+            double[] swapRow = a[pivot]; a[pivot] = a[best]; a[best] = swapRow;
+            double swapValue = b[pivot]; b[pivot] = b[best]; b[best] = swapValue;
+
+            if (a[pivot][pivot] == 0)
+                continue;
+
+            for (int row = pivot + 1; row < n; row++) {
+                double factor = a[row][pivot] / a[pivot][pivot];
+                if (factor == 0)
+                    continue;
+
+                for (int col = pivot; col < n; col++)
+                    a[row][col] -= factor * a[pivot][col];
+                b[row] -= factor * b[pivot];
+            }
+        }
+
+        double[] solution = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = b[row];
+            for (int col = row + 1; col < n; col++)
+                sum -= a[row][col] * solution[col];
+            solution[row] = a[row][row] != 0 ? sum / a[row][row] : 0;
+        }
+
+        return solution;
+    }
+
+    // Average ranks, ties share the mean of the ranks they span
+    private static double[] ranks(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        double[] ranks = new double[values.length];
+        int start = 0;
+        while (start < order.length) {
+            int end = start;
+            while (end + 1 < order.length && values[order[end + 1]] == values[order[start]])
+                end++;
+
+            double averageRank = (start + end) / 2.0;
+            for (int i = start; i <= end; i++)
+                ranks[order[i]] = averageRank;
+
+            start = end + 1;
+        }
+
+        return ranks;
+    }
+
+    private static double pearsonCorrelation(double[] x, double[] y) {
+        double meanX = Arrays.stream(x).average().orElse(0);
+        double meanY = Arrays.stream(y).average().orElse(0);
+
+        double covariance = 0, varianceX = 0, varianceY = 0;
+        for (int i = 0; i < x.length; i++) {
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+            varianceX += (x[i] - meanX) * (x[i] - meanX);
+            varianceY += (y[i] - meanY) * (y[i] - meanY);
+        }
+
+        return varianceX > 0 && varianceY > 0 ? covariance / Math.sqrt(varianceX * varianceY) : 0.0;
+    }
+}
@@ -0,0 +1,308 @@
+package Ic2ExpReactorPlanner.GeneticOptimizer;
+
+import Ic2ExpReactorPlanner.components.FuelRod;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the evolution parameters by running many short evolutions of a config with the parameters of its
+ * {@code "tuning"} section varied, instead of tweaking them by hand between runs.
+ * <p>
+ * Usage: {@code TuningRunner [config] [seed]}. Every candidate config runs over the same {@code tuning.seeds} seeds,
+ * up to {@code tuning.maxConcurrentRuns} runs at a time sharing one {@link FairShareExecutor} and one
+ * {@link SimulationCache}: candidates mostly explore the same designs, so most of their simulations are cache hits.
+ * Candidates are ranked by the best fitness their runs reached per CPU-second spent, simulations answered by the
+ * cache costing what they cost whoever ran them, so the candidates running last don't look cheaper. The runs always use the "evolution" engine, without checkpoints, evaluation store, remote
+ * workers or deadline.
+ */
+public class TuningRunner {
+    private final GAConfig baseConfig;
+    private final long seed;
+
+    public TuningRunner(GAConfig baseConfig, long seed) {
+        this.baseConfig = baseConfig;
+        this.seed = seed;
+    }
+
+    /**
+     * @return The candidate configs the {@code tuning} section describes.
+     * @throws IllegalArgumentException If a parameter path isn't a field of the config, or has no values in grid mode.
+     */
+    public List<Candidate> createCandidates() {
+        GAConfig.TuningConfig tuning = this.baseConfig.tuning;
+        GAConfig.TuningParameter[] parameters = tuning.parameters != null ? tuning.parameters : new GAConfig.TuningParameter[0];
+
+        List<Map<String, Double>> parameterSets = new ArrayList<>();
+        if (GAConfig.TUNING_MODE_RANDOM.equalsIgnoreCase(tuning.mode)) {
+            Random random = new Random(this.seed);
+            for (int i = 0; i < tuning.samples; i++) {
+                Map<String, Double> parameterSet = new LinkedHashMap<>();
+                for (GAConfig.TuningParameter parameter : parameters)
+                    parameterSet.put(parameter.path, sample(parameter, random));
+                parameterSets.add(parameterSet);
+            }
+        } else {
+            // Every combination, the last parameter varying fastest
+            parameterSets.add(new LinkedHashMap<>());
+            for (GAConfig.TuningParameter parameter : parameters) {
+                if (parameter.values == null || parameter.values.length == 0)
+                    throw new IllegalArgumentException("Tuning parameter '" + parameter.path + "' needs \"values\" in grid mode, a range is only sampled in random mode");
+
+                List<Map<String, Double>> expandedSets = new ArrayList<>();
+                for (Map<String, Double> parameterSet : parameterSets) {
+                    for (double value : parameter.values) {
+                        Map<String, Double> expandedSet = new LinkedHashMap<>(parameterSet);
+                        expandedSet.put(parameter.path, value);
+                        expandedSets.add(expandedSet);
+                    }
+                }
+                parameterSets = expandedSets;
+            }
+        }
+
+        List<Candidate> candidates = new ArrayList<>(parameterSets.size());
+        for (Map<String, Double> parameterSet : parameterSets)
+            candidates.add(new Candidate(candidates.size(), parameterSet, applyParameters(this.baseConfig, parameterSet)));
+        return candidates;
+    }
+
+    /**
+     * Runs every candidate over every seed.
+     *
+     * @return The candidates' results, best fitness per CPU-second first.
+     */
+    public List<CandidateResult> run() {
+        GAConfig.TuningConfig tuning = this.baseConfig.tuning;
+        List<Candidate> candidates = createCandidates();
+        int seedCount = Math.max(1, tuning.seeds);
+        int threadCount = tuning.threads > 0 ? tuning.threads : Runtime.getRuntime().availableProcessors();
+
+        FairShareExecutor sharedExecutor = new FairShareExecutor(threadCount, "tuning-worker");
+        SimulationCache simulationCache = new SimulationCache(tuning.cacheSize);
+        ExecutorService trialRunner = Executors.newFixedThreadPool(Math.max(1, tuning.maxConcurrentRuns));
+        Logger.log("Tuning %d configs over %d seeds on %d threads, %d runs at a time", candidates.size(), seedCount, threadCount, Math.max(1, tuning.maxConcurrentRuns));
+
+        // Every candidate gets the same seeds, so they are compared on the same starting populations
+        Map<Candidate, List<Future<Trial>>> trialFutures = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            List<Future<Trial>> futures = new ArrayList<>(seedCount);
+            for (int i = 0; i < seedCount; i++) {
+                long trialSeed = RandomStreams.deriveSeed(this.seed, -1, i);
+                futures.add(trialRunner.submit(() -> runTrial(candidate, trialSeed, sharedExecutor, simulationCache)));
+            }
+            trialFutures.put(candidate, futures);
+        }
+
+        List<CandidateResult> results = new ArrayList<>(candidates.size());
+        try {
+            for (Map.Entry<Candidate, List<Future<Trial>>> entry : trialFutures.entrySet()) {
+                List<Trial> trials = new ArrayList<>();
+                for (Future<Trial> future : entry.getValue()) {
+                    try {
+                        trials.add(future.get());
+                    } catch (ExecutionException e) {
+                        Logger.log(e.getCause(), "A tuning run of config #" + entry.getKey().index + " failed");
+                    }
+                }
+
+                if (!trials.isEmpty())
+                    results.add(new CandidateResult(entry.getKey(), trials));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.log(Logger.LogLevel.WARNING, "Tuning interrupted, ranking the configs done so far");
+        } finally {
+            trialRunner.shutdownNow();
+            sharedExecutor.shutdown();
+        }
+
+        Logger.log("Simulation cache: %d hits, %d misses, %d designs kept", simulationCache.getHitCount(), simulationCache.getMissCount(), simulationCache.size());
+        results.sort(Comparator.comparingDouble(CandidateResult::getFitnessPerCpuSecond).reversed());
+        return results;
+    }
+
+    private Trial runTrial(Candidate candidate, long trialSeed, FairShareExecutor sharedExecutor, SimulationCache simulationCache) {
+        FairShareExecutor.Share share = sharedExecutor.newShare();
+        long startCpuTime = FairShareExecutor.currentThreadCpuTime();
+
+        EvolutionEngine engine = new EvolutionEngine(candidate.config, trialSeed, share, simulationCache);
+        if (candidate.config.evolution.seedFile != null && !candidate.config.evolution.seedFile.isEmpty()) {
+            List<ReactorGenome> seedGenomes = SeedFileLoader.LoadSeedFile(candidate.config, candidate.config.evolution.seedFile);
+            if (seedGenomes != null)
+                engine.preSeedGen0(seedGenomes);
+        }
+
+        List<EvolutionEngine.EvaluatedGenome> population = engine.run(false);
+        // The engine's own thread plus its share of the pool, the engine waited for its tasks before returning. Cache hits
+        // cost what they took to simulate, the order the candidates run in mustn't decide which one looks cheaper
+        double cpuSeconds = (FairShareExecutor.currentThreadCpuTime() - startCpuTime + share.getCpuTimeNanos() + engine.getCachedCpuTimeNanos()) / 1e9;
+        double bestFitness = population.stream().mapToDouble(EvolutionEngine.EvaluatedGenome::getFitness).max().orElse(0);
+
+        Logger.log("Config #%d, seed %d: best fitness %.2f in %.1f CPU-seconds", candidate.index, trialSeed, bestFitness, cpuSeconds);
+        return new Trial(bestFitness, cpuSeconds);
+    }
+
+    private static double sample(GAConfig.TuningParameter parameter, Random random) {
+        double value;
+        if (parameter.values != null && parameter.values.length > 0)
+            value = parameter.values[random.nextInt(parameter.values.length)];
+        else
+            value = parameter.min + random.nextDouble() * (parameter.max - parameter.min);
+
+        return parameter.integer ? Math.round(value) : value;
+    }
+
+    /**
+     * @return A copy of the config with the parameters set, without the features tuning runs don't use.
+     */
+    public static GAConfig applyParameters(GAConfig config, Map<String, Double> parameters) {
+        JsonObject json = JsonParser.parseString(config.toJson()).getAsJsonObject();
+        for (Map.Entry<String, Double> parameter : parameters.entrySet()) {
+            String[] path = parameter.getKey().split("\\.");
+            JsonObject section = json;
+            for (int i = 0; i < path.length - 1; i++) {
+                JsonElement child = section.get(path[i]);
+                if (child == null || !child.isJsonObject())
+                    throw new IllegalArgumentException("Unknown tuning parameter '" + parameter.getKey() + "'");
+                section = child.getAsJsonObject();
+            }
+
+            String field = path[path.length - 1];
+            if (!section.has(field))
+                throw new IllegalArgumentException("Unknown tuning parameter '" + parameter.getKey() + "'");
+
+            // Integral values written as such, so integer fields accept them
+            double value = parameter.getValue();
+            section.add(field, value == Math.rint(value) && !Double.isInfinite(value) ? new JsonPrimitive((long) value) : new JsonPrimitive(value));
+        }
+
+        GAConfig candidateConfig = GAConfig.fromJson(json.toString());
+        candidateConfig.checkpoint = null;
+        candidateConfig.evaluationStore = null;
+        candidateConfig.remoteWorkers = null;
+        candidateConfig.deadline = null;
+        return candidateConfig;
+    }
+
+    public static class Candidate {
+        private final int index;
+        private final Map<String, Double> parameters;
+        private final GAConfig config;
+
+        public Candidate(int index, Map<String, Double> parameters, GAConfig config) {
+            this.index = index;
+            this.parameters = parameters;
+            this.config = config;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public Map<String, Double> getParameters() {
+            return this.parameters;
+        }
+
+        public GAConfig getConfig() {
+            return this.config;
+        }
+    }
+
+    private static class Trial {
+        public final double bestFitness;
+        public final double cpuSeconds;
+
+        public Trial(double bestFitness, double cpuSeconds) {
+            this.bestFitness = bestFitness;
+            this.cpuSeconds = cpuSeconds;
+        }
+    }
+
+    public static class CandidateResult {
+        private final Candidate candidate;
+        private final int runCount;
+        private final double averageBestFitness;
+        private final double averageCpuSeconds;
+
+        private CandidateResult(Candidate candidate, List<Trial> trials) {
+            this.candidate = candidate;
+            this.runCount = trials.size();
+            this.averageBestFitness = trials.stream().mapToDouble(trial -> trial.bestFitness).average().orElse(0);
+            this.averageCpuSeconds = trials.stream().mapToDouble(trial -> trial.cpuSeconds).average().orElse(0);
+        }
+
+        public Candidate getCandidate() {
+            return this.candidate;
+        }
+
+        public int getRunCount() {
+            return this.runCount;
+        }
+
+        public double getAverageBestFitness() {
+            return this.averageBestFitness;
+        }
+
+        public double getAverageCpuSeconds() {
+            return this.averageCpuSeconds;
+        }
+
+        public double getFitnessPerCpuSecond() {
+            return this.averageBestFitness / Math.max(1e-3, this.averageCpuSeconds);
+        }
+    }
+
+    public static void main(String[] args) {
+        GAConfig config = GAConfig.loadConfig(args.length > 0 ? args[0] : null);
+        if (config == null || config.tuning == null) {
+            System.exit(1);
+        }
+
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : new SecureRandom().nextLong();
+
+        Path logDirectory = Paths.get("logs");
+        try {
+            Logger.setLogFileFromDirectory("TuningRunner", logDirectory);
+        } catch (IOException e) {
+            Logger.log(e, "Could not validate log directory '" + logDirectory + "'");
+        }
+        Logger.setLevel(config.getLogLevel());
+        MetricsExporter metricsExporter = MetricsExporter.start(config);
+
+        Logger.log("Loaded config '%s', tuning with seed %d", config.getConfigName(), seed);
+
+        // Same fuel behavior as the optimizer
+        FuelRod.setGTNHBehavior(true);
+
+        List<CandidateResult> results;
+        try {
+            results = new TuningRunner(config, seed).run();
+        } catch (IllegalArgumentException e) {
+            Logger.log(e, "Invalid tuning settings");
+            System.exit(1);
+            return;
+        } finally {
+            if (metricsExporter != null)
+                metricsExporter.close();
+        }
+
+        Logger.log("");
+        Logger.log("Configs by best fitness per CPU-second:");
+        for (int i = 0; i < results.size(); i++) {
+            CandidateResult result = results.get(i);
+            Logger.log("%2d - #%d %8.3f/CPU-s; best fitness: %7.2f; %7.1f CPU-s per run (%d runs) - %s", i + 1, result.getCandidate().getIndex(), result.getFitnessPerCpuSecond(), result.getAverageBestFitness(), result.getAverageCpuSeconds(), result.getRunCount(), result.getCandidate().getParameters());
+        }
+    }
+}
@@ -11,6 +11,8 @@ import static Ic2ExpReactorPlanner.BundleHelper.getI18n;
 
 public class ReactorSimulator {
     private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat(getI18n("Simulation.DecimalFormat"));
+    // The watchdog reads the clock every this many ticks (minus one), reading it costs more than most ticks
+    private static final int WATCHDOG_CLOCK_TICK_MASK = 1023;
 
     public int initialHeat;
     public boolean active;
@@ -62,6 +64,11 @@ public class ReactorSimulator {
 
     private Consumer<String> publisher;
 
+    // Setting, not simulation state: survives resetState()
+    private boolean cooldownSimulationEnabled = true;
+    private int watchdogMaxTicks = 0;
+    private long watchdogMaxNanos = 0;
+
     public ReactorSimulator() {
         this.replacedItems = new MaterialsList();
         this.alreadyBroken = new boolean[6][9]; // nice
@@ -131,6 +138,24 @@ public class ReactorSimulator {
         return this.cooldownTicks;
     }
 
+    /**
+     * Enables or disables the simulation of the cooldown phase after the reactor stops. Callers that only care about
+     * the active phase (e.g. short evaluation horizons) can skip it, it can take up to 50000 extra ticks.
+     */
+    public void setCooldownSimulationEnabled(boolean enabled) {
+        this.cooldownSimulationEnabled = enabled;
+    }
+
+    /**
+     * Aborts the simulations still running after {@code maxTicks} ticks or {@code maxNanos} nanoseconds, 0 for no
+     * limit. Aborted simulations are flagged {@link SimulationData#aborted}, their data covers the ticks simulated so
+     * far and their cooldown isn't simulated.
+     */
+    public void setWatchdog(int maxTicks, long maxNanos) {
+        this.watchdogMaxTicks = maxTicks;
+        this.watchdogMaxNanos = maxNanos;
+    }
+
     public SimulationData runSimulation(Reactor reactor) {
         return this.runSimulation(reactor, false, null);
     }
@@ -256,10 +281,11 @@ public class ReactorSimulator {
             calculateHeatingCooling(this.reactorTicks);
             handleAutomation(reactor, this.reactorTicks, loggingEnabled);
             handleBrokenComponents(reactor, data, this.reactorTicks, totalHeatOutput, this.totalRodCount, totalEUoutput, minReactorHeat, maxReactorHeat, loggingEnabled);
-        } while (reactor.getCurrentHeat() < reactor.getMaxHeat() && (!this.allFuelRodsDepleted || lastEUoutput > 0 || lastHeatOutput > 0) && this.reactorTicks < reactor.getMaxSimulationTicks());
+        } while (reactor.getCurrentHeat() < reactor.getMaxHeat() && (!this.allFuelRodsDepleted || lastEUoutput > 0 || lastHeatOutput > 0) && this.reactorTicks < reactor.getMaxSimulationTicks() && !isWatchdogTripped(data));
 
         data.minTemp = minReactorHeat;
         data.maxTemp = maxReactorHeat;
+        data.finalTemp = reactor.getCurrentHeat();
         sendToPublisher(formatI18n("Simulation.ReactorMinTemp", minReactorHeat));
         sendToPublisher(formatI18n("Simulation.ReactorMaxTemp", maxReactorHeat));
         if (reactor.getCurrentHeat() < reactor.getMaxHeat()) {
@@ -343,7 +369,7 @@ public class ReactorSimulator {
 
             if (prevReactorHeat == 0.0 && prevTotalComponentHeat == 0.0) {
                 sendToPublisher(getI18n("Simulation.NoCooldown"));
-            } else if (reactor.getCurrentHeat() < reactor.getMaxHeat()) {
+            } else if (reactor.getCurrentHeat() < reactor.getMaxHeat() && this.cooldownSimulationEnabled && !data.aborted) {
                 double currentTotalComponentHeat = prevTotalComponentHeat;
                 int reactorCooldownTime = 0;
                 do {
@@ -469,6 +495,14 @@ public class ReactorSimulator {
         return data;
     }
 
+    private boolean isWatchdogTripped(SimulationData data) {
+        if (this.watchdogMaxTicks > 0 && this.reactorTicks >= this.watchdogMaxTicks)
+            data.aborted = true;
+        else if (this.watchdogMaxNanos > 0 && (this.reactorTicks & WATCHDOG_CLOCK_TICK_MASK) == 0 && System.nanoTime() - data.startTime > this.watchdogMaxNanos)
+            data.aborted = true;
+        return data.aborted;
+    }
+
     private void handleBrokenComponents(Reactor reactor, SimulationData data, int reactorTicks, final double totalHeatOutput, final int totalRodCount, final double totalEUoutput, final double minReactorHeat, final double maxReactorHeat, boolean logginEnabled) {
         for (ReactorItem component : this.allComponents) {
             int row = component.getRow();
@@ -66,6 +66,7 @@ public class SimulationData {
     public double maxHUoutput = 0;
     public double minTemp = Double.MAX_VALUE;
     public double maxTemp = 0;
+    public double finalTemp = 0;
     
     // Heating and Cooling details
     public double hullHeating = 0;
@@ -79,6 +80,9 @@ public class SimulationData {
     public MaterialsList replacedItems = new MaterialsList();
 
     // Simulation metadata
+    public boolean aborted = false; // Stopped by the simulator's watchdog before the reactor stopped on its own
+    public boolean meltdownPredicted = false; // Never simulated, the heat balance check found the meltdown certain
     public transient long startTime = 0;
     public transient long endTime = 0;
+    public transient long cpuTimeNanos = 0; // CPU time the simulation took on its thread, 0 when unknown
 }
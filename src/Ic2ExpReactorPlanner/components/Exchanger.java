@@ -33,6 +33,14 @@ public class Exchanger extends ReactorItem {
         this.switchReactor = other.switchReactor;
     }
     
+    public int getSwitchSide() {
+        return switchSide;
+    }
+    
+    public int getSwitchReactor() {
+        return switchReactor;
+    }
+    
     @Override
     public void transfer() {
         heatableNeighbors.clear();
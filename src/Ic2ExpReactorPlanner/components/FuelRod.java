@@ -30,6 +30,10 @@ public class FuelRod extends ReactorItem {
         GT509behavior = value;
     }
     
+    public static boolean isGTNHBehavior() {
+        return GTNHbehavior;
+    }
+    
     public static void setGTNHBehavior(boolean value) {
         GTNHbehavior = value;
     }
@@ -93,10 +97,51 @@ public class FuelRod extends ReactorItem {
         }
     }
     
+    /**
+     * Gets the number of neutron pulses the rod gets on its own, without any reflecting neighbor.
+     * @return the base pulse count of the rod.
+     */
+    public int getBasePulses() {
+        return rodCount == 1 ? 1 : (rodCount == 2) ? 2 : 3;
+    }
+    
+    /**
+     * Computes the heat produced per tick for a number of pulses, without the fluid-mode MOX bonus.
+     * @param pulses the total number of pulses (base pulses plus reflecting neighbors).
+     * @return the heat produced per tick.
+     */
+    public int getHeatForPulses(final int pulses) {
+        return (int)(heatMult * pulses * (pulses + 1));
+    }
+    
+    /**
+     * Computes the EU produced per tick for a number of pulses.
+     * @param pulses the total number of pulses (base pulses plus reflecting neighbors).
+     * @param hullHeatRatio the reactor's current heat over its max heat, only used by MOX-style rods.
+     * @return the EU produced per tick.
+     */
+    public double getEnergyForPulses(final int pulses, final double hullHeatRatio) {
+        double energy = energyMult * pulses;
+        if (GT509behavior || "GT5.09".equals(sourceMod)) {
+            energy *= 2;//EUx2 if from GT5.09 or in GT5.09 mode
+            if (moxStyle) {
+                energy *= (1 + 1.5 * hullHeatRatio);
+            }
+        } else if (GTNHbehavior || "GTNH".equals(sourceMod)) {
+            energy *= 10;//EUx10 if from GTNH or in GTNH mode
+            if (moxStyle) {
+                energy *= (1 + 1.5 * hullHeatRatio);
+            }
+        } else if (moxStyle) {
+            energy *= (1 + 4.0 * hullHeatRatio);
+        }
+        return energy;
+    }
+    
     @Override
     public double generateHeat() {
-        int pulses = countNeutronNeighbors() + (rodCount == 1 ? 1 : (rodCount == 2) ? 2 : 3);
-        int heat = (int)(heatMult * pulses * (pulses + 1));
+        int pulses = countNeutronNeighbors() + getBasePulses();
+        int heat = getHeatForPulses(pulses);
         if (moxStyle && parent.isFluid() && (parent.getCurrentHeat() / parent.getMaxHeat()) > 0.5) {
             heat *= 2;
         }
@@ -109,21 +154,8 @@ public class FuelRod extends ReactorItem {
 
     @Override
     public double generateEnergy() {
-        int pulses = countNeutronNeighbors() + (rodCount == 1 ? 1 : (rodCount == 2) ? 2 : 3);
-        double energy = energyMult * pulses;
-        if (GT509behavior || "GT5.09".equals(sourceMod)) {
-            energy *= 2;//EUx2 if from GT5.09 or in GT5.09 mode
-            if (moxStyle) {
-                energy *= (1 + 1.5 * parent.getCurrentHeat() / parent.getMaxHeat());
-            }
-        } else if (GTNHbehavior || "GTNH".equals(sourceMod)) {
-            energy *= 10;//EUx10 if from GTNH or in GTNH mode
-            if (moxStyle) {
-                energy *= (1 + 1.5 * parent.getCurrentHeat() / parent.getMaxHeat());
-            }
-        } else if (moxStyle) {
-            energy *= (1 + 4.0 * parent.getCurrentHeat() / parent.getMaxHeat());
-        }
+        int pulses = countNeutronNeighbors() + getBasePulses();
+        double energy = getEnergyForPulses(pulses, parent.getCurrentHeat() / parent.getMaxHeat());
         minEUGenerated = Math.min(minEUGenerated, energy);
         maxEUGenerated = Math.max(maxEUGenerated, energy);
         currentEUGenerated = energy;
@@ -31,6 +31,10 @@ public class Plating extends ReactorItem {
         this.explosionPowerMultiplier = other.explosionPowerMultiplier;
     }
     
+    public int getHeatAdjustment() {
+        return heatAdjustment;
+    }
+    
     @Override
     public void addToReactor(final Reactor parent, final int row, final int col) {
         super.addToReactor(parent, row, col);
@@ -37,6 +37,18 @@ public class Vent extends ReactorItem {
         this.sideVent = other.sideVent;
     }
     
+    public int getSelfVent() {
+        return selfVent;
+    }
+    
+    public int getHullDraw() {
+        return hullDraw;
+    }
+    
+    public int getSideVent() {
+        return sideVent;
+    }
+    
     @Override
     public double dissipate() {
         double deltaHeat = Math.min(hullDraw, parent.getCurrentHeat());
@@ -0,0 +1,101 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.AnnealingEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class AnnealingEngineTest {
+    @Test
+    public void testTabuList_ShouldRememberDesignsForItsTenure() {
+        // Setup
+        List<ReactorGenome> designs = createDesigns(5);
+        AnnealingEngine.TabuList tabuList = new AnnealingEngine.TabuList(3);
+
+        // Test
+        for (int i = 0; i < 3; i++)
+            tabuList.add(designs.get(i));
+
+        // Asserts
+        for (int i = 0; i < 3; i++)
+            assertTrue("A design visited within the tenure should be tabu", tabuList.contains(designs.get(i)));
+        assertFalse("A design never visited shouldn't be tabu", tabuList.contains(designs.get(3)));
+        assertTrue("A copy of a visited design should be tabu too", tabuList.contains(designs.get(0).copy()));
+    }
+
+    @Test
+    public void testTabuList_WhenTenureIsExceeded_ShouldForgetTheOldestDesign() {
+        // Setup
+        List<ReactorGenome> designs = createDesigns(5);
+        AnnealingEngine.TabuList tabuList = new AnnealingEngine.TabuList(3);
+        for (int i = 0; i < 3; i++)
+            tabuList.add(designs.get(i));
+
+        // Test, visiting a design again doesn't make it younger
+        tabuList.add(designs.get(0));
+        tabuList.add(designs.get(3));
+
+        // Asserts
+        assertEquals("The tabu list should be capped at its tenure", 3, tabuList.size());
+        assertFalse("The oldest design should be forgotten", tabuList.contains(designs.get(0)));
+        for (int i = 1; i < 4; i++)
+            assertTrue("The younger designs should stay tabu", tabuList.contains(designs.get(i)));
+    }
+
+    @Test
+    public void testAcceptSwap_WhenHotterChainHoldsTheBetterDesign_ShouldAlwaysSwap() {
+        // Setup
+        MockRandom random = new MockRandom();
+        random.setDoubleValues(0.999999);
+
+        // Test
+        boolean swapped = AnnealingEngine.acceptSwap(100, 1, 150, 10, random);
+
+        // Asserts
+        assertTrue("A better design should always move to the colder chain", swapped);
+    }
+
+    @Test
+    public void testAcceptSwap_WhenColderChainHoldsTheBetterDesign_ShouldFollowTheExchangeProbability() {
+        // Setup, exp((100 - 110) * (1 / 5 - 1 / 10)) = exp(-1)
+        double probability = Math.exp(-1);
+        MockRandom random = new MockRandom();
+        random.setDoubleValues(probability - 0.001, probability + 0.001);
+
+        // Test
+        boolean swappedBelow = AnnealingEngine.acceptSwap(110, 5, 100, 10, random);
+        boolean swappedAbove = AnnealingEngine.acceptSwap(110, 5, 100, 10, random);
+
+        // Asserts
+        assertTrue("The swap should be accepted when the draw is under the exchange probability", swappedBelow);
+        assertFalse("The swap should be rejected when the draw is over the exchange probability", swappedAbove);
+    }
+
+    @Test
+    public void testAcceptSwap_WhenTemperaturesAreEqual_ShouldAlwaysSwap() {
+        // Setup
+        MockRandom random = new MockRandom();
+        random.setDoubleValues(0.999999);
+
+        // Test
+        boolean swapped = AnnealingEngine.acceptSwap(500, 10, 0, 10, random);
+
+        // Asserts
+        assertTrue("Chains at the same temperature have nothing to lose by swapping", swapped);
+    }
+
+    private static List<ReactorGenome> createDesigns(int count) {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        Random random = new Random(42);
+        Set<ReactorGenome> designs = new LinkedHashSet<>();
+        while (designs.size() < count)
+            designs.add(ReactorGenome.randomGenome(config, random));
+        return new ArrayList<>(designs);
+    }
+}
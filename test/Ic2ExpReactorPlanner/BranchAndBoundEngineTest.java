@@ -0,0 +1,111 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class BranchAndBoundEngineTest {
+    private static final double DELTA = 0.0001;
+    // Mirror images don't always simulate exactly the same, the optimum is only proven up to a few hundredths
+    private static final double MIRROR_DELTA = 0.05;
+
+    private static final int SINGLE_URANIUM_ROD = 1;
+    private static final int[] ALTERNATIVES = {-1, 10, 12, 35};
+
+    @Test
+    public void testRun_ShouldFindTheBruteForceOptimum() {
+        // Setup
+        GAConfig config = createConfig();
+        double bruteForceOptimum = bruteForceOptimum(config);
+
+        // Test
+        List<EvolutionEngine.EvaluatedGenome> results = runEngine(config);
+
+        // Asserts
+        assertFalse("The search should find designs", results.isEmpty());
+        assertEquals("Pruning by bound should never lose the optimum", bruteForceOptimum, results.get(0).getFitness(), DELTA);
+    }
+
+    @Test
+    public void testRun_WhenMirrorSymmetryIsOn_ShouldStillFindTheBruteForceOptimum() {
+        // Setup
+        GAConfig config = createConfig();
+        config.branchAndBound.mirrorSymmetry = true;
+        double bruteForceOptimum = bruteForceOptimum(config);
+
+        // Test
+        List<EvolutionEngine.EvaluatedGenome> results = runEngine(config);
+
+        // Asserts
+        assertFalse("The search should find designs", results.isEmpty());
+        assertEquals("Skipping mirror images should never lose the optimum", bruteForceOptimum, results.get(0).getFitness(), MIRROR_DELTA);
+    }
+
+    // A 2x3 reactor with fuel rods down the middle column, symmetric under every mirror, leaving 4 free slots
+    private static GAConfig createConfig() {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.reactor.rowCount = 2;
+        config.reactor.colCount = 3;
+        config.components.valid = new int[]{-1, ReactorGenome.FUEL_VALUE, 10, 12, 35};
+        config.branchAndBound.mirrorSymmetry = false;
+        config.branchAndBound.maxSimulations = 0;
+        return config;
+    }
+
+    private static ReactorGenome createTemplate(GAConfig config) {
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(SINGLE_URANIUM_ROD);
+        for (int i = 0; i < genome.getReactorLayout().length; i++)
+            genome.setComponentAt(i, i % 3 == 1 ? ReactorGenome.FUEL_VALUE : -1);
+        return genome;
+    }
+
+    private static List<EvolutionEngine.EvaluatedGenome> runEngine(GAConfig config) {
+        BranchAndBoundEngine engine = new BranchAndBoundEngine(config);
+        engine.preSeedGen0(List.of(createTemplate(config)));
+        return engine.run(false);
+    }
+
+    // Simulates every design sharing the template's fuel layout
+    private static double bruteForceOptimum(GAConfig config) {
+        ReactorGenome template = createTemplate(config);
+        List<Integer> freeSlots = new ArrayList<>();
+        for (int i = 0; i < template.getReactorLayout().length; i++) {
+            if (!template.isFuelRodAt(i))
+                freeSlots.add(i);
+        }
+
+        List<ReactorGenome> designs = new ArrayList<>();
+        int designCount = (int) Math.pow(ALTERNATIVES.length, freeSlots.size());
+        for (int design = 0; design < designCount; design++) {
+            ReactorGenome genome = template.copy();
+            int digits = design;
+            for (int slot : freeSlots) {
+                genome.setComponentAt(slot, ALTERNATIVES[digits % ALTERNATIVES.length]);
+                digits /= ALTERNATIVES.length;
+            }
+            designs.add(genome);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            FitnessCalculator fitnessCalculator = new FitnessCalculator(config);
+            List<SimulationData> simulations = new SimulationPool(executor).simulate(designs, SimulationPool.FULL_SIMULATION);
+
+            double optimum = 0;
+            for (int i = 0; i < designs.size(); i++)
+                optimum = Math.max(optimum, fitnessCalculator.score(designs.get(i), simulations.get(i)));
+
+            assertTrue("Test setup failed: Every design scores 0", optimum > 0);
+            return optimum;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.ConvergenceMonitor;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConvergenceMonitorTest {
+    @Test
+    public void testRecord_WhenFitnessIsFlat_ShouldRestartThenStop() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.convergence.window = 10;
+        config.convergence.action = GAConfig.CONVERGENCE_ACTION_RESTART;
+        config.convergence.maxRestarts = 1;
+        ConvergenceMonitor monitor = new ConvergenceMonitor(config);
+
+        // Test
+        ConvergenceMonitor.Decision firstStall = recordFlat(monitor, config.convergence.window);
+        ConvergenceMonitor.Decision secondStall = recordFlat(monitor, config.convergence.window);
+
+        // Asserts
+        assertEquals("The first stall should restart", ConvergenceMonitor.Decision.RESTART, firstStall);
+        assertEquals("A stall after the last restart should stop", ConvergenceMonitor.Decision.STOP, secondStall);
+        assertEquals("Restarts should be counted", 1, monitor.getRestartCount());
+    }
+
+    @Test
+    public void testRecord_WhenBestFitnessImproves_ShouldContinue() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.convergence.window = 10;
+        ConvergenceMonitor monitor = new ConvergenceMonitor(config);
+
+        // Test
+        ConvergenceMonitor.Decision decision = ConvergenceMonitor.Decision.CONTINUE;
+        for (int generation = 0; generation < 100 && decision == ConvergenceMonitor.Decision.CONTINUE; generation++)
+            decision = monitor.record(1000 + generation * 10, 500, 0.1);
+
+        // Asserts
+        assertEquals("A run still improving its best fitness shouldn't be stalled", ConvergenceMonitor.Decision.CONTINUE, decision);
+    }
+
+    // Records flat generations until the monitor decides something, returns CONTINUE if it never does
+    private static ConvergenceMonitor.Decision recordFlat(ConvergenceMonitor monitor, int window) {
+        for (int generation = 0; generation < window; generation++) {
+            ConvergenceMonitor.Decision decision = monitor.record(1000, 800, 0.1);
+            if (decision != ConvergenceMonitor.Decision.CONTINUE)
+                return decision;
+        }
+
+        return ConvergenceMonitor.Decision.CONTINUE;
+    }
+}
@@ -0,0 +1,120 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.DeadlineScheduler;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+public class DeadlineSchedulerTest {
+    private static final long MILLISECOND = 1_000_000L;
+
+    @Test
+    public void testResolveRemaining_WhenUntilIsATimeOfDay_ShouldUseTheNextOne() {
+        // Setup
+        GAConfig.DeadlineConfig deadlineConfig = new GAConfig.DeadlineConfig();
+        deadlineConfig.until = "07:00";
+        LocalDateTime evening = LocalDateTime.of(2026, 1, 30, 22, 0);
+        LocalDateTime morning = LocalDateTime.of(2026, 1, 31, 6, 30);
+
+        // Test
+        Duration overnight = DeadlineScheduler.resolveRemaining(deadlineConfig, evening);
+        Duration sameDay = DeadlineScheduler.resolveRemaining(deadlineConfig, morning);
+
+        // Asserts
+        assertEquals("A time already past today should mean tomorrow", Duration.ofHours(9), overnight);
+        assertEquals("A time still ahead should mean today", Duration.ofMinutes(30), sameDay);
+    }
+
+    @Test
+    public void testResolveRemaining_WhenUntilIsInvalid_ShouldThrow() {
+        // Setup
+        GAConfig.DeadlineConfig deadlineConfig = new GAConfig.DeadlineConfig();
+        deadlineConfig.until = "7 o'clock";
+
+        // Test
+        boolean rejected = false;
+        try {
+            DeadlineScheduler.resolveRemaining(deadlineConfig, LocalDateTime.of(2026, 1, 30, 22, 0));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+
+        // Asserts
+        assertTrue("An unreadable deadline should be rejected", rejected);
+    }
+
+    @Test
+    public void testSchedule_WhenTimeIsPlenty_ShouldEndWithAWholeFinalPhaseBeforeTheDeadline() {
+        // Setup, 100 genomes at 1ms each and a deadline 2.5s away: 25 generations fit
+        long[] clock = {0};
+        DeadlineScheduler scheduler = createScheduler(Duration.ofMillis(2500), clock);
+
+        // Test
+        ScheduledRun run = runScheduled(scheduler, clock, 100);
+
+        // Asserts
+        assertEquals("The final phase should start when only it fits anymore", 15, run.finalPhaseStart);
+        assertEquals("The population should keep its size when the final phase fits", 100, run.finalPopulationSize);
+        assertEquals("The final phase should last a whole phase", 25, run.generationCount);
+        assertTrue("The run should end before the deadline", clock[0] <= 2500 * MILLISECOND);
+    }
+
+    @Test
+    public void testSchedule_WhenAPhaseDoesNotFit_ShouldShrinkThePopulation() {
+        // Setup, only half a phase of 100 genomes fits
+        long[] clock = {0};
+        DeadlineScheduler scheduler = createScheduler(Duration.ofMillis(500), clock);
+
+        // Test
+        ScheduledRun run = runScheduled(scheduler, clock, 100);
+
+        // Asserts
+        assertEquals("The final phase should start as soon as the cost is known", 1, run.finalPhaseStart);
+        assertEquals("The population should shrink to what fits", 40, run.finalPopulationSize);
+        assertEquals("The final phase should last a whole phase", 11, run.generationCount);
+        assertTrue("The run should end before the deadline", clock[0] <= 500 * MILLISECOND);
+    }
+
+    private DeadlineScheduler createScheduler(Duration remaining, long[] clock) {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.evolution.phaseLengthGenerations = 10;
+        config.deadline = new GAConfig.DeadlineConfig();
+        config.deadline.minPopulationSize = 20;
+        config.deadline.safetyMargin = 0;
+        return new DeadlineScheduler(config, remaining, () -> clock[0]);
+    }
+
+    // Drives the scheduler like the engine does, every genome costing 1ms
+    private ScheduledRun runScheduled(DeadlineScheduler scheduler, long[] clock, int populationSize) {
+        ScheduledRun run = new ScheduledRun();
+        run.finalPhaseStart = -1;
+        run.finalPopulationSize = populationSize;
+
+        boolean lastGeneration = false;
+        while (!lastGeneration && run.generationCount < 1000) {
+            if (scheduler.shouldStartFinalPhase(run.generationCount, run.finalPopulationSize)) {
+                run.finalPhaseStart = run.generationCount;
+                run.finalPopulationSize = scheduler.getFinalPopulationSize();
+            }
+
+            long generationCost = run.finalPopulationSize * MILLISECOND;
+            clock[0] += generationCost;
+            lastGeneration = scheduler.isLastGeneration(run.generationCount, run.finalPopulationSize);
+            scheduler.recordGeneration(run.finalPopulationSize, generationCost);
+            run.generationCount++;
+        }
+
+        return run;
+    }
+
+    private static class ScheduledRun {
+        int finalPhaseStart;
+        int finalPopulationSize;
+        int generationCount;
+    }
+}
@@ -0,0 +1,83 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.DistributionModel;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class DistributionModelTest {
+    private static final int TARGET_COMPONENT_ID = 13; // Overclocked Heat Vent
+
+    @Test
+    public void testUpdate_WhenElitesAgree_ShouldSampleTheirDesign() {
+        // Setup, elites with a fuel rod in the first slot and vents everywhere else
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        DistributionModel model = new DistributionModel(config);
+
+        ReactorGenome elite = new ReactorGenome(config);
+        elite.setFuelType(config.fuels.valid[0]);
+        Arrays.fill(elite.getReactorLayout(), TARGET_COMPONENT_ID);
+        elite.setComponentAt(0, ReactorGenome.FUEL_VALUE);
+        List<ReactorGenome> elites = List.of(elite, elite.copy());
+
+        // Test
+        for (int i = 0; i < 100; i++)
+            model.update(elites, 0.2, 0.001);
+
+        // Asserts
+        assertTrue("Fuel should be almost certain where every elite has it", model.getFuelProbability(0, 0) > 0.99);
+        assertTrue("Fuel should be almost impossible next to it", model.getFuelProbability(1, 1) < 0.01);
+        assertTrue("The elites' component should dominate", model.getComponentProbability(1, TARGET_COMPONENT_ID) > 0.9);
+        assertTrue("The elites' fuel type should dominate", model.getFuelTypeProbability(config.fuels.valid[0]) > 0.9);
+        assertTrue("A converged model should have a low entropy", model.getEntropy() < 0.2);
+
+        SplittableRandom random = new SplittableRandom(42);
+        int matchingSlots = 0;
+        for (int i = 0; i < 100; i++) {
+            int[] sampledLayout = model.sample(config, random).getReactorLayout();
+            for (int slot = 0; slot < sampledLayout.length; slot++) {
+                if (sampledLayout[slot] == elite.getReactorLayout()[slot])
+                    matchingSlots++;
+            }
+        }
+        assertTrue("Samples should mostly match the elites' design", matchingSlots > 0.9 * 100 * elite.getReactorLayout().length);
+    }
+
+    @Test
+    public void testWrite_WhenReadBack_ShouldKeepEveryProbability() throws IOException {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        DistributionModel model = new DistributionModel(config);
+
+        SplittableRandom random = new SplittableRandom(7);
+        List<ReactorGenome> elites = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            elites.add(ReactorGenome.randomGenome(config, random));
+        model.update(elites, 0.5, 0.01);
+
+        // Test
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.write(new DataOutputStream(bytes));
+        DistributionModel readModel = DistributionModel.read(config, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Asserts
+        for (int slot = 0; slot < config.reactor.rowCount * config.reactor.colCount; slot++) {
+            for (int context = 0; context < 3; context++)
+                assertEquals("Fuel probabilities should survive the round trip", model.getFuelProbability(slot, context), readModel.getFuelProbability(slot, context), 0);
+            for (int componentId : config.components.valid)
+                assertEquals("Component probabilities should survive the round trip", model.getComponentProbability(slot, componentId), readModel.getComponentProbability(slot, componentId), 0);
+        }
+        for (int fuelType : config.fuels.valid)
+            assertEquals("Fuel type probabilities should survive the round trip", model.getFuelTypeProbability(fuelType), readModel.getFuelTypeProbability(fuelType), 0);
+    }
+}
@@ -0,0 +1,59 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EvaluationStoreTest {
+    @Test
+    public void testRead_WhenStoreWasWritten_ShouldRescoreLikeTheCalculator() throws IOException {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        Random random = new Random(42);
+        List<ReactorGenome> genomes = new ArrayList<>();
+        List<GenomeMetrics> metrics = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ReactorGenome genome = ReactorGenome.randomGenome(config, random);
+            genomes.add(genome);
+            metrics.add(new GenomeMetrics(genome.getFuelRodCount(), random.nextDouble() * 2000, random.nextDouble() * 6000, random.nextBoolean()));
+        }
+
+        Path path = Files.createTempFile("evaluations", ".bin");
+        try {
+            try (EvaluationStore.Writer writer = EvaluationStore.openWriter(config, path)) {
+                for (int i = 0; i < genomes.size(); i++)
+                    writer.append(genomes.get(i), metrics.get(i));
+            }
+
+            // New weights, as a later run would use
+            config.fitness.euOutputWeight *= 2;
+            config.fitness.heatPenaltyMultiplier *= 3;
+            FitnessCalculator calculator = new FitnessCalculator(config);
+
+            // Test
+            List<EvaluationStore.Record> records = new ArrayList<>();
+            long count = EvaluationStore.read(config, path, records::add);
+
+            // Asserts
+            assertEquals("Every record should be read back", genomes.size(), count);
+            for (int i = 0; i < genomes.size(); i++) {
+                EvaluationStore.Record record = records.get(i);
+                assertEquals("Genome should survive the round trip", genomes.get(i), record.getGenome());
+                assertEquals("Fuel type should survive the round trip", genomes.get(i).getFuelType(), record.getGenome().getFuelType());
+                assertEquals("Re-scored fitness should match the calculator", calculator.score(genomes.get(i), metrics.get(i).toSimulationData()), calculator.score(record.getMetrics()), 0);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
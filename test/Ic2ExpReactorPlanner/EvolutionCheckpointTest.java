@@ -0,0 +1,49 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EvolutionCheckpointTest {
+    @Test
+    public void testResume_WhenCheckpointWasWritten_ShouldFollowTheUninterruptedTrajectory() throws IOException {
+        // Setup, a short run checkpointing halfway, so the resumed run has to breed from the restored state
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.evolution.populationSize = 12;
+        config.evolution.maxGeneration = 4;
+        config.evolution.phaseLengthGenerations = 2;
+
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            config.checkpoint.enabled = true;
+            config.checkpoint.path = path.toString();
+            config.checkpoint.interval = 2;
+            config.checkpoint.bestSoFarPath = null;
+
+            List<EvolutionEngine.EvaluatedGenome> uninterrupted = new EvolutionEngine(config, 42).run();
+
+            // Test
+            EvolutionEngine resumedEngine = EvolutionEngine.resume(config, path);
+            config.checkpoint.enabled = false;
+            List<EvolutionEngine.EvaluatedGenome> resumed = resumedEngine.run();
+
+            // Asserts
+            assertEquals("The seed should come from the checkpoint", 42, resumedEngine.getSeed());
+            assertEquals("Both runs should end with the same population size", uninterrupted.size(), resumed.size());
+            for (int i = 0; i < uninterrupted.size(); i++) {
+                assertEquals("Both runs should end with the same genomes", uninterrupted.get(i).getGenome(), resumed.get(i).getGenome());
+                assertEquals("Both runs should end with the same fitness values", uninterrupted.get(i).getFitness(), resumed.get(i).getFitness(), 0);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
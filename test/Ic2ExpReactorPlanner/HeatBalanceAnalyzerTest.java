@@ -0,0 +1,109 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.HeatBalanceAnalyzer;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import Ic2ExpReactorPlanner.components.FuelRod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HeatBalanceAnalyzerTest {
+    private static final String URANIUM_REACTOR_ERP_CODE = "erp=N0nc6OU0SvFZnCLVeUv6NTtSGYRuhPMF5/rPVu58BwJq0rGgaqVCookKH7pbJVRL7i32LAM=";
+
+    @Test
+    public void testAnalyze_WhenReactorIsOnlyFuelRods_ShouldBeCertainToMeltDown() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(3); // Quad Fuel Rod (Uranium)
+        Arrays.fill(genome.getReactorLayout(), ReactorGenome.FUEL_VALUE);
+
+        // Test
+        HeatBalanceAnalyzer.Analysis analysis = new HeatBalanceAnalyzer(config).analyze(genome);
+
+        // Asserts
+        assertTrue("A reactor without any cooling should be certain to melt down", analysis.isMeltdownCertain());
+    }
+
+    @Test
+    public void testAnalyze_WhenReactorIsStable_ShouldNotBeCertainToMeltDown() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        Reactor reactor = new Reactor();
+        reactor.setCode(URANIUM_REACTOR_ERP_CODE);
+        ReactorGenome genome = ReactorGenome.fromReactor(config, reactor);
+
+        // Test
+        HeatBalanceAnalyzer.Analysis analysis = new HeatBalanceAnalyzer(config).analyze(genome);
+
+        // Asserts
+        assertFalse("A stable reactor should never be flagged as a certain melt down", analysis.isMeltdownCertain());
+        assertEquals("A stable reactor shouldn't leave any heat for the hull", 0.0, analysis.getMinimumHullHeat(), 0.0001);
+    }
+
+    @Test
+    public void testAnalyze_WhenVentsAreCutOffFromTheHull_ShouldStillBeCertainToMeltDown() {
+        // Setup, a fuel rod alone in a corner heats the hull, the vents on the far side never touch that heat
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(1); // Fuel Rod (Uranium)
+        int[] layout = genome.getReactorLayout();
+        Arrays.fill(layout, -1);
+        layout[0] = ReactorGenome.FUEL_VALUE;
+        for (int i = 0; i < layout.length; i++) {
+            if (i % config.reactor.colCount >= 3)
+                layout[i] = 10; // Advanced Heat Vent
+        }
+
+        // Test
+        HeatBalanceAnalyzer.Analysis analysis = new HeatBalanceAnalyzer(config).analyze(genome);
+
+        // Asserts
+        assertTrue("Vents outside the hull cluster shouldn't count against the hull heat", analysis.isMeltdownCertain());
+        assertEquals("Only the isolated fuel rod should be overheating", 1, analysis.getOverheatingClusterCount());
+    }
+
+    @Test
+    public void testMinimumHullHeat_WhenSlotsAreUndecided_ShouldNeverExceedAnyCompletion() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        HeatBalanceAnalyzer analyzer = new HeatBalanceAnalyzer(config);
+
+        int[] alternatives = Arrays.stream(config.components.valid)
+                .filter(componentId -> componentId != ReactorGenome.FUEL_VALUE && !(componentId >= 0 && ComponentFactory.getDefaultComponent(componentId) instanceof FuelRod))
+                .toArray();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            ReactorGenome genome = ReactorGenome.randomGenome(config, random);
+            int[] layout = genome.getReactorLayout();
+
+            // The genome is one of the completions of the partial layout
+            int[] partialLayout = layout.clone();
+            for (int slot = 0; slot < partialLayout.length; slot++) {
+                final int componentId = partialLayout[slot];
+                if (random.nextBoolean() && Arrays.stream(alternatives).anyMatch(alternative -> alternative == componentId))
+                    partialLayout[slot] = HeatBalanceAnalyzer.UNDECIDED;
+            }
+
+            // Test
+            double partialBound = analyzer.minimumHullHeat(genome.getFuelType(), partialLayout, alternatives);
+            double completeBound = analyzer.minimumHullHeat(genome.getFuelType(), layout, alternatives);
+
+            // Asserts
+            assertTrue("The bound of a partial layout should be at most the one of its completion", partialBound <= completeBound + 0.0001);
+            assertTrue("A complete layout's bound should be at most the analysis, which also checks the hull cluster", completeBound <= analyzer.analyze(genome).getMinimumHullHeat() + 0.0001);
+        }
+    }
+}
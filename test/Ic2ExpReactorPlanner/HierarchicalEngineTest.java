@@ -0,0 +1,87 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HierarchicalEngineTest {
+    private static final int INNER_EVALUATION_BUDGET = 4;
+
+    @Test
+    public void testRun_ShouldOptimizeEveryFuelLayoutOnce() {
+        // Setup
+        GAConfig config = createConfig();
+        long simulationCountBefore = getSimulationCount();
+
+        // Test
+        List<EvolutionEngine.EvaluatedGenome> results = new HierarchicalEngine(config, 42).run(false);
+        long simulationCount = getSimulationCount() - simulationCountBefore;
+
+        // Asserts
+        assertFalse("The search should return designs", results.isEmpty());
+        Set<String> fuelLayouts = new HashSet<>();
+        for (EvolutionEngine.EvaluatedGenome result : results)
+            assertTrue("Every result should have its own fuel layout", fuelLayouts.add(getFuelLayout(result.getGenome())));
+        assertTrue("The layouts should have been simulated", simulationCount > 0);
+        assertTrue("No layout should get more than one inner search budget", simulationCount <= (long) results.size() * INNER_EVALUATION_BUDGET);
+    }
+
+    @Test
+    public void testRun_WhenFuelIsTheOnlyValidComponent_ShouldLeaveTheOtherSlotsEmpty() {
+        // Setup
+        GAConfig config = createConfig();
+        config.components.valid = new int[]{ReactorGenome.FUEL_VALUE};
+
+        // Test
+        List<EvolutionEngine.EvaluatedGenome> results = new HierarchicalEngine(config, 42).run(false);
+
+        // Asserts
+        assertFalse("The search should return designs", results.isEmpty());
+        boolean hasFreeSlot = false;
+        for (EvolutionEngine.EvaluatedGenome result : results) {
+            for (int componentId : result.getGenome().getReactorLayout()) {
+                assertTrue("A slot should hold fuel or stay empty", componentId == ReactorGenome.FUEL_VALUE || componentId == -1);
+                hasFreeSlot |= componentId == -1;
+            }
+        }
+        assertTrue("Bred layouts should have free slots to fill", hasFreeSlot);
+    }
+
+    @Test
+    public void testRun_WhenNoLayoutIsOptimized_ShouldReturnNothing() {
+        // Setup
+        GAConfig config = createConfig();
+        config.hierarchical.layoutPopulationSize = 0;
+
+        // Test
+        List<EvolutionEngine.EvaluatedGenome> results = new HierarchicalEngine(config, 42).run(false);
+
+        // Asserts
+        assertTrue("Without layouts there is nothing to breed", results.isEmpty());
+    }
+
+    private static GAConfig createConfig() {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.hierarchical.layoutPopulationSize = 4;
+        config.hierarchical.maxGeneration = 2;
+        config.hierarchical.layoutOffspringCount = 3;
+        config.hierarchical.innerEvaluationBudget = INNER_EVALUATION_BUDGET;
+        config.hierarchical.innerBatchSize = 2;
+        return config;
+    }
+
+    private static long getSimulationCount() {
+        return MetricsRegistry.getDefault().snapshot().getOrDefault("ga_simulations_total", 0.0).longValue();
+    }
+
+    private static String getFuelLayout(ReactorGenome genome) {
+        StringBuilder fuelLayout = new StringBuilder().append(genome.getFuelType()).append(':');
+        for (int componentId : genome.getReactorLayout())
+            fuelLayout.append(componentId == ReactorGenome.FUEL_VALUE ? 'F' : '.');
+        return fuelLayout.toString();
+    }
+}
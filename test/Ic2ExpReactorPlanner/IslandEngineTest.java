@@ -0,0 +1,31 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.IslandEngine;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IslandEngineTest {
+    @Test
+    public void testRun_WhenProcessesExitRightAfterSendingResults_ShouldKeepTheirPopulations() {
+        // Setup, every island is a process, they exit as soon as their results are flushed
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.evolution.populationSize = 8;
+        config.evolution.maxGeneration = 2;
+        config.evolution.phaseLengthGenerations = 1;
+        config.islands.count = 3;
+        config.islands.processCount = 3;
+        config.islands.migrationInterval = 1;
+
+        // Test
+        List<EvolutionEngine.EvaluatedGenome> population = new IslandEngine(config, 42).run(false);
+
+        // Asserts
+        assertEquals("Every island's final population should come back", 3 * 8, population.size());
+    }
+}
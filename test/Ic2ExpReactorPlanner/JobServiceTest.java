@@ -0,0 +1,102 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.JobService;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JobServiceTest {
+    @Test
+    public void testSubmit_WhenJobsQueueUp_ShouldRunThemInTurnAndStreamTheirProgress() throws Exception {
+        // Setup, one job at a time so the second one waits in line
+        GAConfig config = createConfig(4);
+        config.jobService.maxConcurrentJobs = 1;
+        List<EvolutionEngine.EvaluatedGenome> directRun = new EvolutionEngine(config, 42).run();
+        double directBestFitness = directRun.stream().max(Comparator.comparingDouble(EvolutionEngine.EvaluatedGenome::getFitness)).orElseThrow().getFitness();
+
+        JobService service = new JobService(config);
+        service.start();
+        try {
+            // Test
+            JobService.Job first = service.submit(config, 42);
+            JobService.Job second = service.submit(config, 43);
+            boolean secondCancelled = second.cancel();
+            assertTrue("Test setup failed: First job didn't finish", first.awaitCompletion(60000));
+            String events = get(service, "/jobs/" + first.getId() + "/events");
+
+            // Asserts
+            assertTrue("A queued job should be cancellable", secondCancelled);
+            assertEquals("A job cancelled in line should never run", JobService.Job.State.CANCELLED, second.getState());
+            assertTrue("A job cancelled in line should have no progress", second.getProgress().isEmpty());
+
+            assertEquals("The first job should run to the end", JobService.Job.State.DONE, first.getState());
+            assertEquals("Every generation should be reported", 4, first.getProgress().size());
+            assertEquals("The shared executor shouldn't change the run", directBestFitness, first.getResults().get(0).getFitness(), 0);
+
+            assertEquals("The stream should replay every generation", 4, events.split("event: progress", -1).length - 1);
+            assertTrue("The stream should end with the final state", events.contains("\"state\":\"DONE\""));
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    public void testCancel_WhenJobIsPaused_ShouldStopWithItsBestDesigns() throws Exception {
+        // Setup, a run far too long to finish
+        GAConfig config = createConfig(1000);
+        JobService service = new JobService(config);
+        service.start();
+        try {
+            JobService.Job job = service.submit(config, 42);
+            long deadline = System.currentTimeMillis() + 60000;
+            while (job.getProgress().isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertFalse("Test setup failed: Job didn't start", job.getProgress().isEmpty());
+
+            // Test
+            boolean paused = job.pause();
+            JobService.Job.State pausedState = job.getState();
+            boolean cancelled = job.cancel();
+            boolean finished = job.awaitCompletion(60000);
+
+            // Asserts
+            assertTrue("A running job should be pausable", paused);
+            assertEquals("The job should be paused", JobService.Job.State.PAUSED, pausedState);
+            assertTrue("A paused job should be cancellable", cancelled);
+            assertTrue("A cancelled job should stop", finished);
+            assertEquals("The job should end cancelled", JobService.Job.State.CANCELLED, job.getState());
+            assertTrue("The job should stop long before its last generation", job.getProgress().size() < 1000);
+            assertFalse("A cancelled job should keep its best designs", job.getResults().isEmpty());
+        } finally {
+            service.stop();
+        }
+    }
+
+    private GAConfig createConfig(int maxGeneration) {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.evolution.populationSize = 12;
+        config.evolution.maxGeneration = maxGeneration;
+        config.evolution.phaseLengthGenerations = 2;
+        config.jobService.port = 0;
+        return config;
+    }
+
+    private String get(JobService service, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + service.getPort() + path).toURL().openConnection();
+        assertEquals("Request should succeed", 200, connection.getResponseCode());
+        try (InputStream input = connection.getInputStream()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
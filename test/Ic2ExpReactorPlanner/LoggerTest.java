@@ -0,0 +1,111 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.Logger;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class LoggerTest {
+    @Test
+    public void testLog_WhenLevelIsDisabled_ShouldNotBuildTheMessage() {
+        // Setup
+        AtomicBoolean built = new AtomicBoolean();
+        Logger.setLevel(Logger.LogLevel.INFO);
+        try {
+            // Test
+            Logger.log(Logger.LogLevel.DEBUG, () -> {
+                built.set(true);
+                return "Costly details";
+            });
+
+            // Asserts
+            assertFalse("Debug messages should be disabled at the info level", Logger.isEnabled(Logger.LogLevel.DEBUG));
+            assertTrue("Warnings should still be enabled at the info level", Logger.isEnabled(Logger.LogLevel.WARNING));
+            assertFalse("A disabled message should never be built", built.get());
+        } finally {
+            Logger.setLevel(Logger.LogLevel.DEBUG);
+        }
+    }
+
+    @Test
+    public void testFlush_WhenManyThreadsLog_ShouldWriteEveryMessageInOrder() throws Exception {
+        // Setup, more messages than the buffer holds so the threads have to wait for the writer
+        int threadCount = 4;
+        int messageCount = 5000;
+        Path logPath = Files.createTempFile("logger", ".log");
+        PrintStream console = System.out;
+        Logger.flush();
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        Logger.setLogFileFromPath(logPath.toString());
+        try {
+            // Test
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < messageCount; i++)
+                        Logger.log(Logger.LogLevel.DEBUG, "LoggerTest thread %d message %d", thread, i);
+                }));
+            }
+            for (Thread thread : threads)
+                thread.start();
+            for (Thread thread : threads)
+                thread.join();
+            Logger.flush();
+
+            // Asserts
+            int[] nextMessage = new int[threadCount];
+            for (String line : Files.readAllLines(logPath, StandardCharsets.UTF_8)) {
+                if (!line.contains("LoggerTest thread"))
+                    continue;
+
+                String[] words = line.split(" ");
+                int thread = Integer.parseInt(words[words.length - 3]);
+                assertEquals("A thread's messages should be written in the order they were logged", nextMessage[thread], Integer.parseInt(words[words.length - 1]));
+                nextMessage[thread]++;
+            }
+            for (int t = 0; t < threadCount; t++)
+                assertEquals("Every message should be in the log file", messageCount, nextMessage[t]);
+        } finally {
+            Logger.setLogFileFromPath("");
+            System.setOut(console);
+            Files.deleteIfExists(logPath);
+        }
+    }
+
+    @Test
+    public void testLog_WhenArgumentIsMutable_ShouldFormatItAsItWasWhenLogged() throws Exception {
+        // Setup, an AtomicLong is a Number but it can still change before the writer formats it
+        AtomicLong counter = new AtomicLong(7);
+        Path logPath = Files.createTempFile("logger", ".log");
+        PrintStream console = System.out;
+        Logger.flush();
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        Logger.setLogFileFromPath(logPath.toString());
+        try {
+            // Test
+            Logger.log(Logger.LogLevel.DEBUG, "LoggerTest counter %s", counter);
+            counter.set(8);
+            Logger.flush();
+
+            // Asserts
+            List<String> lines = Files.readAllLines(logPath, StandardCharsets.UTF_8);
+            assertTrue("The argument should be formatted with its value when logged", lines.stream().anyMatch(line -> line.endsWith("LoggerTest counter 7")));
+            assertFalse("A later change to the argument shouldn't reach the log", lines.stream().anyMatch(line -> line.endsWith("LoggerTest counter 8")));
+        } finally {
+            Logger.setLogFileFromPath("");
+            System.setOut(console);
+            Files.deleteIfExists(logPath);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.MapElitesArchive;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MapElitesArchiveTest {
+    @Test
+    public void testInsert_WhenGenomesShareACell_ShouldOnlyKeepTheBest() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        MapElitesArchive archive = new MapElitesArchive(config);
+
+        // Test & Asserts
+        assertEquals("First genome of a cell should fill it", MapElitesArchive.InsertResult.FILLED, archive.insert(evaluatedGenome(config, 4, 250.0, 300.0)));
+        assertEquals("A worse genome of the same cell should be rejected", MapElitesArchive.InsertResult.REJECTED, archive.insert(evaluatedGenome(config, 4, 260.0, 200.0)));
+        assertEquals("A better genome of the same cell should replace the elite", MapElitesArchive.InsertResult.IMPROVED, archive.insert(evaluatedGenome(config, 4, 270.0, 400.0)));
+        assertEquals("Another rod count is another cell", MapElitesArchive.InsertResult.FILLED, archive.insert(evaluatedGenome(config, 5, 250.0, 100.0)));
+        assertEquals("Another EU/t band is another cell", MapElitesArchive.InsertResult.FILLED, archive.insert(evaluatedGenome(config, 4, 950.0, 50.0)));
+        assertEquals("Unstable designs should never be archived", MapElitesArchive.InsertResult.REJECTED, archive.insert(evaluatedGenome(config, 6, 250.0, 0.0)));
+
+        assertEquals("Archive should have three elites", 3, archive.getFilledCount());
+        assertEquals("Best elite should be the improved one", 400.0, archive.getBest().getFitness(), 0.0001);
+        assertEquals("Quality-diversity score should be the sum of the elites' fitness", 550.0, archive.getQualityDiversityScore(), 0.0001);
+        assertEquals("There should be one best design per rod count", 2, archive.getBestPerFuelAndRodCount().size());
+    }
+
+    @Test
+    public void testInsert_WhenSimulationWasAborted_ShouldRejectIt() {
+        // Setup, a positive fallback fitness would otherwise be enough to take a cell
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        MapElitesArchive archive = new MapElitesArchive(config);
+        EvolutionEngine.EvaluatedGenome aborted = evaluatedGenome(config, 4, 250.0, 300.0);
+        aborted.getSimulationData().aborted = true;
+
+        // Test
+        MapElitesArchive.InsertResult result = archive.insert(aborted);
+
+        // Asserts
+        assertEquals("An aborted simulation should never be archived", MapElitesArchive.InsertResult.REJECTED, result);
+        assertEquals("The archive should stay empty", 0, archive.getFilledCount());
+    }
+
+    private static EvolutionEngine.EvaluatedGenome evaluatedGenome(GAConfig config, int fuelRodCount, double avgEUOutput, double fitness) {
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(config.fuels.valid[0]);
+        Arrays.fill(genome.getReactorLayout(), -1);
+        for (int i = 0; i < fuelRodCount; i++)
+            genome.setComponentAt(i, ReactorGenome.FUEL_VALUE);
+
+        SimulationData simulationData = new SimulationData();
+        simulationData.avgEUOutput = avgEUOutput;
+
+        EvolutionEngine.EvaluatedGenome evaluatedGenome = new EvolutionEngine.EvaluatedGenome(genome, fitness);
+        evaluatedGenome.setSimulationData(simulationData);
+        return evaluatedGenome;
+    }
+}
@@ -0,0 +1,66 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.MemeticRefiner;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MemeticRefinerTest {
+    private static final int TARGET_COMPONENT_ID = 13; // Overclocked Heat Vent
+
+    @Test
+    public void testRefine_WhenNeighboursImprove_ShouldClimbUntilBudgetRunsOut() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.memetic.eliteCount = 1;
+        config.memetic.evaluationBudget = 2000;
+
+        // Fitness counts the target components, every single-slot sweep can add exactly one
+        Set<ReactorGenome> evaluatedGenomes = new HashSet<>();
+        int[] evaluationCount = {0};
+        MemeticRefiner refiner = new MemeticRefiner(config, genomes -> {
+            List<EvolutionEngine.EvaluatedGenome> results = new ArrayList<>();
+            for (ReactorGenome genome : genomes) {
+                assertTrue("A neighbour should never be evaluated twice", evaluatedGenomes.add(genome));
+                results.add(new EvolutionEngine.EvaluatedGenome(genome, 1.0 + countTargets(genome)));
+            }
+            evaluationCount[0] += genomes.size();
+            return results;
+        });
+
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(config.fuels.valid[0]);
+        Arrays.fill(genome.getReactorLayout(), -1);
+
+        List<EvolutionEngine.EvaluatedGenome> population = new ArrayList<>();
+        population.add(new EvolutionEngine.EvaluatedGenome(genome, 1.0));
+
+        // Test
+        MemeticRefiner.RefinementResult result = refiner.refine(population, new Random(0));
+
+        // Asserts
+        assertEquals("Refiner should spend its whole budget while it keeps improving", config.memetic.evaluationBudget, evaluationCount[0]);
+        assertEquals("Reported evaluations should match the evaluator calls", evaluationCount[0], result.getEvaluationCount());
+        assertEquals("The elite should have been improved", 1, result.getImprovedEliteCount());
+
+        EvolutionEngine.EvaluatedGenome refined = population.get(0);
+        assertTrue("Several improving moves should have been adopted", countTargets(refined.getGenome()) > 1);
+        assertEquals("Refined fitness should be the one of the adopted genome", 1.0 + countTargets(refined.getGenome()), refined.getFitness(), 0.0001);
+    }
+
+    private static int countTargets(ReactorGenome genome) {
+        int count = 0;
+        for (int componentId : genome.getReactorLayout()) {
+            if (componentId == TARGET_COMPONENT_ID)
+                count++;
+        }
+
+        return count;
+    }
+}
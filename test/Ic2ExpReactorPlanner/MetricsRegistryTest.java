@@ -0,0 +1,64 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.MetricsRegistry;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+    @Test
+    public void testToPrometheusText_ShouldWriteEveryMetricInTheTextFormat() {
+        // Setup
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_simulations_total", "Simulations").add(3);
+        registry.gauge("test_diversity", "Diversity").set(0.25);
+        MetricsRegistry.Histogram histogram = registry.histogram("test_generation_seconds", "Generation time", 1, 10);
+        histogram.observe(0.5);
+        histogram.observe(5);
+        histogram.observe(50);
+
+        // Test
+        String text = registry.toPrometheusText();
+
+        // Asserts
+        String expected = "# HELP test_simulations_total Simulations\n" +
+                "# TYPE test_simulations_total counter\n" +
+                "test_simulations_total 3\n" +
+                "# HELP test_diversity Diversity\n" +
+                "# TYPE test_diversity gauge\n" +
+                "test_diversity 0.25\n" +
+                "# HELP test_generation_seconds Generation time\n" +
+                "# TYPE test_generation_seconds histogram\n" +
+                "test_generation_seconds_bucket{le=\"1\"} 1\n" +
+                "test_generation_seconds_bucket{le=\"10\"} 2\n" +
+                "test_generation_seconds_bucket{le=\"+Inf\"} 3\n" +
+                "test_generation_seconds_sum 55.5\n" +
+                "test_generation_seconds_count 3\n";
+        assertEquals("Metrics should be written in registration order with cumulative buckets", expected, text);
+    }
+
+    @Test
+    public void testCounter_WhenNameIsTaken_ShouldReuseOrReject() {
+        // Setup
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsRegistry.Counter counter = registry.counter("test_total", "Test");
+
+        // Test
+        MetricsRegistry.Counter sameCounter = registry.counter("test_total", "Test");
+        boolean rejected = false;
+        try {
+            registry.gauge("test_total", "Test");
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        sameCounter.increment();
+        Map<String, Double> snapshot = registry.snapshot();
+
+        // Asserts
+        assertSame("A counter should be shared by everyone using its name", counter, sameCounter);
+        assertTrue("A name shouldn't be registered with two types", rejected);
+        assertEquals("The snapshot should hold the counter's value", 1, snapshot.get("test_total"), 0);
+    }
+}
@@ -0,0 +1,52 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.MigrationHub;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MigrationHubTest {
+    @Test
+    public void testMigrate_WhenTopologyIsRing_ShouldOnlyReachTheNextIsland() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        MigrationHub hub = new MigrationHub(GAConfig.TOPOLOGY_RING, 3);
+        List<List<MigrationHub.Migration>> received = connectIslands(hub, 3);
+
+        // Test
+        hub.migrate(new MigrationHub.Migration(2, 10, 123.0, List.of(new ReactorGenome(config))));
+
+        // Asserts
+        assertEquals("The last island should send to the first one", 1, received.get(0).size());
+        assertTrue("No other island should get the migrants", received.get(1).isEmpty() && received.get(2).isEmpty());
+        assertEquals("The migrants should arrive as sent", 1, received.get(0).get(0).getMigrants().size());
+    }
+
+    @Test
+    public void testRoutes_WhenTopologyIsAllToAll_ShouldReachEveryOtherIsland() {
+        // Test
+        List<Integer> routes = MigrationHub.routes(GAConfig.TOPOLOGY_ALL_TO_ALL, 4, 1);
+        List<Integer> soloRoutes = MigrationHub.routes(GAConfig.TOPOLOGY_ALL_TO_ALL, 1, 0);
+
+        // Asserts
+        assertEquals("Every other island should be reached", List.of(0, 2, 3), routes);
+        assertTrue("A lone island has nowhere to send migrants", soloRoutes.isEmpty());
+    }
+
+    private static List<List<MigrationHub.Migration>> connectIslands(MigrationHub hub, int islandCount) {
+        List<List<MigrationHub.Migration>> received = new ArrayList<>();
+        for (int island = 0; island < islandCount; island++) {
+            List<MigrationHub.Migration> islandReceived = new ArrayList<>();
+            received.add(islandReceived);
+            hub.connect(island, islandReceived::add);
+        }
+
+        return received;
+    }
+}
@@ -0,0 +1,87 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.NonDominatedSorter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NonDominatedSorterTest {
+    @Test
+    public void testSort_WhenGivenRandomSolutions_ShouldMatchBruteForceRanks() {
+        // Setup, coarse values so ties and duplicates happen
+        Random random = new Random(42);
+        int n = 500;
+        double[][] objectives = new double[n][3];
+        double[] violations = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < 3; k++)
+                objectives[i][k] = random.nextInt(20);
+            violations[i] = random.nextDouble() < 0.2 ? random.nextInt(5) + 1 : 0;
+        }
+
+        // Test
+        List<List<Integer>> fronts = NonDominatedSorter.sort(objectives, violations);
+
+        // Asserts
+        int[] ranks = new int[n];
+        Arrays.fill(ranks, -1);
+        for (int f = 0; f < fronts.size(); f++) {
+            for (int solution : fronts.get(f))
+                ranks[solution] = f;
+        }
+
+        int[] expectedRanks = bruteForceRanks(objectives, violations);
+        for (int i = 0; i < n; i++)
+            assertEquals("Solution " + i + " should be in the same front as with the brute force sort", expectedRanks[i], ranks[i]);
+    }
+
+    @Test
+    public void testCrowdingDistance_WhenFrontIsALine_ShouldFavorExtremes() {
+        // Setup
+        double[][] objectives = {{0, 4}, {1, 3}, {3, 1}, {4, 0}};
+        List<Integer> front = List.of(0, 1, 2, 3);
+
+        // Test
+        double[] distances = NonDominatedSorter.crowdingDistance(front, objectives);
+
+        // Asserts
+        assertEquals("Extremes should have an infinite distance", Double.POSITIVE_INFINITY, distances[0], 0);
+        assertEquals("Extremes should have an infinite distance", Double.POSITIVE_INFINITY, distances[3], 0);
+        assertEquals("Distance should be the normalized neighbour box", 1.5, distances[1], 0.0001);
+        assertEquals("Distance should be the normalized neighbour box", 1.5, distances[2], 0.0001);
+    }
+
+    // Peel off the non-dominated solutions one front at a time
+    private static int[] bruteForceRanks(double[][] objectives, double[] violations) {
+        int n = objectives.length;
+        int[] ranks = new int[n];
+        Arrays.fill(ranks, -1);
+
+        int assigned = 0;
+        for (int front = 0; assigned < n; front++) {
+            boolean[] inFront = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                if (ranks[i] >= 0)
+                    continue;
+
+                boolean dominated = false;
+                for (int j = 0; j < n && !dominated; j++)
+                    dominated = ranks[j] < 0 && j != i && NonDominatedSorter.dominates(j, i, objectives, violations);
+                inFront[i] = !dominated;
+            }
+
+            for (int i = 0; i < n; i++) {
+                if (inFront[i]) {
+                    ranks[i] = front;
+                    assigned++;
+                }
+            }
+        }
+
+        return ranks;
+    }
+}
@@ -0,0 +1,68 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class OffspringBreederTest {
+    private static final long SEED = 42;
+
+    @Test
+    public void testBreed_WhenThreadCountChanges_ShouldBreedTheSameOffspring() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        Random random = new Random(7);
+        List<EvolutionEngine.EvaluatedGenome> evaluatedPopulation = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            evaluatedPopulation.add(new EvolutionEngine.EvaluatedGenome(ReactorGenome.randomGenome(config, random), random.nextDouble() * 1000));
+
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        ExecutorService manyThreads = Executors.newFixedThreadPool(8);
+        try {
+            // Test
+            List<ReactorGenome> serialOffspring = new OffspringBreeder(config, SEED, singleThread, 1).breed(evaluatedPopulation, true, 3, 200, new ReactorGenome.MutationStatTracker());
+            List<ReactorGenome> parallelOffspring = new OffspringBreeder(config, SEED, manyThreads, 8).breed(evaluatedPopulation, true, 3, 200, new ReactorGenome.MutationStatTracker());
+
+            // Asserts
+            assertEquals("Every slot should be bred", 200, parallelOffspring.size());
+            for (int i = 0; i < serialOffspring.size(); i++)
+                assertEquals("Slot " + i + " should breed the same child whatever the thread count", serialOffspring.get(i), parallelOffspring.get(i));
+        } finally {
+            singleThread.shutdownNow();
+            manyThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBreed_WhenAChunkFails_ShouldFailTheGeneration() {
+        // Setup, nothing to pick parents from
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            OffspringBreeder offspringBreeder = new OffspringBreeder(config, SEED, executor, 2);
+
+            // Test
+            boolean failed = false;
+            try {
+                offspringBreeder.breed(new ArrayList<>(), true, 0, 10, new ReactorGenome.MutationStatTracker());
+            } catch (IllegalStateException e) {
+                failed = true;
+            }
+
+            // Asserts
+            assertTrue("A failed chunk should fail the whole generation instead of leaving empty slots", failed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RacingEvaluatorTest {
+    private static final double DELTA = 0.0001;
+    private static final int SHORT_HORIZON = 100;
+    private static final int LONG_HORIZON = 1000;
+    private static final int FULL_SIMULATION_TICKS = 10000;
+
+    @Test
+    public void testRace_WhenEveryGenomeRacesOn_ShouldPromoteTheBestHalfAtEachHorizon() {
+        // Setup, the output decides the ranking
+        GAConfig config = createConfig();
+        FitnessCalculator fitnessCalculator = new FitnessCalculator(config);
+        List<ReactorGenome> population = createPopulation(config, 4);
+        ScriptedSimulationPool simulationPool = new ScriptedSimulationPool();
+        for (int i = 0; i < population.size(); i++)
+            simulationPool.outputs.put(population.get(i), 10.0 * (i + 1));
+
+        // Test
+        RacingEvaluator.RaceResult result = new RacingEvaluator(config, simulationPool, fitnessCalculator).race(population);
+        List<EvolutionEngine.EvaluatedGenome> evaluated = result.getEvaluatedPopulation();
+
+        // Asserts
+        assertEquals("Half of the racers should be promoted at each horizon", Arrays.asList(4, 2, 1), simulationPool.batchSizes);
+        assertEquals("Only the last survivor should be fully simulated", 1, result.getFullSimulationCount());
+
+        EvolutionEngine.EvaluatedGenome winner = evaluated.get(3);
+        assertFalse("The survivor should be fully evaluated", winner.isPartialEvaluation());
+        assertEquals("The survivor should get its exact fitness", fitnessCalculator.score(winner.getGenome(), winner.getSimulationData()), winner.getFitness(), DELTA);
+
+        for (int i = 0; i < 3; i++) {
+            EvolutionEngine.EvaluatedGenome eliminated = evaluated.get(i);
+            assertTrue("Eliminated genomes should keep a partial evaluation", eliminated.isPartialEvaluation());
+            assertEquals("Eliminated genomes should get their scaled down estimate", 0.9 * fitnessCalculator.score(eliminated.getGenome(), eliminated.getSimulationData()), eliminated.getFitness(), DELTA);
+        }
+        assertEquals("The genome eliminated last should have raced the long horizon", LONG_HORIZON, evaluated.get(2).getSimulationData().totalReactorTicks);
+        assertEquals("The genomes eliminated first should only have raced the short horizon", SHORT_HORIZON, evaluated.get(0).getSimulationData().totalReactorTicks);
+    }
+
+    @Test
+    public void testRace_WhenSimulationEndsBeforeTheHorizon_ShouldKeepItsExactFitness() {
+        // Setup, the best genome stops on its own after 50 ticks
+        GAConfig config = createConfig();
+        FitnessCalculator fitnessCalculator = new FitnessCalculator(config);
+        List<ReactorGenome> population = createPopulation(config, 4);
+        ScriptedSimulationPool simulationPool = new ScriptedSimulationPool();
+        for (int i = 0; i < population.size(); i++)
+            simulationPool.outputs.put(population.get(i), 10.0 * (i + 1));
+        simulationPool.endTicks.put(population.get(3), 50);
+
+        // Test
+        RacingEvaluator.RaceResult result = new RacingEvaluator(config, simulationPool, fitnessCalculator).race(population);
+        EvolutionEngine.EvaluatedGenome finishedEarly = result.getEvaluatedPopulation().get(3);
+
+        // Asserts
+        assertEquals("The genome should finish early", 1, result.getFinishedEarlyCount());
+        assertFalse("A finished simulation is a full evaluation", finishedEarly.isPartialEvaluation());
+        assertEquals("A finished simulation should get its exact fitness, unscaled", fitnessCalculator.score(finishedEarly.getGenome(), finishedEarly.getSimulationData()), finishedEarly.getFitness(), DELTA);
+        assertEquals("Only the genomes still running should race on", Arrays.asList(4, 2, 1), simulationPool.batchSizes);
+        assertEquals("The genome should never be simulated again", 1, (int) simulationPool.simulationCounts.get(population.get(3)));
+    }
+
+    @Test
+    public void testRace_WhenSimulationIsAborted_ShouldGetTheFallbackFitnessAndLeaveTheRace() {
+        // Setup, the best genome is aborted by the watchdog, once at the horizon and once before it
+        GAConfig config = createConfig();
+        FitnessCalculator fitnessCalculator = new FitnessCalculator(config);
+        List<ReactorGenome> population = createPopulation(config, 4);
+        ScriptedSimulationPool simulationPool = new ScriptedSimulationPool();
+        for (int i = 0; i < population.size(); i++)
+            simulationPool.outputs.put(population.get(i), 10.0 * (i + 1));
+        simulationPool.aborted.add(population.get(3));
+        simulationPool.aborted.add(population.get(2));
+        simulationPool.endTicks.put(population.get(2), 30);
+
+        // Test
+        RacingEvaluator.RaceResult result = new RacingEvaluator(config, simulationPool, fitnessCalculator).race(population);
+
+        // Asserts
+        assertEquals("Both genomes should be counted as aborted", 2, result.getAbortedCount());
+        assertEquals("An aborted simulation didn't finish early", 0, result.getFinishedEarlyCount());
+        for (int i = 2; i < 4; i++) {
+            EvolutionEngine.EvaluatedGenome aborted = result.getEvaluatedPopulation().get(i);
+            assertEquals("An aborted simulation should get the fallback fitness", -42, aborted.getFitness(), DELTA);
+            assertFalse("An aborted simulation shouldn't be estimated", aborted.isPartialEvaluation());
+            assertEquals("An aborted genome should leave the race", 1, (int) simulationPool.simulationCounts.get(population.get(i)));
+        }
+        assertEquals("Only the genomes still running should race on", Arrays.asList(4, 1, 1), simulationPool.batchSizes);
+    }
+
+    private static GAConfig createConfig() {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.racing.enabled = true;
+        config.racing.horizons = new int[]{LONG_HORIZON, SHORT_HORIZON};
+        config.racing.promotionRatio = 0.5;
+        config.racing.nonPromotedFitnessScale = 0.9;
+        config.watchdog.enabled = true;
+        config.watchdog.fallbackFitness = -42;
+        return config;
+    }
+
+    private static List<ReactorGenome> createPopulation(GAConfig config, int size) {
+        Random random = new Random(42);
+        Set<ReactorGenome> population = new LinkedHashSet<>();
+        while (population.size() < size)
+            population.add(ReactorGenome.randomGenome(config, random));
+        return new ArrayList<>(population);
+    }
+
+    // Answers with scripted results instead of simulating: a cool reactor with the genome's output
+    private static class ScriptedSimulationPool extends SimulationPool {
+        final Map<ReactorGenome, Double> outputs = new HashMap<>();
+        final Map<ReactorGenome, Integer> endTicks = new HashMap<>();
+        final Set<ReactorGenome> aborted = new HashSet<>();
+        final Map<ReactorGenome, Integer> simulationCounts = new HashMap<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        ScriptedSimulationPool() {
+            super(null);
+        }
+
+        @Override
+        public List<SimulationData> simulate(List<ReactorGenome> genomes, int maxTicks) {
+            this.batchSizes.add(genomes.size());
+            List<SimulationData> results = new ArrayList<>();
+            for (ReactorGenome genome : genomes) {
+                this.simulationCounts.merge(genome, 1, Integer::sum);
+
+                SimulationData simulationData = new SimulationData();
+                simulationData.avgEUOutput = this.outputs.get(genome);
+                int horizon = maxTicks == FULL_SIMULATION ? FULL_SIMULATION_TICKS : maxTicks;
+                simulationData.totalReactorTicks = Math.min(horizon, this.endTicks.getOrDefault(genome, Integer.MAX_VALUE));
+                simulationData.aborted = this.aborted.contains(genome);
+                results.add(simulationData);
+            }
+            return results;
+        }
+    }
+}
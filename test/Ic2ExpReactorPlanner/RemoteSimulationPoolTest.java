@@ -0,0 +1,130 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class RemoteSimulationPoolTest {
+    private static final int MAX_TICKS = 200;
+
+    @Test
+    public void testSimulate_WithLoopbackWorkers_ShouldMatchLocalSimulation() throws Exception {
+        // Setup
+        GAConfig config = createConfig(10000);
+        List<ReactorGenome> genomes = createGenomes(config, 20);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        RemoteSimulationPool pool = new RemoteSimulationPool(config, executor);
+        List<SimulationWorker> workers = List.of(startWorker(pool, 1), startWorker(pool, 2));
+        try {
+            waitForWorkers(pool, 2);
+
+            // Test
+            List<SimulationData> remoteResults = pool.simulate(genomes, MAX_TICKS);
+
+            // Asserts
+            assertSameMetrics(new SimulationPool(executor).simulate(genomes, MAX_TICKS), remoteResults);
+        } finally {
+            pool.close();
+            workers.forEach(SimulationWorker::disconnect);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSimulate_WhenAWorkerGoesSilent_ShouldRedispatchItsBatches() throws Exception {
+        // Setup, a worker that says hello and then never answers
+        GAConfig config = createConfig(500);
+        List<ReactorGenome> genomes = createGenomes(config, 20);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        RemoteSimulationPool pool = new RemoteSimulationPool(config, executor);
+        Socket silentWorker = new Socket(InetAddress.getLoopbackAddress(), pool.getPort());
+        DataOutputStream silentOutput = new DataOutputStream(new BufferedOutputStream(silentWorker.getOutputStream()));
+        SimulationProtocol.writeFrame(silentOutput, SimulationProtocol.FRAME_HELLO, payload -> {
+            payload.writeInt(SimulationProtocol.VERSION);
+            payload.writeInt(1);
+        });
+        SimulationWorker worker = null;
+        try {
+            waitForWorkers(pool, 1);
+            worker = startWorker(pool, 2);
+            waitForWorkers(pool, 2);
+
+            // Test
+            List<SimulationData> remoteResults = pool.simulate(genomes, MAX_TICKS);
+
+            // Asserts
+            assertSameMetrics(new SimulationPool(executor).simulate(genomes, MAX_TICKS), remoteResults);
+            assertEquals("The silent worker should have been dropped", 1, pool.getWorkerCount());
+        } finally {
+            pool.close();
+            silentWorker.close();
+            if (worker != null)
+                worker.disconnect();
+            executor.shutdownNow();
+        }
+    }
+
+    private GAConfig createConfig(int heartbeatTimeoutMs) {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.remoteWorkers.enabled = true;
+        config.remoteWorkers.bindAddress = InetAddress.getLoopbackAddress().getHostAddress();
+        config.remoteWorkers.port = 0;
+        config.remoteWorkers.batchSize = 3;
+        config.remoteWorkers.pipelineDepth = 2;
+        config.remoteWorkers.heartbeatIntervalMs = 100;
+        config.remoteWorkers.heartbeatTimeoutMs = heartbeatTimeoutMs;
+        return config;
+    }
+
+    private List<ReactorGenome> createGenomes(GAConfig config, int count) {
+        Random random = new Random(42);
+        List<ReactorGenome> genomes = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            genomes.add(ReactorGenome.randomGenome(config, random));
+        return genomes;
+    }
+
+    private SimulationWorker startWorker(RemoteSimulationPool pool, int threadCount) {
+        SimulationWorker worker = new SimulationWorker(InetAddress.getLoopbackAddress().getHostAddress(), pool.getPort(), threadCount);
+        Thread thread = new Thread(() -> {
+            try {
+                worker.serve();
+            } catch (IOException ignored) {
+                // Disconnected at the end of the test
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return worker;
+    }
+
+    private void waitForWorkers(RemoteSimulationPool pool, int workerCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (pool.getWorkerCount() < workerCount && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals("Test setup failed: Workers didn't connect", workerCount, pool.getWorkerCount());
+    }
+
+    private void assertSameMetrics(List<SimulationData> expected, List<SimulationData> actual) {
+        assertEquals("Every genome should have a result", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("EU output should match the local simulation", expected.get(i).avgEUOutput, actual.get(i).avgEUOutput, 0);
+            assertEquals("Max heat should match the local simulation", expected.get(i).maxTemp, actual.get(i).maxTemp, 0);
+            assertEquals("Broken component time should match the local simulation", expected.get(i).firstComponentBrokenTime, actual.get(i).firstComponentBrokenTime);
+            assertEquals("Simulated ticks should match the local simulation", expected.get(i).totalReactorTicks, actual.get(i).totalReactorTicks);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import Ic2ExpReactorPlanner.GeneticOptimizer.SimulationService;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SimulationServiceTest {
+    @Test
+    public void testSimulate_WhenCodesRepeat_ShouldSimulateEachReactorOnce() throws IOException {
+        // Setup, a reactor without cooling melts down quickly
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.service.port = 0;
+        config.service.threads = 2;
+
+        ReactorGenome genome = new ReactorGenome(config);
+        genome.setFuelType(3); // Quad Fuel Rod (Uranium)
+        Arrays.fill(genome.getReactorLayout(), ReactorGenome.FUEL_VALUE);
+        Reactor reactor = genome.toReactor();
+        String code = reactor.getCode();
+        SimulationData expected = new ReactorSimulator().runSimulation(reactor);
+
+        SimulationService service = new SimulationService(config);
+        service.start();
+        try {
+            // Test
+            JsonObject batch = post(service, "{\"codes\": [\"" + code + "\", \"" + code + "\", \"not a code\"]}");
+            JsonObject single = post(service, "{\"code\": \"" + code.substring("erp=".length()) + "\"}");
+            JsonObject status = get(service, "/status");
+
+            // Asserts
+            JsonArray results = batch.getAsJsonArray("results");
+            assertEquals("Every code should get a result", 3, results.size());
+            for (int i = 0; i < 2; i++) {
+                JsonObject simulation = results.get(i).getAsJsonObject().getAsJsonObject("simulation");
+                assertNotNull("Valid codes should be simulated", simulation);
+                assertEquals("EU output should match a direct simulation", expected.avgEUOutput, simulation.get("avgEUOutput").getAsDouble(), 0);
+                assertEquals("Simulated ticks should match a direct simulation", expected.totalReactorTicks, simulation.get("totalReactorTicks").getAsInt());
+            }
+            assertNotNull("Invalid codes should get an error", results.get(2).getAsJsonObject().get("error"));
+            assertEquals("Codes without the prefix should be canonicalized", code, single.getAsJsonArray("results").get(0).getAsJsonObject().get("code").getAsString());
+            assertEquals("Repeated codes should share a simulation", 1, status.get("simulations").getAsInt());
+            assertEquals("Repeated codes should be coalesced or cached", 2, status.get("cacheHits").getAsInt() + status.get("coalescedRequests").getAsInt());
+        } finally {
+            service.stop();
+        }
+    }
+
+    private JsonObject post(SimulationService service, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + service.getPort() + "/simulate").toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return readResponse(connection);
+    }
+
+    private JsonObject get(SimulationService service, String path) throws IOException {
+        return readResponse((HttpURLConnection) URI.create("http://127.0.0.1:" + service.getPort() + path).toURL().openConnection());
+    }
+
+    private JsonObject readResponse(HttpURLConnection connection) throws IOException {
+        assertEquals("Request should succeed", 200, connection.getResponseCode());
+        try (InputStream input = connection.getInputStream()) {
+            return JsonParser.parseString(new String(input.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+    }
+}
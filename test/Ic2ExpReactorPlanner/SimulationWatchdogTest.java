@@ -0,0 +1,111 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SimulationWatchdogTest {
+    private static final String URANIUM_REACTOR_ERP_CODE = "erp=N0nc6OU0SvFZnCLVeUv6NTtSGYRuhPMF5/rPVu58BwJq0rGgaqVCookKH7pbJVRL7i32LAM=";
+
+    @Test
+    public void testRunSimulation_WhenTickLimitIsReached_ShouldAbort() {
+        // Setup
+        Reactor reactor = new Reactor();
+        reactor.setCode(URANIUM_REACTOR_ERP_CODE);
+        ReactorSimulator simulator = new ReactorSimulator();
+        simulator.setWatchdog(500, 0);
+
+        // Test
+        SimulationData simulationData = simulator.runSimulation(reactor);
+
+        // Asserts
+        assertTrue("A stable reactor outliving the tick limit should be aborted", simulationData.aborted);
+        assertEquals("The simulation should stop at the tick limit", 500, simulator.getReactorTicks());
+        assertEquals("The cooldown shouldn't be simulated after an abort", 0, simulator.getCooldownTicks());
+    }
+
+    @Test
+    public void testEvaluate_WhenSimulationIsAborted_ShouldGetTheFallbackFitness() throws Exception {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.heatBalance.enabled = false;
+        config.watchdog.enabled = true;
+        config.watchdog.maxTicks = 500;
+        config.watchdog.maxMillis = 0;
+        config.watchdog.fallbackFitness = -42;
+        config.watchdog.maxSlowGenomes = 10;
+
+        Reactor reactor = new Reactor();
+        reactor.setCode(URANIUM_REACTOR_ERP_CODE);
+        List<ReactorGenome> genomes = new ArrayList<>(Collections.nCopies(3, ReactorGenome.fromReactor(config, reactor)));
+
+        Path slowGenomePath = Files.createTempFile("slow_genomes", ".txt");
+        config.watchdog.slowGenomePath = slowGenomePath.toString();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            GenomeEvaluator genomeEvaluator = new GenomeEvaluator(config, new SimulationPool(executor), new FitnessCalculator(config), null);
+
+            // Test
+            List<EvolutionEngine.EvaluatedGenome> evaluatedGenomes = genomeEvaluator.evaluate(genomes);
+            genomeEvaluator.close();
+
+            // Asserts
+            for (EvolutionEngine.EvaluatedGenome evaluatedGenome : evaluatedGenomes)
+                assertEquals("Aborted simulations should get the fallback fitness", -42, evaluatedGenome.getFitness(), 0);
+
+            List<ReactorGenome> slowGenomes = SeedFileLoader.LoadSeedFile(config, slowGenomePath.toString());
+            assertNotNull("The slowest genomes should be readable as a seed file", slowGenomes);
+            assertEquals("The slowest 1% of 3 simulations should be a single genome", 1, slowGenomes.size());
+            assertEquals("The slowest genome should be the simulated one", genomes.get(0), slowGenomes.get(0));
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(slowGenomePath);
+        }
+    }
+
+    @Test
+    public void testCachingSimulationPool_WhenSimulationIsAborted_ShouldNotCacheIt() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.watchdog.maxTicks = 500;
+        config.watchdog.maxMillis = 0;
+
+        Reactor reactor = new Reactor();
+        reactor.setCode(URANIUM_REACTOR_ERP_CODE);
+        List<ReactorGenome> genomes = Collections.singletonList(ReactorGenome.fromReactor(config, reactor));
+
+        SimulationCache simulationCache = new SimulationCache(10);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CachingSimulationPool simulationPool = new CachingSimulationPool(executor, simulationCache);
+            simulationPool.setWatchdog(new SimulationWatchdog(config.watchdog));
+
+            // Test
+            SimulationData abortedData = simulationPool.simulate(genomes, 1000).get(0);
+            simulationPool.simulate(genomes, 1000);
+            int cachedAfterAborts = simulationCache.size();
+            simulationPool.setWatchdog(null);
+            SimulationData finishedData = simulationPool.simulate(genomes, 1000).get(0);
+
+            // Asserts
+            assertTrue("Test setup failed: The simulation should have been aborted", abortedData.aborted);
+            assertEquals("An aborted simulation should never be cached", 0, cachedAfterAborts);
+            assertEquals("An aborted simulation should be run again on the next request", 2, simulationPool.getSimulationCount() - 1);
+            assertFalse("Test setup failed: The simulation should have finished", finishedData.aborted);
+            assertEquals("A finished simulation should be cached", 1, simulationCache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
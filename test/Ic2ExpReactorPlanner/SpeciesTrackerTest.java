@@ -0,0 +1,114 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import Ic2ExpReactorPlanner.GeneticOptimizer.SpeciesTracker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SpeciesTrackerTest {
+    private static final String URANIUM_REACTOR_ERP_CODE = "erp=N0nc6OU0SvFZnCLVeUv6NTtSGYRuhPMF5/rPVu58BwJq0rGgaqVCookKH7pbJVRL7i32LAM=";
+    private static final String MOX_REACTOR_ERP_CODE = "erp=AN0nc6OU0Rz6w6jd/pKMVSHSxf7iuIgyxZ8Uu+NPBWGixMLV97mJ0BJ2BrnbiYBXbbzJTAM=";
+
+    // A small delta for comparing floating-point numbers to account for minor inaccuracies.
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testUpdate_WhenGenomesAreIdenticalOrDifferentFuel_ShouldGroupBySpecies() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SpeciesTracker speciesTracker = new SpeciesTracker(config, executor);
+
+        List<EvolutionEngine.EvaluatedGenome> population = new ArrayList<>();
+        population.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, URANIUM_REACTOR_ERP_CODE), 10.0));
+        population.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, URANIUM_REACTOR_ERP_CODE), 20.0));
+        population.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, MOX_REACTOR_ERP_CODE), 5.0));
+
+        // Test
+        SpeciesTracker.SpeciesSummary summary = speciesTracker.update(population);
+        executor.shutdown();
+
+        // Asserts
+        assertEquals("Identical genomes should share a species, different fuels should not", 2, summary.getSpeciesCount());
+        assertEquals("Diversity should be the species count over the population size", 2.0 / 3.0, summary.getDiversity(), DELTA);
+
+        SpeciesTracker.SpeciesStats bestSpecies = summary.getSpeciesByBestFitness().get(0);
+        assertEquals("Uranium species should have both uranium genomes", 2, bestSpecies.memberCount);
+        assertEquals("Uranium species best fitness should be its champion's", 20.0, bestSpecies.bestFitness, DELTA);
+        assertEquals("Genomes of the same species should carry the same species id", population.get(0).getGenome().getSpeciesId(), population.get(1).getGenome().getSpeciesId());
+        assertTrue("Genomes of different species should carry different species ids", population.get(0).getGenome().getSpeciesId() != population.get(2).getGenome().getSpeciesId());
+    }
+
+    @Test
+    public void testUpdate_WhenRunOverSeveralGenerations_ShouldKeepSpeciesIds() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SpeciesTracker speciesTracker = new SpeciesTracker(config, executor);
+
+        List<EvolutionEngine.EvaluatedGenome> firstGeneration = new ArrayList<>();
+        firstGeneration.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, URANIUM_REACTOR_ERP_CODE), 10.0));
+        firstGeneration.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, MOX_REACTOR_ERP_CODE), 5.0));
+
+        // Fresh genomes without any species hint
+        List<EvolutionEngine.EvaluatedGenome> secondGeneration = new ArrayList<>();
+        secondGeneration.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, MOX_REACTOR_ERP_CODE), 6.0));
+        secondGeneration.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, URANIUM_REACTOR_ERP_CODE), 11.0));
+
+        // Test
+        speciesTracker.update(firstGeneration);
+        SpeciesTracker.SpeciesSummary summary = speciesTracker.update(secondGeneration);
+        executor.shutdown();
+
+        // Asserts
+        assertEquals("No new species should have been created", 2, summary.getSpeciesCount());
+        assertEquals("Uranium genome should be assigned to its existing species", firstGeneration.get(0).getGenome().getSpeciesId(), secondGeneration.get(1).getGenome().getSpeciesId());
+        assertEquals("MOX genome should be assigned to its existing species", firstGeneration.get(1).getGenome().getSpeciesId(), secondGeneration.get(0).getGenome().getSpeciesId());
+        for (SpeciesTracker.SpeciesStats stats : summary.getSpecies()) {
+            assertEquals("Surviving species should have aged", 2, stats.age);
+        }
+    }
+
+    @Test
+    public void testUpdate_WhenInterrupted_ShouldStillAssignEveryGenomeAndKeepTheInterrupt() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SpeciesTracker speciesTracker = new SpeciesTracker(config, executor);
+
+        List<EvolutionEngine.EvaluatedGenome> population = new ArrayList<>();
+        population.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, URANIUM_REACTOR_ERP_CODE), 10.0));
+        population.add(new EvolutionEngine.EvaluatedGenome(genomeFromCode(config, MOX_REACTOR_ERP_CODE), 5.0));
+
+        // Test
+        Thread.currentThread().interrupt();
+        SpeciesTracker.SpeciesSummary summary = speciesTracker.update(population);
+        boolean interrupted = Thread.interrupted();
+        executor.shutdown();
+
+        // Asserts
+        assertTrue("The interrupt should be kept for the caller", interrupted);
+        assertEquals("Every genome should still be assigned to its species", 2, summary.getSpeciesCount());
+        assertTrue("Genomes of different species should carry different species ids", population.get(0).getGenome().getSpeciesId() != population.get(1).getGenome().getSpeciesId());
+    }
+
+    private static ReactorGenome genomeFromCode(GAConfig config, String code) {
+        Reactor reactor = new Reactor();
+        reactor.setCode(code);
+        return ReactorGenome.fromReactor(config, reactor);
+    }
+}
@@ -0,0 +1,48 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.SteadyStateSolver;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SteadyStateSolverTest {
+    private static final String STABLE_REACTOR_ERP_CODE = "erp=AN0nc6OU0EZ6odjKIHf5LQtII1WK0d2I46Jsac29tPkOMkwUWLvXEmuRd6ZfDXo5b1GSvAM=";
+    private static final String EXPLODING_REACTOR_ERP_CODE = "erp=AN0nc6OU0EZ6odjKIHf5LQtII1WK0d2I46Jsac29tENct0TQ5x2AuOHMgYsd4XMbSlGSvAM=";
+
+    @Test
+    public void testSolve_WhenReactorIsStable_ShouldMatchSimulatedOutput() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        Reactor reactor = new Reactor();
+        reactor.setCode(STABLE_REACTOR_ERP_CODE);
+        SimulationData data = new ReactorSimulator().runSimulation(reactor);
+
+        // Test
+        SteadyStateSolver.Result result = new SteadyStateSolver(config).solve(reactor);
+
+        // Asserts
+        assertTrue("Solver should have converged", result.isConverged());
+        assertFalse("A stable reactor shouldn't have any saturating component", result.isAnySaturating());
+        assertEquals("A stable reactor shouldn't keep any heat in the hull", 0.0, result.getHullHeat(), 0.0001);
+        assertEquals("Steady state EU output should match the simulation", data.avgEUOutput, result.getEUOutput(), 1.0);
+    }
+
+    @Test
+    public void testSolve_WhenReactorExplodes_ShouldReportSaturation() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+
+        Reactor reactor = new Reactor();
+        reactor.setCode(EXPLODING_REACTOR_ERP_CODE);
+
+        // Test
+        SteadyStateSolver.Result result = new SteadyStateSolver(config).solve(reactor);
+
+        // Asserts
+        assertTrue("An exploding reactor should have saturating components", result.isAnySaturating());
+    }
+}
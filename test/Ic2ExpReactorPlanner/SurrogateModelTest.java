@@ -0,0 +1,150 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.EvolutionEngine;
+import Ic2ExpReactorPlanner.GeneticOptimizer.GAConfig;
+import Ic2ExpReactorPlanner.GeneticOptimizer.ReactorGenome;
+import Ic2ExpReactorPlanner.GeneticOptimizer.SurrogateModel;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SurrogateModelTest {
+    private static final double DELTA = 0.001;
+
+    @Test
+    public void testPredict_WhenFitnessIsLinearInAFeature_ShouldRecoverIt() {
+        // Setup, the fitness is 50 plus 200 times the share of empty slots
+        GAConfig config = createConfig();
+        SurrogateModel surrogateModel = new SurrogateModel(config);
+        Random random = new Random(42);
+
+        List<EvolutionEngine.EvaluatedGenome> trainingSet = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ReactorGenome genome = ReactorGenome.randomGenome(config, random);
+            trainingSet.add(new EvolutionEngine.EvaluatedGenome(genome, linearFitness(genome)));
+        }
+
+        // Test
+        surrogateModel.train(trainingSet);
+
+        // Asserts
+        assertEquals("Every genome should be trained on", 500, surrogateModel.getSampleCount());
+        for (int i = 0; i < 20; i++) {
+            ReactorGenome genome = ReactorGenome.randomGenome(config, random);
+            assertEquals("An unseen genome should be predicted by the linear relation", linearFitness(genome), surrogateModel.predict(genome), DELTA);
+        }
+    }
+
+    @Test
+    public void testTrain_WhenFitnessDidNotComeFromTheSimulator_ShouldSkipIt() {
+        // Setup
+        GAConfig config = createConfig();
+        SurrogateModel surrogateModel = new SurrogateModel(config);
+        Random random = new Random(42);
+
+        EvolutionEngine.EvaluatedGenome simulated = new EvolutionEngine.EvaluatedGenome(ReactorGenome.randomGenome(config, random), 100);
+        simulated.setSimulationData(new SimulationData());
+        EvolutionEngine.EvaluatedGenome aborted = new EvolutionEngine.EvaluatedGenome(ReactorGenome.randomGenome(config, random), -1);
+        aborted.setSimulationData(new SimulationData());
+        aborted.getSimulationData().aborted = true;
+        EvolutionEngine.EvaluatedGenome meltdown = new EvolutionEngine.EvaluatedGenome(ReactorGenome.randomGenome(config, random), 0);
+        meltdown.setSimulationData(new SimulationData());
+        meltdown.getSimulationData().meltdownPredicted = true;
+
+        // Test
+        surrogateModel.train(List.of(simulated, aborted, meltdown));
+
+        // Asserts
+        assertEquals("Only the simulated genome should be trained on", 1, surrogateModel.getSampleCount());
+    }
+
+    @Test
+    public void testScreen_ShouldKeepTheBestPredictionsAndAnExplorationQuota() {
+        // Setup, 100 candidates and 20 offspring: the best 10% can fill 10 slots, 5 are kept for exploration
+        GAConfig config = createConfig();
+        config.surrogate.selectionPercentile = 0.9;
+        config.surrogate.explorationFraction = 0.25;
+        SurrogateModel surrogateModel = new SurrogateModel(config);
+        Random random = new Random(42);
+
+        List<EvolutionEngine.EvaluatedGenome> trainingSet = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ReactorGenome genome = ReactorGenome.randomGenome(config, random);
+            trainingSet.add(new EvolutionEngine.EvaluatedGenome(genome, linearFitness(genome)));
+        }
+        surrogateModel.train(trainingSet);
+
+        List<ReactorGenome> candidates = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            candidates.add(ReactorGenome.randomGenome(config, random));
+
+        List<ReactorGenome> ranking = new ArrayList<>(candidates);
+        ranking.sort(Comparator.comparingDouble(surrogateModel::predict).reversed());
+        List<ReactorGenome> bestPredicted = ranking.subList(0, 10);
+
+        // Test
+        List<ReactorGenome> offspring = surrogateModel.screen(candidates, 20, new Random(7), 0);
+
+        // Asserts
+        assertEquals("The screen should keep exactly the offspring count", 20, offspring.size());
+        assertEquals("The best predictions should come first, best first", bestPredicted, offspring.subList(0, 10));
+        Set<ReactorGenome> explored = new HashSet<>(offspring.subList(10, 20));
+        assertEquals("Exploration picks should be distinct", 10, explored.size());
+        for (ReactorGenome genome : explored)
+            assertFalse("Exploration picks should come from the rejected candidates", bestPredicted.contains(genome));
+    }
+
+    @Test
+    public void testScreen_WhenExplorationFractionIsLarge_ShouldCapTheSelectedCount() {
+        // Setup, half of 10 offspring is exploration even though 10 candidates are above the percentile
+        GAConfig config = createConfig();
+        config.surrogate.selectionPercentile = 0.9;
+        config.surrogate.explorationFraction = 0.5;
+        SurrogateModel surrogateModel = new SurrogateModel(config);
+        Random random = new Random(42);
+
+        List<EvolutionEngine.EvaluatedGenome> trainingSet = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ReactorGenome genome = ReactorGenome.randomGenome(config, random);
+            trainingSet.add(new EvolutionEngine.EvaluatedGenome(genome, linearFitness(genome)));
+        }
+        surrogateModel.train(trainingSet);
+
+        List<ReactorGenome> candidates = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            candidates.add(ReactorGenome.randomGenome(config, random));
+
+        List<ReactorGenome> ranking = new ArrayList<>(candidates);
+        ranking.sort(Comparator.comparingDouble(surrogateModel::predict).reversed());
+
+        // Test
+        List<ReactorGenome> offspring = surrogateModel.screen(candidates, 10, new Random(7), 0);
+
+        // Asserts
+        assertEquals("The screen should keep exactly the offspring count", 10, offspring.size());
+        assertEquals("Only the exploration quota's complement should be selected on prediction", ranking.subList(0, 5), offspring.subList(0, 5));
+        for (ReactorGenome genome : offspring.subList(5, 10))
+            assertFalse("Exploration picks should come from the rejected candidates", ranking.subList(0, 5).contains(genome));
+    }
+
+    private static GAConfig createConfig() {
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.surrogate.enabled = true;
+        config.surrogate.ridgeLambda = 1e-9;
+        return config;
+    }
+
+    private static double linearFitness(ReactorGenome genome) {
+        int[] layout = genome.getReactorLayout();
+        int emptyCount = 0;
+        for (int componentId : layout) {
+            if (componentId < 0)
+                emptyCount++;
+        }
+
+        return 50 + 200.0 * emptyCount / layout.length;
+    }
+}
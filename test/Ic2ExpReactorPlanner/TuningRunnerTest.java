@@ -0,0 +1,126 @@
+package Ic2ExpReactorPlanner;
+
+import Ic2ExpReactorPlanner.GeneticOptimizer.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class TuningRunnerTest {
+    @Test
+    public void testCreateCandidates_WhenModeIsGrid_ShouldCoverEveryCombination() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.tuning.mode = GAConfig.TUNING_MODE_GRID;
+        config.tuning.parameters = new GAConfig.TuningParameter[]{
+                parameter("evolution.populationSize", 50, 100, 200),
+                parameter("mutation.exploration.probabilityLayoutMutation", 0.1, 0.3)
+        };
+
+        // Test
+        List<TuningRunner.Candidate> candidates = new TuningRunner(config, 42).createCandidates();
+
+        // Asserts
+        assertEquals("Every combination should be a candidate", 6, candidates.size());
+        assertEquals("The first parameter should vary slowest", 50, candidates.get(1).getConfig().evolution.populationSize);
+        assertEquals("The last parameter should vary fastest", 0.3, candidates.get(1).getConfig().mutation.exploration.probabilityLayoutMutation, 0);
+        assertEquals("Other parameters should come from the config", config.evolution.tournamentSizeK, candidates.get(5).getConfig().evolution.tournamentSizeK);
+        assertNull("Tuning runs shouldn't write checkpoints", candidates.get(0).getConfig().checkpoint);
+    }
+
+    @Test
+    public void testCreateCandidates_WhenPathIsUnknown_ShouldThrow() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.tuning.parameters = new GAConfig.TuningParameter[]{parameter("evolution.populationSise", 50)};
+
+        // Test
+        boolean rejected = false;
+        try {
+            new TuningRunner(config, 42).createCandidates();
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+
+        // Asserts
+        assertTrue("A misspelled parameter should be rejected", rejected);
+    }
+
+    @Test
+    public void testCreateCandidates_WhenGridParameterOnlyHasARange_ShouldThrow() {
+        // Setup
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        config.tuning.mode = GAConfig.TUNING_MODE_GRID;
+        GAConfig.TuningParameter rangeParameter = new GAConfig.TuningParameter();
+        rangeParameter.path = "evolution.populationSize";
+        rangeParameter.min = 50;
+        rangeParameter.max = 200;
+        config.tuning.parameters = new GAConfig.TuningParameter[]{rangeParameter};
+
+        // Test
+        boolean rejected = false;
+        try {
+            new TuningRunner(config, 42).createCandidates();
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+
+        // Asserts
+        assertTrue("A grid needs values to enumerate", rejected);
+    }
+
+    @Test
+    public void testSimulate_WhenPoolsShareACache_ShouldSimulateEachGenomeOnce() {
+        // Setup, the same genomes twice in a batch and again from another pool
+        GAConfig config = GAConfig.loadConfig(null);
+        assertNotNull("Test setup failed: Could not load config", config);
+        Random random = new Random(42);
+        List<ReactorGenome> genomes = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            genomes.add(ReactorGenome.randomGenome(config, random));
+        genomes.addAll(new ArrayList<>(genomes));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SimulationCache simulationCache = new SimulationCache(100);
+        CachingSimulationPool firstPool = new CachingSimulationPool(executor, simulationCache);
+        CachingSimulationPool secondPool = new CachingSimulationPool(executor, simulationCache);
+        try {
+            // Test
+            List<SimulationData> firstResults = firstPool.simulate(genomes, 200);
+            List<SimulationData> secondResults = secondPool.simulate(genomes, 200);
+            List<SimulationData> expectedResults = new SimulationPool(executor).simulate(genomes, 200);
+
+            // Asserts
+            assertEquals("Duplicates should be simulated once", 4, firstPool.getSimulationCount());
+            assertEquals("The other pool should only get cache hits", 0, secondPool.getSimulationCount());
+            long simulatedCpuTime = 0;
+            for (SimulationData simulationData : secondResults)
+                simulatedCpuTime += simulationData.cpuTimeNanos;
+            assertTrue("Simulations should record their CPU time", simulatedCpuTime > 0);
+            assertEquals("Cache hits should cost what the simulations took", simulatedCpuTime, secondPool.getCachedCpuTimeNanos());
+            assertEquals("The pool that simulated shouldn't be charged twice", 0, firstPool.getCachedCpuTimeNanos());
+            for (int i = 0; i < genomes.size(); i++) {
+                assertSame("Both pools should share the cached simulation", firstResults.get(i), secondResults.get(i));
+                assertEquals("Cached results should match a fresh simulation", expectedResults.get(i).avgEUOutput, firstResults.get(i).avgEUOutput, 0);
+                assertEquals("Cached results should match a fresh simulation", expectedResults.get(i).maxTemp, firstResults.get(i).maxTemp, 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private GAConfig.TuningParameter parameter(String path, double... values) {
+        GAConfig.TuningParameter parameter = new GAConfig.TuningParameter();
+        parameter.path = path;
+        parameter.values = values;
+        return parameter;
+    }
+}